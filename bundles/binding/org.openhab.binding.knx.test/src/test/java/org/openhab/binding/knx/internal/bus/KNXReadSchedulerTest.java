@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.knx.internal.bus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.knx.config.KNXBindingProvider;
+import org.openhab.binding.knx.internal.config.KNXGenericBindingProvider;
+import org.openhab.core.library.items.NumberItem;
+
+import tuwien.auto.calimero.datapoint.Datapoint;
+import tuwien.auto.calimero.exception.KNXException;
+import tuwien.auto.calimero.exception.KNXTimeoutException;
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class KNXReadSchedulerTest {
+
+	private KNXGenericBindingProvider provider;
+
+	private TestReadScheduler scheduler;
+
+	@Before
+	public void init() throws Exception {
+		provider = new KNXGenericBindingProvider();
+		provider.processBindingConfiguration("test", new NumberItem("Fail"), "<1/1/1");
+		provider.processBindingConfiguration("test", new NumberItem("Temperature"), "<1/1/2");
+		provider.processBindingConfiguration("test", new NumberItem("Humidity"), "<(1)1/1/3");
+		scheduler = new TestReadScheduler(Collections.<KNXBindingProvider> singleton(provider));
+	}
+
+	@After
+	public void stop() {
+		scheduler.stop();
+	}
+
+	@Test
+	public void testRetryAfterInitialReads() throws Exception {
+		scheduleAll("Fail", "Temperature");
+		assertEquals(2, scheduler.getInitialReads());
+
+		scheduler.start();
+		scheduler.awaitReads(3);
+		assertEquals("[Fail, Temperature, Fail]", scheduler.reads.toString());
+		assertEquals(2, scheduler.getReadCount());
+		assertEquals(1, scheduler.getFailedReadCount());
+		assertEquals(0, scheduler.getInitialReads());
+		assertEquals(0, scheduler.getQueueSize());
+	}
+
+	@Test
+	public void testAutoRefresh() throws Exception {
+		scheduleAll("Humidity");
+		scheduler.start();
+		scheduler.awaitReads(2);
+		assertEquals("[Humidity, Humidity]", scheduler.reads.toString());
+		assertEquals(1, scheduler.getQueueSize());
+	}
+
+	@Test
+	public void testChangedItem() throws Exception {
+		scheduleAll("Temperature");
+		// the old datapoint must not be read anymore
+		provider.processBindingConfiguration("test", new NumberItem("Temperature"), "<1/1/4");
+		scheduler.scheduleRead("Temperature");
+		scheduler.scheduleRead("Humidity");
+		scheduler.start();
+		scheduler.awaitReads(2);
+
+		assertEquals(2, scheduler.reads.size());
+		assertTrue(scheduler.reads.contains("Humidity"));
+		assertEquals("1/1/4", scheduler.datapoints.get(scheduler.reads.indexOf("Temperature")).getMainAddress().toString());
+	}
+
+	private void scheduleAll(String... itemNames) {
+		for (String itemName : itemNames) {
+			for (Datapoint datapoint : provider.getReadableDatapoints()) {
+				if (datapoint.getName().equals(itemName)) {
+					scheduler.scheduleRead(datapoint, provider.getAutoRefreshTime(datapoint));
+				}
+			}
+		}
+	}
+
+	private static class TestReadScheduler extends KNXReadScheduler {
+
+		private final List<String> reads = Collections.synchronizedList(new ArrayList<String>());
+
+		private final List<Datapoint> datapoints = Collections.synchronizedList(new ArrayList<Datapoint>());
+
+		TestReadScheduler(Collection<KNXBindingProvider> providers) {
+			super(providers);
+		}
+
+		@Override
+		boolean sendReadRequest(Datapoint datapoint) throws KNXException {
+			boolean fail = datapoint.getName().equals("Fail") && !reads.contains("Fail");
+			reads.add(datapoint.getName());
+			datapoints.add(datapoint);
+			if (fail) {
+				throw new KNXTimeoutException("no response");
+			}
+			return true;
+		}
+
+		@Override
+		long getReadInterval() {
+			return 10;
+		}
+
+		/**
+		 * Waits until the given number of reads has been processed, including the scheduling
+		 * of their follow-up reads.
+		 */
+		synchronized void awaitReads(int count) throws InterruptedException {
+			long timeout = System.currentTimeMillis() + 5000;
+			while (getReadCount() + getFailedReadCount() < count && System.currentTimeMillis() < timeout) {
+				wait(Math.max(1, timeout - System.currentTimeMillis()));
+			}
+			assertTrue("reads not processed", getReadCount() + getFailedReadCount() >= count);
+		}
+	}
+
+}
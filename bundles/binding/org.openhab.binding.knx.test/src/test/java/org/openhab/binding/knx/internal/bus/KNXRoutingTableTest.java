@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.knx.internal.bus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.knx.config.KNXBindingProvider;
+import org.openhab.binding.knx.internal.config.KNXGenericBindingProvider;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.StringType;
+
+import tuwien.auto.calimero.GroupAddress;
+import tuwien.auto.calimero.datapoint.Datapoint;
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class KNXRoutingTableTest {
+
+	private KNXRoutingTable routingTable;
+
+	@Before
+	public void init() throws Exception {
+		KNXGenericBindingProvider provider = new KNXGenericBindingProvider();
+		provider.processBindingConfiguration("test", new SwitchItem("Light1"), "1/1/10+0/1/13");
+		provider.processBindingConfiguration("test", new SwitchItem("Light2"), "1/1/20+0/1/13");
+		routingTable = new KNXRoutingTable(Collections.<KNXBindingProvider> singleton(provider));
+	}
+
+	@Test
+	public void testGetRoute() throws Exception {
+		KNXRoutingTable.Route route = routingTable.getRoute(new GroupAddress("1/1/10"));
+		assertEquals(1, route.size());
+		assertEquals("Light1", route.getItemName(0));
+		assertEquals(new GroupAddress("1/1/10"), route.getDatapoints(0).get(0).getMainAddress());
+		assertTrue(route.isCommandGA());
+		assertSame(route, routingTable.getRoute(new GroupAddress("1/1/10")));
+
+		route = routingTable.getRoute(new GroupAddress("0/1/13"));
+		assertEquals(2, route.size());
+		assertEquals(1, route.getDatapoints(0).size());
+		assertEquals(1, route.getDatapoints(1).size());
+		assertFalse(route.isCommandGA());
+
+		assertEquals(0, routingTable.getRoute(new GroupAddress("2/2/2")).size());
+	}
+
+	@Test
+	public void testGetDatapoints() throws Exception {
+		List<Datapoint> datapoints = routingTable.getDatapoints("Light2", OnOffType.class);
+		assertEquals(1, datapoints.size());
+		assertEquals(new GroupAddress("1/1/20"), datapoints.get(0).getMainAddress());
+		assertTrue(routingTable.getDatapoints("Light2", StringType.class).isEmpty());
+		assertTrue(routingTable.getDatapoints("Unknown", OnOffType.class).isEmpty());
+	}
+
+}
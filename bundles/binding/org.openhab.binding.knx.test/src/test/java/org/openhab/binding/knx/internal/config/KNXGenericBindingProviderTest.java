@@ -144,6 +144,25 @@ public class KNXGenericBindingProviderTest {
 		assertEquals(0, readableDatapoints.next().getMainAddress().getMainGroup());
 	}
 
+	@Test
+	public void testAutoRefresh() throws BindingConfigParseException, KNXFormatException {
+		
+		provider.processBindingConfiguration("text", item1, "<(300)5.001:4/2/10, <4/2/11");
+		
+		// method under Test
+		Iterator<Datapoint> readableDatapoints = provider.getReadableDatapoints().iterator();
+		Datapoint datapoint = readableDatapoints.next();
+		assertEquals("5.001", datapoint.getDPT());
+		assertEquals(new GroupAddress("4/2/10"), datapoint.getMainAddress());
+		assertEquals(300, provider.getAutoRefreshTime(datapoint));
+		assertEquals(0, provider.getAutoRefreshTime(readableDatapoints.next()));
+	}
+
+	@Test(expected=BindingConfigParseException.class)
+	public void testAutoRefresh_invalidInterval() throws BindingConfigParseException {
+		provider.parseBindingConfigString(item1, "<(5m)4/2/10");
+	}
+
 	@Test
 	public void testAutoUpdate() throws BindingConfigParseException, KNXFormatException {
 		
@@ -63,6 +63,16 @@ public interface KNXBindingProvider extends BindingProvider {
 	 */
 	public Iterable<Datapoint> getReadableDatapoints();
 	
+	/**
+	 * This method returns the interval in which a readable datapoint is to be read
+	 * from the KNX bus again, in order to keep its status up to date.
+	 * 
+	 * @param datapoint a datapoint which accepts read requests
+	 * @return the interval in seconds or <code>0</code>, if the datapoint is only
+	 * to be read during initialization
+	 */
+	public int getAutoRefreshTime(Datapoint datapoint);
+	
 	/**
 	 * Checks whether the given <code>groupAddress</code> is to be interpreted as
 	 * CommandGA or not. Returns <code>true</code> if <code>groupAddress</code>
@@ -10,12 +10,8 @@ package org.openhab.binding.knx.internal.bus;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.apache.commons.lang.IllegalClassException;
 import org.openhab.binding.knx.config.KNXBindingProvider;
@@ -36,7 +32,6 @@ import tuwien.auto.calimero.DetachEvent;
 import tuwien.auto.calimero.GroupAddress;
 import tuwien.auto.calimero.datapoint.Datapoint;
 import tuwien.auto.calimero.exception.KNXException;
-import tuwien.auto.calimero.exception.KNXIllegalArgumentException;
 import tuwien.auto.calimero.process.ProcessCommunicator;
 import tuwien.auto.calimero.process.ProcessEvent;
 import tuwien.auto.calimero.process.ProcessListener;
@@ -59,27 +54,23 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 	private static final Logger logger = LoggerFactory.getLogger(KNXBinding.class);
 
 	/** to keep track of all KNX type mappers */
-	protected Collection<KNXTypeMapper> typeMappers = new HashSet<KNXTypeMapper>();
+	protected Collection<KNXTypeMapper> typeMappers = new CopyOnWriteArraySet<KNXTypeMapper>();
+
+	/** the items and datapoints by group address; replaced whenever a binding changes */
+	private volatile KNXRoutingTable routingTable = new KNXRoutingTable(providers);
 	
 	/**
 	 * used to store events that we have sent ourselves; we need to remember them for not reacting to them
 	 */
 	private List<String> ignoreEventList = new ArrayList<String>();
 
-	/**
-	 * keeps track of all datapoints for which we should send a read request to the KNX bus
-	 */
-	private Map<Datapoint, Integer> datapointsToInitialize = Collections.synchronizedMap(new HashMap<Datapoint, Integer>());
-	
-
-	/** the datapoint initializer, which runs in a separate thread */
-	private DatapointInitializer initializer = new DatapointInitializer();
+	/** the read scheduler, which sends the read requests to the KNX bus in a separate thread */
+	private KNXReadScheduler readScheduler = new KNXReadScheduler(providers);
 	
 
 	public void activate(ComponentContext componentContext) {
 		KNXConnection.addConnectionEstablishedListener(this);
-		initializer = new DatapointInitializer();
-		initializer.start();
+		readScheduler.start();
 	}
 
 	public void deactivate(ComponentContext componentContext) {
@@ -88,7 +79,7 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 			provider.removeBindingChangeListener(this);
 		}
 		providers.clear();
-		initializer.setInterrupted(true);
+		readScheduler.stop();
 		KNXConnection.disconnect();
 	}
 	
@@ -100,6 +91,15 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 		this.typeMappers.remove(typeMapper);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeBindingProvider(KNXBindingProvider provider) {
+		super.removeBindingProvider(provider);
+		routingTable = new KNXRoutingTable(providers);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -135,8 +135,8 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 	}
 
 	private void writeToKNX(String itemName, Type value) {
-		Iterable<Datapoint> datapoints = getDatapoints(itemName, value.getClass());
-		if (datapoints != null) {
+		List<Datapoint> datapoints = routingTable.getDatapoints(itemName, value.getClass());
+		if (!datapoints.isEmpty()) {
 			ProcessCommunicator pc = KNXConnection.getCommunicator();
 			if (pc != null) {
 				for (Datapoint datapoint : datapoints) {
@@ -179,7 +179,7 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 	
 	/**
 	 * Handles the given {@link ProcessEvent}. After finding the corresponding
-	 * Item (by iterating through all known group addresses) this Item is updated.
+	 * Item (by looking up the group address in the routing table) this Item is updated.
 	 * Each item is added to a special list to identify and avoid echo's in
 	 * the <code>receiveUpdate</code> and <code>receiveCommand</code> methods.  
 	 *  
@@ -192,28 +192,27 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 			if (asdu.length==0) {
 				return;
 			}
-			for (String itemName : getItemNames(destination)) {
-				Iterable<Datapoint> datapoints = getDatapoints(itemName, destination);
-				if (datapoints != null) {
-					for (Datapoint datapoint : datapoints) {
-						Type type = getType(datapoint, asdu);					
-						if (type!=null) {
-							// we need to make sure that we won't send out this event to
-							// the knx bus again, when receiving it on the openHAB bus
-							ignoreEventList.add(itemName + type.toString());
-							logger.trace("Added event (item='{}', type='{}') to the ignore event list", itemName, type.toString());
+			KNXRoutingTable.Route route = routingTable.getRoute(destination);
+			for (int i = 0; i < route.size(); i++) {
+				String itemName = route.getItemName(i);
+				for (Datapoint datapoint : route.getDatapoints(i)) {
+					Type type = getType(datapoint, asdu);
+					if (type!=null) {
+						// we need to make sure that we won't send out this event to
+						// the knx bus again, when receiving it on the openHAB bus
+						ignoreEventList.add(itemName + type.toString());
+						logger.trace("Added event (item='{}', type='{}') to the ignore event list", itemName, type.toString());
+						
+						if (type instanceof Command && route.isCommandGA()) {
+							eventPublisher.postCommand(itemName, (Command) type);
+						} else if (type instanceof State) {
+							eventPublisher.postUpdate(itemName, (State) type);
+						} else {
+							throw new IllegalClassException("Cannot process datapoint of type " + type.toString());
+						}								
 							
-							if (type instanceof Command && isCommandGA(destination)) {
-								eventPublisher.postCommand(itemName, (Command) type);
-							} else if (type instanceof State) {
-								eventPublisher.postUpdate(itemName, (State) type);
-							} else {
-								throw new IllegalClassException("Cannot process datapoint of type " + type.toString());
-							}								
-								
-							logger.trace("Processed event (item='{}', type='{}', destination='{}')", new String[] {itemName, type.toString(), destination.toString()});
-							return;
-						}
+						logger.trace("Processed event (item='{}', type='{}', destination='{}')", new String[] {itemName, type.toString(), destination.toString()});
+						return;
 					}
 				}
 			}
@@ -229,12 +228,8 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 	 */
 	public void bindingChanged(BindingProvider provider, String itemName) {
 		if (provider instanceof KNXBindingProvider) {
-			KNXBindingProvider knxProvider = (KNXBindingProvider) provider;
-			for (Datapoint datapoint : knxProvider.getReadableDatapoints()) {
-				if(datapoint.getName().equals(itemName)) {
-					datapointsToInitialize.put(datapoint, 0);
-				}
-			}
+			routingTable = new KNXRoutingTable(providers);
+			readScheduler.scheduleRead(itemName);
 		}
 	}
 
@@ -243,9 +238,10 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 	 */
 	public void allBindingsChanged(BindingProvider provider) {
 		if (provider instanceof KNXBindingProvider) {
+			routingTable = new KNXRoutingTable(providers);
 			KNXBindingProvider knxProvider = (KNXBindingProvider) provider;
 			for (Datapoint datapoint : knxProvider.getReadableDatapoints()) {
-				datapointsToInitialize.put(datapoint, 0);
+				readScheduler.scheduleRead(datapoint, knxProvider.getAutoRefreshTime(datapoint));
 			}
 		}
 	}
@@ -258,65 +254,11 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 	public void connectionEstablished() {
 		for (KNXBindingProvider knxProvider : providers) {
 			for (Datapoint datapoint : knxProvider.getReadableDatapoints()) {
-				datapointsToInitialize.put(datapoint, 0);
+				readScheduler.scheduleRead(datapoint, knxProvider.getAutoRefreshTime(datapoint));
 			}
 		}
 	}
 	
-	/**
-	 * Determines whether the given <code>groupAddress</code> is the address which
-	 * will be interpreted as the command type. This method iterates over all 
-	 * registered KNX binding providers to find the result.
-
-	 * @param groupAddress the group address to check
-	 * @return true, if it is a command GA
-	 */
-	private boolean isCommandGA(GroupAddress groupAddress) {
-		for (KNXBindingProvider provider : providers) {
-			if(!provider.isCommandGA(groupAddress)) {
-				return false;
-			}
-		}
-		return true;
-	}
-	
-	/**
-	 * Returns all listening item names. This method iterates over all registered KNX binding providers and aggregates
-	 * the result.
-	 * 
-	 * @param groupAddress
-	 *            the group address that the items are listening to
-	 * @return an array of all listening items
-	 */
-	private String[] getItemNames(GroupAddress groupAddress) {
-		List<String> itemNames = new ArrayList<String>();
-		for (KNXBindingProvider provider : providers) {
-			for (String itemName : provider.getListeningItemNames(groupAddress)) {
-				itemNames.add(itemName);
-			}
-		}
-		return itemNames.toArray(new String[itemNames.size()]);
-	}
-
-	/**
-	 * Returns the datapoints for a given item and group address. This method iterates over all registered KNX binding
-	 * providers to find the result.
-	 * 
-	 * @param itemName
-	 *            the item name for the datapoint
-	 * @param groupAddress
-	 *            the group address associated to the datapoint
-	 * @return the datapoints which corresponds to the given item and group address
-	 */
-	private Iterable<Datapoint> getDatapoints(String itemName, GroupAddress groupAddress) {
-		for (KNXBindingProvider provider : providers) {
-			Iterable<Datapoint> datapoints = provider.getDatapoints(itemName, groupAddress);
-			if (datapoints != null)
-				return datapoints;
-		}
-		return null;
-	}
-
 	/**
 	 * Transforms the raw KNX bus data of a given datapoint into an openHAB type (command or state)
 	 * 
@@ -335,26 +277,6 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 		return null;
 	}
 
-	/**
-	 * Returns the datapoints for a given item and type class. This method iterates over all registered KNX binding
-	 * providers to find the result.
-	 * 
-	 * @param itemName
-	 *            the item name for the datapoints
-	 * @param typeClass
-	 *            the type class associated to the datapoints
-	 * @return the datapoints which corresponds to the given item and type class
-	 */
-	private Iterable<Datapoint> getDatapoints(final String itemName, final Class<? extends Type> typeClass) {
-		Set<Datapoint> datapoints = new HashSet<Datapoint>();
-		for (KNXBindingProvider provider : providers) {
-			for (Datapoint datapoint : provider.getDatapoints(itemName, typeClass)) {
-				datapoints.add(datapoint);
-			}
-		}
-		return datapoints;
-	}
-
 	/**
 	 * Transforms an openHAB type (command or state) into a datapoint type value for the KNX bus.
 	 * 
@@ -374,101 +296,4 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 		return null;
 	}
 
-	/**
-	 * The DatapointInitializer runs as a separate thread. Whenever new KNX bindings are added, it takes care that read
-	 * requests are sent to all new datapoints, which support this request. By this, the initial status can be
-	 * determined and one does not have to stay in an "undefined" state until the first telegram is sent on the NX bus
-	 * for this datapoint. As there might be hundreds of datapoints added at the same time and we do not want to flood
-	 * the KNX bus with read requests, we wait a configurable period of milliseconds between two requests. As a result,
-	 * this might be quite long running and thus is executed in its own thread.
-	 * 
-	 * @author Kai Kreuzer
-	 * @since 0.3.0
-	 * 
-	 */
-	private class DatapointInitializer extends Thread {
-		
-		private boolean interrupted = false;
-		
-		public DatapointInitializer() {
-			super("KNX datapoint initializer");
-		}
-
-		public void setInterrupted(boolean interrupted) {
-			this.interrupted = interrupted;
-		}
-
-		@Override
-		public void run() {
-			// as long as no interrupt is requested, continue running
-			while (!interrupted && !KNXConnection.shutdown) {
-				if (datapointsToInitialize.size() > 0) {
-					// we first clone the map, so that it stays unmodified
-					HashMap<Datapoint,Integer> clonedMap =
-						new HashMap<Datapoint, Integer>(datapointsToInitialize);
-					initializeDatapoints(clonedMap);
-				}
-				// just wait before looping again
-				try {
-					sleep(1000L);
-				} catch (InterruptedException e) {
-					interrupted = true;
-				}
-			}
-		}
-
-		private void initializeDatapoints(HashMap<Datapoint,Integer> clonedMap) {
-			for (Datapoint datapoint : clonedMap.keySet()) {
-				try {
-					ProcessCommunicator pc = KNXConnection.getCommunicator();
-					if (pc != null) {
-						logger.debug("Sending read request to KNX for item {}", datapoint.getName());
-						pc.read(datapoint);
-					}
-					datapointsToInitialize.remove(datapoint);
-				} catch (KNXException e) {
-					logger.warn("Cannot read value for item '{}' from KNX bus: {}", new String[] { datapoint.getName(), e.getMessage() });
-					increaseReadLimitCounter(datapoint);
-				} catch (KNXIllegalArgumentException e) {
-					logger.warn("Error sending KNX read request for '{}': {}", new String[] { datapoint.getName(), e.getMessage() });
-					increaseReadLimitCounter(datapoint);
-				} catch (InterruptedException e) {
-					logger.warn("Cannot read value for item '{}' from KNX bus: {}", new String[] { datapoint.getName(), e.getMessage() });
-					increaseReadLimitCounter(datapoint);
-				}
-
-				int retriesLimit = KNXConnection.getReadRetriesLimit();
-				// it is possible that a key contained in the clonedMap disappeared
-				// from the original datapointMap!
-				int retriesCounter = datapointsToInitialize.get(datapoint) != null ? 
-									 datapointsToInitialize.get(datapoint) : Integer.MIN_VALUE;
-				if (retriesLimit < retriesCounter) {
-					datapointsToInitialize.remove(datapoint);
-					logger.debug("Giving up initialization of item {} - retries ({}) exeeded.", datapoint.getName(), retriesLimit);
-				}
-
-				long readingPause = KNXConnection.getReadingPause();
-				if (readingPause > 0) {
-					try {
-						sleep(readingPause);
-					} catch (InterruptedException e) {
-						logger.debug("KNX reading pause has been interrupted: {}", e.getMessage());
-					}
-				}
-				if(KNXConnection.shutdown) {
-					return;
-				}
-			}
-		}
-
-		private synchronized void increaseReadLimitCounter(Datapoint datapoint) {
-			if (datapointsToInitialize.containsKey(datapoint)) {
-				Integer counter = datapointsToInitialize.get(datapoint);
-				datapointsToInitialize.put(datapoint, counter + 1);
-			}
-		}		
-		
-	}
-	
-
 }
@@ -0,0 +1,407 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.knx.internal.bus;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.openhab.binding.knx.config.KNXBindingProvider;
+import org.openhab.binding.knx.internal.connection.KNXConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tuwien.auto.calimero.datapoint.Datapoint;
+import tuwien.auto.calimero.exception.KNXException;
+import tuwien.auto.calimero.exception.KNXIllegalArgumentException;
+import tuwien.auto.calimero.process.ProcessCommunicator;
+
+/**
+ * The read scheduler sends read requests for readable datapoints to the KNX bus. By
+ * this, the initial status can be determined and one does not have to stay in an
+ * "undefined" state until the first telegram is sent on the KNX bus for this datapoint.
+ * Datapoints with an auto refresh time are read again periodically.
+ * <p>As there might be hundreds of datapoints added at the same time and we do not want
+ * to flood the KNX bus with read requests, the reads are paced: there is a configurable
+ * pause after each read and a configurable maximum number of reads per second. Initial
+ * reads are sent before retries of failed reads, which are sent before periodic reads.
+ * As a result, this might be quite long running and thus is executed in its own thread.</p>
+ *
+ * @author agent
+ * @since 1.5.0
+ *
+ */
+class KNXReadScheduler implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(KNXReadScheduler.class);
+
+	/** the interval in milliseconds in which the status of the scheduler is logged */
+	private static final long STATUS_INTERVAL = 15 * 60 * 1000L;
+
+	/** the order in which due reads are sent */
+	enum Priority {
+		INITIAL, RETRY, REFRESH
+	}
+
+	private final Collection<KNXBindingProvider> providers;
+
+	/** the pending reads, ordered by due time, priority and the order they were scheduled in */
+	private final PriorityQueue<ReadRequest> queue = new PriorityQueue<ReadRequest>();
+
+	/** the current request of each datapoint; requests in the queue which are not in here are obsolete */
+	private final Map<Datapoint, ReadRequest> requests = new HashMap<Datapoint, ReadRequest>();
+
+	/** the items with changed bindings, whose readable datapoints still have to be scheduled */
+	private final Set<String> changedItems = new HashSet<String>();
+
+	private Thread thread;
+
+	private long sequence = 0;
+
+	private long lastReadTime = 0;
+
+	/** the number of initial reads which are pending, as a measure of the initialization progress */
+	private int initialReads = 0;
+
+	private long initializationStart = 0;
+
+	private long readCount = 0;
+
+	private long failedReadCount = 0;
+
+	private long lastStatusTime = 0;
+
+	/**
+	 * @param providers the binding providers to look up the readable datapoints of changed items
+	 */
+	KNXReadScheduler(Collection<KNXBindingProvider> providers) {
+		this.providers = providers;
+	}
+
+	synchronized void start() {
+		if (thread == null) {
+			thread = new Thread(this, "KNX read scheduler");
+			thread.setDaemon(true);
+			lastStatusTime = System.currentTimeMillis();
+			thread.start();
+		}
+	}
+
+	synchronized void stop() {
+		if (thread != null) {
+			thread.interrupt();
+			thread = null;
+			logger.debug("Stopped reading from the KNX bus: {}", getStatus());
+		}
+	}
+
+	/**
+	 * Schedules an initial read of the given datapoint, replacing any read which has
+	 * been scheduled for it before.
+	 *
+	 * @param datapoint the datapoint to read
+	 * @param autoRefreshTime the interval in seconds in which the datapoint is to be read
+	 * again, or 0, if it is to be read only once
+	 */
+	synchronized void scheduleRead(Datapoint datapoint, int autoRefreshTime) {
+		ReadRequest request = new ReadRequest(datapoint, Priority.INITIAL, 0, autoRefreshTime * 1000L, 0);
+		ReadRequest previous = requests.put(datapoint, request);
+		if (previous != null && previous.priority == Priority.INITIAL) {
+			initialReads--;
+		}
+		enqueue(request);
+	}
+
+	/**
+	 * Schedules initial reads of the readable datapoints of an item, once the binding of the
+	 * item has changed. Reads which have been scheduled for the previous binding are cancelled.
+	 * <p>The readable datapoints are looked up by the scheduler thread for all changed items at
+	 * once, so that a change of many items does not require a search through all datapoints per
+	 * item.</p>
+	 *
+	 * @param itemName the item whose binding has changed
+	 */
+	synchronized void scheduleRead(String itemName) {
+		changedItems.add(itemName);
+		notifyAll();
+	}
+
+	/**
+	 * @return the number of pending reads, including periodic reads
+	 */
+	synchronized int getQueueSize() {
+		return requests.size();
+	}
+
+	/**
+	 * @return the number of initial reads which have not been sent yet
+	 */
+	synchronized int getInitialReads() {
+		return initialReads;
+	}
+
+	/**
+	 * @return the number of read requests which have been sent successfully
+	 */
+	synchronized long getReadCount() {
+		return readCount;
+	}
+
+	/**
+	 * @return the number of read requests which have failed
+	 */
+	synchronized long getFailedReadCount() {
+		return failedReadCount;
+	}
+
+	/**
+	 * @return a summary of the pending and the sent reads for the log
+	 */
+	synchronized String getStatus() {
+		return requests.size() + " reads queued (" + initialReads + " initial reads), "
+				+ readCount + " reads succeeded, " + failedReadCount + " failed";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void run() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				scheduleChangedItems();
+				ReadRequest request = takeRequest();
+				if (request != null) {
+					read(request);
+				}
+			}
+		} catch (InterruptedException e) {
+			// we have been stopped
+		}
+	}
+
+	/**
+	 * Sends a read request for the datapoint to the KNX bus. The response is processed
+	 * like any other telegram from the bus.
+	 *
+	 * @param datapoint the datapoint to read
+	 * @return false, if there is no connection to the KNX bus
+	 */
+	boolean sendReadRequest(Datapoint datapoint) throws KNXException, InterruptedException {
+		ProcessCommunicator pc = KNXConnection.getCommunicator();
+		if (pc == null || KNXConnection.shutdown) {
+			return false;
+		}
+		pc.read(datapoint);
+		return true;
+	}
+
+	/**
+	 * @return the minimum time in milliseconds between the starts of two reads
+	 */
+	long getReadInterval() {
+		int maxReadsPerSecond = KNXConnection.getMaxReadsPerSecond();
+		return maxReadsPerSecond > 0 ? 1000L / maxReadsPerSecond : 0;
+	}
+
+	private void scheduleChangedItems() {
+		Set<String> itemNames;
+		synchronized (this) {
+			if (changedItems.isEmpty()) {
+				return;
+			}
+			itemNames = new HashSet<String>(changedItems);
+			changedItems.clear();
+			Iterator<ReadRequest> iterator = requests.values().iterator();
+			while (iterator.hasNext()) {
+				ReadRequest request = iterator.next();
+				if (itemNames.contains(request.datapoint.getName())) {
+					if (request.priority == Priority.INITIAL) {
+						initialReads--;
+					}
+					iterator.remove();
+				}
+			}
+		}
+		// the providers are asked without holding our lock, as they synchronize on their configurations
+		for (KNXBindingProvider provider : providers) {
+			for (Datapoint datapoint : provider.getReadableDatapoints()) {
+				if (itemNames.contains(datapoint.getName())) {
+					scheduleRead(datapoint, provider.getAutoRefreshTime(datapoint));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits until the next read is due and the read interval has passed since the last read.
+	 *
+	 * @return the next request or <code>null</code>, if items have changed in the meantime
+	 */
+	private synchronized ReadRequest takeRequest() throws InterruptedException {
+		while (changedItems.isEmpty()) {
+			ReadRequest request = queue.peek();
+			if (request != null && requests.get(request.datapoint) != request) {
+				// the request has been replaced or cancelled
+				queue.poll();
+				continue;
+			}
+			long now = System.currentTimeMillis();
+			long readTime = Math.max(lastReadTime + getReadInterval(), request != null ? request.dueTime : now);
+			if (request != null && readTime <= now) {
+				queue.poll();
+				requests.remove(request.datapoint);
+				if (request.priority == Priority.INITIAL) {
+					initialReads--;
+				}
+				lastReadTime = now;
+				return request;
+			}
+			// without a request we wait until we are notified
+			wait(request != null ? readTime - now : 0);
+		}
+		return null;
+	}
+
+	private void read(ReadRequest request) throws InterruptedException {
+		Datapoint datapoint = request.datapoint;
+		boolean connected = true;
+		String error = null;
+		try {
+			logger.debug("Sending read request to KNX for item {}", datapoint.getName());
+			connected = sendReadRequest(datapoint);
+		} catch (KNXException e) {
+			error = e.getMessage();
+		} catch (KNXIllegalArgumentException e) {
+			error = e.getMessage();
+		}
+
+		synchronized (this) {
+			if (error == null) {
+				if (connected) {
+					readCount++;
+				}
+				if (request.autoRefreshTime > 0) {
+					scheduleRefresh(request);
+				}
+			} else {
+				logger.warn("Cannot read value for item '{}' from KNX bus: {}", datapoint.getName(), error);
+				failedReadCount++;
+				int retriesLimit = KNXConnection.getReadRetriesLimit();
+				if (request.retries < retriesLimit) {
+					enqueueIfCurrent(new ReadRequest(datapoint, Priority.RETRY, 0, request.autoRefreshTime, request.retries + 1));
+				} else {
+					logger.debug("Giving up reading item {} - retries ({}) exceeded.", datapoint.getName(), retriesLimit);
+					if (request.autoRefreshTime > 0) {
+						scheduleRefresh(request);
+					}
+				}
+			}
+			logProgress();
+			// wake up anyone who waits for the progress of the reads
+			notifyAll();
+		}
+
+		long readingPause = KNXConnection.getReadingPause();
+		if (readingPause > 0) {
+			Thread.sleep(readingPause);
+		}
+	}
+
+	private void scheduleRefresh(ReadRequest request) {
+		enqueueIfCurrent(new ReadRequest(request.datapoint, Priority.REFRESH,
+				System.currentTimeMillis() + request.autoRefreshTime, request.autoRefreshTime, 0));
+	}
+
+	/**
+	 * Enqueues a follow-up request, unless the datapoint has been scheduled anew while it was read.
+	 */
+	private void enqueueIfCurrent(ReadRequest request) {
+		if (!requests.containsKey(request.datapoint)) {
+			requests.put(request.datapoint, request);
+			enqueue(request);
+		}
+	}
+
+	private void enqueue(ReadRequest request) {
+		request.sequence = sequence++;
+		if (request.priority == Priority.INITIAL) {
+			if (initialReads == 0) {
+				initializationStart = System.currentTimeMillis();
+				logger.debug("Starting to read the initial states from the KNX bus");
+			}
+			initialReads++;
+		}
+		queue.add(request);
+		notifyAll();
+	}
+
+	private void logProgress() {
+		long now = System.currentTimeMillis();
+		if (initialReads > 0) {
+			logger.trace("{} initial reads pending, {} reads queued in total", initialReads, requests.size());
+		} else if (initializationStart > 0) {
+			logger.info("Finished reading the initial states from the KNX bus after {} ms ({} reads succeeded, {} failed)",
+					new Object[] { now - initializationStart, readCount, failedReadCount });
+			initializationStart = 0;
+			lastStatusTime = now;
+		}
+		if (now - lastStatusTime >= STATUS_INTERVAL) {
+			logger.info("Status of the reads from the KNX bus: {}", getStatus());
+			lastStatusTime = now;
+		}
+	}
+
+	/**
+	 * A read of a datapoint, which is due at a certain time.
+	 *
+	 * @author agent
+	 * @since 1.5.0
+	 *
+	 */
+	private static class ReadRequest implements Comparable<ReadRequest> {
+
+		private final Datapoint datapoint;
+
+		private final Priority priority;
+
+		/** the time when the read is due, 0 for as soon as possible */
+		private final long dueTime;
+
+		/** the interval in milliseconds in which the datapoint is read again, 0 for never */
+		private final long autoRefreshTime;
+
+		/** the number of failed attempts before this one */
+		private final int retries;
+
+		private long sequence;
+
+		public ReadRequest(Datapoint datapoint, Priority priority, long dueTime, long autoRefreshTime, int retries) {
+			this.datapoint = datapoint;
+			this.priority = priority;
+			this.dueTime = dueTime;
+			this.autoRefreshTime = autoRefreshTime;
+			this.retries = retries;
+		}
+
+		public int compareTo(ReadRequest other) {
+			if (dueTime != other.dueTime) {
+				return dueTime < other.dueTime ? -1 : 1;
+			}
+			if (priority != other.priority) {
+				return priority.compareTo(other.priority);
+			}
+			return sequence < other.sequence ? -1 : sequence == other.sequence ? 0 : 1;
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.binding.knx.internal.bus;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openhab.binding.knx.config.KNXBindingProvider;
+import org.openhab.core.types.Type;
+
+import tuwien.auto.calimero.GroupAddress;
+import tuwien.auto.calimero.datapoint.Datapoint;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Answers which items and datapoints belong to a group address or to an item and
+ * type class, so that the binding does not have to ask all binding providers for
+ * every telegram and every command. The answers are resolved from the providers
+ * on first use and kept as immutable {@link Route}s.
+ * <p>A routing table never forgets an answer. When a binding changes, the binding
+ * replaces the whole table by a new, empty one instead.</p>
+ *
+ * @author agent
+ * @since 1.5.0
+ *
+ */
+class KNXRoutingTable {
+
+	private final Collection<KNXBindingProvider> providers;
+
+	private final Map<GroupAddress, Route> routes = new ConcurrentHashMap<GroupAddress, Route>();
+
+	private final Map<String, Map<Class<? extends Type>, List<Datapoint>>> itemDatapoints =
+		new ConcurrentHashMap<String, Map<Class<? extends Type>, List<Datapoint>>>();
+
+	/**
+	 * @param providers the binding providers to resolve the routes from
+	 */
+	KNXRoutingTable(Collection<KNXBindingProvider> providers) {
+		this.providers = providers;
+	}
+
+	/**
+	 * Returns the route of a group address. A group address without any listening
+	 * items has a route without items.
+	 *
+	 * @param groupAddress the group address of a telegram
+	 * @return the route, never <code>null</code>
+	 */
+	Route getRoute(GroupAddress groupAddress) {
+		Route route = routes.get(groupAddress);
+		if (route == null) {
+			route = createRoute(groupAddress);
+			routes.put(groupAddress, route);
+		}
+		return route;
+	}
+
+	/**
+	 * Returns the datapoints of an item, which are mapped to the given type class.
+	 *
+	 * @param itemName the item name for the datapoints
+	 * @param typeClass the type class associated to the datapoints
+	 * @return the datapoints, never <code>null</code>
+	 */
+	List<Datapoint> getDatapoints(String itemName, Class<? extends Type> typeClass) {
+		Map<Class<? extends Type>, List<Datapoint>> datapointsByType = itemDatapoints.get(itemName);
+		if (datapointsByType == null) {
+			datapointsByType = new ConcurrentHashMap<Class<? extends Type>, List<Datapoint>>();
+			itemDatapoints.put(itemName, datapointsByType);
+		}
+		List<Datapoint> datapoints = datapointsByType.get(typeClass);
+		if (datapoints == null) {
+			Set<Datapoint> result = new LinkedHashSet<Datapoint>();
+			for (KNXBindingProvider provider : providers) {
+				for (Datapoint datapoint : provider.getDatapoints(itemName, typeClass)) {
+					result.add(datapoint);
+				}
+			}
+			datapoints = ImmutableList.copyOf(result);
+			datapointsByType.put(typeClass, datapoints);
+		}
+		return datapoints;
+	}
+
+	private Route createRoute(GroupAddress groupAddress) {
+		ImmutableList.Builder<String> itemNames = ImmutableList.builder();
+		ImmutableList.Builder<List<Datapoint>> datapoints = ImmutableList.builder();
+		for (KNXBindingProvider provider : providers) {
+			for (String itemName : provider.getListeningItemNames(groupAddress)) {
+				itemNames.add(itemName);
+				datapoints.add(getDatapoints(itemName, groupAddress));
+			}
+		}
+		return new Route(itemNames.build(), datapoints.build(), isCommandGA(groupAddress));
+	}
+
+	/**
+	 * Returns the datapoints for a given item and group address from the first provider,
+	 * which knows about them.
+	 */
+	private List<Datapoint> getDatapoints(String itemName, GroupAddress groupAddress) {
+		for (KNXBindingProvider provider : providers) {
+			Iterable<Datapoint> datapoints = provider.getDatapoints(itemName, groupAddress);
+			if (datapoints != null) {
+				return ImmutableList.copyOf(datapoints);
+			}
+		}
+		return ImmutableList.of();
+	}
+
+	/**
+	 * Determines whether the given <code>groupAddress</code> is the address which
+	 * will be interpreted as the command type by all binding providers.
+	 */
+	private boolean isCommandGA(GroupAddress groupAddress) {
+		for (KNXBindingProvider provider : providers) {
+			if (!provider.isCommandGA(groupAddress)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The items listening to a group address together with the datapoints of each
+	 * item for this group address.
+	 *
+	 * @author agent
+	 * @since 1.5.0
+	 *
+	 */
+	static class Route {
+
+		private final List<String> itemNames;
+
+		private final List<List<Datapoint>> datapoints;
+
+		private final boolean commandGA;
+
+		private Route(List<String> itemNames, List<List<Datapoint>> datapoints, boolean commandGA) {
+			this.itemNames = itemNames;
+			this.datapoints = datapoints;
+			this.commandGA = commandGA;
+		}
+
+		/**
+		 * @return the number of listening items
+		 */
+		int size() {
+			return itemNames.size();
+		}
+
+		String getItemName(int index) {
+			return itemNames.get(index);
+		}
+
+		/**
+		 * @return the datapoints of the item with the given index for the group address
+		 */
+		List<Datapoint> getDatapoints(int index) {
+			return datapoints.get(index);
+		}
+
+		/**
+		 * @return true, if telegrams to the group address are to be interpreted as commands
+		 */
+		boolean isCommandGA() {
+			return commandGA;
+		}
+	}
+
+}
@@ -40,8 +40,8 @@ import com.google.common.collect.Lists;
  * 
  * <p>The syntax of the binding configuration strings accepted is the following:<p>
  * <p><code>
- * 	knx="[&lt;dptId&gt;:][&lt;]&lt;mainGA&gt;[[+&lt;listeningGA&gt;]+&lt;listeningGA&gt;..],
- *  [&lt;dptId&gt;:][&lt;]&lt;mainGA&gt;[[+&lt;listeningGA&gt;]+&lt;listeningGA&gt;..]"
+ * 	knx="[&lt;[(&lt;autoRefresh&gt;)]][&lt;dptId&gt;:]&lt;mainGA&gt;[[+&lt;listeningGA&gt;]+&lt;listeningGA&gt;..],
+ *  [&lt;[(&lt;autoRefresh&gt;)]][&lt;dptId&gt;:]&lt;mainGA&gt;[[+&lt;listeningGA&gt;]+&lt;listeningGA&gt;..]"
  * </code></p>
  * where parts in brackets [] signify an optional information.
  * 
@@ -50,6 +50,8 @@ import com.google.common.collect.Lists;
  * from the list of accepted command types of the item - i.e. the second datapoint definition is mapped to the second
  * accepted command type of the item.</p>
  * <p> The optional '&lt;' sign tells whether the datapoint accepts read requests on the KNX bus (it does, if the sign is there)</p>
+ * <p> A readable datapoint is read once during initialization. If it is followed by an interval in seconds in
+ * parentheses, it is read again periodically in this interval.</p>
  * 
  * <p>Here are some examples for valid binding configuration strings:
  * <ul>
@@ -59,6 +61,7 @@ import com.google.common.collect.Lists;
  * 		<li><code>knx="1.001:1/1/10"</code></li>
  * 		<li><code>knx="<1/1/10"/code></li>
  * 		<li><code>knx="<1/1/10+0/1/13+0/1/14+0/1/15"</code></li>
+ * 		<li><code>knx="<(300)1/1/10"</code></li>
  *	</ul>
  *	</li>
  *	<li> For a RollershutterItem:
@@ -257,6 +260,21 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider im
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getAutoRefreshTime(Datapoint datapoint) {
+		BindingConfig config = bindingConfigs.get(datapoint.getName());
+		if (config instanceof KNXBindingConfig) {
+			for (KNXBindingConfigItem configItem : (KNXBindingConfig) config) {
+				if (datapoint.equals(configItem.readableDataPoint)) {
+					return configItem.autoRefreshInSecs;
+				}
+			}
+		}
+		return 0;
+	}
+
 	@Override
 	public Boolean autoUpdate(String itemName) {
 		BindingConfig config = bindingConfigs.get(itemName);
@@ -320,9 +338,24 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider im
 					
 					// check for the readable flag
 					boolean isReadable = false;
+					int autoRefreshInSecs = 0;
 					if (dataPoint.startsWith("<")) {
 						isReadable = true;
 						dataPoint = dataPoint.substring(1);
+						// check for the auto refresh interval
+						if (dataPoint.startsWith("(")) {
+							int end = dataPoint.indexOf(')');
+							try {
+								autoRefreshInSecs = end > 0 ? Integer.parseInt(dataPoint.substring(1, end).trim()) : -1;
+							} catch (NumberFormatException e) {
+								autoRefreshInSecs = -1;
+							}
+							if (autoRefreshInSecs < 0) {
+								throw new BindingConfigParseException(
+									"Invalid auto refresh interval in '" + dataPoints[j].trim() + "'.");
+							}
+							dataPoint = dataPoint.substring(end + 1).trim();
+						}
 					}
 					
 					// find the DPT for this entry
@@ -355,6 +388,7 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider im
 					}
 					if (isReadable) {
 						configItem.readableDataPoint = dp;
+						configItem.autoRefreshInSecs = autoRefreshInSecs;
 					}
 					configItem.allDataPoints.add(dp);
 				}
@@ -401,6 +435,7 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider im
 		public String itemName;
 		public Datapoint mainDataPoint = null;
 		public Datapoint readableDataPoint = null;
+		public int autoRefreshInSecs = 0;
 		public DatapointMap allDataPoints = new DatapointMap();
 	}
 }
@@ -80,6 +80,9 @@ public class KNXConnection implements ManagedService {
 
 	/** time in milliseconds of how long should be paused between two read requests to the bus during initialization. Default value is <code>50</Code> */
 	private static long readingPause = 50;
+
+	/** the maximum number of read requests per second sent to the bus, 0 means no limit besides the reading pause. Default value is <code>0</code> */
+	private static int maxReadsPerSecond = 0;
 	
 	/** timeout in milliseconds to wait for a response from the KNX bus. Default value is <code>10000</code> */
 	private static long responseTimeout = 10000;
@@ -309,6 +312,14 @@ public class KNXConnection implements ManagedService {
 				readingPause = Long.parseLong(readingPauseString);
 			}
 			
+			String maxReadsPerSecondString = (String) config.get("maxReadsPerSecond");
+			if (StringUtils.isNotBlank(maxReadsPerSecondString)) {
+				int maxReads = Integer.parseInt(maxReadsPerSecondString);
+				if (maxReads >= 0) {
+					maxReadsPerSecond = maxReads;
+				}
+			}
+			
 			String responseTimeoutString = (String) config.get("timeout");
 			if (StringUtils.isNotBlank(responseTimeoutString)) {
 				long timeout = Long.parseLong(responseTimeoutString);
@@ -342,6 +353,10 @@ public class KNXConnection implements ManagedService {
 		return readingPause;
 	}
 	
+	public static int getMaxReadsPerSecond() {
+		return maxReadsPerSecond;
+	}
+	
 	public static int getReadRetriesLimit() {
 		return readRetriesLimit;
 	}
@@ -14,6 +14,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.binding.knx.config.KNXTypeMapper;
@@ -64,6 +65,9 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
 
 	/** stores the default KNX DPT to use for each openHAB type */
 	static private Map<Class<? extends Type>, String> defaultDptMap;
+
+	/** the translators which have already been created, by main number and datapoint type id */
+	private final Map<String, DPTXlator> translators = new ConcurrentHashMap<String, DPTXlator>();
 	
 	static {
 		dptTypeMap = new HashMap<String, Class<? extends Type>>();
@@ -132,12 +136,16 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
 
 	public Type toType(Datapoint datapoint, byte[] data) {
 		try {
-			DPTXlator translator = TranslatorTypes.createTranslator(datapoint.getMainNumber(), datapoint.getDPT());
-			translator.setData(data);
-			String value = translator.getValue();
+			DPTXlator translator = getTranslator(datapoint.getMainNumber(), datapoint.getDPT());
+			String value;
+			// translators are not thread-safe, but shared by all datapoints of the same type
+			synchronized (translator) {
+				translator.setData(data);
+				value = translator.getValue();
+			}
 			String id = translator.getType().getID();
-			logger.trace("toType datapoint DPT = " + datapoint.getDPT());
-			logger.trace("toType datapoint getMainNumber = " + datapoint.getMainNumber());
+			logger.trace("toType datapoint DPT = {}", datapoint.getDPT());
+			logger.trace("toType datapoint getMainNumber = {}", datapoint.getMainNumber());
 			if(datapoint.getMainNumber()==9) id = "9.001"; // we do not care about the unit of a value, so map everything to 9.001
 			if(datapoint.getMainNumber()==14) id = "14.001"; // we do not care about the unit of a value, so map everything to 14.001
 			Class<? extends Type> typeClass = toTypeClass(id);
@@ -167,6 +175,25 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
 		
 		return null;
 	}
+
+	/**
+	 * Returns the translator for the given datapoint type, which is only created once
+	 * per datapoint type instead of once per telegram.
+	 * 
+	 * @param mainNumber the main number of the datapoint type
+	 * @param dpt the datapoint type id
+	 * @return the translator for the datapoint type
+	 * @throws KNXException if no translator could be created for the datapoint type
+	 */
+	private DPTXlator getTranslator(int mainNumber, String dpt) throws KNXException {
+		String key = mainNumber + "/" + dpt;
+		DPTXlator translator = translators.get(key);
+		if (translator == null) {
+			translator = TranslatorTypes.createTranslator(mainNumber, dpt);
+			translators.put(key, translator);
+		}
+		return translator;
+	}
 	
 	/**
 	 * Converts a datapoint type id into an openHAB type class
@@ -179,7 +206,7 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
 		 * DecimalType is by default associated to 9.001, so for 12.001, 14.001 
 		 * or 17.001, we need to do exceptional handling
 		 */
-		logger.trace("toTypeClass looking for dptId = " + dptId);
+		logger.trace("toTypeClass looking for dptId = {}", dptId);
 		if ("12.001".equals(dptId)) { 
 			return DecimalType.class;
 		} else if ("14.001".equals(dptId)) {
@@ -29,6 +29,7 @@ import org.openhab.core.library.types.UpDownType;
 import org.openhab.core.transform.TransformationService;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
+import org.openhab.io.transport.mqtt.MqttPublishCallback;
 import org.openhab.io.transport.mqtt.MqttSenderChannel;
 import org.openhab.model.item.binding.BindingConfigParseException;
 
@@ -240,6 +241,11 @@ public class MqttMessagePublisherTest {
 			public void publish(String topic, byte[] message) {
 				sentMessage.add(new String(message));
 			}
+
+			@Override
+			public void publish(String topic, byte[] message, MqttPublishCallback callback) {
+				publish(topic, message);
+			}
 		});
 		publisher.publish(publisher.getTopic(), message.getBytes());
 		return sentMessage.get(0);
@@ -12,18 +12,21 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.NotYetConnectedException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Iterator;
 import java.util.List;
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.binding.AbstractActiveBinding;
+import org.openhab.core.binding.BindingProvider;
 import org.openhab.core.library.types.StringType;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
@@ -84,6 +87,16 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 	protected DatagramChannel listenerChannel = null;
 	protected SelectionKey listenerKey = null;
 
+	// thread that waits for and processes the IO events of the selector
+	private volatile Thread selectorThread = null;
+	// lock to hold while registering channels with the selector. The selector itself cannot be used, 
+	// as it is locked for as long as the selector thread waits in select()
+	private final Object selectorGuard = new Object();
+	// set when the item bindings have changed, so that the worker thread has to set up the channels again
+	private volatile boolean channelsOutdated = true;
+	// buffer to read incoming data into, only used by the selector thread
+	private ByteBuffer receiveBuffer = null;
+
 	// Queue to store BufferElements that need to be written to the network
 	protected  List<WriteBufferElement> writeQueue =  Collections.synchronizedList(new ArrayList<WriteBufferElement>());
 
@@ -692,10 +705,11 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 
 			logger.info("Listening for incoming data on {}",listenerChannel.getLocalAddress());
 
-			synchronized(selector) {
+			synchronized(selectorGuard) {
 				selector.wakeup();
+				// OP_WRITE is added by the selector thread as soon as data is queued for the channel
 				try {
-					listenerKey = listenerChannel.register(selector, listenerChannel.validOps());
+					listenerKey = listenerChannel.register(selector, SelectionKey.OP_READ);
 				} catch (ClosedChannelException e1) {
 					logger.error("An exception occurred while registering a selector: {}",e1.getMessage());
 				}
@@ -715,7 +729,18 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 			selector = Selector.open();
 		} catch (IOException e) {
 			logger.error("An exception occurred while registering the selector: {}",e.getMessage());
+			return;
 		}
+
+		// the selector thread blocks until a channel is ready, instead of polling the selector every refresh interval
+		selectorThread = new Thread("Selector of " + getClass().getSimpleName()) {
+			@Override
+			public void run() {
+				selectChannels(this);
+			}
+		};
+		selectorThread.setDaemon(true);
+		selectorThread.start();
 	}
 
 	/**
@@ -723,6 +748,8 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 	 */
 	public void deactivate() {
 
+		selectorThread = null;
+
 		try {
 			selector.close();
 		} catch (IOException e) {
@@ -766,6 +793,33 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 		return firstMatchingProvider;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addBindingProvider(P provider) {
+		channelsOutdated = true;
+		super.addBindingProvider(provider);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void bindingChanged(BindingProvider provider, String itemName) {
+		channelsOutdated = true;
+		super.bindingChanged(provider, itemName);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void allBindingsChanged(BindingProvider provider) {
+		channelsOutdated = true;
+		super.allBindingsChanged(provider);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -857,6 +911,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 				configureListenerChannel();
 			}
 
+			channelsOutdated = true;
 			setProperlyConfigured(true);
 
 		}
@@ -1021,6 +1076,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 
 			if(theBuffer != null) {
 				writeQueue.add(new WriteBufferElement(theChannel,theBuffer,true));
+				selector.wakeup();
 
 				long currentElapsedTimeMillis = System.currentTimeMillis();
 
@@ -1038,6 +1094,8 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 					theChannel.buffer = null;
 					theChannel.isBlocking = false;
 				}
+				// let the selector thread pick up the next queued buffer for this channel
+				selector.wakeup();
 				return responseBuffer;
 			} else {
 				return theBuffer;
@@ -1047,6 +1105,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 
 			if(theBuffer != null) {
 				writeQueue.add(new WriteBufferElement(theChannel,theBuffer,false));
+				selector.wakeup();
 			}
 
 			return theBuffer;
@@ -1104,11 +1163,12 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 						}
 
 
-						synchronized(theBinding.selector) {
+						synchronized(theBinding.selectorGuard) {
 							theBinding.selector.wakeup();
+							// OP_WRITE is added by the selector thread as soon as data is queued for the channel
 							try {
 								if(theChannel.channel != null) {
-									theChannel.channel.register(theBinding.selector, theChannel.channel.validOps());
+									theChannel.channel.register(theBinding.selector, SelectionKey.OP_READ);
 								}
 							} catch (ClosedChannelException e1) {
 								logger.error("An exception occurred while registering a selector: {}",e1.getMessage());
@@ -1183,7 +1243,19 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 	@Override
 	protected void execute() {
 
-		// Cycle through the Items and setup channels if required
+		// The data itself is processed by the selector thread, so we only have to set up
+		// the channels after the bindings have changed
+		if(channelsOutdated) {
+			channelsOutdated = false;
+			setupChannels();
+		}
+	}
+
+	/**
+	 * Cycle through the Items and setup channels if required
+	 */
+	protected void setupChannels() {
+
 		for (P provider : providers) {
 			for (String itemName : provider.getItemNames()) {
 				for(Command aCommand : ((P) provider).getAllCommands(itemName)) {
@@ -1324,10 +1396,11 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 											logger.error("An exception occurred while configuring a channel: {}",e.getMessage());
 										}
 
-										synchronized(selector) {
+										synchronized(selectorGuard) {
 											selector.wakeup();
+											// OP_WRITE is added by the selector thread as soon as data is queued for the channel
 											try {
-												newDatagramChannel.register(selector, newDatagramChannel.validOps());
+												newDatagramChannel.register(selector, SelectionKey.OP_READ);
 											} catch (ClosedChannelException e1) {
 												logger.error("An exception occurred while registering a selector: {}",e1.getMessage());
 											}
@@ -1355,15 +1428,77 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 			}
 		}
 
-		// Check on channels for which we have to process data
-		synchronized(selector) {
+	}
+
+	/**
+	 * Main loop of the selector thread. It waits until any of the channels is ready, so that
+	 * incoming data is processed as soon as it arrives, and queued data is written as soon as 
+	 * it is queued
+	 * 
+	 * @param thread the selector thread running the loop
+	 */
+	private void selectChannels(Thread thread) {
+		logger.debug("The selector thread has started");
+		while(selectorThread == thread) {
 			try {
+				synchronized(selectorGuard) {
+					// other threads hold the guard while registering channels, so this also waits for them
+					updateWriteInterest();
+				}
+
 				// Wait for an event
-				selector.selectNow();
+				selector.select();
+
+				processSelectedKeys();
+			} catch (ClosedSelectorException e) {
+				break;
 			} catch (IOException e) {
 				logger.error("An exception occurred while Selecting ({})",e.getMessage());
+			} catch (RuntimeException e) {
+				logger.error("An exception occurred while processing the selected channels", e);
 			}
 		}
+		logger.debug("The selector thread has stopped");
+	}
+
+	/**
+	 * Add OP_WRITE to the interest set of all channels that have data queued and that are not 
+	 * waiting for the response of a blocking write/read operation. Channels without queued data
+	 * do not wait for OP_WRITE, otherwise the selector would never block, as datagram channels 
+	 * are always writable.
+	 */
+	private void updateWriteInterest() {
+		synchronized(writeQueue) {
+			for(WriteBufferElement anElement : writeQueue) {
+				DatagramChannel theDatagramChannel = anElement.channel.channel;
+				if(theDatagramChannel != null && !channels.isBlocking(theDatagramChannel)) {
+					SelectionKey selKey = theDatagramChannel.keyFor(selector);
+					if(selKey != null && selKey.isValid()) {
+						selKey.interestOps(selKey.interestOps() | SelectionKey.OP_WRITE);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the buffer to read incoming data into. As only the selector thread reads, a single buffer 
+	 * is reused for all reads. It is zeroed, so that it looks like a newly allocated buffer to the parsers
+	 */
+	private ByteBuffer getReceiveBuffer() {
+		if(receiveBuffer == null || receiveBuffer.capacity() != maximumBufferSize) {
+			receiveBuffer = ByteBuffer.allocate(maximumBufferSize);
+		} else {
+			Arrays.fill(receiveBuffer.array(), 0, receiveBuffer.limit(), (byte) 0);
+			receiveBuffer.clear();
+		}
+		return receiveBuffer;
+	}
+
+	/**
+	 * Process the channels that the selector has found ready
+	 */
+	private void processSelectedKeys() {
 
 		// Get list of selection keys with pending events
 		Iterator<SelectionKey> it = selector.selectedKeys().iterator();
@@ -1379,7 +1514,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 
 				if (selKey.isReadable()) {
 					InetSocketAddress clientAddress = null;
-					ByteBuffer readBuffer = ByteBuffer.allocate(maximumBufferSize);
+					ByteBuffer readBuffer = getReceiveBuffer();
 					int numberBytesRead = 0;
 					boolean error = false;
 
@@ -1434,6 +1569,9 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 					if(error) {
 						if(selKey != listenerKey) {
 
+							// the channel is replaced by the reconnect job, so it must not be selected over and over again until then
+							selKey.cancel();
+
 							Scheduler scheduler = null;
 							try {
 								scheduler = StdSchedulerFactory.getDefaultScheduler();
@@ -1493,8 +1631,13 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 								// that initiated the write opreation - it has to parse the buffer itself
 
 								//find the Channel with this DGC that is holding a Blocking flag
+								// the receive buffer is reused for the next read, so the instance gets a copy of its own
+								ByteBuffer responseBuffer = ByteBuffer.allocate(readBuffer.capacity());
+								responseBuffer.put(readBuffer);
+								responseBuffer.flip();
+
 								theChannel = channels.getBlocking(theDatagramChannel);
-								theChannel.buffer = readBuffer;
+								theChannel.buffer = responseBuffer;
 
 							} else {
 								for(Channel aChannel : channelsToServe) {
@@ -1522,12 +1665,14 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 					WriteBufferElement theElement = null;
 
 					if(selKey == listenerKey) {
-						Iterator<WriteBufferElement> iterator = writeQueue.iterator();
-						while (iterator.hasNext()) {
-							WriteBufferElement anElement = iterator.next();
-							if(anElement.channel.channel.equals(listenerChannel)) {
-								theElement = anElement;
-								break;
+						synchronized(writeQueue) {
+							Iterator<WriteBufferElement> iterator = writeQueue.iterator();
+							while (iterator.hasNext()) {
+								WriteBufferElement anElement = iterator.next();
+								if(listenerChannel.equals(anElement.channel.channel)) {
+									theElement = anElement;
+									break;
+								}
 							}
 						}
 					}
@@ -1537,19 +1682,28 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 
 					if(isBlocking) {
 						// if this channel is already flagged as being in a blocked write/read operation, we skip this selKey
+						// until the operation has finished
+						selKey.interestOps(selKey.interestOps() & ~SelectionKey.OP_WRITE);
 					} else { 
 
 						if(selKey != listenerKey) {									
-							Iterator<WriteBufferElement> iterator = writeQueue.iterator();
-							while (iterator.hasNext()) {
-								WriteBufferElement anElement = iterator.next();
-								if(anElement.channel.channel.equals(theDatagramChannel)) {
-									theElement = anElement;
-									break;
+							synchronized(writeQueue) {
+								Iterator<WriteBufferElement> iterator = writeQueue.iterator();
+								while (iterator.hasNext()) {
+									WriteBufferElement anElement = iterator.next();
+									if(theDatagramChannel.equals(anElement.channel.channel)) {
+										theElement = anElement;
+										break;
+									}
 								}
 							}
 						}
 
+						if(theElement == null) {
+							// nothing left to write, so we do not wait for this channel to become writable anymore
+							selKey.interestOps(selKey.interestOps() & ~SelectionKey.OP_WRITE);
+						}
+
 
 						if(theElement != null && theElement.buffer != null) {
 
@@ -1606,6 +1760,9 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 
 								if(selKey != listenerKey) {
 
+									// the channel is replaced by the reconnect job, so it must not be selected over and over again until then
+									selKey.cancel();
+
 									Scheduler scheduler = null;
 									try {
 										scheduler = StdSchedulerFactory.getDefaultScheduler();
@@ -12,6 +12,7 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.NoConnectionPendingException;
 import java.nio.channels.NotYetConnectedException;
 import java.nio.channels.SelectionKey;
@@ -19,12 +20,17 @@ import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Dictionary;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.binding.AbstractActiveBinding;
+import org.openhab.core.binding.BindingProvider;
 import org.openhab.core.library.types.StringType;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
@@ -89,6 +95,16 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 	protected ServerSocketChannel listenerChannel = null;
 	protected SelectionKey listenerKey = null;
 
+	// thread that waits for and processes the IO events of the selector
+	private volatile Thread selectorThread = null;
+	// lock to hold while registering channels with the selector. The selector itself cannot be used, 
+	// as it is locked for as long as the selector thread waits in select()
+	private final Object selectorGuard = new Object();
+	// set when the item bindings have changed, so that the worker thread has to set up the channels again
+	private volatile boolean channelsOutdated = true;
+	// buffer to read incoming data into, only used by the selector thread
+	private ByteBuffer receiveBuffer = null;
+
 	// Queue to store BufferElements that need to be written to the network
 	protected  List<WriteBufferElement> writeQueue =  Collections.synchronizedList(new ArrayList<WriteBufferElement>());
 
@@ -221,6 +237,9 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 	 * contains() - return true if a channel that matches the provided criteria exists in the ChannelTracker
 	 * replace() - replaces the underlying Java NIO channel on the Channels that match the provided criteria 
 	 * 
+	 * The Channels are indexed by {item, command, direction, remote} and {item, command, direction, host, port}, so that
+	 * contains() and get() do not have to walk through all Channels
+	 * 
 	 * @author Karel Goderis
 	 * @since  1.4.0
 	 * 
@@ -229,48 +248,99 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
 		private static final long serialVersionUID = 1543958347565096785L;
 
-		public boolean contains(String item, Command command, Direction direction, InetSocketAddress remote) {
+		private final Map<ChannelKey, C> remoteIndex = new HashMap<ChannelKey, C>();
+		private final Map<ChannelKey, C> hostIndex = new HashMap<ChannelKey, C>();
+
+		@Override
+		public boolean add(C aChannel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(item.equals(aChannel.item) && command.equals(aChannel.command) && direction.equals(aChannel.direction)&& remote.equals(aChannel.remote)) {
-						return true;
-					}
-				}
+				super.add(aChannel);
+				index(aChannel);
+				return true;
+			}
+		}
 
-				return false;
+		@Override
+		public void add(int position, C aChannel) {
+			synchronized(this) {
+				super.add(position, aChannel);
+				reindex();
 			}
 		}
 
-		public Channel get(String item, Command command, Direction direction, InetSocketAddress remote) {
+		@Override
+		public boolean addAll(Collection<? extends C> someChannels) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(item.equals(aChannel.item) && command.equals(aChannel.command) && direction.equals(aChannel.direction)&& remote.equals(aChannel.remote)) {
-						return aChannel;
-					}
-				}
+				boolean result = super.addAll(someChannels);
+				reindex();
+				return result;
+			}
+		}
 
-				return null;
+		@Override
+		public C remove(int position) {
+			synchronized(this) {
+				C aChannel = super.remove(position);
+				reindex();
+				return aChannel;
 			}
 		}
 
-		public Channel get(String item, Command command, Direction direction, String host, String port) {
+		@Override
+		public boolean remove(Object aChannel) {
 			synchronized(this) {
-				Iterator<C> it = iterator();
-				while(it.hasNext()) {
-					C aChannel = it.next();
-					if(item.equals(aChannel.item) && command.equals(aChannel.command) && direction.equals(aChannel.direction)) {
-						if(aChannel.host.equals(host) && aChannel.port.equals(port)) {
-							return aChannel;
-						}
-					}
+				boolean result = super.remove(aChannel);
+				reindex();
+				return result;
+			}
+		}
+
+		@Override
+		public void clear() {
+			synchronized(this) {
+				super.clear();
+				remoteIndex.clear();
+				hostIndex.clear();
+			}
+		}
+
+		private void index(C aChannel) {
+			// the first Channel for a key wins, as it did when the list was searched
+			if(aChannel.remote != null) {
+				ChannelKey remoteKey = new ChannelKey(aChannel.item, aChannel.command, aChannel.direction, aChannel.remote);
+				if(!remoteIndex.containsKey(remoteKey)) {
+					remoteIndex.put(remoteKey, aChannel);
 				}
+			}
+			ChannelKey hostKey = new ChannelKey(aChannel.item, aChannel.command, aChannel.direction, aChannel.host + ":" + aChannel.port);
+			if(!hostIndex.containsKey(hostKey)) {
+				hostIndex.put(hostKey, aChannel);
+			}
+		}
 
-				return null;
+		private void reindex() {
+			remoteIndex.clear();
+			hostIndex.clear();
+			for(C aChannel : this) {
+				index(aChannel);
+			}
+		}
 
+		public boolean contains(String item, Command command, Direction direction, InetSocketAddress remote) {
+			synchronized(this) {
+				return remoteIndex.containsKey(new ChannelKey(item, command, direction, remote));
+			}
+		}
+
+		public Channel get(String item, Command command, Direction direction, InetSocketAddress remote) {
+			synchronized(this) {
+				return remoteIndex.get(new ChannelKey(item, command, direction, remote));
+			}
+		}
+
+		public Channel get(String item, Command command, Direction direction, String host, String port) {
+			synchronized(this) {
+				return hostIndex.get(new ChannelKey(item, command, direction, host + ":" + port));
 			}
 		}
 
@@ -621,6 +691,52 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
 	}
 
+	/**
+	 * Key of the {item, command, direction, address} indexes of the ChannelTracker. The address is either the
+	 * resolved remote address or the "host:port" string of a Channel
+	 * 
+	 * @author agent
+	 * @since  1.5.0
+	 * 
+	 **/
+	private static class ChannelKey {
+		private final String item;
+		private final Command command;
+		private final Direction direction;
+		private final Object address;
+
+		public ChannelKey(String item, Command command, Direction direction, Object address) {
+			this.item = item;
+			this.command = command;
+			this.direction = direction;
+			this.address = address;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + ((item == null) ? 0 : item.hashCode());
+			result = prime * result + ((command == null) ? 0 : command.hashCode());
+			result = prime * result + ((direction == null) ? 0 : direction.hashCode());
+			result = prime * result + ((address == null) ? 0 : address.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof ChannelKey))
+				return false;
+			ChannelKey other = (ChannelKey) obj;
+			return StringUtils.equals(item, other.item)
+					&& (command == null ? other.command == null : command.equals(other.command))
+					&& direction == other.direction
+					&& (address == null ? other.address == null : address.equals(other.address));
+		}
+	}
+
 	/**
 	 * Simple helper class to store data that needs to be sent over a given channel
 	 * 
@@ -676,7 +792,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
 			logger.info("Listening for incoming connections on {}",listenerChannel.getLocalAddress());
 
-			synchronized(selector) {
+			synchronized(selectorGuard) {
 				selector.wakeup();
 				try {
 					listenerKey = listenerChannel.register(selector, SelectionKey.OP_ACCEPT);
@@ -700,7 +816,18 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 			selector = Selector.open();
 		} catch (IOException e) {
 			logger.error("An exception occurred while registering the selector: {}",e.getMessage());
-		}	
+			return;
+		}
+
+		// the selector thread blocks until a channel is ready, instead of polling the selector every refresh interval
+		selectorThread = new Thread("Selector of " + getClass().getSimpleName()) {
+			@Override
+			public void run() {
+				selectChannels(this);
+			}
+		};
+		selectorThread.setDaemon(true);
+		selectorThread.start();
 	}
 
 	/**
@@ -708,6 +835,8 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 	 */
 	public void deactivate() {
 
+		selectorThread = null;
+
 		try {
 			selector.close();
 		} catch (IOException e) {
@@ -752,6 +881,33 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 		return firstMatchingProvider;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void addBindingProvider(P provider) {
+		channelsOutdated = true;
+		super.addBindingProvider(provider);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void bindingChanged(BindingProvider provider, String itemName) {
+		channelsOutdated = true;
+		super.bindingChanged(provider, itemName);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void allBindingsChanged(BindingProvider provider) {
+		channelsOutdated = true;
+		super.allBindingsChanged(provider);
+	}
+
 
 	/**
 	 * {@inheritDoc}
@@ -851,6 +1007,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 				configureListenerChannel();
 			}
 
+			channelsOutdated = true;
 			setProperlyConfigured(true);
 
 		}
@@ -1025,6 +1182,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 			if(theBuffer != null) {
 				if(theSocketChannel.isConnected() || queueUntilConnected) {
 					writeQueue.add(new WriteBufferElement(theChannel,theBuffer,true));
+					selector.wakeup();
 				}
 
 				long currentElapsedTimeMillis = System.currentTimeMillis();
@@ -1043,6 +1201,8 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 					theChannel.buffer = null;
 					theChannel.isBlocking = false;
 				}
+				// let the selector thread pick up the next queued buffer for this channel
+				selector.wakeup();
 				return responseBuffer;
 			} else {
 				return theBuffer;
@@ -1053,6 +1213,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 			if(theBuffer != null) {
 				if(theSocketChannel.isConnected() || queueUntilConnected) {
 					writeQueue.add(new WriteBufferElement(theChannel,theBuffer,false));
+					selector.wakeup();
 				}
 			}
 
@@ -1110,9 +1271,10 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 					}
 
 
-					synchronized(theBinding.selector) {
+					synchronized(theBinding.selectorGuard) {
 						theBinding.selector.wakeup();
-						int interestSet = SelectionKey.OP_READ | SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT;    
+						// OP_WRITE is added by the selector thread as soon as data is queued for the channel
+						int interestSet = SelectionKey.OP_READ | SelectionKey.OP_CONNECT;    
 						try {
 							if(theChannel.channel != null) {
 								theChannel.channel.register(theBinding.selector, interestSet);
@@ -1169,7 +1331,19 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 	@Override
 	protected void execute() {
 
-		// Cycle through the Items and setup channels if required
+		// The data itself is processed by the selector thread, so we only have to set up
+		// the channels after the bindings have changed
+		if(channelsOutdated) {
+			channelsOutdated = false;
+			setupChannels();
+		}
+	}
+
+	/**
+	 * Cycle through the Items and setup channels if required
+	 */
+	protected void setupChannels() {
+
 		for (P provider : providers) {
 			for (String itemName : provider.getItemNames()) {
 				for(Command aCommand : ((P) provider).getAllCommands(itemName)) {
@@ -1301,9 +1475,10 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 												logger.error("An exception occurred while configuring a channel: {}",e.getMessage());
 											}
 
-											synchronized(selector) {
+											synchronized(selectorGuard) {
 												selector.wakeup();
-												int interestSet = SelectionKey.OP_READ | SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT;    
+												// OP_WRITE is added by the selector thread as soon as data is queued for the channel
+												int interestSet = SelectionKey.OP_READ | SelectionKey.OP_CONNECT;    
 												try {
 													newSocketChannel.register(selector, interestSet);
 												} catch (ClosedChannelException e1) {
@@ -1333,15 +1508,76 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 			}
 		}
 
-		// Check on channels for which we have to process data
-		synchronized(selector) {
+	}
+
+	/**
+	 * Main loop of the selector thread. It waits until any of the channels is ready, so that
+	 * incoming data is processed as soon as it arrives, and queued data is written as soon as 
+	 * it is queued
+	 * 
+	 * @param thread the selector thread running the loop
+	 */
+	private void selectChannels(Thread thread) {
+		logger.debug("The selector thread has started");
+		while(selectorThread == thread) {
 			try {
+				synchronized(selectorGuard) {
+					// other threads hold the guard while registering channels, so this also waits for them
+					updateWriteInterest();
+				}
+
 				// Wait for an event
-				selector.selectNow();
+				selector.select();
+
+				processSelectedKeys();
+			} catch (ClosedSelectorException e) {
+				break;
 			} catch (IOException e) {
 				logger.error("An exception occurred while Selecting ({})",e.getMessage());
+			} catch (RuntimeException e) {
+				logger.error("An exception occurred while processing the selected channels", e);
 			}
 		}
+		logger.debug("The selector thread has stopped");
+	}
+
+	/**
+	 * Add OP_WRITE to the interest set of all channels that have data queued and that are not 
+	 * waiting for the response of a blocking write/read operation. Channels without queued data
+	 * do not wait for OP_WRITE, otherwise the selector would never block.
+	 */
+	private void updateWriteInterest() {
+		synchronized(writeQueue) {
+			for(WriteBufferElement anElement : writeQueue) {
+				SocketChannel theSocketChannel = anElement.channel.channel;
+				if(theSocketChannel != null && !channels.isBlocking(theSocketChannel)) {
+					SelectionKey selKey = theSocketChannel.keyFor(selector);
+					if(selKey != null && selKey.isValid()) {
+						selKey.interestOps(selKey.interestOps() | SelectionKey.OP_WRITE);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the buffer to read incoming data into. As only the selector thread reads, a single buffer 
+	 * is reused for all reads. It is zeroed, so that it looks like a newly allocated buffer to the parsers
+	 */
+	private ByteBuffer getReceiveBuffer() {
+		if(receiveBuffer == null || receiveBuffer.capacity() != maximumBufferSize) {
+			receiveBuffer = ByteBuffer.allocate(maximumBufferSize);
+		} else {
+			Arrays.fill(receiveBuffer.array(), 0, receiveBuffer.limit(), (byte) 0);
+			receiveBuffer.clear();
+		}
+		return receiveBuffer;
+	}
+
+	/**
+	 * Process the channels that the selector has found ready
+	 */
+	private void processSelectedKeys() {
 
 		// Get list of selection keys with pending events
 		Iterator<SelectionKey> it = selector.selectedKeys().iterator();
@@ -1396,10 +1632,10 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 											logger.error("An exception occurred while configuring a channel: {}",e.getMessage());
 										}
 
-										synchronized(selector) {
+										synchronized(selectorGuard) {
 											selector.wakeup();
 											try {
-												newChannel.register(selector, newChannel.validOps());
+												newChannel.register(selector, SelectionKey.OP_READ);
 											} catch (ClosedChannelException e1) {
 												logger.error("An exception occurred while registering a selector: {}",e1.getMessage());
 											}										
@@ -1515,6 +1751,9 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
 						} else {
 							if(result) {
+								// a connected channel stays connectable, and would keep the selector from blocking
+								selKey.interestOps(selKey.interestOps() & ~SelectionKey.OP_CONNECT);
+
 								InetSocketAddress remote = null;
 								try {
 									remote = (InetSocketAddress) theSocketChannel.getRemoteAddress();
@@ -1588,7 +1827,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
 					} else if (selKey.isReadable()) {
 
-						ByteBuffer readBuffer = ByteBuffer.allocate(maximumBufferSize);
+						ByteBuffer readBuffer = getReceiveBuffer();
 						int numberBytesRead = 0;
 						boolean error = false;
 
@@ -1606,7 +1845,8 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 							error=true;
 						}
 
-						if(numberBytesRead == -1) {
+						if(numberBytesRead == -1 || (error && theSocketChannel.isOpen())) {
+							// close the channel, so that it is not selected over and over again
 							try {
 								theSocketChannel.close();
 							} catch (IOException e) {
@@ -1670,8 +1910,13 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 									// if we are in a blocking operation, we get are now finished and we have to reset the flag. The read buffer will be returned to the instance
 									// that initiated the write opreation - it has to parse the buffer itself
 
+									// the receive buffer is reused for the next read, so the instance gets a copy of its own
+									ByteBuffer responseBuffer = ByteBuffer.allocate(readBuffer.capacity());
+									responseBuffer.put(readBuffer);
+									responseBuffer.flip();
+
 									theChannel = channels.getBlocking(theSocketChannel);
-									theChannel.buffer = readBuffer;
+									theChannel.buffer = responseBuffer;
 									theChannel.isBlocking = false;
 
 								} else {
@@ -1695,22 +1940,30 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
 						if(isBlocking) {
 							// if this channel is already flagged as being in a blocked write/read operation, we skip this selKey
+							// until the operation has finished
+							selKey.interestOps(selKey.interestOps() & ~SelectionKey.OP_WRITE);
 						} else { 
 
 							// pick up a QueueElement for this channel, if any
 
 							WriteBufferElement theElement = null;		
 
-
-							Iterator<WriteBufferElement> iterator = writeQueue.iterator();
-							while (iterator.hasNext()) {
-								WriteBufferElement anElement = iterator.next();
-								if(anElement.channel.channel.equals(theSocketChannel)) {
-									theElement = anElement;
-									break;
+							synchronized(writeQueue) {
+								Iterator<WriteBufferElement> iterator = writeQueue.iterator();
+								while (iterator.hasNext()) {
+									WriteBufferElement anElement = iterator.next();
+									if(theSocketChannel.equals(anElement.channel.channel)) {
+										theElement = anElement;
+										break;
+									}
 								}
 							}
 
+							if(theElement == null) {
+								// nothing left to write, so we do not wait for this channel to become writable anymore
+								selKey.interestOps(selKey.interestOps() & ~SelectionKey.OP_WRITE);
+							}
+
 
 							if(theElement != null && theElement.buffer != null) {
 
@@ -1743,6 +1996,15 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
 								if(error) {
 
+									// close the channel, so that it is not selected over and over again
+									if(theSocketChannel.isOpen()) {
+										try {
+											theSocketChannel.close();
+										} catch (IOException e) {
+											logger.warn("The channel for {} is closed ({})",theChannel.remote,e.getMessage());
+										}
+									}
+
 									if(theElement.channel.direction == Direction.OUT) {
 
 										Scheduler scheduler = null;
@@ -13,16 +13,18 @@ import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 import org.drools.KnowledgeBase;
 import org.drools.KnowledgeBaseFactory;
-import org.drools.ObjectFilter;
 import org.drools.SystemEventListener;
 import org.drools.SystemEventListenerFactory;
 import org.drools.agent.KnowledgeAgent;
@@ -38,6 +40,7 @@ import org.drools.runtime.rule.FactHandle;
 import org.openhab.core.drools.event.CommandEvent;
 import org.openhab.core.drools.event.RuleEvent;
 import org.openhab.core.drools.event.StateEvent;
+import org.openhab.core.events.ItemEvent;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -55,6 +58,15 @@ import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * This service evaluates the Drools rules with the events of the openHAB event bus.
+ * <p>By default, the queued events are inserted into the session and the rules are
+ * fired every <code>evalInterval</code> milliseconds. In the event driven mode, the
+ * evaluation thread waits for events instead and evaluates all events which have
+ * been queued in the meantime at once. In both modes, the events are retracted
+ * from the session with the next evaluation, but not later than after
+ * <code>evalInterval</code> milliseconds.</p>
+ */
 public class RuleService extends AbstractActiveService implements ManagedService, EventHandler, ItemRegistryChangeListener, StateChangeListener {
 
 	private static final String RULES_CHANGESET = "org/openhab/core/drools/changeset.xml";
@@ -64,12 +76,18 @@ public class RuleService extends AbstractActiveService implements ManagedService
 	private ItemRegistry itemRegistry = null;
 	
 	private long refreshInterval = 200;
+
+	/** whether the rules are evaluated as soon as events arrive instead of polling the queue */
+	private volatile boolean eventDriven = false;
 		
 	private StatefulKnowledgeSession ksession = null;
 	
 	private Map<String, FactHandle> factHandleMap = new HashMap<String, FactHandle>();
 	
-	private List<RuleEvent> eventQueue = Collections.synchronizedList(new ArrayList<RuleEvent>());
+	private BlockingQueue<RuleEvent> eventQueue = new LinkedBlockingQueue<RuleEvent>();
+
+	/** the handles of the events which have been inserted by the last evaluation */
+	private List<FactHandle> eventHandles = new ArrayList<FactHandle>();
 	
 	public void activate() {
 		
@@ -121,6 +139,8 @@ public class RuleService extends AbstractActiveService implements ManagedService
 		}
 		factHandleMap.clear();
 		shutdown();
+		// wake up the evaluation thread, if it is waiting for events
+		interrupt();
 	}
 	
 	public void setItemRegistry(ItemRegistry itemRegistry) {
@@ -143,6 +163,22 @@ public class RuleService extends AbstractActiveService implements ManagedService
 			if (StringUtils.isNotBlank(evalIntervalString)) {
 				refreshInterval = Long.parseLong(evalIntervalString);
 			}
+			boolean newEventDriven = false;
+			String evalModeString = (String) config.get("evalMode");
+			if (StringUtils.isNotBlank(evalModeString)) {
+				if ("event".equals(evalModeString.trim())) {
+					newEventDriven = true;
+				} else if (!"polling".equals(evalModeString.trim())) {
+					throw new ConfigurationException("evalMode", "'" + evalModeString + "' is not a valid mode, use 'polling' or 'event'");
+				}
+			}
+			if (eventDriven && !newEventDriven) {
+				eventDriven = false;
+				// the evaluation thread might wait for events
+				interrupt();
+			} else {
+				eventDriven = newEventDriven;
+			}
 		}
 	}
 
@@ -244,38 +280,76 @@ public class RuleService extends AbstractActiveService implements ManagedService
 	 * @{inheritDoc}
 	 */
 	@Override
-	protected synchronized void execute() {
-		// remove all previous events from the session
-		Collection<FactHandle> handles = ksession.getFactHandles(new ObjectFilter() {			
-			public boolean accept(Object obj) {
-				if (obj instanceof RuleEvent) {
-					return true;
+	protected void execute() {
+		if(!eventDriven) {
+			List<RuleEvent> events = new ArrayList<RuleEvent>();
+			eventQueue.drainTo(events);
+			evaluate(events);
+			return;
+		}
+		
+		// in the event driven mode, we stay here until the mode is changed or the service is shut down
+		try {
+			while(eventDriven && !shutdown) {
+				RuleEvent event;
+				if(eventHandles.isEmpty()) {
+					event = eventQueue.take();
+				} else {
+					// the events in the session expire after the evaluation interval
+					event = eventQueue.poll(refreshInterval, TimeUnit.MILLISECONDS);
 				}
-				return false;
+				List<RuleEvent> events = new ArrayList<RuleEvent>();
+				if(event!=null) {
+					events.add(event);
+					eventQueue.drainTo(events);
+				}
+				evaluate(events);
 			}
-		});
-		for(FactHandle handle : handles) {
-			ksession.retract(handle);
+		} catch (InterruptedException e) {
+			logger.debug("Waiting for events has been interrupted.");
 		}
+	}
 
-		ArrayList<RuleEvent> clonedQueue = new ArrayList<RuleEvent>(eventQueue);
-		eventQueue.clear();
+	/**
+	 * Replaces the events of the last evaluation in the session by the given ones and fires the rules.
+	 * 
+	 * @param events the new events, might be empty
+	 */
+	private synchronized void evaluate(List<RuleEvent> events) {
+		if(ksession==null) {
+			return;
+		}
 		
-		// now add all recent events to the session
-		for(RuleEvent event : clonedQueue) {
+		// remove all previous events from the session
+		for(FactHandle handle : eventHandles) {
+			ksession.retract(handle);
+		}
+		eventHandles.clear();
+		
+		// update every item that has received an event only once
+		Map<String, Item> items = new LinkedHashMap<String, Item>();
+		for(RuleEvent event : events) {
 			Item item = event.getItem();
-			if(ksession!=null && item!=null) {
-				FactHandle factHandle = factHandleMap.get(item.getName());
-				if(factHandle!=null) {
-					ksession.update(factHandle, item);
-				}
-				ksession.insert(event);
+			if(item!=null) {
+				items.put(item.getName(), item);
+			}
+		}
+		for(Item item : items.values()) {
+			FactHandle factHandle = factHandleMap.get(item.getName());
+			if(factHandle!=null) {
+				ksession.update(factHandle, item);
+			}
+		}
+		
+		// now add all recent events to the session
+		for(RuleEvent event : events) {
+			if(event.getItem()!=null) {
+				eventHandles.add(ksession.insert(event));
 			}
 		}
 		
 		// run the rule evaluation
 		ksession.fireAllRules();
-			
 	}
 
 	@Override
@@ -292,6 +366,14 @@ public class RuleService extends AbstractActiveService implements ManagedService
 	 * {@inheritDoc}
 	 */
 	public void handleEvent(Event event) {  
+		if(event instanceof ItemEvent) {
+			ItemEvent itemEvent = (ItemEvent) event;
+			if(itemEvent.getType()==EventType.COMMAND) {
+				receiveCommand(itemEvent.getItemName(), (Command) itemEvent.getPayload());
+			}
+			return;
+		}
+		
 		String itemName = (String) event.getProperty("item");
 		
 		String topic = event.getTopic();
@@ -17,6 +17,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.GroupFunction;
+import org.openhab.core.items.IncrementalGroupFunction;
+import org.openhab.core.items.IncrementalGroupFunction.Aggregation;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.items.DimmerItem;
 import org.openhab.core.library.items.SwitchItem;
@@ -205,6 +207,95 @@ public class ArithmeticGroupFunctionTest {
 		Assert.assertEquals(new DecimalType("234.95"), state);
 	}
 	
+	@Test
+	public void testSumAggregation() {
+		TestItem item1 = new TestItem("TestItem1", new DecimalType("23.54"));
+		TestItem item2 = new TestItem("TestItem2", UnDefType.NULL);
+		TestItem item3 = new TestItem("TestItem3", new DecimalType("89"));
+		items.add(item1);
+		items.add(item2);
+		items.add(item3);
+		
+		assertAggregation(new ArithmeticGroupFunction.Sum(), item1, item2, item3);
+	}
+	
+	@Test
+	public void testAvgAggregation() {
+		TestItem item1 = new TestItem("TestItem1", new DecimalType("10"));
+		TestItem item2 = new TestItem("TestItem2", UnDefType.UNDEF);
+		TestItem item3 = new TestItem("TestItem3", new DecimalType("2.5"));
+		items.add(item1);
+		items.add(item2);
+		items.add(item3);
+		
+		assertAggregation(new ArithmeticGroupFunction.Avg(), item1, item2, item3);
+	}
+	
+	@Test
+	public void testMinMaxAggregation() {
+		TestItem item1 = new TestItem("TestItem1", new DecimalType("7"));
+		TestItem item2 = new TestItem("TestItem2", new DecimalType("-3.5"));
+		TestItem item3 = new TestItem("TestItem3", new DecimalType("7"));
+		items.add(item1);
+		items.add(item2);
+		items.add(item3);
+		
+		assertAggregation(new ArithmeticGroupFunction.Min(), item1, item2, item3);
+		assertAggregation(new ArithmeticGroupFunction.Max(), item1, item2, item3);
+	}
+	
+	@Test
+	public void testAndOrAggregation() {
+		TestItem item1 = new TestItem("TestItem1", OpenClosedType.OPEN);
+		TestItem item2 = new TestItem("TestItem2", UnDefType.UNDEF);
+		TestItem item3 = new TestItem("TestItem3", OpenClosedType.OPEN);
+		items.add(item1);
+		items.add(item2);
+		items.add(item3);
+		
+		assertAggregation(new ArithmeticGroupFunction.And(OpenClosedType.OPEN, OpenClosedType.CLOSED), item1, item2, item3);
+		assertAggregation(new ArithmeticGroupFunction.NAnd(OpenClosedType.OPEN, OpenClosedType.CLOSED), item1, item2, item3);
+		assertAggregation(new ArithmeticGroupFunction.Or(OpenClosedType.OPEN, OpenClosedType.CLOSED), item1, item2, item3);
+		assertAggregation(new ArithmeticGroupFunction.NOr(OpenClosedType.OPEN, OpenClosedType.CLOSED), item1, item2, item3);
+	}
+	
+	/**
+	 * Checks that the aggregation of a function always has the same state as a
+	 * new calculation, while the members of {@link #items} are changed.
+	 */
+	private void assertAggregation(IncrementalGroupFunction function, TestItem item1, TestItem item2, TestItem item3) {
+		State state1 = item1.getState();
+		State state2 = item2.getState();
+		
+		Aggregation aggregation = function.createAggregation();
+		for (Item item : items) {
+			aggregation.add(item);
+		}
+		Assert.assertEquals(function.calculate(items), aggregation.getState());
+		
+		// change the state of a member
+		item1.setState(item3.getState() instanceof DecimalType ? new DecimalType("42.125") : OpenClosedType.CLOSED);
+		aggregation.update(item1);
+		Assert.assertEquals(function.calculate(items), aggregation.getState());
+		
+		// a member without a valid state gets one
+		item2.setState(item3.getState());
+		aggregation.update(item2);
+		Assert.assertEquals(function.calculate(items), aggregation.getState());
+		
+		// remove and add a member again
+		items.remove(item3);
+		aggregation.remove(item3);
+		Assert.assertEquals(function.calculate(items), aggregation.getState());
+		items.add(item3);
+		aggregation.add(item3);
+		Assert.assertEquals(function.calculate(items), aggregation.getState());
+		
+		// restore the initial states for the next function
+		item1.setState(state1);
+		item2.setState(state2);
+	}
+	
 	class TestItem extends GenericItem {
 
 		public TestItem(String name, State state) {
@@ -31,4 +31,11 @@ public class DecimalTypeTest {
 		assertEquals(false, dt1.equals(pt));
 	}
 	
+	@Test
+	public void testHashCode() {
+		assertEquals(new DecimalType("20").hashCode(), new DecimalType("20.00").hashCode());
+		assertEquals(new DecimalType("0").hashCode(), new DecimalType("0.0").hashCode());
+		assertEquals(new DecimalType("99.7").hashCode(), new PercentType("99.70").hashCode());
+	}
+	
 }
@@ -10,16 +10,21 @@ package org.openhab.core.library.types;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.openhab.core.items.GroupFunction;
+import org.openhab.core.items.IncrementalGroupFunction;
 import org.openhab.core.items.Item;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 
 /**
  * This interface is only a container for functions that require the core type library
- * for its calculations.
+ * for its calculations. All functions are incremental, i.e. they can update their
+ * result when a single member changes, without iterating over all members.
  * 
  * @author Kai Kreuzer
  * @since 0.7.0
@@ -38,7 +43,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class And implements GroupFunction {
+	static class And implements IncrementalGroupFunction {
 		
 		protected final State activeState;
 		protected final State passiveState;
@@ -100,6 +105,25 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			return count;
 			
 		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregation createAggregation() {
+			return new CountingAggregation(activeState) {
+				public State getState() {
+					return calculate(getItemCount(), getActiveCount());
+				}
+			};
+		}
+
+		/**
+		 * Calculates the group state from the number of items and the number of
+		 * items which are in the 'activeState'.
+		 */
+		protected State calculate(int itemCount, int activeCount) {
+			return itemCount > 0 && activeCount == itemCount ? activeState : passiveState;
+		}
 	}
 
 	/**
@@ -113,7 +137,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Or implements GroupFunction {
+	static class Or implements IncrementalGroupFunction {
 
 		protected final State activeState;
 		protected final State passiveState;
@@ -167,6 +191,25 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			}
 			return count;
 		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregation createAggregation() {
+			return new CountingAggregation(activeState) {
+				public State getState() {
+					return calculate(getItemCount(), getActiveCount());
+				}
+			};
+		}
+
+		/**
+		 * Calculates the group state from the number of items and the number of
+		 * items which are in the 'activeState'.
+		 */
+		protected State calculate(int itemCount, int activeCount) {
+			return activeCount > 0 ? activeState : passiveState;
+		}
 	}
 	
 	/**
@@ -190,6 +233,12 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				result.equals(activeState) ? passiveState : activeState;
 			return notResult;
 		}
+
+		@Override
+		protected State calculate(int itemCount, int activeCount) {
+			State result = super.calculate(itemCount, activeCount);
+			return result.equals(activeState) ? passiveState : activeState;
+		}
 		
 	}
 
@@ -214,6 +263,12 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				result.equals(activeState) ? passiveState : activeState;
 			return notResult;
 		}
+
+		@Override
+		protected State calculate(int itemCount, int activeCount) {
+			State result = super.calculate(itemCount, activeCount);
+			return result.equals(activeState) ? passiveState : activeState;
+		}
 		
 	}
 	
@@ -224,7 +279,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Avg implements GroupFunction {
+	static class Avg implements IncrementalGroupFunction {
 		
 		public Avg() {}
 
@@ -261,6 +316,21 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				return null;
 			}
 		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregation createAggregation() {
+			return new DecimalAggregation() {
+				public State getState() {
+					if(getCount()>0) {
+						return new DecimalType(getSum().divide(new BigDecimal(getCount()), RoundingMode.HALF_UP));
+					} else {
+						return UnDefType.UNDEF;
+					}
+				}
+			};
+		}
 	}
 
 	/**
@@ -270,7 +340,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 1.1.0
 	 *
 	 */
-	static class Sum implements GroupFunction {
+	static class Sum implements IncrementalGroupFunction {
 		
 		public Sum() {}
 
@@ -301,6 +371,17 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				return null;
 			}
 		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregation createAggregation() {
+			return new DecimalAggregation() {
+				public State getState() {
+					return new DecimalType(getSum());
+				}
+			};
+		}
 	}
 	
 	/**
@@ -310,7 +391,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Min implements GroupFunction {
+	static class Min implements IncrementalGroupFunction {
 		
 		public Min() {}
 
@@ -346,7 +427,19 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				return null;
 			}
 		}
-}
+
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregation createAggregation() {
+			return new DecimalAggregation() {
+				public State getState() {
+					BigDecimal min = getMin();
+					return min!=null ? new DecimalType(min) : UnDefType.UNDEF;
+				}
+			};
+		}
+	}
 
 	/**
 	 * This calculates the maximum value of all item states of decimal type.
@@ -355,7 +448,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Max implements GroupFunction {
+	static class Max implements IncrementalGroupFunction {
 		
 		public Max() {}
 
@@ -391,7 +484,199 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				return null;
 			}
 		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregation createAggregation() {
+			return new DecimalAggregation() {
+				public State getState() {
+					BigDecimal max = getMax();
+					return max!=null ? new DecimalType(max) : UnDefType.UNDEF;
+				}
+			};
+		}
 	}
-	
-	
+
+	/**
+	 * Base class for aggregations, which keeps track of the value each member
+	 * contributes, so that it can be taken back when the member changes. A member
+	 * can be added several times, in which case its value is also counted several times.
+	 *
+	 * @param <T> the type of the values the members contribute
+	 */
+	static abstract class ContributionAggregation<T> implements IncrementalGroupFunction.Aggregation {
+
+		private final Map<Item, Contribution<T>> contributions = new IdentityHashMap<Item, Contribution<T>>();
+
+		public void add(Item item) {
+			Contribution<T> contribution = contributions.get(item);
+			if(contribution==null) {
+				contribution = new Contribution<T>(getValue(item));
+				contributions.put(item, contribution);
+			} else {
+				contribution.count++;
+			}
+			include(contribution.value);
+		}
+
+		public void remove(Item item) {
+			Contribution<T> contribution = contributions.get(item);
+			if(contribution!=null) {
+				exclude(contribution.value);
+				if(--contribution.count==0) {
+					contributions.remove(item);
+				}
+			}
+		}
+
+		public void update(Item item) {
+			Contribution<T> contribution = contributions.get(item);
+			if(contribution!=null) {
+				T value = getValue(item);
+				for(int i=0; i<contribution.count; i++) {
+					exclude(contribution.value);
+					include(value);
+				}
+				contribution.value = value;
+			}
+		}
+
+		/** returns the value an item contributes with its current state, may be null */
+		protected abstract T getValue(Item item);
+
+		/** adds a value to the intermediate result */
+		protected abstract void include(T value);
+
+		/** takes a value back from the intermediate result */
+		protected abstract void exclude(T value);
+
+		private static class Contribution<T> {
+			private T value;
+			private int count = 1;
+
+			public Contribution(T value) {
+				this.value = value;
+			}
+		}
+	}
+
+	/**
+	 * Counts the members and the members which are in a given state.
+	 */
+	static abstract class CountingAggregation extends ContributionAggregation<Boolean> {
+
+		private final State activeState;
+		private int itemCount = 0;
+		private int activeCount = 0;
+
+		public CountingAggregation(State activeState) {
+			this.activeState = activeState;
+		}
+
+		protected int getItemCount() {
+			return itemCount;
+		}
+
+		protected int getActiveCount() {
+			return activeCount;
+		}
+
+		@Override
+		protected Boolean getValue(Item item) {
+			return activeState.equals(item.getState());
+		}
+
+		@Override
+		protected void include(Boolean active) {
+			itemCount++;
+			if(active) {
+				activeCount++;
+			}
+		}
+
+		@Override
+		protected void exclude(Boolean active) {
+			itemCount--;
+			if(active) {
+				activeCount--;
+			}
+		}
+	}
+
+	/**
+	 * Keeps the running sum, the number and the sorted values of all members with
+	 * a state of decimal type.
+	 */
+	static abstract class DecimalAggregation extends ContributionAggregation<BigDecimal> {
+
+		private BigDecimal sum = BigDecimal.ZERO;
+		private int count = 0;
+
+		/* the number of occurrences of each value, to determine the minimum and maximum */
+		private final TreeMap<BigDecimal, Integer> values = new TreeMap<BigDecimal, Integer>();
+
+		/* the number of occurrences of each scale, so that the sum has the same scale as a new calculation */
+		private final TreeMap<Integer, Integer> scales = new TreeMap<Integer, Integer>();
+
+		protected int getCount() {
+			return count;
+		}
+
+		protected BigDecimal getSum() {
+			int scale = scales.isEmpty() ? 0 : Math.max(0, scales.lastKey());
+			return sum.setScale(scale);
+		}
+
+		protected BigDecimal getMin() {
+			return values.isEmpty() ? null : values.firstKey();
+		}
+
+		protected BigDecimal getMax() {
+			return values.isEmpty() ? null : values.lastKey();
+		}
+
+		@Override
+		protected BigDecimal getValue(Item item) {
+			DecimalType itemState = (DecimalType) item.getStateAs(DecimalType.class);
+			return itemState!=null ? itemState.toBigDecimal() : null;
+		}
+
+		@Override
+		protected void include(BigDecimal value) {
+			if(value!=null) {
+				sum = sum.add(value);
+				count++;
+				increment(values, value);
+				increment(scales, value.scale());
+			}
+		}
+
+		@Override
+		protected void exclude(BigDecimal value) {
+			if(value!=null) {
+				sum = sum.subtract(value);
+				count--;
+				decrement(values, value);
+				decrement(scales, value.scale());
+			}
+		}
+
+		private static <K> void increment(Map<K, Integer> map, K key) {
+			Integer occurrences = map.get(key);
+			map.put(key, occurrences==null ? 1 : occurrences + 1);
+		}
+
+		private static <K> void decrement(Map<K, Integer> map, K key) {
+			Integer occurrences = map.get(key);
+			if(occurrences!=null) {
+				if(occurrences > 1) {
+					map.put(key, occurrences - 1);
+				} else {
+					map.remove(key);
+				}
+			}
+		}
+	}
+
 }
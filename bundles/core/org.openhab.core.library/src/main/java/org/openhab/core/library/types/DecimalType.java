@@ -73,7 +73,8 @@ public class DecimalType extends Number implements PrimitiveType, State, Command
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((value == null) ? 0 : value.hashCode());
+		// equals() ignores the scale of the value, so the hash code has to do so as well
+		result = prime * result + ((value == null || value.signum() == 0) ? 0 : value.stripTrailingZeros().hashCode());
 		return result;
 	}
 
@@ -9,7 +9,9 @@
 package org.openhab.core.persistence.extensions;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 
@@ -21,6 +23,7 @@ import org.openhab.core.items.GenericItem;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
+import org.openhab.core.persistence.test.TestAggregatingPersistenceService;
 import org.openhab.core.persistence.test.TestPersistenceService;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
@@ -33,6 +36,7 @@ import org.openhab.core.types.State;
 public class PersistenceExtensionsTest {
 
 	private PersistenceService testPersistenceService = new TestPersistenceService();
+	private TestAggregatingPersistenceService testAggregatingService = new TestAggregatingPersistenceService();
 	private PersistenceExtensions ext;
 	private GenericItem item;
 	
@@ -40,6 +44,7 @@ public class PersistenceExtensionsTest {
 	public void setUp() {
 		ext = new PersistenceExtensions();
 		ext.addPersistenceService(testPersistenceService);
+		ext.addPersistenceService(testAggregatingService);
 		item = new GenericItem("Test") {
 			@Override
 			public List<Class<? extends State>> getAcceptedDataTypes() {
@@ -56,6 +61,7 @@ public class PersistenceExtensionsTest {
 	@After
 	public void tearDown() {
 		ext.removePersistenceService(testPersistenceService);	
+		ext.removePersistenceService(testAggregatingService);
 	}
 	
 	@Test
@@ -103,4 +109,32 @@ public class PersistenceExtensionsTest {
 		DecimalType average = PersistenceExtensions.averageSince(item, new DateMidnight(2003, 1, 1), "test");
 		assertEquals("2100", average.toString());
 	}
+
+	@Test
+	public void testChangedAndUpdatedSince() {
+		assertTrue(PersistenceExtensions.changedSince(item, new DateMidnight(2005, 1, 1), "test"));
+		assertTrue(PersistenceExtensions.updatedSince(item, new DateMidnight(2005, 1, 1), "test"));
+		assertFalse(PersistenceExtensions.changedSince(item, new DateMidnight(2013, 1, 1), "test"));
+		assertFalse(PersistenceExtensions.updatedSince(item, new DateMidnight(2013, 1, 1), "test"));
+	}
+
+	@Test
+	public void testAggregatingService() {
+		item.setState(new DecimalType(3025));
+		assertEquals("2100", PersistenceExtensions.averageSince(item, new DateMidnight(2003, 1, 1), "testaggregating").toString());
+		assertEquals("2005", PersistenceExtensions.minimumSince(item, new DateMidnight(2005, 1, 1), "testaggregating").getState().toString());
+		assertEquals("3025", PersistenceExtensions.maximumSince(item, new DateMidnight(2005, 1, 1), "testaggregating").getState().toString());
+
+		item.setState(new DecimalType(1));
+		HistoricItem historicItem = PersistenceExtensions.maximumSince(item, new DateMidnight(2005, 1, 1), "testaggregating");
+		assertEquals("2012", historicItem.getState().toString());
+		assertEquals(new DateMidnight(2012, 1, 1).toDate(), historicItem.getTimestamp());
+
+		assertTrue(PersistenceExtensions.changedSince(item, new DateMidnight(2005, 1, 1), "testaggregating"));
+		assertTrue(PersistenceExtensions.updatedSince(item, new DateMidnight(2005, 1, 1), "testaggregating"));
+		assertFalse(PersistenceExtensions.changedSince(item, new DateMidnight(2013, 1, 1), "testaggregating"));
+		assertFalse(PersistenceExtensions.updatedSince(item, new DateMidnight(2013, 1, 1), "testaggregating"));
+
+		assertEquals(10, testAggregatingService.getAggregations());
+	}
 }
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.openhab.core.persistence.internal.PersistenceRoutingTable.Target;
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class PersistenceRoutingTableTest {
+
+	@Test
+	public void testItemTargets() {
+		PersistenceRoutingTable table = new PersistenceRoutingTable.Builder()
+			.addItemTarget("Temperature", new Target("rrd4j", null), true)
+			.addItemTarget("Temperature", new Target("mysql", "temp"), false)
+			.build();
+		
+		assertEquals(1, table.getItemTargets("Temperature", true).size());
+		assertEquals("rrd4j", table.getItemTargets("Temperature", true).get(0).getServiceName());
+		assertEquals("temp", table.getItemTargets("Temperature", false).get(0).getAlias());
+		assertTrue(table.getItemTargets("Humidity", true).isEmpty());
+		assertTrue(table.getAllItemsTargets(true).isEmpty());
+	}
+	
+	@Test
+	public void testDuplicateTargetsAreRemoved() {
+		PersistenceRoutingTable table = new PersistenceRoutingTable.Builder()
+			.addAllItemsTarget(new Target("rrd4j", null), true)
+			.addItemTarget("Temperature", new Target("rrd4j", null), true)
+			.addItemTarget("Temperature", new Target("mysql", null), true)
+			.addItemTarget("Temperature", new Target("mysql", null), true)
+			.addItemTarget("Humidity", new Target("rrd4j", null), true)
+			.build();
+		
+		assertEquals(1, table.getAllItemsTargets(true).size());
+		assertEquals(1, table.getItemTargets("Temperature", true).size());
+		assertEquals("mysql", table.getItemTargets("Temperature", true).get(0).getServiceName());
+		assertTrue(table.getItemTargets("Humidity", true).isEmpty());
+	}
+
+}
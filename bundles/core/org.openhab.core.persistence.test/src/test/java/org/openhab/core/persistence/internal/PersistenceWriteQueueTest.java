@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.BatchingPersistenceService;
+import org.openhab.core.persistence.PersistenceRecord;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class PersistenceWriteQueueTest {
+
+	@Test
+	public void testRecordsAreWrittenInOrder() throws InterruptedException {
+		TestBatchingService service = new TestBatchingService();
+		PersistenceWriteQueue queue = new PersistenceWriteQueue(service, 10, 3);
+		Item item = new TestItem("Temperature");
+		queue.start();
+		for(int i = 0; i < 5; i++) {
+			queue.offer(new PersistenceRecord(item, null, new DecimalType(i), new Date()));
+		}
+		waitForRecords(queue, 5);
+		queue.shutdown();
+
+		assertEquals(5, service.records.size());
+		for(int i = 0; i < 5; i++) {
+			assertEquals(new DecimalType(i), service.records.get(i).getState());
+		}
+		assertTrue(service.maxBatchSize <= 3);
+		assertEquals(0, queue.getDroppedCount());
+	}
+
+	@Test
+	public void testRecordsAreDroppedIfQueueIsFull() throws InterruptedException {
+		BlockingBatchingService service = new BlockingBatchingService();
+		PersistenceWriteQueue queue = new PersistenceWriteQueue(service, 2, 1);
+		Item item = new TestItem("Temperature");
+		queue.start();
+		// the writer takes the first record and blocks, the next two fill the queue
+		assertTrue(queue.offer(new PersistenceRecord(item, null, new DecimalType(0), new Date())));
+		assertTrue(service.writing.await(5, TimeUnit.SECONDS));
+		assertTrue(queue.offer(new PersistenceRecord(item, null, new DecimalType(1), new Date())));
+		assertTrue(queue.offer(new PersistenceRecord(item, null, new DecimalType(2), new Date())));
+		assertFalse(queue.offer(new PersistenceRecord(item, null, new DecimalType(3), new Date())));
+		assertFalse(queue.offer(new PersistenceRecord(item, null, new DecimalType(4), new Date())));
+		assertEquals(2, queue.getQueueSize());
+		assertEquals(2, queue.getDroppedCount());
+
+		service.release.countDown();
+		waitForRecords(queue, 3);
+		queue.shutdown();
+		assertEquals(3, service.records.size());
+		assertEquals(new DecimalType(2), service.records.get(2).getState());
+	}
+
+	@Test
+	public void testRecordsAreDroppedAfterShutdown() {
+		PersistenceWriteQueue queue = new PersistenceWriteQueue(new TestBatchingService(), 2, 10);
+		queue.start();
+		queue.shutdown();
+		Item item = new TestItem("Temperature");
+		assertFalse(queue.offer(new PersistenceRecord(item, null, new DecimalType(1), new Date())));
+		assertEquals(1, queue.getDroppedCount());
+	}
+	
+	private void waitForRecords(PersistenceWriteQueue queue, int count) throws InterruptedException {
+		for(int i = 0; i < 100 && queue.getWrittenCount() < count; i++) {
+			Thread.sleep(20);
+		}
+	}
+	
+	
+	class TestBatchingService implements BatchingPersistenceService {
+
+		List<PersistenceRecord> records = new CopyOnWriteArrayList<PersistenceRecord>();
+		int maxBatchSize = 0;
+		
+		public String getName() {
+			return "test";
+		}
+
+		public void store(Item item) {
+		}
+
+		public void store(Item item, String alias) {
+		}
+
+		public void store(List<PersistenceRecord> batch) {
+			maxBatchSize = Math.max(maxBatchSize, batch.size());
+			records.addAll(batch);
+		}
+		
+	}
+	
+	/**
+	 * A service whose first write blocks until it is released.
+	 */
+	class BlockingBatchingService extends TestBatchingService {
+
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public void store(List<PersistenceRecord> batch) {
+			writing.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			super.store(batch);
+		}
+
+	}
+
+	class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return null;
+		}
+
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return null;
+		}
+		
+	}
+
+}
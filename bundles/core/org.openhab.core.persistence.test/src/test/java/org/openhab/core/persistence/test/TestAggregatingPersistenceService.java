@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.test;
+
+import java.util.Date;
+
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.types.State;
+
+/**
+ * A simple aggregating persistence service used for unit tests, which
+ * aggregates the values of the {@link TestPersistenceService}.
+ * 
+ * @author agent
+ * @since 1.5.0
+ */
+public class TestAggregatingPersistenceService extends TestPersistenceService implements AggregatingPersistenceService {
+
+	private int aggregations = 0;
+
+	@Override
+	public String getName() {
+		return "testaggregating";
+	}
+
+	/**
+	 * @return the number of aggregations which have been computed
+	 */
+	public int getAggregations() {
+		return aggregations;
+	}
+
+	@Override
+	public HistoricItem aggregate(FilterCriteria filter, Aggregation aggregation) {
+		aggregations++;
+		filter.setOrdering(Ordering.ASCENDING);
+		HistoricItem first = null;
+		HistoricItem last = null;
+		HistoricItem minimum = null;
+		HistoricItem maximum = null;
+		boolean changed = false;
+		double sum = 0;
+		int count = 0;
+		for(HistoricItem item : query(filter)) {
+			if(first==null) {
+				first = item;
+			} else if(!first.getState().equals(item.getState())) {
+				changed = true;
+			}
+			last = item;
+			DecimalType value = (DecimalType) item.getState();
+			if(minimum==null || value.compareTo((DecimalType) minimum.getState()) < 0) {
+				minimum = item;
+			}
+			if(maximum==null || value.compareTo((DecimalType) maximum.getState()) > 0) {
+				maximum = item;
+			}
+			sum += value.doubleValue();
+			count++;
+		}
+		if(first==null) {
+			return null;
+		}
+		switch(aggregation) {
+			case FIRST : return first;
+			case LAST : return last;
+			case MINIMUM : return minimum;
+			case MAXIMUM : return maximum;
+			case CHANGED : return createItem(changed ? OnOffType.ON : OnOffType.OFF);
+			case SUM : return createItem(new DecimalType(sum));
+			case AVERAGE : return createItem(new DecimalType(sum / count));
+			case COUNT : return createItem(new DecimalType(count));
+			default : throw new UnsupportedOperationException();
+		}
+	}
+
+	private static HistoricItem createItem(final State state) {
+		return new HistoricItem() {
+			public Date getTimestamp() {
+				return new Date();
+			}
+			
+			public State getState() {
+				return state;
+			}
+			
+			public String getName() {
+				return "Test";
+			}
+		};
+	}
+
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+/**
+ * This is an extension of the {@link QueryablePersistenceService} for services
+ * which can compute aggregates of the persisted values themselves, e.g. by an
+ * aggregate function of the database or by a consolidated archive. This saves
+ * transferring and iterating over all values of the queried time range.
+ * <p>Services which do not implement this interface are still supported by the
+ * persistence extensions, which then query all values and aggregate them on
+ * their own.</p>
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+public interface AggregatingPersistenceService extends QueryablePersistenceService {
+
+	/** Enumeration with all supported aggregations */
+	public enum Aggregation {
+		/** the historic item with the smallest decimal value */
+		MINIMUM,
+		/** the historic item with the largest decimal value */
+		MAXIMUM,
+		/** the average of all decimal values as a DecimalType */
+		AVERAGE,
+		/** the sum of all decimal values as a DecimalType */
+		SUM,
+		/** the number of decimal values as a DecimalType */
+		COUNT,
+		/** the oldest historic item */
+		FIRST,
+		/** the most recent historic item */
+		LAST,
+		/** OnOffType.ON, if there are differing states, OnOffType.OFF otherwise */
+		CHANGED
+	}
+
+	/**
+	 * Computes an aggregate of the values which match the given filter. Only the
+	 * item name, begin and end date of the filter are considered.
+	 * <p>Values without a decimal state are ignored by the numeric aggregations.
+	 * Aggregations that are not backed by a single persisted value return a
+	 * historic item whose timestamp is the end of the time range.</p>
+	 *
+	 * @param filter the filter to apply to the values
+	 * @param aggregation the aggregation to compute
+	 * @return the aggregate or <code>null</code>, if there are no values to aggregate
+	 * @throws UnsupportedOperationException if the aggregation cannot be computed for
+	 * this filter, so that the caller has to query and aggregate the values instead
+	 */
+	HistoricItem aggregate(FilterCriteria filter, Aggregation aggregation);
+
+}
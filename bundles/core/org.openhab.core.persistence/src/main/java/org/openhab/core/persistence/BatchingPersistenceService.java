@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.List;
+
+/**
+ * This is an extension of the {@link PersistenceService} for services which
+ * can store several records at once, e.g. by using a single transaction or a
+ * multi-row insert.
+ * <p>The persistence manager collects state changes and updates in a queue
+ * per service and passes them in batches to the service, which it calls from
+ * a dedicated writer thread. In contrast to {@link #store(org.openhab.core.items.Item, String)},
+ * the records carry the state and time of the original event, so implementors
+ * should persist these instead of the current state of the item.</p>
+ * 
+ * @author agent
+ * @since 1.5.0
+ */
+public interface BatchingPersistenceService extends PersistenceService {
+
+	/**
+	 * Stores a batch of records.
+	 * 
+	 * @param records the records to store in the order in which they occurred, never empty
+	 */
+	void store(List<PersistenceRecord> records);
+
+}
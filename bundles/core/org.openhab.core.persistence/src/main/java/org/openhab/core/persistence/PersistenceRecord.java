@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Date;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.types.State;
+
+/**
+ * This class represents a single store request for a persistence service. It
+ * keeps the state which the item had at the time the request was created, so
+ * that the request can be processed asynchronously.
+ * 
+ * @author agent
+ * @since 1.5.0
+ */
+public class PersistenceRecord {
+
+	private final Item item;
+	private final String alias;
+	private final State state;
+	private final Date timestamp;
+
+	public PersistenceRecord(Item item, String alias, State state, Date timestamp) {
+		this.item = item;
+		this.alias = alias;
+		this.state = state;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * returns the item which should be persisted
+	 * 
+	 * @return the item
+	 */
+	public Item getItem() {
+		return item;
+	}
+
+	/**
+	 * returns the alias under which the item should be persisted
+	 * 
+	 * @return the alias or <code>null</code>, if the item name should be used
+	 */
+	public String getAlias() {
+		return alias;
+	}
+
+	/**
+	 * returns the state of the item at the time the record was created
+	 * 
+	 * @return the state to persist
+	 */
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * returns the time at which the record was created
+	 * 
+	 * @return the timestamp of the record
+	 */
+	public Date getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return item.getName() + (alias!=null ? " (" + alias + ")" : "") + " -> " + state;
+	}
+
+}
@@ -35,7 +35,9 @@ public interface PersistenceService {
 	 * {@link PersistenceService}s are called synchronously. Hence long running
 	 * operations should be processed asynchronously. E.g. <code>store</code>
 	 * adds things to a queue which is processed by some asynchronous workers
-	 * (Quartz Job, Thread, etc.).</p>  
+	 * (Quartz Job, Thread, etc.). Services which can write several values at
+	 * once should implement {@link BatchingPersistenceService} instead, whose
+	 * records are queued by the persistence manager.</p>  
 	 * 
 	 * @param item the item which state should be persisted.
 	 */
@@ -47,7 +49,9 @@ public interface PersistenceService {
 	 * {@link PersistenceService}s are called synchronously. Hence long running
 	 * operations should be processed asynchronously. E.g. <code>store</code>
 	 * adds things to a queue which is processed by some asynchronous workers
-	 * (Quartz Job, Thread, etc.).</p>  
+	 * (Quartz Job, Thread, etc.). Services which can write several values at
+	 * once should implement {@link BatchingPersistenceService} instead, whose
+	 * records are queued by the persistence manager.</p>  
 	 * 
 	 * @param item the item which state should be persisted.
 	 * @param alias the alias under which the item should be persisted.
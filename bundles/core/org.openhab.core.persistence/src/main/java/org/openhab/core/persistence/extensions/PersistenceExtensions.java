@@ -19,6 +19,9 @@ import java.util.Map;
 import org.joda.time.base.AbstractInstant;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.AggregatingPersistenceService.Aggregation;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
@@ -33,6 +36,9 @@ import org.slf4j.LoggerFactory;
 /** 
  * This class provides static methods that can be used in automation rules
  * for using persistence services
+ * <p>If a service is an {@link AggregatingPersistenceService}, the minimum, maximum,
+ * average etc. are computed by the service itself. Otherwise all values since the
+ * given point in time are queried and aggregated here.</p>
  * 
  * @author Thomas.Eichstaedt-Engelen
  * @author Kai Kreuzer
@@ -158,9 +164,26 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return true, if item state had changed
 	 */
 	static public Boolean changedSince(Item item, AbstractInstant timestamp, String serviceName) {
+		HistoricItem itemThen = historicState(item, timestamp, serviceName);
+		AggregatingPersistenceService aService = getAggregatingService(serviceName);
+		if(aService!=null) {
+			try {
+				HistoricItem first = aggregateSince(aService, item, timestamp, Aggregation.FIRST);
+				if(first == null || itemThen == null) {
+					return(first != null);
+				}
+				if(!first.getState().equals(itemThen.getState())) {
+					return true;
+				}
+				HistoricItem changed = aggregateSince(aService, item, timestamp, Aggregation.CHANGED);
+				return(changed != null && changed.getState() == OnOffType.ON);
+			} catch(UnsupportedOperationException e) {
+				logger.debug("Persistence service '{}' cannot aggregate the states: {}", serviceName, e.getMessage());
+			}
+		}
+
 		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
 		Iterator<HistoricItem> it = result.iterator();
-		HistoricItem itemThen = historicState(item, timestamp);
 		if(itemThen == null) {
 			// Can't get the state at the start time
 			// If we've got results more recent that this, it must have changed
@@ -204,7 +227,7 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return true, if item state was updated
 	 */
 	static public Boolean updatedSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
+		Iterable<HistoricItem> result = getAggregateSince(item, timestamp, serviceName, Aggregation.FIRST);
 		if(result.iterator().hasNext()) {
 			return true;
 		} else {
@@ -240,7 +263,7 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return a historic item with the maximum state value since the given point in time
 	 */
 	static public HistoricItem maximumSince(final Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
+		Iterable<HistoricItem> result = getAggregateSince(item, timestamp, serviceName, Aggregation.MAXIMUM);
 		Iterator<HistoricItem> it = result.iterator();
 		HistoricItem maximumHistoricItem = null;
 		DecimalType maximum = (DecimalType) item.getStateAs(DecimalType.class);
@@ -305,7 +328,7 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the historic item with the minimum state value since the given point in time
 	 */
 	static public HistoricItem minimumSince(final Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
+		Iterable<HistoricItem> result = getAggregateSince(item, timestamp, serviceName, Aggregation.MINIMUM);
 		Iterator<HistoricItem> it = result.iterator();
 		HistoricItem minimumHistoricItem = null;
 		DecimalType minimum = (DecimalType) item.getStateAs(DecimalType.class);
@@ -368,9 +391,6 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the average state value since the given point in time
 	 */
 	static public DecimalType averageSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-		
 		DecimalType value = (DecimalType) item.getStateAs(DecimalType.class);
 		if (value == null) {
 			value = DecimalType.ZERO;
@@ -378,6 +398,24 @@ public class PersistenceExtensions implements ManagedService {
 		
 		double average = value.doubleValue();
 		int quantity = 1;
+
+		AggregatingPersistenceService aService = getAggregatingService(serviceName);
+		if(aService!=null) {
+			try {
+				HistoricItem sum = aggregateSince(aService, item, timestamp, Aggregation.SUM);
+				HistoricItem count = aggregateSince(aService, item, timestamp, Aggregation.COUNT);
+				if(sum!=null && count!=null) {
+					average += ((DecimalType) sum.getState()).doubleValue();
+					quantity += ((DecimalType) count.getState()).intValue();
+				}
+				return new DecimalType(average / quantity);
+			} catch(UnsupportedOperationException e) {
+				logger.debug("Persistence service '{}' cannot aggregate the states: {}", serviceName, e.getMessage());
+			}
+		}
+
+		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
+		Iterator<HistoricItem> it = result.iterator();
 		while(it.hasNext()) {
 			State state = it.next().getState();
 			if (state instanceof DecimalType) {
@@ -391,6 +429,45 @@ public class PersistenceExtensions implements ManagedService {
 		return new DecimalType(average);
 	} 
 	
+	/**
+	 * Returns the aggregate of the states since a certain point in time, if the service
+	 * can compute it, and all the states since then otherwise.
+	 * 
+	 * @return an iterable with at most the aggregate, or with all states to aggregate
+	 */
+	static private Iterable<HistoricItem> getAggregateSince(Item item, AbstractInstant timestamp, String serviceName, Aggregation aggregation) {
+		AggregatingPersistenceService aService = getAggregatingService(serviceName);
+		if(aService!=null) {
+			try {
+				HistoricItem aggregate = aggregateSince(aService, item, timestamp, aggregation);
+				if(aggregate!=null) {
+					return Collections.singletonList(aggregate);
+				} else {
+					return Collections.emptyList();
+				}
+			} catch(UnsupportedOperationException e) {
+				logger.debug("Persistence service '{}' cannot aggregate the states: {}", serviceName, e.getMessage());
+			}
+		}
+		return getAllStatesSince(item, timestamp, serviceName);
+	}
+
+	static private HistoricItem aggregateSince(AggregatingPersistenceService aService, Item item, AbstractInstant timestamp, Aggregation aggregation) {
+		FilterCriteria filter = new FilterCriteria();
+		filter.setBeginDate(timestamp.toDate());
+		filter.setItemName(item.getName());
+		return aService.aggregate(filter, aggregation);
+	}
+
+	static private AggregatingPersistenceService getAggregatingService(String serviceName) {
+		PersistenceService service = services.get(serviceName);
+		if (service instanceof AggregatingPersistenceService) {
+			return (AggregatingPersistenceService) service;
+		} else {
+			return null;
+		}
+	}
+
 	static private Iterable<HistoricItem> getAllStatesSince(Item item, AbstractInstant timestamp, String serviceName) {
 		PersistenceService service = services.get(serviceName);
 		if (service instanceof QueryablePersistenceService) {
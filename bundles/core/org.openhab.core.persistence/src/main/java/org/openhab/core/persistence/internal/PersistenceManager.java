@@ -14,6 +14,8 @@ import static org.quartz.TriggerBuilder.newTrigger;
 import java.text.DateFormat;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -23,6 +25,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.ecore.EObject;
 import org.openhab.core.events.AbstractEventSubscriber;
 import org.openhab.core.items.GenericItem;
@@ -32,8 +35,10 @@ import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.items.ItemRegistryChangeListener;
 import org.openhab.core.items.StateChangeListener;
+import org.openhab.core.persistence.BatchingPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PersistenceRecord;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.State;
@@ -49,6 +54,8 @@ import org.openhab.model.persistence.persistence.PersistenceConfiguration;
 import org.openhab.model.persistence.persistence.PersistenceModel;
 import org.openhab.model.persistence.persistence.Strategy;
 import org.openhab.model.persistence.scoping.GlobalStrategies;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.Job;
 import org.quartz.JobDetail;
@@ -69,10 +76,16 @@ import org.slf4j.LoggerFactory;
  * @since 1.0.0
  *
  */
-public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener {
+public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener, ManagedService {
 	
 	private static final Logger logger = LoggerFactory.getLogger(PersistenceManager.class);
 
+	/** the default number of records which can be queued for a persistence service */
+	private static final int DEFAULT_QUEUE_SIZE = 1000;
+
+	/** the default number of records which are passed at once to a batching persistence service */
+	private static final int DEFAULT_BATCH_SIZE = 100;
+
 	private static PersistenceManager instance;
 	
 	// the scheduler used for timer events
@@ -91,6 +104,17 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	protected Map<String, List<Strategy>> defaultStrategies = 
 			Collections.synchronizedMap(new HashMap<String, List<Strategy>>());
 	
+	/** tells for each item to which services state changes and updates have to be routed */
+	protected volatile PersistenceRoutingTable routingTable = PersistenceRoutingTable.EMPTY;
+	
+	/** keeps the write queue for each persistence service */
+	protected Map<String, PersistenceWriteQueue> writeQueues = new ConcurrentHashMap<String, PersistenceWriteQueue>();
+	
+	/** the capacity of the write queues, a value of 0 or less means that services are called synchronously */
+	private int queueSize = DEFAULT_QUEUE_SIZE;
+	
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	
 	
 	public PersistenceManager() {
 		PersistenceManager.instance = this;
@@ -110,6 +134,10 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 	
 	public void deactivate() {
+		for(PersistenceWriteQueue queue : writeQueues.values()) {
+			queue.shutdown();
+		}
+		writeQueues.clear();
 	}
 	
 	
@@ -140,11 +168,13 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	public void unsetItemRegistry(ItemRegistry itemRegistry) {
 		itemRegistry.removeItemRegistryChangeListener(this);
 		this.itemRegistry = null;
+		updateRoutingTable();
 	}
 
 	public void addPersistenceService(PersistenceService persistenceService) {
 		logger.debug("Initializing {} persistence service.", persistenceService.getName());
 		persistenceServices.put(persistenceService.getName(), persistenceService);
+		startWriteQueue(persistenceService);
 		stopEventHandling(persistenceService.getName());
 		startEventHandling(persistenceService.getName());
 	}
@@ -152,6 +182,44 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	public void removePersistenceService(PersistenceService persistenceService) {
 		stopEventHandling(persistenceService.getName());
 		persistenceServices.remove(persistenceService.getName());
+		stopWriteQueue(persistenceService.getName());
+		updateRoutingTable();
+	}
+
+	/**
+	 * Creates and starts the write queue for the given persistence service, if
+	 * queuing is enabled and the service supports batch writes. Other services are
+	 * called synchronously, as they persist the current state of the item.
+	 * An existing queue of the service is stopped.
+	 * 
+	 * @param persistenceService the service to create the queue for
+	 */
+	private synchronized void startWriteQueue(PersistenceService persistenceService) {
+		stopWriteQueue(persistenceService.getName());
+		if(queueSize > 0 && persistenceService instanceof BatchingPersistenceService) {
+			PersistenceWriteQueue queue = new PersistenceWriteQueue((BatchingPersistenceService) persistenceService, queueSize, batchSize);
+			queue.start();
+			writeQueues.put(persistenceService.getName(), queue);
+		}
+	}
+
+	private synchronized void stopWriteQueue(String serviceName) {
+		PersistenceWriteQueue queue = writeQueues.remove(serviceName);
+		if(queue!=null) {
+			queue.shutdown();
+		}
+	}
+	
+	/**
+	 * Returns the write queue of the given persistence service, which provides
+	 * statistics like its current depth, the number of dropped records and the
+	 * write latency of the service.
+	 * 
+	 * @param serviceName the name of the persistence service
+	 * @return the write queue or <code>null</code>, if the service is called synchronously
+	 */
+	public PersistenceWriteQueue getWriteQueue(String serviceName) {
+		return writeQueues.get(serviceName);
 	}
 	
 	
@@ -180,6 +248,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 		if(model!=null) {
 			persistenceConfigurations.put(modelName, model.getConfigs());
 			defaultStrategies.put(modelName, model.getDefaults());
+			updateRoutingTable();
 			for(PersistenceConfiguration config : model.getConfigs()) {
 				if(hasStrategy(modelName, config, GlobalStrategies.RESTORE)) {
 					for(Item item : getAllItems(config)) {
@@ -199,6 +268,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	private void stopEventHandling(String modelName) {
 		persistenceConfigurations.remove(modelName);
 		defaultStrategies.remove(modelName);
+		updateRoutingTable();
 		removeTimers(modelName);
 	}
 
@@ -217,20 +287,59 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	 * @param onlyChanges true, if it has the change strategy, false otherwise
 	 */
 	private void handleStateEvent(Item item, boolean onlyChanges) {
-		synchronized (persistenceConfigurations) {
-			for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
-				String serviceName = entry.getKey();
-				if(persistenceServices.containsKey(serviceName)) {				
-					for(PersistenceConfiguration config : entry.getValue()) {
-						if(hasStrategy(serviceName, config, onlyChanges ? GlobalStrategies.CHANGE : GlobalStrategies.UPDATE)) {
-							if(appliesToItem(config, item)) {
-								persistenceServices.get(serviceName).store(item, config.getAlias());
-							}
-						}
+		PersistenceRoutingTable table = routingTable;
+		store(item, table.getAllItemsTargets(onlyChanges));
+		store(item, table.getItemTargets(item.getName(), onlyChanges));
+	}
+	
+	private void store(Item item, List<PersistenceRoutingTable.Target> targets) {
+		for(int i = 0; i < targets.size(); i++) {
+			PersistenceRoutingTable.Target target = targets.get(i);
+			PersistenceWriteQueue queue = writeQueues.get(target.getServiceName());
+			if(queue!=null) {
+				queue.offer(new PersistenceRecord(item, target.getAlias(), item.getState(), new Date()));
+			} else {
+				PersistenceService service = persistenceServices.get(target.getServiceName());
+				if(service!=null) {
+					service.store(item, target.getAlias());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Rebuilds the {@link PersistenceRoutingTable} from the current persistence
+	 * configurations and the items of the item registry. This is done whenever
+	 * one of them changes, so that state events can be routed by a simple lookup.
+	 */
+	protected synchronized void updateRoutingTable() {
+		PersistenceRoutingTable.Builder builder = new PersistenceRoutingTable.Builder();
+		for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
+			String serviceName = entry.getKey();
+			if(!defaultStrategies.containsKey(serviceName)) {
+				// the model is just being (un-)registered
+				continue;
+			}
+			for(PersistenceConfiguration config : entry.getValue()) {
+				boolean change = hasStrategy(serviceName, config, GlobalStrategies.CHANGE);
+				boolean update = hasStrategy(serviceName, config, GlobalStrategies.UPDATE);
+				if(!change && !update) {
+					continue;
+				}
+				PersistenceRoutingTable.Target target = new PersistenceRoutingTable.Target(serviceName, config.getAlias());
+				if(appliesToAllItems(config)) {
+					if(change) builder.addAllItemsTarget(target, true);
+					if(update) builder.addAllItemsTarget(target, false);
+				} else if(itemRegistry!=null) {
+					for(Item item : getAllItems(config)) {
+						if(change) builder.addItemTarget(item.getName(), target, true);
+						if(update) builder.addItemTarget(item.getName(), target, false);
 					}
 				}
 			}
 		}
+		routingTable = builder.build();
+		logger.trace("Updated persistence routing table.");
 	}
 	
 	/**
@@ -289,6 +398,21 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 		return false;
 	}
 
+	/**
+	 * Checks if a given persistence configuration entry applies to all items
+	 * 
+	 * @param config the persistence configuration entry
+	 * @return true, if the configuration contains the <code>*</code> wildcard
+	 */
+	protected boolean appliesToAllItems(PersistenceConfiguration config) {
+		for(EObject itemCfg : config.getItems()) {
+			if (itemCfg instanceof AllConfig) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Retrieves all items for which the persistence configuration applies to.
 	 * 
@@ -333,12 +457,18 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 
 	public void allItemsChanged(Collection<String> oldItemNames) {
+		updateRoutingTable();
 		for(Item item : itemRegistry.getItems()) {
-			itemAdded(item);
+			addItem(item);
 		}
 	}
 
 	public void itemAdded(Item item) {
+		updateRoutingTable();
+		addItem(item);
+	}
+
+	private void addItem(Item item) {
 		initialize(item);
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
@@ -394,6 +524,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.removeStateChangeListener(this);
 		}
+		updateRoutingTable();
 	}
 	
 	/**
@@ -458,6 +589,36 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 			logger.warn("Failed to delete cron jobs of group '{}'", persistModelName);
 		}
 	}
-		
+
+	@SuppressWarnings("rawtypes")
+	public void updated(Dictionary config) throws ConfigurationException {
+		int newQueueSize = DEFAULT_QUEUE_SIZE;
+		int newBatchSize = DEFAULT_BATCH_SIZE;
+		if (config!=null) {
+			newQueueSize = parseInt(config, "queueSize", DEFAULT_QUEUE_SIZE);
+			newBatchSize = parseInt(config, "batchSize", DEFAULT_BATCH_SIZE);
+		}
+		if(newQueueSize!=queueSize || newBatchSize!=batchSize) {
+			queueSize = newQueueSize;
+			batchSize = newBatchSize;
+			for(PersistenceService service : persistenceServices.values()) {
+				startWriteQueue(service);
+			}
+			logger.debug("Persistence write queues have been reconfigured (queueSize={}, batchSize={}).", queueSize, batchSize);
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static int parseInt(Dictionary config, String key, int defaultValue) throws ConfigurationException {
+		String value = (String) config.get(key);
+		if(StringUtils.isBlank(value)) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new ConfigurationException(key, "'" + value + "' is not a valid number");
+		}
+	}
 
 }
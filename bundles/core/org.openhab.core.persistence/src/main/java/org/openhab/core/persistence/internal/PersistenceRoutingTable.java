@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable lookup table which tells for an item name, to which persistence
+ * services (and under which alias) a state change or update has to be routed.
+ * <p>
+ * The table is built by the {@link PersistenceManager} whenever a persistence
+ * model or the item registry changes, so that handling a state event does not
+ * need to evaluate any persistence configuration or group membership anymore.
+ * Configurations which apply to all items (<code>*</code>) are kept in a
+ * separate list, so that they also cover items which the table does not know
+ * by name.
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+public class PersistenceRoutingTable {
+
+	/** a routing table without any targets */
+	public static final PersistenceRoutingTable EMPTY = new PersistenceRoutingTable.Builder().build();
+
+	private final Map<String, List<Target>> changeTargets;
+	private final Map<String, List<Target>> updateTargets;
+	private final List<Target> allItemsChangeTargets;
+	private final List<Target> allItemsUpdateTargets;
+
+	private PersistenceRoutingTable(Map<String, List<Target>> changeTargets, Map<String, List<Target>> updateTargets,
+			List<Target> allItemsChangeTargets, List<Target> allItemsUpdateTargets) {
+		this.changeTargets = changeTargets;
+		this.updateTargets = updateTargets;
+		this.allItemsChangeTargets = allItemsChangeTargets;
+		this.allItemsUpdateTargets = allItemsUpdateTargets;
+	}
+
+	/**
+	 * Returns the targets which are configured for the given item in addition
+	 * to the ones returned by {@link #getAllItemsTargets(boolean)}.
+	 *
+	 * @param itemName the name of the item
+	 * @param onlyChanges true for the change strategy, false for the update strategy
+	 * @return the list of targets, never <code>null</code>
+	 */
+	public List<Target> getItemTargets(String itemName, boolean onlyChanges) {
+		List<Target> targets = onlyChanges ? changeTargets.get(itemName) : updateTargets.get(itemName);
+		return targets!=null ? targets : Collections.<Target>emptyList();
+	}
+
+	/**
+	 * Returns the targets which are configured for all items.
+	 *
+	 * @param onlyChanges true for the change strategy, false for the update strategy
+	 * @return the list of targets, never <code>null</code>
+	 */
+	public List<Target> getAllItemsTargets(boolean onlyChanges) {
+		return onlyChanges ? allItemsChangeTargets : allItemsUpdateTargets;
+	}
+
+	/**
+	 * A target of the routing table, i.e. a persistence service together with
+	 * the alias to use for storing an item.
+	 */
+	public static class Target {
+
+		private final String serviceName;
+		private final String alias;
+
+		public Target(String serviceName, String alias) {
+			this.serviceName = serviceName;
+			this.alias = alias;
+		}
+
+		public String getServiceName() {
+			return serviceName;
+		}
+
+		public String getAlias() {
+			return alias;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * serviceName.hashCode() + (alias==null ? 0 : alias.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Target)) {
+				return false;
+			}
+			Target other = (Target) obj;
+			return serviceName.equals(other.serviceName)
+					&& (alias==null ? other.alias==null : alias.equals(other.alias));
+		}
+
+		@Override
+		public String toString() {
+			return alias==null ? serviceName : serviceName + "(" + alias + ")";
+		}
+	}
+
+	/**
+	 * Collects the targets of a routing table. Targets are de-duplicated, so that
+	 * an item is never stored twice with the same service and alias for a single
+	 * event.
+	 */
+	public static class Builder {
+
+		private final Map<String, Set<Target>> changeTargets = new HashMap<String, Set<Target>>();
+		private final Map<String, Set<Target>> updateTargets = new HashMap<String, Set<Target>>();
+		private final Set<Target> allItemsChangeTargets = new LinkedHashSet<Target>();
+		private final Set<Target> allItemsUpdateTargets = new LinkedHashSet<Target>();
+
+		public Builder addItemTarget(String itemName, Target target, boolean onlyChanges) {
+			Map<String, Set<Target>> targets = onlyChanges ? changeTargets : updateTargets;
+			Set<Target> itemTargets = targets.get(itemName);
+			if(itemTargets==null) {
+				itemTargets = new LinkedHashSet<Target>();
+				targets.put(itemName, itemTargets);
+			}
+			itemTargets.add(target);
+			return this;
+		}
+
+		public Builder addAllItemsTarget(Target target, boolean onlyChanges) {
+			(onlyChanges ? allItemsChangeTargets : allItemsUpdateTargets).add(target);
+			return this;
+		}
+
+		public PersistenceRoutingTable build() {
+			return new PersistenceRoutingTable(
+					freeze(changeTargets, allItemsChangeTargets), freeze(updateTargets, allItemsUpdateTargets),
+					freeze(allItemsChangeTargets), freeze(allItemsUpdateTargets));
+		}
+
+		private static Map<String, List<Target>> freeze(Map<String, Set<Target>> targets, Set<Target> allItemsTargets) {
+			Map<String, List<Target>> result = new HashMap<String, List<Target>>();
+			for(Map.Entry<String, Set<Target>> entry : targets.entrySet()) {
+				Set<Target> itemTargets = new LinkedHashSet<Target>(entry.getValue());
+				itemTargets.removeAll(allItemsTargets);
+				if(!itemTargets.isEmpty()) {
+					result.put(entry.getKey(), freeze(itemTargets));
+				}
+			}
+			return result;
+		}
+
+		private static List<Target> freeze(Set<Target> targets) {
+			return Collections.unmodifiableList(new ArrayList<Target>(targets));
+		}
+	}
+
+}
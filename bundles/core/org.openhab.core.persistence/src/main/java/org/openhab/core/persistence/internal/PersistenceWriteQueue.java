@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.core.persistence.BatchingPersistenceService;
+import org.openhab.core.persistence.PersistenceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded queue of {@link PersistenceRecord}s for a single {@link BatchingPersistenceService},
+ * which is processed by a dedicated writer thread. This decouples the threads
+ * which update item states from slow persistence services.
+ * <p>Only batching services are queued, as only they receive the state and time
+ * of the recorded event. Other services would read the current state of the item
+ * at the time the record is written.</p>
+ * <p>If the queue is full, new records are dropped. The queue keeps track of
+ * its depth, the number of dropped and written records and the time the service
+ * needed for writing, so that its size can be tuned.</p>
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+public class PersistenceWriteQueue implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(PersistenceWriteQueue.class);
+
+	/** the interval in milliseconds in which statistics are logged */
+	private static final long STATISTICS_INTERVAL = 60000L;
+
+	private final BatchingPersistenceService service;
+	private final BlockingQueue<PersistenceRecord> queue;
+	private final int batchSize;
+
+	private Thread writerThread;
+	private volatile boolean running = false;
+
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong writtenCount = new AtomicLong();
+	private final AtomicLong writeCount = new AtomicLong();
+	private final AtomicLong totalWriteTime = new AtomicLong();
+	private volatile long maxWriteTime = 0;
+
+	/**
+	 * @param service the service to write to
+	 * @param capacity the maximum number of records which can be queued
+	 * @param batchSize the maximum number of records which are passed to the
+	 * service at once
+	 */
+	public PersistenceWriteQueue(BatchingPersistenceService service, int capacity, int batchSize) {
+		this.service = service;
+		this.queue = new ArrayBlockingQueue<PersistenceRecord>(capacity);
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * Starts the writer thread of this queue.
+	 */
+	public synchronized void start() {
+		if(!running) {
+			running = true;
+			writerThread = new Thread(this, "Persistence writer '" + service.getName() + "'");
+			writerThread.setDaemon(true);
+			writerThread.start();
+		}
+	}
+
+	/**
+	 * Stops the writer thread after all records that are already queued have
+	 * been written. Records which are offered after this call are dropped.
+	 */
+	public synchronized void shutdown() {
+		running = false;
+	}
+
+	/**
+	 * Adds a record to the queue, if there is space left.
+	 *
+	 * @param record the record to add
+	 * @return true, if the record has been queued, false if it has been dropped
+	 */
+	public boolean offer(PersistenceRecord record) {
+		if(running && queue.offer(record)) {
+			return true;
+		}
+		long dropped = droppedCount.incrementAndGet();
+		if(dropped==1 || dropped % 1000 == 0) {
+			logger.warn("Persistence queue of service '{}' is full, {} records have been dropped so far.",
+					service.getName(), dropped);
+		}
+		return false;
+	}
+
+	public void run() {
+		List<PersistenceRecord> batch = new ArrayList<PersistenceRecord>(batchSize);
+		long lastStatistics = System.currentTimeMillis();
+		while(running || !queue.isEmpty()) {
+			try {
+				PersistenceRecord record = queue.poll(1, TimeUnit.SECONDS);
+				if(record!=null) {
+					batch.add(record);
+					queue.drainTo(batch, batchSize - 1);
+					write(batch);
+					batch.clear();
+				}
+			} catch (InterruptedException e) {
+				logger.debug("Persistence writer '{}' has been interrupted.", service.getName());
+				break;
+			}
+			if(logger.isDebugEnabled() && System.currentTimeMillis() - lastStatistics > STATISTICS_INTERVAL) {
+				logStatistics();
+				lastStatistics = System.currentTimeMillis();
+			}
+		}
+		logger.debug("Persistence writer '{}' has been stopped.", service.getName());
+	}
+
+	private void write(List<PersistenceRecord> batch) {
+		long start = System.nanoTime();
+		try {
+			service.store(batch);
+		} catch (Exception e) {
+			logger.error("Persistence service '" + service.getName() + "' failed to store " + batch.size() + " records.", e);
+		}
+		long duration = System.nanoTime() - start;
+		writtenCount.addAndGet(batch.size());
+		writeCount.incrementAndGet();
+		totalWriteTime.addAndGet(duration);
+		if(duration > maxWriteTime) {
+			maxWriteTime = duration;
+		}
+	}
+
+	private void logStatistics() {
+		logger.debug("Persistence queue '{}': depth={}, written={}, dropped={}, avgWriteTime={}ms, maxWriteTime={}ms",
+				new Object[] { service.getName(), getQueueSize(), getWrittenCount(), getDroppedCount(),
+					getAverageWriteTime(), getMaxWriteTime() });
+	}
+
+	/**
+	 * @return the number of records which are currently waiting to be written
+	 */
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	/**
+	 * @return the number of records which could not be queued
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return the number of records which have been passed to the service
+	 */
+	public long getWrittenCount() {
+		return writtenCount.get();
+	}
+
+	/**
+	 * @return the average time in milliseconds the service needed to write a batch
+	 */
+	public double getAverageWriteTime() {
+		long count = writeCount.get();
+		return count==0 ? 0 : totalWriteTime.get() / (count * 1000000.0);
+	}
+
+	/**
+	 * @return the maximum time in milliseconds the service needed to write a batch
+	 */
+	public long getMaxWriteTime() {
+		return TimeUnit.NANOSECONDS.toMillis(maxWriteTime);
+	}
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import org.junit.Test;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.EventType;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+import org.osgi.service.event.Event;
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class ItemEventTest {
+
+	private enum TestCommand implements Command {
+		PRESS;
+
+		public String format(String pattern) {
+			return name();
+		}
+	}
+
+	@Test
+	public void testTopicAndProperties() {
+		ItemEvent event = ItemEvent.createUpdateEvent("Light", UnDefType.UNDEF);
+		assertEquals("openhab/update/Light", event.getTopic());
+		assertEquals("Light", event.getProperty("item"));
+		assertEquals(UnDefType.UNDEF, event.getProperty("state"));
+		assertSame(event.getTopic(), ItemEvent.createUpdateEvent("Light", UnDefType.NULL).getTopic());
+
+		event = ItemEvent.createCommandEvent("Light", TestCommand.PRESS);
+		assertEquals("openhab/command/Light", event.getTopic());
+		assertEquals(EventType.COMMAND, event.getType());
+		assertEquals(TestCommand.PRESS, event.getProperty("command"));
+		assertNull(event.getProperty("state"));
+	}
+
+	@Test
+	public void testSubscriber() {
+		TestSubscriber subscriber = new TestSubscriber();
+		subscriber.handleEvent(ItemEvent.createUpdateEvent("Light", UnDefType.UNDEF));
+		assertEquals("Light", subscriber.itemName);
+		assertEquals(UnDefType.UNDEF, subscriber.state);
+
+		subscriber.handleEvent(ItemEvent.createCommandEvent("Switch", TestCommand.PRESS));
+		assertEquals("Switch", subscriber.itemName);
+		assertEquals(TestCommand.PRESS, subscriber.command);
+
+		// events which have not been created by openHAB are still parsed
+		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+		properties.put("item", "Other");
+		properties.put("state", UnDefType.NULL);
+		subscriber.handleEvent(new Event("openhab/update/Other", properties));
+		assertEquals("Other", subscriber.itemName);
+		assertEquals(UnDefType.NULL, subscriber.state);
+	}
+
+	private static class TestSubscriber extends AbstractEventSubscriber {
+
+		private String itemName;
+		private State state;
+		private Command command;
+
+		@Override
+		public void receiveUpdate(String itemName, State newState) {
+			this.itemName = itemName;
+			this.state = newState;
+		}
+
+		@Override
+		public void receiveCommand(String itemName, Command command) {
+			this.itemName = itemName;
+			this.command = command;
+		}
+	}
+
+}
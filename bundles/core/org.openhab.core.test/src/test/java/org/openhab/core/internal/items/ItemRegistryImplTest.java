@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.items;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemProvider;
+import org.openhab.core.items.ItemsChangeListener;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class ItemRegistryImplTest {
+	
+	private ItemRegistryImpl registry;
+	private TestItemProvider provider;
+	
+	@Before
+	public void setup() {
+		registry = new ItemRegistryImpl();
+		provider = new TestItemProvider();
+		provider.items.add(new TestItem("Light_Kitchen"));
+		provider.items.add(new TestItem("Light_Garden"));
+		provider.items.add(new TestItem("Temperature"));
+		registry.addItemProvider(provider);
+	}
+	
+	@Test
+	public void testGetItem() throws ItemNotFoundException {
+		assertEquals("Temperature", registry.getItem("Temperature").getName());
+		assertEquals("Light_Kitchen", registry.getItem("Light_.*chen").getName());
+	}
+
+	@Test(expected=ItemNotFoundException.class)
+	public void testGetUnknownItem() throws ItemNotFoundException {
+		registry.getItem("Unknown");
+	}
+	
+	@Test
+	public void testGetItems() {
+		assertEquals(2, registry.getItems("Light_*").size());
+		assertEquals(1, registry.getItems("Temp?rature").size());
+		assertEquals(0, registry.getItems("Heating*").size());
+	}
+	
+	@Test
+	public void testIndexFollowsProviderChanges() throws ItemNotFoundException {
+		Item item = new TestItem("Heating");
+		registry.itemAdded(provider, item);
+		assertSame(item, registry.getItem("Heating"));
+		
+		registry.itemRemoved(provider, item);
+		try {
+			registry.getItem("Heating");
+			assertTrue("item must not be found after removal", false);
+		} catch (ItemNotFoundException e) {
+			// expected
+		}
+		
+		provider.items.clear();
+		Item replacement = new TestItem("Temperature");
+		provider.items.add(replacement);
+		registry.allItemsChanged(provider, null);
+		assertSame(replacement, registry.getItem("Temperature"));
+		assertEquals(0, registry.getItems("Light_*").size());
+	}
+	
+	@Test
+	public void testItemOfRemainingProviderIsFound() throws ItemNotFoundException {
+		Item temperature = registry.getItem("Temperature");
+		TestItemProvider otherProvider = new TestItemProvider();
+		Item otherTemperature = new TestItem("Temperature");
+		otherProvider.items.add(otherTemperature);
+		registry.addItemProvider(otherProvider);
+		assertSame(otherTemperature, registry.getItem("Temperature"));
+		
+		registry.removeItemProvider(otherProvider);
+		assertSame(temperature, registry.getItem("Temperature"));
+		
+		registry.addItemProvider(otherProvider);
+		registry.removeItemProvider(provider);
+		assertSame(otherTemperature, registry.getItem("Temperature"));
+	}
+	
+	
+	class TestItemProvider implements ItemProvider {
+
+		List<Item> items = new ArrayList<Item>();
+
+		public Collection<Item> getItems() {
+			return new ArrayList<Item>(items);
+		}
+
+		public void addItemChangeListener(ItemsChangeListener listener) {
+		}
+
+		public void removeItemChangeListener(ItemsChangeListener listener) {
+		}
+		
+	}
+	
+	class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return null;
+		}
+
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return null;
+		}
+		
+	}
+
+}
@@ -11,6 +11,9 @@ package org.openhab.core.items;
 import static org.junit.Assert.fail;
 
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.Assert;
 
@@ -18,6 +21,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
 
 
 /**
@@ -53,6 +57,65 @@ public class GroupItemTest {
 		}
 	}
 	
+	@Test
+	public void testCoalescedUpdates() throws InterruptedException {
+		GroupItem groupItem = new GroupItem("group");
+		TestItem member1 = new TestItem("member1");
+		TestItem member2 = new TestItem("member2");
+		groupItem.addMember(member1);
+		groupItem.addMember(member2);
+		groupItem.setCoalescingWindow(200);
+		final AtomicInteger updates = new AtomicInteger();
+		final CountDownLatch updated = new CountDownLatch(1);
+		groupItem.addStateChangeListener(new StateChangeListener() {
+			public void stateChanged(Item item, State oldState, State newState) {
+			}
+			public void stateUpdated(Item item, State state) {
+				updates.incrementAndGet();
+				updated.countDown();
+			}
+		});
+		
+		member1.setState(UnDefType.UNDEF);
+		member2.setState(UnDefType.UNDEF);
+		Assert.assertEquals(UnDefType.NULL, groupItem.getState());
+		
+		Assert.assertTrue(updated.await(5, TimeUnit.SECONDS));
+		Assert.assertEquals(UnDefType.UNDEF, groupItem.getState());
+		Assert.assertEquals(1, updates.get());
+	}
+	
+	@Test
+	public void testListenersAreCalledWithoutLock() throws InterruptedException {
+		final GroupItem groupItem = new GroupItem("group");
+		TestItem member = new TestItem("member");
+		groupItem.addMember(member);
+		final CountDownLatch memberAdded = new CountDownLatch(1);
+		groupItem.addStateChangeListener(new StateChangeListener() {
+			public void stateChanged(Item item, State oldState, State newState) {
+			}
+			public void stateUpdated(Item item, State state) {
+				// another thread, which changes the group, must not be blocked by the update
+				Thread thread = new Thread() {
+					public void run() {
+						groupItem.addMember(new TestItem("other"));
+						memberAdded.countDown();
+					}
+				};
+				thread.start();
+				try {
+					memberAdded.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		
+		member.setState(UnDefType.UNDEF);
+		Assert.assertEquals(0, memberAdded.getCount());
+		Assert.assertEquals(2, groupItem.getMembers().size());
+	}
+	
 	
 	class TestItem extends GenericItem {
 
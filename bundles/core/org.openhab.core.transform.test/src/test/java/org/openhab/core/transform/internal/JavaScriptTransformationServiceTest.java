@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform.internal;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngineManager;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.config.core.ConfigConstants;
+import org.openhab.core.transform.TransformationException;
+import org.openhab.core.transform.internal.service.JavaScriptTransformationService;
+
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class JavaScriptTransformationServiceTest {
+
+	private File configFolder;
+	private File script;
+	private int compileCount;
+	private JavaScriptTransformationService processor;
+
+	@Before
+	public void init() throws IOException {
+		assumeTrue(new ScriptEngineManager().getEngineByName("javascript") != null);
+
+		configFolder = File.createTempFile("openhab", "config");
+		configFolder.delete();
+		script = new File(configFolder, TransformationActivator.TRANSFORM_FOLDER_NAME + "/js/test.js");
+		FileUtils.writeStringToFile(script, "input.toUpperCase()");
+		System.setProperty(ConfigConstants.CONFIG_DIR_PROG_ARGUMENT, configFolder.getAbsolutePath());
+
+		compileCount = 0;
+		processor = new JavaScriptTransformationService() {
+			@Override
+			protected CompiledScript compile(Compilable engine, File file) throws TransformationException {
+				compileCount++;
+				return super.compile(engine, file);
+			}
+		};
+	}
+
+	@After
+	public void cleanup() throws IOException {
+		System.clearProperty(ConfigConstants.CONFIG_DIR_PROG_ARGUMENT);
+		if (configFolder != null) {
+			FileUtils.deleteDirectory(configFolder);
+		}
+	}
+
+	@Test
+	public void testCompiledScriptIsReused() throws TransformationException {
+		Assert.assertEquals("OPEN", processor.transform("js/test.js", "open"));
+		Assert.assertEquals("CLOSED", processor.transform("js/test.js", "closed"));
+		Assert.assertEquals(1, compileCount);
+	}
+
+	@Test
+	public void testChangedScriptIsCompiledAgain() throws TransformationException, IOException {
+		Assert.assertEquals("OPEN", processor.transform("js/test.js", "open"));
+
+		FileUtils.writeStringToFile(script, "input.toLowerCase() + '!'");
+		Assert.assertEquals("open!", processor.transform("js/test.js", "OPEN"));
+		Assert.assertEquals(2, compileCount);
+	}
+
+	@Test(expected = TransformationException.class)
+	public void testMissingScriptFile() throws TransformationException {
+		processor.transform("js/missing.js", "open");
+	}
+
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform.internal;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.transform.TransformationException;
+import org.openhab.core.transform.internal.service.MapTransformationService;
+
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class MapTransformationServiceTest {
+
+	private MapTransformationService processor;
+
+	@Before
+	public void init() {
+		processor = new MapTransformationService();
+	}
+
+	@Test
+	public void testTransformByMap() throws TransformationException {
+
+		// method under test
+		String transformedResponse = processor.transform("map/doorstatus.map", "CLOSED");
+
+		// Asserts
+		Assert.assertEquals("zu", transformedResponse);
+		Assert.assertEquals("offen", processor.transform("map/doorstatus.map", "OPEN"));
+		Assert.assertEquals("", processor.transform("map/doorstatus.map", "UNKNOWN"));
+	}
+
+	@Test(expected = TransformationException.class)
+	public void testMissingMapFile() throws TransformationException {
+		processor.transform("map/missing.map", "CLOSED");
+	}
+
+}
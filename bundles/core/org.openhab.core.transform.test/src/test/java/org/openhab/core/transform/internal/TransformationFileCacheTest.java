@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform.internal;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.transform.TransformationException;
+import org.openhab.core.transform.internal.service.TransformationFileCache;
+
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class TransformationFileCacheTest {
+
+	private File file;
+	private int loadCount;
+	private TransformationFileCache<String> cache;
+
+	@Before
+	public void init() throws IOException {
+		file = File.createTempFile("transform", ".txt");
+		FileUtils.writeStringToFile(file, "first");
+		loadCount = 0;
+		cache = new TransformationFileCache<String>() {
+			@Override
+			protected File getFile(String filename) {
+				return file;
+			}
+
+			@Override
+			protected String load(String filename, File file) throws TransformationException {
+				loadCount++;
+				try {
+					return FileUtils.readFileToString(file);
+				} catch (IOException e) {
+					throw new TransformationException("reading file throws exception", e);
+				}
+			}
+		};
+	}
+
+	@After
+	public void cleanup() {
+		file.delete();
+	}
+
+	@Test
+	public void testFileIsLoadedOnce() throws TransformationException {
+		Assert.assertEquals("first", cache.get("test.txt"));
+		Assert.assertEquals("first", cache.get("test.txt"));
+		Assert.assertEquals(1, loadCount);
+	}
+
+	@Test
+	public void testChangedFileIsReloaded() throws TransformationException, IOException {
+		Assert.assertEquals("first", cache.get("test.txt"));
+
+		FileUtils.writeStringToFile(file, "second version");
+		Assert.assertEquals("second version", cache.get("test.txt"));
+		Assert.assertEquals(2, loadCount);
+	}
+
+}
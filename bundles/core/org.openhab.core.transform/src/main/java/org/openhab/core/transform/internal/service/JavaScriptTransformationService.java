@@ -10,25 +10,32 @@ package org.openhab.core.transform.internal.service;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import org.apache.commons.io.IOUtils;
-import org.openhab.config.core.ConfigDispatcher;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
-import org.openhab.core.transform.internal.TransformationActivator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * The implementation of {@link TransformationService} which transforms the
  * input by Java Script.
+ * <p>
+ * Script engines are not necessarily thread-safe, so every thread uses its own
+ * engine, which keeps the scripts it has compiled until their files change.
+ * Each transformation is evaluated with fresh bindings, so that no variables
+ * are left over from a former transformation.
+ * </p>
  * 
  * @author Pauli Anttila
  * @since 1.3.0
@@ -38,6 +45,10 @@ public class JavaScriptTransformationService implements TransformationService {
 	static final Logger logger = 
 		LoggerFactory.getLogger(JavaScriptTransformationService.class);
 	
+	private final ScriptEngineManager manager = new ScriptEngineManager();
+
+	private final ThreadLocal<EngineContext> contexts = new ThreadLocal<EngineContext>();
+
 	/**
 	 * Transforms the input <code>source</code> by Java Script. It expects the
 	 * transformation rule to be read from a file which is stored under the
@@ -60,32 +71,20 @@ public class JavaScriptTransformationService implements TransformationService {
 
 		logger.debug("about to transform '{}' by the Java Script '{}'", source, filename);
 
-		Reader reader;
-
-		try {
-			String path = ConfigDispatcher.getConfigFolder() 
-				+ File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME
-				+ File.separator + filename;
-			reader = new InputStreamReader(new FileInputStream(path));
-		} catch (FileNotFoundException e) {
-			throw new TransformationException("An error occured while loading script.", e);
-		}
+		EngineContext context = getContext();
+		CompiledScript script = context.scripts.get(filename);
 
-		ScriptEngineManager manager = new ScriptEngineManager();
-		
-		ScriptEngine engine = manager.getEngineByName("javascript");
-		engine.put("input", source);
+		Bindings bindings = context.engine.createBindings();
+		bindings.put("input", source);
 
 		Object result = null;
 
 		long startTime = System.currentTimeMillis();
 
 		try {
-			result = engine.eval(reader);
+			result = script.eval(bindings);
 		} catch (ScriptException e) {
 			throw new TransformationException("An error occured while executing script.", e);
-		} finally {
-			IOUtils.closeQuietly(reader);
 		}
 
 		logger.trace("JavaScript execution elapsed {} ms", System.currentTimeMillis() - startTime);
@@ -93,4 +92,62 @@ public class JavaScriptTransformationService implements TransformationService {
 		return String.valueOf(result);
 	}
 
+	private EngineContext getContext() throws TransformationException {
+		EngineContext context = contexts.get();
+		if (context == null) {
+			ScriptEngine engine;
+			synchronized (manager) {
+				engine = manager.getEngineByName("javascript");
+			}
+			if (!(engine instanceof Compilable)) {
+				throw new TransformationException("No Java Script engine which can compile scripts is available.");
+			}
+			context = new EngineContext(engine);
+			contexts.set(context);
+		}
+		return context;
+	}
+
+	/**
+	 * Compiles the Java Script of a transformation file. This is done once per
+	 * thread and version of the file.
+	 * 
+	 * @param engine the script engine of the current thread
+	 * @param file the file which contains the Java Script
+	 * @return the compiled script
+	 * @throws TransformationException if the file cannot be read or compiled
+	 */
+	protected CompiledScript compile(Compilable engine, File file) throws TransformationException {
+		Reader reader = null;
+		try {
+			reader = new InputStreamReader(new FileInputStream(file));
+			return engine.compile(reader);
+		} catch (IOException e) {
+			throw new TransformationException("An error occured while loading script.", e);
+		} catch (ScriptException e) {
+			throw new TransformationException("An error occured while compiling script.", e);
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+	}
+
+	/**
+	 * The script engine of a single thread together with the scripts it has compiled.
+	 */
+	private class EngineContext {
+
+		private final ScriptEngine engine;
+
+		private final TransformationFileCache<CompiledScript> scripts = new TransformationFileCache<CompiledScript>() {
+			@Override
+			protected CompiledScript load(String filename, File file) throws TransformationException {
+				return compile((Compilable) engine, file);
+			}
+		};
+
+		public EngineContext(ScriptEngine engine) {
+			this.engine = engine;
+		}
+	}
+
 }
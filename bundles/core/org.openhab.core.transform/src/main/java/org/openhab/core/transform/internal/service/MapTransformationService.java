@@ -15,10 +15,8 @@ import java.io.Reader;
 import java.util.Properties;
 
 import org.apache.commons.io.IOUtils;
-import org.openhab.config.core.ConfigDispatcher;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
-import org.openhab.core.transform.internal.TransformationActivator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,6 +24,9 @@ import org.slf4j.LoggerFactory;
  * <p>
  * The implementation of {@link TransformationService} which simply maps strings to other strings
  * </p>
+ * <p>
+ * The mappings of a file are kept in memory and are only read again when the file changes.
+ * </p>
  * 
  * @author Kai Kreuzer
  * @since 0.8.0
@@ -34,6 +35,27 @@ public class MapTransformationService implements TransformationService {
 
 	static final Logger logger = LoggerFactory.getLogger(MapTransformationService.class);
 
+	/** the parsed mapping files, which must not be modified once they have been loaded */
+	private final TransformationFileCache<Properties> mappingCache = new TransformationFileCache<Properties>() {
+		@Override
+		protected Properties load(String filename, File file) throws TransformationException {
+			Reader reader = null;
+			try {
+				Properties properties = new Properties();
+				reader = new FileReader(file);
+				properties.load(reader);
+				logger.debug("loaded {} mappings from file '{}'", properties.size(), filename);
+				return properties;
+			} catch (IOException e) {
+				String message = "opening file '" + filename + "' throws exception";
+				logger.error(message, e);
+				throw new TransformationException(message, e);
+			} finally {
+				IOUtils.closeQuietly(reader);
+			}
+		}
+	};
+
 	/**
 	 * <p>
 	 * Transforms the input <code>source</code> by mapping it to another string. It expects the mappings to be read from a file which
@@ -56,26 +78,13 @@ public class MapTransformationService implements TransformationService {
 			throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
 		}
 
-		Reader reader = null;
-		try {
-			String path = ConfigDispatcher.getConfigFolder() + File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME + File.separator + filename;
-			Properties properties = new Properties();
-			reader = new FileReader(path);
-			properties.load(reader);
-			String target = properties.getProperty(source);
-			if(target!=null) {
-				logger.debug("transformation resulted in '{}'", target);
-				return target;
-			} else {
-				logger.warn("Could not find a mapping for '{}' in the file '{}'.", source, filename);
-				return "";
-			}
-		} catch (IOException e) {
-			String message = "opening file '" + filename + "' throws exception";
-			logger.error(message, e);
-			throw new TransformationException(message, e);
-		} finally {
-			IOUtils.closeQuietly(reader);
+		String target = mappingCache.get(filename).getProperty(source);
+		if(target!=null) {
+			logger.debug("transformation resulted in '{}'", target);
+			return target;
+		} else {
+			logger.warn("Could not find a mapping for '{}' in the file '{}'.", source, filename);
+			return "";
 		}
 	}
 
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform.internal.service;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openhab.config.core.ConfigDispatcher;
+import org.openhab.core.transform.TransformationException;
+import org.openhab.core.transform.internal.TransformationActivator;
+
+/**
+ * <p>
+ * A cache for the content of transformation files, e.g. compiled stylesheets or parsed
+ * mappings, so that a file is not read and processed again on every transformation.
+ * </p>
+ * <p>
+ * A cached content is only used as long as the last modification time and the size
+ * of its file have not changed, so that edits of a transformation file are picked up
+ * with the next transformation.
+ * </p>
+ *
+ * @param <T> the type of the processed file content
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+public abstract class TransformationFileCache<T> {
+
+	private final Map<String, Entry<T>> entries = new ConcurrentHashMap<String, Entry<T>>();
+
+	/**
+	 * Returns the processed content of a transformation file, which is only loaded
+	 * if it has not been loaded before or if the file has changed since.
+	 *
+	 * @param filename the name of the file relative to the 'configurations/transform' folder
+	 * @return the processed content of the file
+	 * @throws TransformationException if the file cannot be loaded
+	 */
+	public T get(String filename) throws TransformationException {
+		File file = getFile(filename);
+		long lastModified = file.lastModified();
+		long length = file.length();
+
+		Entry<T> entry = entries.get(filename);
+		if (entry == null || entry.lastModified != lastModified || entry.length != length) {
+			entry = new Entry<T>(load(filename, file), lastModified, length);
+			entries.put(filename, entry);
+		}
+		return entry.content;
+	}
+
+	/**
+	 * Removes all cached file contents.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * Returns the transformation file with the given name.
+	 *
+	 * @param filename the name of the file relative to the 'configurations/transform' folder
+	 * @return the file
+	 */
+	protected File getFile(String filename) {
+		String path = ConfigDispatcher.getConfigFolder() + File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME + File.separator + filename;
+		return new File(path);
+	}
+
+	/**
+	 * Reads and processes a transformation file.
+	 *
+	 * @param filename the name of the file as passed to the transformation service
+	 * @param file the file to load
+	 * @return the processed content of the file
+	 * @throws TransformationException if the file cannot be read or processed
+	 */
+	protected abstract T load(String filename, File file) throws TransformationException;
+
+	private static class Entry<T> {
+		private final T content;
+		private final long lastModified;
+		private final long length;
+
+		public Entry(T content, long lastModified, long length) {
+			this.content = content;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+	}
+
+}
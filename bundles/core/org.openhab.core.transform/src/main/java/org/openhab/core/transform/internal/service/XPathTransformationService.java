@@ -9,12 +9,16 @@
 package org.openhab.core.transform.internal.service;
 
 import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.openhab.core.transform.TransformationException;
@@ -28,6 +32,10 @@ import org.xml.sax.InputSource;
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by XPath Expressions.
  * </p>
+ * <p>
+ * Neither compiled {@link XPathExpression}s nor {@link DocumentBuilder}s may be shared
+ * between threads, so each thread keeps its own document builder and compiled expressions.
+ * </p>
  * 
  * @author Thomas.Eichstaedt-Engelen
  * @since 0.7.0
@@ -36,6 +44,11 @@ public class XPathTransformationService implements TransformationService {
 
 	static final Logger logger = LoggerFactory.getLogger(XPathTransformationService.class);
 
+	/** the maximum number of compiled expressions which are kept per thread */
+	private static final int MAX_CACHED_EXPRESSIONS = 100;
+
+	private final ThreadLocal<XPathContext> contexts = new ThreadLocal<XPathContext>();
+
 	/**
 	 * @{inheritDoc
 	 */
@@ -50,19 +63,20 @@ public class XPathTransformationService implements TransformationService {
 		StringReader stringReader = null;
 
 		try {
-			DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-			domFactory.setNamespaceAware(true);
-			domFactory.setValidating(false);
-			DocumentBuilder builder = domFactory.newDocumentBuilder();
+			XPathContext context = getContext();
 
 			stringReader = new StringReader(source);
 			InputSource inputSource = new InputSource(stringReader);
 			inputSource.setEncoding("UTF-8");
 
-			Document doc = builder.parse(inputSource);
+			Document doc;
+			try {
+				doc = context.builder.parse(inputSource);
+			} finally {
+				context.builder.reset();
+			}
 
-			XPath xpath = XPathFactory.newInstance().newXPath();
-			XPathExpression expr = xpath.compile(xpathExpression);
+			XPathExpression expr = context.compile(xpathExpression);
 
 			String transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
 
@@ -79,4 +93,49 @@ public class XPathTransformationService implements TransformationService {
 
 	}
 
+	private XPathContext getContext() throws ParserConfigurationException {
+		XPathContext context = contexts.get();
+		if (context == null) {
+			context = new XPathContext();
+			contexts.set(context);
+		}
+		return context;
+	}
+
+	/**
+	 * The document builder and the compiled expressions of a single thread.
+	 */
+	private static class XPathContext {
+
+		private final DocumentBuilder builder;
+		private final XPath xpath;
+
+		/** the compiled expressions, the least recently used one is removed first */
+		private final Map<String, XPathExpression> expressions = new LinkedHashMap<String, XPathExpression>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+				return size() > MAX_CACHED_EXPRESSIONS;
+			}
+		};
+
+		public XPathContext() throws ParserConfigurationException {
+			DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
+			domFactory.setNamespaceAware(true);
+			domFactory.setValidating(false);
+			builder = domFactory.newDocumentBuilder();
+			xpath = XPathFactory.newInstance().newXPath();
+		}
+
+		public XPathExpression compile(String xpathExpression) throws XPathExpressionException {
+			XPathExpression expr = expressions.get(xpathExpression);
+			if (expr == null) {
+				expr = xpath.compile(xpathExpression);
+				expressions.put(xpathExpression, expr);
+			}
+			return expr;
+		}
+	}
+
 }
@@ -11,17 +11,18 @@ package org.openhab.core.transform.internal.service;
 import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
 
-import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
-import org.openhab.config.core.ConfigDispatcher;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
-import org.openhab.core.transform.internal.TransformationActivator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +30,12 @@ import org.slf4j.LoggerFactory;
  * <p>
  * The implementation of {@link TransformationService} which transforms the input by XSLT.
  * </p>
+ * <p>
+ * Stylesheets are compiled only once into {@link Templates}, which are kept until their
+ * file changes. As a {@link Transformer} must not be shared between threads, each thread
+ * keeps its own transformer for each stylesheet file it has used. A transformer is
+ * replaced, once the stylesheet of its file has been compiled again.
+ * </p>
  * 
  * @author Thomas.Eichstaedt-Engelen
  * @since 0.7.0
@@ -37,6 +44,47 @@ public class XsltTransformationService implements TransformationService {
 
 	static final Logger logger = LoggerFactory.getLogger(XsltTransformationService.class);
 
+	/** the factory is looked up only once, as this is expensive */
+	private static final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
+	/** the compiled stylesheets, which are thread-safe */
+	private final TransformationFileCache<Templates> templatesCache = new TransformationFileCache<Templates>() {
+		@Override
+		protected Templates load(String filename, File file) throws TransformationException {
+			if (!file.isFile()) {
+				String message = "opening file '" + filename + "' throws exception";
+				logger.error(message);
+				throw new TransformationException(message);
+			}
+			try {
+				// the factory itself is not thread-safe
+				synchronized (transformerFactory) {
+					return transformerFactory.newTemplates(new StreamSource(file));
+				}
+			} catch (TransformerException e) {
+				String message = "compiling the stylesheet '" + filename + "' throws exception";
+				logger.error(message, e);
+				throw new TransformationException(message, e);
+			}
+		}
+	};
+
+	/** the transformers of the current thread per stylesheet file */
+	private final ThreadLocal<Map<String, Transformer>> transformers = new ThreadLocal<Map<String, Transformer>>() {
+		@Override
+		protected Map<String, Transformer> initialValue() {
+			return new HashMap<String, Transformer>();
+		}
+	};
+
+	/** the compiled stylesheets the transformers of the current thread have been created from */
+	private final ThreadLocal<Map<String, Templates>> transformerTemplates = new ThreadLocal<Map<String, Templates>>() {
+		@Override
+		protected Map<String, Templates> initialValue() {
+			return new HashMap<String, Templates>();
+		}
+	};
+
 	/**
 	 * <p>
 	 * Transforms the input <code>source</code> by XSLT. It expects the transformation rule to be read from a file which
@@ -59,28 +107,20 @@ public class XsltTransformationService implements TransformationService {
 			throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
 		}
 
-		Source xsl = null;
+		Templates templates = templatesCache.get(filename);
 
-		try {
-			String path = ConfigDispatcher.getConfigFolder() + File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME + File.separator + filename;
-			xsl = new StreamSource(new File(path));
-		} catch (Exception e) {
-			String message = "opening file '" + filename + "' throws exception";
-
-			logger.error(message, e);
-			throw new TransformationException(message, e);
-		}
-
-		logger.debug("about to transform '{}' by the function '{}'", source, xsl);
+		logger.debug("about to transform '{}' by the function '{}'", source, filename);
 
 		StringReader xml = new StringReader(source);
 		StringWriter out = new StringWriter();
 
-		Transformer transformer;
-
 		try {
-			transformer = TransformerFactory.newInstance().newTransformer(xsl);
-			transformer.transform(new StreamSource(xml), new StreamResult(out));
+			Transformer transformer = getTransformer(filename, templates);
+			try {
+				transformer.transform(new StreamSource(xml), new StreamResult(out));
+			} finally {
+				transformer.reset();
+			}
 		} catch (Exception e) {
 			logger.error("transformation throws exception", e);
 			throw new TransformationException("transformation throws exception", e);
@@ -91,4 +131,21 @@ public class XsltTransformationService implements TransformationService {
 		return out.toString();
 	}
 
+	/**
+	 * Returns the transformer of the current thread for a stylesheet file. The maps are keyed
+	 * by the file name, so that a transformer of an outdated stylesheet is replaced instead of
+	 * being kept alive by its own reference to the compiled stylesheet.
+	 */
+	private Transformer getTransformer(String filename, Templates templates) throws TransformerException {
+		Map<String, Transformer> threadTransformers = transformers.get();
+		Map<String, Templates> threadTemplates = transformerTemplates.get();
+		Transformer transformer = threadTransformers.get(filename);
+		if (transformer == null || threadTemplates.get(filename) != templates) {
+			transformer = templates.newTransformer();
+			threadTransformers.put(filename, transformer);
+			threadTemplates.put(filename, templates);
+		}
+		return transformer;
+	}
+
 }
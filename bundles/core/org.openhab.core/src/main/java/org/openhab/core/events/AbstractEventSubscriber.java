@@ -23,6 +23,16 @@ abstract public class AbstractEventSubscriber implements EventSubscriber, EventH
 	 * {@inheritDoc}
 	 */
 	public void handleEvent(Event event) {  
+		if(event instanceof ItemEvent) {
+			ItemEvent itemEvent = (ItemEvent) event;
+			if(itemEvent.getType()==EventType.UPDATE) {
+				receiveUpdate(itemEvent.getItemName(), (State) itemEvent.getPayload());
+			} else {
+				receiveCommand(itemEvent.getItemName(), (Command) itemEvent.getPayload());
+			}
+			return;
+		}
+		
 		String itemName = (String) event.getProperty("item");
 		
 		String topic = event.getTopic();
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
+import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openhab.core.types.Command;
+import org.openhab.core.types.EventType;
+import org.openhab.core.types.State;
+import org.openhab.core.types.Type;
+import org.osgi.service.event.Event;
+
+/**
+ * A command or status update on the openHAB event bus. It is a regular OSGi
+ * event with the usual topic and properties, so that it can be handled like
+ * any other event. Subscribers which check for this class get the item name,
+ * the event type and the command or state directly, without parsing the topic.
+ * <p>The topics are cached per item, so that they are not concatenated again
+ * for every event.</p>
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+public class ItemEvent extends Event {
+
+	/** the maximum number of cached topics per event type */
+	private static final int MAX_CACHED_TOPICS = 10000;
+
+	private static final Map<String, String> commandTopics = new ConcurrentHashMap<String, String>();
+
+	private static final Map<String, String> updateTopics = new ConcurrentHashMap<String, String>();
+
+	private final EventType type;
+
+	private final String itemName;
+
+	private final Type payload;
+
+	private ItemEvent(EventType type, String itemName, Type payload, String property) {
+		super(getTopic(type, itemName), createProperties(itemName, property, payload));
+		this.type = type;
+		this.itemName = itemName;
+		this.payload = payload;
+	}
+
+	/**
+	 * Creates an event for a command.
+	 *
+	 * @param itemName name of the item the command is sent to
+	 * @param command the command
+	 * @return the event
+	 */
+	public static ItemEvent createCommandEvent(String itemName, Command command) {
+		return new ItemEvent(EventType.COMMAND, itemName, command, "command");
+	}
+
+	/**
+	 * Creates an event for a status update.
+	 *
+	 * @param itemName name of the item the update is sent for
+	 * @param newState the new state
+	 * @return the event
+	 */
+	public static ItemEvent createUpdateEvent(String itemName, State newState) {
+		return new ItemEvent(EventType.UPDATE, itemName, newState, "state");
+	}
+
+	/**
+	 * @return whether this is a command or a status update
+	 */
+	public EventType getType() {
+		return type;
+	}
+
+	public String getItemName() {
+		return itemName;
+	}
+
+	/**
+	 * @return the command, if this is a command event, or the state otherwise
+	 */
+	public Type getPayload() {
+		return payload;
+	}
+
+	/**
+	 * Returns the topic of the events of the given type for an item, which is
+	 * <code>openhab/&lt;type&gt;/&lt;itemName&gt;</code>.
+	 *
+	 * @param type the type of the event
+	 * @param itemName the name of the item
+	 * @return the topic
+	 */
+	public static String getTopic(EventType type, String itemName) {
+		Map<String, String> topics = type==EventType.COMMAND ? commandTopics : updateTopics;
+		String topic = topics.get(itemName);
+		if(topic==null) {
+			topic = TOPIC_PREFIX + TOPIC_SEPERATOR + type + TOPIC_SEPERATOR + itemName;
+			// do not let arbitrary item names fill up the memory
+			if(topics.size() < MAX_CACHED_TOPICS) {
+				topics.put(itemName, topic);
+			}
+		}
+		return topic;
+	}
+
+	private static Dictionary<String, Object> createProperties(String itemName, String property, Type payload) {
+		Dictionary<String, Object> properties = new Hashtable<String, Object>(3);
+		properties.put("item", itemName);
+		properties.put(property, payload);
+		return properties;
+	}
+
+}
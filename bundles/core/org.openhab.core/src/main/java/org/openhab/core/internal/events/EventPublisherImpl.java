@@ -8,17 +8,10 @@
  */
 package org.openhab.core.internal.events;
 
-import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
-import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
-
-import java.util.Dictionary;
-import java.util.Hashtable;
-
 import org.openhab.core.events.EventPublisher;
+import org.openhab.core.events.ItemEvent;
 import org.openhab.core.types.Command;
-import org.openhab.core.types.EventType;
 import org.openhab.core.types.State;
-import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,7 +19,7 @@ import org.slf4j.LoggerFactory;
 /**
  * This is the main implementation of the {@link EventPublisher} interface.
  * Through it, openHAB events can be sent to the OSGi EventAdmin service
- * in order to broadcast them.
+ * in order to broadcast them. The events are sent as {@link ItemEvent}s.
  * 
  * @author Kai Kreuzer
  *
@@ -53,7 +46,7 @@ public class EventPublisherImpl implements EventPublisher {
 	 */
 	public void sendCommand(String itemName, Command command) {
 		if (command != null) {
-			if(eventAdmin!=null) eventAdmin.sendEvent(createCommandEvent(itemName, command));
+			if(eventAdmin!=null) eventAdmin.sendEvent(ItemEvent.createCommandEvent(itemName, command));
 		} else {
 			logger.warn("given command is NULL, couldn't send command to '{}'", itemName);
 		}
@@ -64,7 +57,7 @@ public class EventPublisherImpl implements EventPublisher {
 	 */
 	public void postCommand(String itemName, Command command) {
 		if (command != null) {
-			if(eventAdmin!=null) eventAdmin.postEvent(createCommandEvent(itemName, command));
+			if(eventAdmin!=null) eventAdmin.postEvent(ItemEvent.createCommandEvent(itemName, command));
 		} else {
 			logger.warn("given command is NULL, couldn't post command to '{}'", itemName);
 		}
@@ -75,29 +68,11 @@ public class EventPublisherImpl implements EventPublisher {
 	 */
 	public void postUpdate(String itemName, State newState) {
 		if (newState != null) {
-			if(eventAdmin!=null) eventAdmin.postEvent(createUpdateEvent(itemName, newState));
+			if(eventAdmin!=null) eventAdmin.postEvent(ItemEvent.createUpdateEvent(itemName, newState));
 		} else {
 			logger.warn("given new state is NULL, couldn't post update for '{}'", itemName);
 		}
 	}
 	
-	private Event createUpdateEvent(String itemName, State newState) {
-		Dictionary<String, Object> properties = new Hashtable<String, Object>();
-		properties.put("item", itemName);
-		properties.put("state", newState);
-		return new Event(createTopic(EventType.UPDATE, itemName), properties);
-	}
-
-	private Event createCommandEvent(String itemName, Command command) {
-		Dictionary<String, Object> properties = new Hashtable<String, Object>();
-		properties.put("item", itemName);
-		properties.put("command", command);
-		return new Event(createTopic(EventType.COMMAND, itemName) , properties);
-	}
-
-	private String createTopic(EventType type, String itemName) {
-		return TOPIC_PREFIX + TOPIC_SEPERATOR + type + TOPIC_SEPERATOR + itemName;
-	}
-	
 	
 }
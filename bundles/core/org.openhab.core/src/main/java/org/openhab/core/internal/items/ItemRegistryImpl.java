@@ -10,12 +10,16 @@ package org.openhab.core.internal.items;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Dictionary;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.regex.Pattern;
 
+import org.apache.commons.lang.StringUtils;
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.GroupItem;
@@ -26,6 +30,8 @@ import org.openhab.core.items.ItemProvider;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.items.ItemRegistryChangeListener;
 import org.openhab.core.items.ItemsChangeListener;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,12 +41,14 @@ import org.slf4j.LoggerFactory;
  * It keeps track of all declared items of all item providers and keeps their
  * current state in memory. This is the central point where states are kept
  * and thus it is a core part for all stateful services.
+ * <p>The registry is configured by the 'items' namespace of the main configuration
+ * file, which defines the time during which updates of group members are coalesced.</p>
  * 
  * @author Kai Kreuzer
  * @since 0.1.0
  *
  */
-public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
+public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener, ManagedService {
 	
 	private static final Logger logger = LoggerFactory.getLogger(ItemRegistryImpl.class);
 
@@ -50,9 +58,21 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	/** this is our local map in which we store all our items */
 	protected Map<ItemProvider, Collection<Item>> itemMap = new ConcurrentHashMap<ItemProvider, Collection<Item>>();
 	
+	/** index of all registered items by their name, kept in sync with {@link #itemMap} */
+	protected ConcurrentMap<String, Item> itemIndex = new ConcurrentHashMap<String, Item>();
+	
+	/** cache of compiled regular expressions for search patterns passed to {@link #getItems(String)} */
+	protected Map<String, Pattern> patternCache = new ConcurrentHashMap<String, Pattern>();
+	
+	/** the maximum number of compiled patterns that are kept in {@link #patternCache} */
+	private static final int MAX_CACHED_PATTERNS = 256;
+	
 	/** to keep track of all item change listeners */
 	protected Collection<ItemRegistryChangeListener> listeners = new CopyOnWriteArraySet<ItemRegistryChangeListener>();
 
+	/** the time in milliseconds during which updates of group members are coalesced, 0 to update groups immediately */
+	protected long groupCoalescingWindow = 0;
+
 	public void activate(ComponentContext componentContext) {
 	}
 	
@@ -63,6 +83,10 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		}
 		// then release all items
 		itemMap.clear();
+		itemIndex.clear();
+		patternCache.clear();
+		// and stop the thread, which updates the groups of the released items
+		GroupItem.shutdownScheduler();
     }
 
 	/* (non-Javadoc)
@@ -70,10 +94,19 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	 */
     @Override
 	public Item getItem(String name) throws ItemNotFoundException {
-		for(Collection<Item> items : itemMap.values()) {
-			for(Item item : items) {
-				if(item.getName().matches(name)) {
-					return item;
+		Item item = itemIndex.get(name);
+		if(item!=null) {
+			return item;
+		}
+		// names which are no valid item names might still be meant as a regular
+		// expression, so we keep the old behaviour for them
+		if(!isValidItemName(name)) {
+			Pattern regex = getPattern(name);
+			for(Collection<Item> items : itemMap.values()) {
+				for(Item candidate : items) {
+					if(regex.matcher(candidate.getName()).matches()) {
+						return candidate;
+					}
 				}
 			}
 		}
@@ -116,11 +149,11 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	 */
     @Override
 	public Collection<Item> getItems(String pattern) {
-		String regex = pattern.replace("?", ".?").replace("*", ".*?");
+		Pattern regex = getPattern(pattern.replace("?", ".?").replace("*", ".*?"));
 		Collection<Item> matchedItems = new ArrayList<Item>();
 		for(Collection<Item> items : itemMap.values()) {
 			for(Item item : items) {
-				if(item.getName().matches(regex)) {
+				if(regex.matcher(item.getName()).matches()) {
 					matchedItems.add(item);
 				}
 			}
@@ -153,7 +186,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 					((GenericItem) item).dispose();
 				}
 			}
-			itemMap.remove(itemProvider);
+			removeFromIndex(itemMap.remove(itemProvider));
 
 			itemProvider.removeItemChangeListener(this);
 			logger.debug("Item provider '{}' has been removed.", itemProvider.getClass().getSimpleName());
@@ -176,12 +209,12 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 
     @Override
 	public void allItemsChanged(ItemProvider provider, Collection<String> oldItemNames) {
+		Collection<Item> oldItems = itemMap.get(provider);
+		
 		// if the provider did not provide any old item names, we check if we
 		// know them and pass them further on to our listeners
 		if(oldItemNames==null || oldItemNames.isEmpty()) {
 			oldItemNames = new HashSet<String>();
-            Collection<Item> oldItems;
-            oldItems = itemMap.get(provider);
 			if(oldItems!=null && oldItems.size() > 0) {
 				for(Item oldItem : oldItems) {
 					oldItemNames.add(oldItem.getName());
@@ -191,9 +224,11 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 
 		Collection<Item> items = new CopyOnWriteArrayList<Item>();
     	itemMap.put(provider, items);
+		removeFromIndex(oldItems);
 		for(Item item : provider.getItems()) {
 			if(initializeItem(item)) {
 				items.add(item);
+				itemIndex.put(item.getName(), item);
 			}
 		}
 
@@ -209,6 +244,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		if(items!=null) {
 			if(initializeItem(item)) {
 				items.add(item);
+				itemIndex.put(item.getName(), item);
 			} else {
 				return;
 			}
@@ -224,6 +260,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
         items = itemMap.get(provider);
 		if(items!=null) {
 			items.remove(item);
+			removeFromIndex(item);
 		}
 		for(ItemRegistryChangeListener listener : listeners) {
 			listener.itemRemoved(item);
@@ -240,6 +277,56 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		listeners.remove(listener);
 	}
 
+	/**
+	 * Removes the given items from the name index. An index entry is only
+	 * removed if it still refers to the very same item instance, so that an
+	 * item with the same name from another provider is not affected. If another
+	 * provider still has an item with the name of a removed one, this item is
+	 * indexed instead.
+	 * 
+	 * @param items the items to remove, may be <code>null</code>
+	 */
+	private void removeFromIndex(Collection<Item> items) {
+		if(items!=null) {
+			for(Item item : items) {
+				removeFromIndex(item);
+			}
+		}
+	}
+
+	private void removeFromIndex(Item item) {
+		if(itemIndex.remove(item.getName(), item)) {
+			for(Collection<Item> items : itemMap.values()) {
+				for(Item candidate : items) {
+					if(candidate!=item && candidate.getName().equals(item.getName())) {
+						itemIndex.putIfAbsent(candidate.getName(), candidate);
+						return;
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the compiled version of the given regular expression. Compiled
+	 * patterns are cached, so that repeated lookups with the same search pattern
+	 * do not need to compile the expression again.
+	 * 
+	 * @param regex the regular expression to compile
+	 * @return the compiled pattern
+	 */
+	private Pattern getPattern(String regex) {
+		Pattern pattern = patternCache.get(regex);
+		if(pattern==null) {
+			pattern = Pattern.compile(regex);
+			if(patternCache.size() >= MAX_CACHED_PATTERNS) {
+				patternCache.clear();
+			}
+			patternCache.put(regex, pattern);
+		}
+		return pattern;
+	}
+
 	/**
 	 * an item should be initialized, which means that the event publisher is
 	 * injected and its implementation is notified that it has just been created,
@@ -257,6 +344,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 			}
 			
 			if(item instanceof GroupItem) {
+				((GroupItem)item).setCoalescingWindow(groupCoalescingWindow);
 				// fill group with its members 
 				for(Item i : getItems()) {
 					if(i.getGroupNames().contains(item.getName())) {
@@ -282,4 +370,32 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 			return false;
 		}
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("rawtypes")
+	public void updated(Dictionary config) throws ConfigurationException {
+		long newCoalescingWindow = 0;
+		if (config != null) {
+			String value = (String) config.get("groupCoalescingWindow");
+			if (StringUtils.isNotBlank(value)) {
+				try {
+					newCoalescingWindow = Long.parseLong(value.trim());
+				} catch (NumberFormatException e) {
+					throw new ConfigurationException("groupCoalescingWindow", "'" + value + "' is not a valid number");
+				}
+			}
+		}
+		if (newCoalescingWindow != groupCoalescingWindow) {
+			groupCoalescingWindow = newCoalescingWindow;
+			for (Item item : getItems()) {
+				if (item instanceof GroupItem) {
+					((GroupItem) item).setCoalescingWindow(groupCoalescingWindow);
+				}
+			}
+			logger.debug("Updates of group members are now coalesced for {} ms", groupCoalescingWindow);
+		}
+	}
+
 }
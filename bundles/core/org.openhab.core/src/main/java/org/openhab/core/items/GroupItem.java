@@ -13,23 +13,55 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections.ListUtils;
+import org.openhab.core.items.IncrementalGroupFunction.Aggregation;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A group item combines other items as its members. Its state is calculated by
+ * a {@link GroupFunction} from the states of its members whenever one of them changes.
+ * <p>If the function is an {@link IncrementalGroupFunction}, the group keeps an
+ * {@link Aggregation} of its members, so that a single update only costs a
+ * constant or logarithmic effort instead of a pass over all members. In addition,
+ * a coalescing window can be set, so that a burst of member updates only results
+ * in a single update of the group state.</p>
+ * <p>The state is calculated while holding the lock of the group, but it is set
+ * without holding it, so that the listeners of the group, like parent groups,
+ * are never called with the lock held.</p>
+ */
 public class GroupItem extends GenericItem implements StateChangeListener {
 	
 	private static final Logger logger = LoggerFactory.getLogger(GroupItem.class);
 	
+	/** the scheduler for the coalesced recalculations of all groups */
+	private static ScheduledExecutorService scheduler;
+
 	protected final GenericItem baseItem;
 	
 	protected final List<Item> members;
 	
 	protected GroupFunction function;
 
+	/** the aggregation of the member states, null if it has not been built yet or the function is not incremental */
+	private Aggregation aggregation = null;
+
+	/** the time in milliseconds member updates are collected before the group state is updated */
+	private long coalescingWindow = 0;
+
+	private boolean recalculationScheduled = false;
+
+	/** the number of calculated states and the number of the last state which has been set */
+	private long calculationCount = 0;
+	private long publishedCount = 0;
+
 	public GroupItem(String name) {
 		this(name, null);
 	}
@@ -91,7 +123,12 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	}
 
 	public void addMember(Item item) {
-		members.add(item);
+		synchronized (this) {
+			members.add(item);
+			if (aggregation != null) {
+				aggregation.add(item);
+			}
+		}
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.addStateChangeListener(this);
@@ -99,12 +136,36 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	}
 	
 	public void removeMember(Item item) {
-		members.remove(item);
+		synchronized (this) {
+			if (members.remove(item) && aggregation != null) {
+				aggregation.remove(item);
+			}
+		}
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.removeStateChangeListener(this);
 		}
 	}
+
+	/**
+	 * Returns the time in milliseconds during which updates of members are
+	 * collected before the state of this group is updated.
+	 * 
+	 * @return the coalescing window, 0 if every update of a member updates the group
+	 */
+	public long getCoalescingWindow() {
+		return coalescingWindow;
+	}
+
+	/**
+	 * Sets the time in milliseconds during which updates of members are
+	 * collected before the state of this group is updated once.
+	 * 
+	 * @param coalescingWindow the coalescing window, 0 to update the group on every update of a member
+	 */
+	public void setCoalescingWindow(long coalescingWindow) {
+		this.coalescingWindow = Math.max(0, coalescingWindow);
+	}
 	
 	/** 
 	 * The accepted data types of a group item is the same as of the underlying base item.
@@ -210,13 +271,101 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	 * @{inheritDoc
 	 */
 	public void stateChanged(Item item, State oldState, State newState) {
-		setState(function.calculate(members));
+		memberUpdated(item);
 	}
 
 	/**
 	 * @{inheritDoc
 	 */
 	public void stateUpdated(Item item, State state) {
-		setState(function.calculate(members));
+		memberUpdated(item);
+	}
+
+	private void memberUpdated(Item item) {
+		State newState;
+		long count;
+		synchronized (this) {
+			if (aggregation != null) {
+				aggregation.update(item);
+			}
+			if (coalescingWindow > 0) {
+				if (!recalculationScheduled) {
+					recalculationScheduled = true;
+					getScheduler().schedule(new Runnable() {
+						public void run() {
+							State newState;
+							long count;
+							synchronized (GroupItem.this) {
+								recalculationScheduled = false;
+								newState = calculateState();
+								count = ++calculationCount;
+							}
+							publishState(newState, count);
+						}
+					}, coalescingWindow, TimeUnit.MILLISECONDS);
+				}
+				return;
+			}
+			newState = calculateState();
+			count = ++calculationCount;
+		}
+		publishState(newState, count);
+	}
+
+	/**
+	 * Sets a calculated state without holding the lock of the group, unless a state
+	 * which has been calculated later on has already been set by another thread.
+	 */
+	private void publishState(State newState, long count) {
+		synchronized (this) {
+			if (count < publishedCount) {
+				return;
+			}
+			publishedCount = count;
+		}
+		setState(newState);
+	}
+
+	/**
+	 * Calculates the state of this group from the aggregation of its members,
+	 * which is built on first use, or by the group function if it is not incremental.
+	 */
+	private State calculateState() {
+		if (aggregation == null && function instanceof IncrementalGroupFunction) {
+			aggregation = ((IncrementalGroupFunction) function).createAggregation();
+			for (Item member : members) {
+				aggregation.add(member);
+			}
+		}
+		if (aggregation != null) {
+			return aggregation.getState();
+		} else {
+			return function.calculate(members);
+		}
+	}
+
+	/**
+	 * Stops the thread which updates the groups with a coalescing window, once the
+	 * pending updates have been carried out. A new thread is started by the next
+	 * member update of such a group.
+	 */
+	public static synchronized void shutdownScheduler() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+	}
+
+	private static synchronized ScheduledExecutorService getScheduler() {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "GroupItem coalescer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return scheduler;
 	}
 }
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.items;
+
+import org.openhab.core.types.State;
+
+/**
+ * Incremental group functions are able to keep their result up to date while
+ * single members change, so that a {@link GroupItem} does not have to calculate
+ * its state over all its members on every update of one of them.
+ *
+ * @author agent
+ * @since 1.5.0
+ *
+ */
+public interface IncrementalGroupFunction extends GroupFunction {
+
+	/**
+	 * Creates a new, empty aggregation for this function.
+	 *
+	 * @return the aggregation
+	 */
+	public Aggregation createAggregation();
+
+	/**
+	 * An aggregation keeps the intermediate result of a group function, e.g. a
+	 * running sum, and the contribution of each member to it. Its state must
+	 * always be the same as the one {@link GroupFunction#calculate(java.util.List)}
+	 * returns for the members which have been added.
+	 * Aggregations are not thread-safe.
+	 */
+	public interface Aggregation {
+
+		/**
+		 * Adds a member with its current state to the aggregation.
+		 *
+		 * @param item the member to add
+		 */
+		public void add(Item item);
+
+		/**
+		 * Removes a member from the aggregation.
+		 *
+		 * @param item the member to remove
+		 */
+		public void remove(Item item);
+
+		/**
+		 * Replaces the contribution of a member by its current state.
+		 *
+		 * @param item the member whose state has changed
+		 */
+		public void update(Item item);
+
+		/**
+		 * Returns the result of the group function for all members of the aggregation.
+		 *
+		 * @return the group state
+		 */
+		public State getState();
+	}
+
+}
@@ -26,6 +26,7 @@ public class GeneralBroadcaster extends JerseyBroadcaster {
 	
 	private static final Logger logger = LoggerFactory.getLogger(GeneralBroadcaster.class);
 	protected Collection<ResourceStateChangeListener> listeners = Collections.newSetFromMap(new WeakHashMap<ResourceStateChangeListener, Boolean>());
+	private final ResponseCache responseCache = new ResponseCache();
 	
 	public GeneralBroadcaster(String id, org.atmosphere.cpr.AtmosphereConfig config) {
 		super(id, config);
@@ -58,6 +59,13 @@ public class GeneralBroadcaster extends JerseyBroadcaster {
 		});
 	}
 	
+	/**
+	 * Returns the cache for the responses to the subscribers of this broadcaster
+	 */
+	public ResponseCache getResponseCache() {
+		return responseCache;
+	}
+	
 	public void addStateChangeListener(final ResourceStateChangeListener listener){
 		synchronized (listeners) {
 			if(listeners.isEmpty()){
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.broadcaster;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.atmosphere.cpr.AtmosphereResource;
+import org.atmosphere.cpr.Broadcaster;
+
+/**
+ * Cache for the responses a {@link GeneralBroadcaster} sends to its subscribers.
+ * All subscribers of a broadcaster watch the same resource, so that the response
+ * objects and their serialized forms only depend on few request properties like
+ * the media type. They are created for the first subscriber and then shared by
+ * all others, until the cache is cleared because the state of an item changed.
+ * Response objects which have been created before the cache was cleared are not
+ * accepted anymore, so that a slow subscriber of a previous broadcast cannot put
+ * an outdated object back into the cache.
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+public class ResponseCache {
+
+	/** the response objects by the request properties they depend on */
+	private final Map<String, Object> responseObjects = new HashMap<String, Object>();
+
+	/** objects derived from a response object, e.g. its serialized form */
+	private final Map<Object, Map<String, Object>> derivedObjects = new IdentityHashMap<Object, Map<String, Object>>();
+
+	/** incremented whenever the cache is cleared */
+	private long version = 0;
+
+	/**
+	 * Returns the cache of the broadcaster a resource is subscribed to.
+	 *
+	 * @param resource the subscribed resource
+	 * @return the cache or <code>null</code>, if the broadcaster does not provide one
+	 */
+	public static ResponseCache getCache(AtmosphereResource resource) {
+		Broadcaster broadcaster = resource.getBroadcaster();
+		if(broadcaster instanceof GeneralBroadcaster) {
+			return ((GeneralBroadcaster) broadcaster).getResponseCache();
+		}
+		return null;
+	}
+
+	/**
+	 * @param requestKey the request properties the response object depends on
+	 * @return the cached response object or <code>null</code>
+	 */
+	public synchronized Object getResponseObject(String requestKey) {
+		return responseObjects.get(requestKey);
+	}
+
+	/**
+	 * @return the version of the cache, which has to be determined before a response object
+	 * is created
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @param version the version of the cache when the creation of the response object started
+	 * @param requestKey the request properties the response object depends on
+	 * @param responseObject the response object to cache, which is ignored if the cache has been
+	 * cleared in the meantime
+	 */
+	public synchronized void putResponseObject(long version, String requestKey, Object responseObject) {
+		if(version == this.version) {
+			responseObjects.put(requestKey, responseObject);
+		}
+	}
+
+	/**
+	 * @param source the object the requested object has been derived from
+	 * @param key describes how the object has been derived
+	 * @return the cached object or <code>null</code>
+	 */
+	public synchronized Object getDerivedObject(Object source, String key) {
+		Map<String, Object> objects = derivedObjects.get(source);
+		return objects != null ? objects.get(key) : null;
+	}
+
+	/**
+	 * @param source the object the given object has been derived from
+	 * @param key describes how the object has been derived
+	 * @param derivedObject the object to cache
+	 */
+	public synchronized void putDerivedObject(Object source, String key, Object derivedObject) {
+		Map<String, Object> objects = derivedObjects.get(source);
+		if(objects == null) {
+			objects = new HashMap<String, Object>();
+			derivedObjects.put(source, objects);
+		}
+		objects.put(key, derivedObject);
+	}
+
+	/**
+	 * Removes all cached objects, as they are outdated.
+	 */
+	public synchronized void clear() {
+		version++;
+		responseObjects.clear();
+		derivedObjects.clear();
+	}
+
+}
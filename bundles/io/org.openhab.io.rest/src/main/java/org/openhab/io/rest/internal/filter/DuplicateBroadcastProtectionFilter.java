@@ -9,12 +9,17 @@
 package org.openhab.io.rest.internal.filter;
 
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javax.servlet.http.HttpServletRequest;
 
 import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.BroadcastFilter.BroadcastAction.ACTION;
 import org.atmosphere.cpr.PerRequestBroadcastFilter;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.openhab.io.rest.internal.broadcaster.ResponseCache;
 import org.openhab.io.rest.internal.listeners.ResourceStateChangeListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +37,27 @@ public class DuplicateBroadcastProtectionFilter implements PerRequestBroadcastFi
 
 	private static final Logger logger = LoggerFactory.getLogger(DuplicateBroadcastProtectionFilter.class);
 	
+	private static final String CACHE_KEY = "comparison";
+	
+	/** the mapper is thread-safe once configured, so it is shared by all requests */
+	private static final ObjectMapper mapper = new ObjectMapper();
+	
+	/** the maximum number of clients whose last entity is kept for the comparison */
+	private static final int MAX_CLIENTS = 1000;
+	
+	/**
+	 * the serialized form of the last entity sent to each client; the least recently served
+	 * clients are forgotten, which at worst lets a duplicate broadcast pass for them
+	 */
+	@SuppressWarnings("serial")
+	private static final Map<String, String> firedResponses = Collections.synchronizedMap(
+			new LinkedHashMap<String, String>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+					return size() > MAX_CLIENTS;
+				}
+			});
+	
 	@Override
 	public BroadcastAction filter(Object arg0, Object message) {
 		return new BroadcastAction(ACTION.CONTINUE, message);
@@ -42,7 +68,7 @@ public class DuplicateBroadcastProtectionFilter implements PerRequestBroadcastFi
 		final  HttpServletRequest request = resource.getRequest();
 		
 		try {	
-			if(!isDoubleBroadcast(request,message ) ){
+			if(!isDoubleBroadcast(ResponseCache.getCache(resource), request, message) ){
 				return new BroadcastAction(ACTION.CONTINUE,  message);
 			}
 			else {
@@ -56,17 +82,17 @@ public class DuplicateBroadcastProtectionFilter implements PerRequestBroadcastFi
 		
 	}
 	
-	private boolean isDoubleBroadcast(HttpServletRequest request, Object responseEntity){
+	private boolean isDoubleBroadcast(ResponseCache cache, HttpServletRequest request, Object responseEntity){
 		String clientId = request.getHeader("X-Atmosphere-tracking-id");
 		
 		// return false if the X-Atmosphere-tracking-id is not set
 		if(clientId == null || clientId.isEmpty()){
 			return false;
 		}
-		ObjectMapper mapper = new ObjectMapper();
 		try{
-			String firedResponse =  mapper.writeValueAsString(ResourceStateChangeListener.getMap().put(clientId, responseEntity)); 
-			String responseValue =  mapper.writeValueAsString(responseEntity);
+			ResourceStateChangeListener.getMap().put(clientId, responseEntity);
+			String responseValue = serialize(cache, responseEntity);
+			String firedResponse = firedResponses.put(clientId, responseValue);
             if(responseValue.equals(firedResponse)) {
             	return true;
 			}
@@ -75,5 +101,21 @@ public class DuplicateBroadcastProtectionFilter implements PerRequestBroadcastFi
 		} 
         return false;
 	}
+	
+	/**
+	 * Serializes the entity for the comparison; the result is shared by all clients
+	 * which receive the same entity.
+	 */
+	private String serialize(ResponseCache cache, Object responseEntity) throws Exception {
+		if(cache==null || responseEntity==null) {
+			return mapper.writeValueAsString(responseEntity);
+		}
+		String responseValue = (String) cache.getDerivedObject(responseEntity, CACHE_KEY);
+		if(responseValue==null) {
+			responseValue = mapper.writeValueAsString(responseEntity);
+			cache.putDerivedObject(responseEntity, CACHE_KEY, responseValue);
+		}
+		return responseValue;
+	}
 
 }
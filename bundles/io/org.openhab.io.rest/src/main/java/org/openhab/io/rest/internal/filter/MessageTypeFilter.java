@@ -8,21 +8,34 @@
  */
 package org.openhab.io.rest.internal.filter;
 
+import java.io.StringWriter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.annotation.XmlRootElement;
 
 import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.BroadcastFilter.BroadcastAction.ACTION;
 import org.atmosphere.cpr.PerRequestBroadcastFilter;
+import org.openhab.io.rest.internal.broadcaster.ResponseCache;
 import org.openhab.io.rest.internal.resources.MediaTypeHelper;
 import org.openhab.io.rest.internal.resources.ResponseTypeHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.sun.jersey.api.json.JSONConfiguration;
+import com.sun.jersey.api.json.JSONJAXBContext;
 import com.sun.jersey.api.json.JSONWithPadding;
 
 /**
- * This Filter creates the correct responseObject for the requested MediaType   
+ * This Filter creates the correct responseObject for the requested MediaType.
+ * JSON and XML responses are marshalled only once per broadcast and media type
+ * and then sent as is to all clients which receive the same entity.
  *  
  * @author Oliver Mazur
  * @since 1.0
@@ -33,6 +46,10 @@ import com.sun.jersey.api.json.JSONWithPadding;
 public class MessageTypeFilter implements PerRequestBroadcastFilter {
 	private static final Logger logger = LoggerFactory.getLogger(MessageTypeFilter.class);
 	
+	/** JAXB contexts are expensive to create and thread-safe, so they are created once per class */
+	private static final ConcurrentMap<Class<?>, JAXBContext> xmlContexts = new ConcurrentHashMap<Class<?>, JAXBContext>();
+	private static final ConcurrentMap<Class<?>, JSONJAXBContext> jsonContexts = new ConcurrentHashMap<Class<?>, JSONJAXBContext>();
+	
 	@Override
 	public BroadcastAction filter(Object arg0, Object message) {
 		return new BroadcastAction(ACTION.CONTINUE, message);
@@ -44,8 +61,9 @@ public class MessageTypeFilter implements PerRequestBroadcastFilter {
 		ResponseTypeHelper responseTypeHelper = new ResponseTypeHelper();
 		String responseType = responseTypeHelper.getResponseType(request);
 		try {	
-			Object responseObject = responseType.equals(MediaTypeHelper.APPLICATION_X_JAVASCRIPT) ?
-	    			new JSONWithPadding(message, responseTypeHelper.getQueryParam(request, "callback")) : message;  			
+			Object responseObject = MediaTypeHelper.APPLICATION_X_JAVASCRIPT.equals(responseType) ?
+	    			new JSONWithPadding(message, responseTypeHelper.getQueryParam(request, "callback")) : 
+	    			getSerializedMessage(ResponseCache.getCache(resource), message, responseType);  			
 	    	return new BroadcastAction(ACTION.CONTINUE, Response.ok(responseObject, responseType).build());
 			
 		
@@ -56,4 +74,52 @@ public class MessageTypeFilter implements PerRequestBroadcastFilter {
 		
 		
 	}
+	
+	/**
+	 * Returns the message marshalled to the given media type. The result is cached, so
+	 * that the message is marshalled only once for all clients.
+	 * 
+	 * @return the marshalled message or the message itself, if it cannot be marshalled
+	 */
+	private Object getSerializedMessage(ResponseCache cache, Object message, String responseType) {
+		if(cache==null || message==null || !message.getClass().isAnnotationPresent(XmlRootElement.class)
+				|| !(MediaType.APPLICATION_JSON.equals(responseType) || MediaType.APPLICATION_XML.equals(responseType))) {
+			return message;
+		}
+		Object serializedMessage = cache.getDerivedObject(message, responseType);
+		if(serializedMessage==null) {
+			try {
+				StringWriter writer = new StringWriter();
+				if(MediaType.APPLICATION_JSON.equals(responseType)) {
+					getJsonContext(message.getClass()).createJSONMarshaller().marshallToJSON(message, writer);
+				} else {
+					getXmlContext(message.getClass()).createMarshaller().marshal(message, writer);
+				}
+				serializedMessage = writer.toString();
+			} catch (JAXBException e) {
+				logger.debug("Cannot marshal broadcast message: {}", e.getMessage());
+				serializedMessage = message;
+			}
+			cache.putDerivedObject(message, responseType, serializedMessage);
+		}
+		return serializedMessage;
+	}
+	
+	private static JAXBContext getXmlContext(Class<?> clazz) throws JAXBException {
+		JAXBContext context = xmlContexts.get(clazz);
+		if(context==null) {
+			context = JAXBContext.newInstance(clazz);
+			xmlContexts.putIfAbsent(clazz, context);
+		}
+		return context;
+	}
+	
+	private static JSONJAXBContext getJsonContext(Class<?> clazz) throws JAXBException {
+		JSONJAXBContext context = jsonContexts.get(clazz);
+		if(context==null) {
+			context = new JSONJAXBContext(JSONConfiguration.DEFAULT, clazz);
+			jsonContexts.putIfAbsent(clazz, context);
+		}
+		return context;
+	}
 }
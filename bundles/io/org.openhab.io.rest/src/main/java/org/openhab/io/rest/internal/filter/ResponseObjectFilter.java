@@ -18,6 +18,7 @@ import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.BroadcastFilter.BroadcastAction.ACTION;
 import org.atmosphere.cpr.PerRequestBroadcastFilter;
 import org.openhab.core.items.Item;
+import org.openhab.io.rest.internal.broadcaster.ResponseCache;
 import org.openhab.io.rest.internal.resources.ResponseTypeHelper;
 import org.openhab.io.rest.internal.resources.beans.PageBean;
 import org.openhab.io.rest.internal.resources.beans.WidgetBean;
@@ -49,7 +50,7 @@ public class ResponseObjectFilter implements PerRequestBroadcastFilter {
 		try {	
 			// websocket and HTTP streaming
 			if(ResponseTypeHelper.isStreamingTransport(request) && message instanceof PageBean && originalMessage instanceof Item) {
-				return new BroadcastAction(ACTION.CONTINUE,  getSingleResponseObject((PageBean)message, (Item)originalMessage, request)	);
+				return new BroadcastAction(ACTION.CONTINUE,  getCachedSingleResponseObject(ResponseCache.getCache(resource), (PageBean)message, (Item)originalMessage, request)	);
 			}
 			
 		} catch (Exception e) {
@@ -60,6 +61,23 @@ public class ResponseObjectFilter implements PerRequestBroadcastFilter {
 		return new BroadcastAction(ACTION.CONTINUE,  message);
 	}
 	
+	/**
+	 * Returns the updated widgets of the page; all clients which watch the same page
+	 * share the same response object.
+	 */
+	private Object getCachedSingleResponseObject(ResponseCache cache, PageBean pageBean, Item item, HttpServletRequest request) {
+		if(cache==null || pageBean==null) {
+			return getSingleResponseObject(pageBean, item, request);
+		}
+		String key = "widgets:" + item.getName();
+		Object responseObject = cache.getDerivedObject(pageBean, key);
+		if(responseObject==null) {
+			responseObject = getSingleResponseObject(pageBean, item, request);
+			cache.putDerivedObject(pageBean, key, responseObject);
+		}
+		return responseObject;
+	}
+	
 	private Object getSingleResponseObject(PageBean pageBean, Item item, HttpServletRequest request) {
 		WidgetListBean responseBeam ;
 		if(pageBean!=null) {
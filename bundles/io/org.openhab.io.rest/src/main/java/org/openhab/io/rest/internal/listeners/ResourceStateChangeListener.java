@@ -25,12 +25,14 @@ import org.openhab.core.items.Item;
 import org.openhab.core.items.StateChangeListener;
 import org.openhab.core.types.State;
 import org.openhab.io.rest.internal.broadcaster.GeneralBroadcaster;
+import org.openhab.io.rest.internal.broadcaster.ResponseCache;
 import org.openhab.io.rest.internal.filter.DuplicateBroadcastProtectionFilter;
 import org.openhab.io.rest.internal.filter.MessageTypeFilter;
 import org.openhab.io.rest.internal.filter.PollingDelayFilter;
 import org.openhab.io.rest.internal.filter.ResponseObjectFilter;
 import org.openhab.io.rest.internal.filter.SendPageUpdateFilter;
 import org.openhab.io.rest.internal.resources.ItemResource;
+import org.openhab.io.rest.internal.resources.ResponseTypeHelper;
 
 /**
  * This is an abstract super class which adds Broadcaster config, lifecycle and filters to its derived classes and registers listeners to subscribed resources.   
@@ -77,7 +79,7 @@ abstract public class ResourceStateChangeListener {
 			@Override
 			public BroadcastAction filter(AtmosphereResource resource, Object originalMessage, Object message) {
 				 HttpServletRequest request = resource.getRequest();
-				 return new BroadcastAction(ACTION.CONTINUE,  getResponseObject(request));
+				 return new BroadcastAction(ACTION.CONTINUE,  getCachedResponseObject(request));
 			}
 		});
 		
@@ -99,6 +101,7 @@ abstract public class ResourceStateChangeListener {
 				if(item instanceof GroupItem) {
 					GroupItem gItem = (GroupItem) item;
 					if(gItem.getBaseItem()!=null) {
+						broadcaster.getResponseCache().clear();
 						if(!broadcaster.getAtmosphereResources().isEmpty()) {
 							broadcaster.broadcast(item);
 						}
@@ -107,6 +110,9 @@ abstract public class ResourceStateChangeListener {
 			}
 			
 			public void stateChanged(final Item item, State oldState, State newState) {	
+				// cleared before the broadcast is queued, so that it cannot be answered from the outdated
+				// cache; responses still being created for earlier broadcasts are rejected by the cache
+				broadcaster.getResponseCache().clear();
 				if(!broadcaster.getAtmosphereResources().isEmpty()) {
 					broadcaster.broadcast(item);
 				}
@@ -155,6 +161,30 @@ abstract public class ResourceStateChangeListener {
 		}
 	}
 
+	/**
+	 * Returns the response content for an HTTP request from the response cache of the
+	 * broadcaster. The content is only determined for the first subscriber with the same
+	 * media type and base path after a state change, all others get the same object.
+	 * 
+	 * @param request the HttpServletRequest
+	 * @return the response content
+	 */
+	protected Object getCachedResponseObject(final HttpServletRequest request) {
+		ResponseCache cache = broadcaster.getResponseCache();
+		long version = cache.getVersion();
+		String requestKey = request.getPathInfo() 
+				+ "|" + (new ResponseTypeHelper()).getResponseType(request)
+				+ "|" + request.getScheme() + "://" + request.getServerName() + ":" + request.getServerPort() + request.getContextPath();
+		Object responseObject = cache.getResponseObject(requestKey);
+		if(responseObject==null) {
+			responseObject = getResponseObject(request);
+			if(responseObject!=null) {
+				cache.putResponseObject(version, requestKey, responseObject);
+			}
+		}
+		return responseObject;
+	}
+
 	/**
 	 * Returns a set of all items that should be observed for this request. A status change of any of
 	 * those items will resume the suspended request.
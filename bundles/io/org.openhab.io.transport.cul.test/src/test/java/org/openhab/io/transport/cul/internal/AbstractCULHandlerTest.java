@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.cul.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.transport.cul.CULListener;
+import org.openhab.io.transport.cul.CULMode;
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class AbstractCULHandlerTest {
+
+	private TestHandler handler;
+
+	@Before
+	public void init() throws Exception {
+		handler = new TestHandler();
+		handler.open();
+	}
+
+	@After
+	public void close() {
+		handler.close();
+	}
+
+	@Test
+	public void testDelayedRFCommandDoesNotBlockOtherCommands() throws Exception {
+		handler.setDutyCycle(1);
+		handler.notifyDutyCycleExceeded();
+		handler.send("F12340111");
+		handler.send("V");
+
+		handler.awaitWritten(1);
+		assertEquals("[V\r\n]", handler.written.toString());
+	}
+
+	@Test
+	public void testListenerIsRegisteredOnce() {
+		CULListener listener = new CULListener() {
+			public void dataReceived(String data) {
+			}
+
+			public void error(Exception e) {
+			}
+		};
+		handler.registerListener(listener);
+		handler.registerListener(listener);
+		assertEquals(1, handler.receiveExecutors.size());
+		assertEquals(1, handler.listeners.size());
+
+		handler.unregisterListener(listener);
+		assertTrue(handler.receiveExecutors.isEmpty());
+		assertTrue(handler.listeners.isEmpty());
+	}
+
+	private static class TestHandler extends AbstractCULHandler {
+
+		private final List<String> written = new ArrayList<String>();
+
+		TestHandler() {
+			super("test", CULMode.SLOW_RF);
+		}
+
+		@Override
+		protected void openHardware() {
+		}
+
+		@Override
+		protected void closeHardware() {
+		}
+
+		@Override
+		protected synchronized void writeMessage(String message) {
+			written.add(message);
+			notifyAll();
+		}
+
+		synchronized void awaitWritten(int count) throws InterruptedException {
+			long timeout = System.currentTimeMillis() + 5000;
+			while (written.size() < count && System.currentTimeMillis() < timeout) {
+				wait(Math.max(1, timeout - System.currentTimeMillis()));
+			}
+			assertTrue("commands not written", written.size() >= count);
+		}
+	}
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.cul.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class CULMessageCoalescerTest {
+
+	@Test
+	public void testAbsoluteFS20CommandsAreReplaced() {
+		assertCoalesced(Arrays.asList("F12340111"), "F12340100", "F12340111");
+		// the remaining message takes the position of the latest one
+		assertCoalesced(Arrays.asList("F12340200", "F12340111"), "F12340100", "F12340200", "F12340111");
+	}
+
+	@Test
+	public void testRelativeFS20CommandsAreKept() {
+		// toggle
+		assertCoalesced(Arrays.asList("F12340111", "F12340112", "F12340100"), "F12340111", "F12340112", "F12340100");
+		// timed on with an extension byte
+		assertCoalesced(Arrays.asList("F12340131A0", "F12340100"), "F12340131A0", "F12340100");
+	}
+
+	@Test
+	public void testOtherMessagesKeepTheirOrder() {
+		assertCoalesced(Arrays.asList("V", "X21", "F12340111"), "V", "F12340100", "X21", "F12340111");
+	}
+
+	@Test
+	public void testFHTMessagesAreMerged() {
+		assertCoalesced(Arrays.asList("T123441004200"), "T12344100", "T12344200");
+		// a later value for the same register replaces the earlier one
+		assertCoalesced(Arrays.asList("T123442004110"), "T12344100", "T12344200", "T12344110");
+		// other devices are not merged
+		assertCoalesced(Arrays.asList("T12344100", "T56784100"), "T12344100", "T56784100");
+	}
+
+	@Test
+	public void testFHTMessagesAreLimited() {
+		String full = "T1234" + "4100" + "4200" + "4300" + "4400" + "4500" + "4600" + "4700" + "4800";
+		assertCoalesced(Arrays.asList(full, "T12344900"), full, "T12344900");
+		assertCoalesced(Arrays.asList("T1234" + "4200" + "4300" + "4400" + "4500" + "4600" + "4700" + "4800" + "4110"),
+				full, "T12344110");
+	}
+
+	private void assertCoalesced(List<String> expected, String... messages) {
+		List<String> queue = new ArrayList<String>(Arrays.asList(messages));
+		CULMessageCoalescer.coalesce(queue);
+		assertEquals(expected, queue);
+	}
+
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.cul.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class DutyCycleLimiterTest {
+
+	private static final String FS20_MESSAGE = "F12340111";
+
+	@Test
+	public void testBurst() {
+		DutyCycleLimiter limiter = new DutyCycleLimiter(1);
+		long burst = DutyCycleLimiter.MAX_CREDIT / DutyCycleLimiter.MESSAGE_AIRTIME;
+		for (int i = 0; i < burst; i++) {
+			assertEquals(0, limiter.getDelay(FS20_MESSAGE));
+			limiter.consume(FS20_MESSAGE);
+		}
+		// the credit grows by 1% of the elapsed time
+		long delay = limiter.getDelay(FS20_MESSAGE);
+		assertTrue("delay " + delay, delay > 19000 && delay <= 20000);
+	}
+
+	@Test
+	public void testExhaust() {
+		DutyCycleLimiter limiter = new DutyCycleLimiter(10);
+		limiter.exhaust();
+		long delay = limiter.getDelay(FS20_MESSAGE);
+		assertTrue("delay " + delay, delay > 1900 && delay <= 2000);
+		// messages which are not sent by RF are never delayed
+		assertEquals(0, limiter.getDelay("V"));
+	}
+
+	@Test
+	public void testDisabled() {
+		DutyCycleLimiter limiter = new DutyCycleLimiter(0);
+		limiter.exhaust();
+		assertEquals(0, limiter.getDelay(FS20_MESSAGE));
+
+		limiter.setDutyCycle(1);
+		assertTrue(limiter.getDelay(FS20_MESSAGE) > 0);
+		limiter.setDutyCycle(0);
+		assertEquals(0, limiter.getDelay(FS20_MESSAGE));
+	}
+
+	@Test
+	public void testIsRFMessage() {
+		assertTrue(DutyCycleLimiter.isRFMessage(FS20_MESSAGE));
+		assertTrue(DutyCycleLimiter.isRFMessage("T12344100"));
+		assertTrue(DutyCycleLimiter.isRFMessage("is0FFF0FFFFF0F"));
+		assertFalse(DutyCycleLimiter.isRFMessage("V"));
+		assertFalse(DutyCycleLimiter.isRFMessage("X21"));
+	}
+
+}
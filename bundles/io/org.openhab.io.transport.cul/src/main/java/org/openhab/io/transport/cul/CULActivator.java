@@ -8,9 +8,15 @@
  */
 package org.openhab.io.transport.cul;
 
+import java.util.Hashtable;
+
+import org.openhab.io.transport.cul.internal.CULConfiguration;
 import org.openhab.io.transport.cul.internal.CULSerialHandlerImpl;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.cm.ManagedService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,15 +34,26 @@ public class CULActivator implements BundleActivator {
 
 	private static BundleContext context;
 
+	private ServiceRegistration<?> configurationRegistration;
+
 	@Override
 	public void start(BundleContext bc) throws Exception {
 		context = bc;
 		logger.debug("CUL transport has been started.");
 		CULManager.registerHandlerClass("serial", CULSerialHandlerImpl.class);
+
+		Hashtable<String, Object> properties = new Hashtable<String, Object>();
+		properties.put(Constants.SERVICE_PID, CULConfiguration.SERVICE_PID);
+		configurationRegistration = bc.registerService(ManagedService.class.getName(), new CULConfiguration(),
+				properties);
 	}
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		if (configurationRegistration != null) {
+			configurationRegistration.unregister();
+			configurationRegistration = null;
+		}
 		context = null;
 		logger.debug("CUL transport has been stopped.");
 
@@ -34,6 +34,10 @@ public class CULManager {
 
 	private static Map<String, Class<? extends CULHandler>> deviceTypeClasses = new HashMap<String, Class<? extends CULHandler>>();
 
+	private static boolean coalesceMessages = false;
+
+	private static double dutyCycle = 0;
+
 	/**
 	 * Get CULHandler for the given device in the given mode. The same
 	 * CULHandler can be returned multiple times if you ask multiple times for
@@ -106,6 +110,32 @@ public class CULManager {
 		}
 	}
 
+	/**
+	 * Configure how all CULHandlers send their messages.
+	 * 
+	 * @param coalesce
+	 *            true if queued FS20 and FHT messages should be coalesced.
+	 * @param dutyCycle
+	 *            the share of time in percent a device may transmit, 0
+	 *            disables the limit.
+	 */
+	public static void configureSending(boolean coalesce, double dutyCycle) {
+		synchronized (openDevices) {
+			CULManager.coalesceMessages = coalesce;
+			CULManager.dutyCycle = dutyCycle;
+			for (CULHandler handler : openDevices.values()) {
+				if (handler instanceof CULHandlerInternal) {
+					configureSending((CULHandlerInternal) handler);
+				}
+			}
+		}
+	}
+
+	private static void configureSending(CULHandlerInternal handler) {
+		handler.setMessageCoalescing(coalesceMessages);
+		handler.setDutyCycle(dutyCycle);
+	}
+
 	public static void registerHandlerClass(String deviceType, Class<? extends CULHandler> clazz) {
 		logger.debug("Registering class " + clazz.getCanonicalName() + " for device type " + deviceType);
 		deviceTypeClasses.put(deviceType, clazz);
@@ -133,6 +163,7 @@ public class CULManager {
 						+ culHandlerclass.getCanonicalName());
 			}
 			CULHandlerInternal internalHandler = (CULHandlerInternal) culHandler;
+			configureSending(internalHandler);
 			internalHandler.open();
 			for (String command : initCommands) {
 				internalHandler.sendWithoutCheck(command);
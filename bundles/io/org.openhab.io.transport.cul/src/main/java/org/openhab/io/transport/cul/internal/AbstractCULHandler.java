@@ -8,12 +8,18 @@
  */
 package org.openhab.io.transport.cul.internal;
 
-import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.Executor;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.openhab.io.transport.cul.CULCommunicationException;
 import org.openhab.io.transport.cul.CULDeviceException;
@@ -34,7 +40,10 @@ import org.slf4j.LoggerFactory;
 public abstract class AbstractCULHandler implements CULHandler, CULHandlerInternal {
 
 	/**
-	 * Thread which sends all queued commands to the CUL.
+	 * Thread which sends all queued commands to the CUL. It waits for new
+	 * commands and, if enabled, for the duty cycle limit of the device. The
+	 * commands queued meanwhile are coalesced if enabled. Commands which do
+	 * not make the device transmit are sent while RF commands are delayed.
 	 * 
 	 * @author Till Klocke
 	 * @since 1.4.0
@@ -44,11 +53,52 @@ public abstract class AbstractCULHandler implements CULHandler, CULHandlerIntern
 
 		private final Logger logger = LoggerFactory.getLogger(SendThread.class);
 
+		private final LinkedList<String> pending = new LinkedList<String>();
+
+		public SendThread() {
+			super("CUL sender " + deviceName);
+			setDaemon(true);
+		}
+
 		@Override
 		public void run() {
 			while (!isInterrupted()) {
-				String command = sendQueue.poll();
-				if (command != null) {
+				try {
+					if (pending.isEmpty()) {
+						pending.add(sendQueue.take());
+					}
+					sendQueue.drainTo(pending);
+					if (coalesceMessages) {
+						CULMessageCoalescer.coalesce(pending);
+					}
+
+					String command = null;
+					long delay = 0;
+					Iterator<String> iterator = pending.iterator();
+					while (iterator.hasNext()) {
+						String candidate = iterator.next();
+						long candidateDelay = dutyCycleLimiter.getDelay(candidate);
+						if (candidateDelay == 0) {
+							command = candidate;
+							iterator.remove();
+							break;
+						}
+						if (delay == 0 || candidateDelay < delay) {
+							delay = candidateDelay;
+						}
+					}
+					if (command == null) {
+						logger.debug("Delaying command {} for {} ms to keep the duty cycle limit", pending.getFirst(),
+								delay);
+						// wake up for new commands, which might be coalesced with the pending ones
+						String newCommand = sendQueue.poll(delay, TimeUnit.MILLISECONDS);
+						if (newCommand != null) {
+							pending.add(newCommand);
+						}
+						continue;
+					}
+					dutyCycleLimiter.consume(command);
+
 					if (!command.endsWith("\r\n")) {
 						command = command + "\r\n";
 					}
@@ -57,11 +107,9 @@ public abstract class AbstractCULHandler implements CULHandler, CULHandlerIntern
 					} catch (CULCommunicationException e) {
 						logger.error("Error while writing command to CUL", e);
 					}
-				}
-				try {
-					Thread.sleep(10);
 				} catch (InterruptedException e) {
-					logger.debug("Error while sleeping in SendThread", e);
+					logger.debug("SendThread has been interrupted");
+					return;
 				}
 			}
 		}
@@ -93,22 +141,28 @@ public abstract class AbstractCULHandler implements CULHandler, CULHandlerIntern
 	}
 
 	/**
-	 * Executor to handle received messages. Every listern should be called in
-	 * its own thread.
+	 * Executors to handle received messages. Every listener is called in its
+	 * own thread, which gets the messages in the order they have been
+	 * received.
 	 */
-	protected Executor receiveExecutor = Executors.newCachedThreadPool();
-	protected SendThread sendThread = new SendThread();
+	protected Map<CULListener, ExecutorService> receiveExecutors = new ConcurrentHashMap<CULListener, ExecutorService>();
+	protected SendThread sendThread;
 
 	protected String deviceName;
 	protected CULMode mode;
 
-	protected List<CULListener> listeners = new ArrayList<CULListener>();
+	protected List<CULListener> listeners = new CopyOnWriteArrayList<CULListener>();
 
-	protected Queue<String> sendQueue = new ConcurrentLinkedQueue<String>();
+	protected BlockingQueue<String> sendQueue = new LinkedBlockingQueue<String>();
+
+	private volatile boolean coalesceMessages = false;
+
+	private DutyCycleLimiter dutyCycleLimiter = new DutyCycleLimiter(0);
 
 	protected AbstractCULHandler(String deviceName, CULMode mode) {
 		this.mode = mode;
 		this.deviceName = deviceName;
+		this.sendThread = new SendThread();
 	}
 
 	@Override
@@ -117,16 +171,28 @@ public abstract class AbstractCULHandler implements CULHandler, CULHandlerIntern
 	}
 
 	@Override
-	public void registerListener(CULListener listener) {
-		if (listener != null) {
+	public synchronized void registerListener(CULListener listener) {
+		if (listener != null && !receiveExecutors.containsKey(listener)) {
+			receiveExecutors.put(listener, Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "CUL listener " + deviceName);
+					thread.setDaemon(true);
+					return thread;
+				}
+			}));
 			listeners.add(listener);
 		}
 	}
 
 	@Override
-	public void unregisterListener(CULListener listener) {
+	public synchronized void unregisterListener(CULListener listener) {
 		if (listener != null) {
 			listeners.remove(listener);
+			ExecutorService executor = receiveExecutors.remove(listener);
+			if (executor != null) {
+				executor.shutdown();
+			}
 		}
 	}
 
@@ -144,9 +210,22 @@ public abstract class AbstractCULHandler implements CULHandler, CULHandlerIntern
 	@Override
 	public void close() {
 		sendThread.interrupt();
+		for (ExecutorService executor : receiveExecutors.values()) {
+			executor.shutdown();
+		}
 		closeHardware();
 	}
 
+	@Override
+	public void setMessageCoalescing(boolean coalesceMessages) {
+		this.coalesceMessages = coalesceMessages;
+	}
+
+	@Override
+	public void setDutyCycle(double dutyCycle) {
+		dutyCycleLimiter.setDutyCycle(dutyCycle);
+	}
+
 	/**
 	 * initialize the CUL hardware and open the connection
 	 * 
@@ -203,10 +282,22 @@ public abstract class AbstractCULHandler implements CULHandler, CULHandlerIntern
 	 */
 	protected void notifyDataReceived(String data) {
 		for (final CULListener listener : listeners) {
-			receiveExecutor.execute(new NotifyDataReceivedRunner(listener, data));
+			ExecutorService executor = receiveExecutors.get(listener);
+			if (executor != null) {
+				executor.execute(new NotifyDataReceivedRunner(listener, data));
+			}
 		}
 	}
 
+	/**
+	 * Notifies the sender that the device has dropped a message because the
+	 * duty cycle limit has been exceeded. The following messages will be
+	 * delayed until the device is allowed to send again.
+	 */
+	protected void notifyDutyCycleExceeded() {
+		dutyCycleLimiter.exhaust();
+	}
+
 	protected void notifyError(Exception e) {
 		for (CULListener listener : listeners) {
 			listener.error(e);
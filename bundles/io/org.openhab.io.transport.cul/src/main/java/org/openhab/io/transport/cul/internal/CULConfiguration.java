@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.cul.internal;
+
+import java.util.Dictionary;
+
+import org.apache.commons.lang.StringUtils;
+import org.openhab.io.transport.cul.CULManager;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
+
+/**
+ * Reads the settings of the CUL transport, which apply to all devices, from
+ * the openHAB configuration.
+ * 
+ * @author agent
+ * @since 1.5.0
+ */
+public class CULConfiguration implements ManagedService {
+
+	public static final String SERVICE_PID = "org.openhab.cul";
+
+	private static final String KEY_COALESCE = "coalesce";
+
+	private static final String KEY_DUTY_CYCLE = "dutycycle";
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void updated(Dictionary config) throws ConfigurationException {
+		boolean coalesce = false;
+		double dutyCycle = 0;
+		if (config != null) {
+			String coalesceString = (String) config.get(KEY_COALESCE);
+			if (StringUtils.isNotBlank(coalesceString)) {
+				coalesce = Boolean.parseBoolean(coalesceString.trim());
+			}
+			String dutyCycleString = (String) config.get(KEY_DUTY_CYCLE);
+			if (StringUtils.isNotBlank(dutyCycleString)) {
+				try {
+					dutyCycle = Double.parseDouble(dutyCycleString.trim());
+				} catch (NumberFormatException e) {
+					throw new ConfigurationException(KEY_DUTY_CYCLE, "'" + dutyCycleString + "' is not a valid number");
+				}
+				if (dutyCycle < 0 || dutyCycle > 100) {
+					throw new ConfigurationException(KEY_DUTY_CYCLE, "The duty cycle must be between 0 and 100 percent");
+				}
+			}
+		}
+		CULManager.configureSending(coalesce, dutyCycle);
+	}
+
+}
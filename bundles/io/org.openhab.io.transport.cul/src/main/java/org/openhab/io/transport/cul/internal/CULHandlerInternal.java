@@ -28,4 +28,15 @@ public interface CULHandlerInternal {
 
 	public void sendWithoutCheck(String message) throws CULCommunicationException;
 
+	/**
+	 * Enable or disable the coalescing of queued FS20 and FHT messages.
+	 */
+	public void setMessageCoalescing(boolean coalesceMessages);
+
+	/**
+	 * Set the share of time in percent the device may transmit. Messages are
+	 * delayed to keep this limit, 0 disables the limit.
+	 */
+	public void setDutyCycle(double dutyCycle);
+
 }
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.cul.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Coalesces queued FS20 and FHT messages, so that less messages have to be
+ * sent if commands are queued faster than they can be transmitted:
+ * <ul>
+ * <li>A FS20 message which sets a device to an absolute state (off, on or a dim
+ * level) replaces the preceding messages of this kind for the same device.
+ * Relative or timed commands like toggle or dim up are never dropped.</li>
+ * <li>FHT messages for the same device are merged into a single message of up
+ * to {@value #MAX_FHT_COMMANDS} commands, a later value for the same register
+ * replaces the earlier one.</li>
+ * </ul>
+ * The remaining messages keep their order, a coalesced message takes the
+ * position of the latest message it replaces.
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+public class CULMessageCoalescer {
+
+	/** the maximum number of commands a single FHT message may carry */
+	static final int MAX_FHT_COMMANDS = 8;
+
+	/** F, housecode, address, command and optional extension */
+	private static final Pattern FS20_MESSAGE = Pattern.compile("F[0-9A-Fa-f]{8}([0-9A-Fa-f]{2})?");
+
+	/** T, housecode, followed by pairs of register and value */
+	private static final Pattern FHT_MESSAGE = Pattern.compile("T[0-9A-Fa-f]{4}([0-9A-Fa-f]{4})+");
+
+	/** the highest FS20 command code which sets an absolute state */
+	private static final int FS20_LAST_ABSOLUTE_COMMAND = 0x11;
+
+	private CULMessageCoalescer() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Coalesces the messages of the given list in place.
+	 *
+	 * @param messages
+	 *            the queued culfw commands, in the order they will be sent.
+	 */
+	public static void coalesce(List<String> messages) {
+		// walk backwards, so that the latest message of a device is seen first
+		List<String> kept = new ArrayList<String>(messages.size());
+		Map<String, Integer> latestFS20 = new HashMap<String, Integer>();
+		Map<String, Integer> latestFHT = new HashMap<String, Integer>();
+
+		for (int i = messages.size() - 1; i >= 0; i--) {
+			String message = messages.get(i);
+			String trimmed = message.trim();
+			if (FS20_MESSAGE.matcher(trimmed).matches()) {
+				String device = trimmed.substring(0, 7);
+				if (!isAbsoluteFS20Command(trimmed)) {
+					// earlier messages must not be dropped, as they might change the outcome
+					latestFS20.remove(device);
+				} else if (latestFS20.containsKey(device)) {
+					continue;
+				} else {
+					latestFS20.put(device, kept.size());
+				}
+			} else if (FHT_MESSAGE.matcher(trimmed).matches()) {
+				String device = trimmed.substring(0, 5);
+				Integer later = latestFHT.get(device);
+				if (later != null) {
+					String merged = mergeFHTMessages(trimmed, kept.get(later).trim());
+					if (merged != null) {
+						kept.set(later, merged);
+						continue;
+					}
+				}
+				latestFHT.put(device, kept.size());
+			}
+			kept.add(message);
+		}
+
+		if (kept.size() < messages.size()) {
+			Collections.reverse(kept);
+			messages.clear();
+			messages.addAll(kept);
+		} else {
+			// nothing dropped, but FHT messages might have been merged
+			for (int i = 0; i < kept.size(); i++) {
+				messages.set(messages.size() - 1 - i, kept.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the command makes the device transmit a FHT message.
+	 */
+	static boolean isFHTMessage(String message) {
+		return FHT_MESSAGE.matcher(message.trim()).matches();
+	}
+
+	private static boolean isAbsoluteFS20Command(String message) {
+		int command = Integer.parseInt(message.substring(7, 9), 16);
+		// bit 5 indicates an extension byte, e.g. for timed commands
+		return (command & 0x20) == 0 && command <= FS20_LAST_ABSOLUTE_COMMAND;
+	}
+
+	/**
+	 * Merges two FHT messages for the same device.
+	 *
+	 * @return the merged message or null if it would carry too many commands.
+	 */
+	private static String mergeFHTMessages(String earlier, String later) {
+		Map<String, String> commands = new LinkedHashMap<String, String>();
+		addFHTCommands(commands, earlier);
+		addFHTCommands(commands, later);
+		if (commands.size() > MAX_FHT_COMMANDS) {
+			return null;
+		}
+		StringBuilder merged = new StringBuilder(earlier.substring(0, 5));
+		for (Map.Entry<String, String> command : commands.entrySet()) {
+			merged.append(command.getKey()).append(command.getValue());
+		}
+		return merged.toString();
+	}
+
+	private static void addFHTCommands(Map<String, String> commands, String message) {
+		for (int i = 5; i < message.length(); i += 4) {
+			String register = message.substring(i, i + 2).toUpperCase();
+			// remove first, so that the register moves to the position of its latest value
+			commands.remove(register);
+			commands.put(register, message.substring(i + 2, i + 4));
+		}
+	}
+
+}
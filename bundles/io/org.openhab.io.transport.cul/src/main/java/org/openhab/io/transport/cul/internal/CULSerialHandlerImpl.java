@@ -65,6 +65,7 @@ public class CULSerialHandlerImpl extends AbstractCULHandler implements SerialPo
 					return;
 				} else if ("LOVF".equals(data)) {
 					log.warn("(LOVF) Limit Overflow: Last message lost. You are using more than 1% transmitting time. Reduce the number of rf messages");
+					notifyDutyCycleExceeded();
 					return;
 				}
 				notifyDataReceived(data);
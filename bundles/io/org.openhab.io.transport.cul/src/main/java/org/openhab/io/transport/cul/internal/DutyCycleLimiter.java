@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.cul.internal;
+
+/**
+ * Keeps track of the transmission time a culfw based device may still use.
+ * Devices on 868 MHz may only transmit for 1% of the time, culfw drops any
+ * message exceeding this limit (LOVF). This limiter works like the credit
+ * system of culfw: the credit grows with the allowed share of the elapsed time
+ * up to a maximum burst, and every RF message consumes its estimated airtime.
+ * Messages are delayed until there is enough credit, instead of being dropped
+ * by the device.
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+public class DutyCycleLimiter {
+
+	/**
+	 * Estimated airtime of a RF message in milliseconds, approximately a
+	 * threefold repeated FS20 frame.
+	 */
+	static final long MESSAGE_AIRTIME = 200;
+
+	/** maximum credit in milliseconds, the same as the burst allowed by culfw */
+	static final long MAX_CREDIT = 9000;
+
+	private double dutyCycle;
+
+	private double credit = MAX_CREDIT;
+
+	private long lastUpdate = System.currentTimeMillis();
+
+	/**
+	 * @param dutyCycle
+	 *            the allowed share of transmission time in percent, 0 disables
+	 *            the limit.
+	 */
+	public DutyCycleLimiter(double dutyCycle) {
+		this.dutyCycle = dutyCycle;
+	}
+
+	public synchronized void setDutyCycle(double dutyCycle) {
+		updateCredit();
+		this.dutyCycle = dutyCycle;
+	}
+
+	/**
+	 * Returns how long the given message has to wait until it may be sent.
+	 *
+	 * @param message
+	 *            the culfw command to send
+	 * @return the delay in milliseconds, 0 if the message may be sent now.
+	 */
+	public synchronized long getDelay(String message) {
+		if (dutyCycle <= 0 || !isRFMessage(message)) {
+			return 0;
+		}
+		updateCredit();
+		if (credit >= MESSAGE_AIRTIME) {
+			return 0;
+		}
+		return (long) Math.ceil((MESSAGE_AIRTIME - credit) * 100 / dutyCycle);
+	}
+
+	/**
+	 * Charges the airtime of a message which has been sent.
+	 *
+	 * @param message
+	 *            the culfw command which has been sent
+	 */
+	public synchronized void consume(String message) {
+		if (isRFMessage(message)) {
+			updateCredit();
+			credit = Math.max(0, credit - MESSAGE_AIRTIME);
+		}
+	}
+
+	/**
+	 * Discards the remaining credit, because the device reported that the
+	 * limit has been exceeded.
+	 */
+	public synchronized void exhaust() {
+		updateCredit();
+		credit = 0;
+	}
+
+	private void updateCredit() {
+		long now = System.currentTimeMillis();
+		credit = Math.min(MAX_CREDIT, credit + (now - lastUpdate) * dutyCycle / 100);
+		lastUpdate = now;
+	}
+
+	/**
+	 * Checks whether the command makes the device transmit a RF message, i.e.
+	 * whether it sends a FS20, FHT, Intertechno, Homematic or MAX! message.
+	 */
+	static boolean isRFMessage(String message) {
+		return message.startsWith("F") || message.startsWith("is") || message.startsWith("As")
+				|| message.startsWith("Zs") || CULMessageCoalescer.isFHTMessage(message);
+	}
+
+}
@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.transport.mqtt.MqttPublishCallback;
+import org.openhab.io.transport.mqtt.MqttPublishStatistics;
+import org.openhab.io.transport.mqtt.internal.MqttPublishQueue.OverflowPolicy;
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class MqttPublishQueueTest {
+
+	private TestSender sender;
+
+	private TestCallback callback;
+
+	private MqttPublishQueue queue;
+
+	@Before
+	public void init() {
+		sender = new TestSender();
+		callback = new TestCallback();
+		queue = new MqttPublishQueue("test", sender) {
+			@Override
+			long getCompletionTimeout() {
+				return 100;
+			}
+		};
+	}
+
+	@After
+	public void stop() {
+		queue.stop();
+	}
+
+	@Test
+	public void testInflightWindow() throws Exception {
+		queue.setInflightWindow(1);
+		queue.add("a", "1".getBytes(), callback);
+		queue.add("b", "2".getBytes(), callback);
+		queue.start();
+
+		sender.awaitPublished(1);
+		// the second message waits for the confirmation of the first one
+		Thread.sleep(50);
+		assertEquals("[a]", sender.topics.toString());
+		assertEquals(1, queue.getStatistics().getInFlight());
+
+		queue.deliveryComplete(sender.complete(0));
+		sender.awaitPublished(2);
+		assertEquals("[a, b]", sender.topics.toString());
+
+		queue.deliveryComplete(sender.complete(1));
+		callback.await(2);
+		assertEquals("[a, b]", callback.succeeded.toString());
+		MqttPublishStatistics statistics = queue.getStatistics();
+		assertEquals(2, statistics.getPublished());
+		assertEquals(0, statistics.getInFlight());
+	}
+
+	@Test
+	public void testDropOldest() {
+		queue.setCapacity(2);
+		queue.add("a", "1".getBytes(), callback);
+		queue.add("b", "2".getBytes(), callback);
+		queue.add("c", "3".getBytes(), callback);
+
+		assertEquals("[a:1]", callback.failed.toString());
+		assertEquals(2, queue.getStatistics().getQueueDepth());
+		assertEquals(1, queue.getStatistics().getDropped());
+	}
+
+	@Test
+	public void testDropNewest() {
+		queue.setCapacity(2);
+		queue.setOverflowPolicy(OverflowPolicy.DROP_NEWEST);
+		queue.add("a", "1".getBytes(), callback);
+		queue.add("b", "2".getBytes(), callback);
+		queue.add("c", "3".getBytes(), callback);
+
+		assertEquals("[c:3]", callback.failed.toString());
+		assertEquals(2, queue.getStatistics().getQueueDepth());
+	}
+
+	@Test
+	public void testCoalesce() throws Exception {
+		queue.setCapacity(2);
+		queue.setOverflowPolicy(OverflowPolicy.COALESCE);
+		queue.add("a", "1".getBytes(), callback);
+		queue.add("b", "2".getBytes(), callback);
+		queue.add("a", "3".getBytes(), callback);
+		// without a queued message for the topic the oldest one is dropped
+		queue.add("c", "4".getBytes(), callback);
+
+		assertEquals("[a:1, a:3]", callback.failed.toString());
+
+		queue.start();
+		sender.awaitPublished(2);
+		assertEquals("[b:2, c:4]", sender.messages.toString());
+	}
+
+	@Test
+	public void testExpiredMessagesAreFailedWithoutLock() throws Exception {
+		final List<Boolean> lockFree = new ArrayList<Boolean>();
+		MqttPublishCallback lockCheck = new TestCallback() {
+			@Override
+			public void onFailure(String topic, byte[] payload, Throwable error) {
+				// another thread must be able to use the queue while the callback is running
+				Thread thread = new Thread() {
+					@Override
+					public void run() {
+						queue.getStatistics();
+					}
+				};
+				thread.start();
+				try {
+					thread.join(1000);
+				} catch (InterruptedException e) {
+				}
+				lockFree.add(!thread.isAlive());
+				super.onFailure(topic, payload, error);
+			}
+		};
+		queue.add("a", "1".getBytes(), lockCheck);
+		queue.start();
+		sender.awaitPublished(1);
+
+		((TestCallback) lockCheck).await(1);
+		assertEquals("[true]", lockFree.toString());
+		assertEquals(1, queue.getStatistics().getFailed());
+		assertEquals(0, queue.getStatistics().getInFlight());
+	}
+
+	@Test
+	public void testInFlightMessagesAreKeptWhenConnectionIsLost() throws Exception {
+		queue.add("a", "1".getBytes(), callback);
+		queue.start();
+		sender.awaitPublished(1);
+
+		sender.connected = false;
+		queue.connectionLost(new MqttException(MqttException.REASON_CODE_CONNECTION_LOST));
+		// the timeout does not expire while the client is disconnected
+		Thread.sleep(300);
+		assertEquals(0, callback.failed.size());
+		assertEquals(1, queue.getStatistics().getInFlight());
+
+		// the client delivers the message again after reconnecting
+		sender.connected = true;
+		queue.deliveryComplete(sender.complete(0));
+		callback.await(1);
+		assertEquals("[a]", callback.succeeded.toString());
+		assertEquals(0, queue.getStatistics().getFailed());
+	}
+
+	@Test
+	public void testFailedDelivery() throws Exception {
+		queue.add("a", "1".getBytes(), callback);
+		queue.start();
+		sender.awaitPublished(1);
+
+		TestToken token = sender.tokens.get(0);
+		token.exception = new MqttException(MqttException.REASON_CODE_CLIENT_EXCEPTION);
+		queue.deliveryComplete(sender.complete(0));
+		callback.await(1);
+		assertEquals("[a:1]", callback.failed.toString());
+		assertEquals(1, queue.getStatistics().getFailed());
+	}
+
+	private static class TestCallback implements MqttPublishCallback {
+
+		private final List<String> succeeded = new ArrayList<String>();
+
+		private final List<String> failed = new ArrayList<String>();
+
+		public synchronized void onSuccess(String topic, byte[] payload) {
+			succeeded.add(topic);
+			notifyAll();
+		}
+
+		public synchronized void onFailure(String topic, byte[] payload, Throwable error) {
+			failed.add(topic + ":" + new String(payload));
+			notifyAll();
+		}
+
+		synchronized void await(int count) throws InterruptedException {
+			long timeout = System.currentTimeMillis() + 5000;
+			while (succeeded.size() + failed.size() < count && System.currentTimeMillis() < timeout) {
+				wait(Math.max(1, timeout - System.currentTimeMillis()));
+			}
+			assertTrue("callbacks missing", succeeded.size() + failed.size() >= count);
+		}
+	}
+
+	private static class TestSender implements MqttPublishQueue.Sender {
+
+		private volatile boolean connected = true;
+
+		private final List<String> topics = new ArrayList<String>();
+
+		private final List<String> messages = new ArrayList<String>();
+
+		private final List<TestToken> tokens = new ArrayList<TestToken>();
+
+		public boolean isConnected() {
+			return connected;
+		}
+
+		public synchronized IMqttDeliveryToken publish(String topic, byte[] payload) {
+			TestToken token = new TestToken(tokens.size());
+			topics.add(topic);
+			messages.add(topic + ":" + new String(payload));
+			tokens.add(token);
+			notifyAll();
+			return token;
+		}
+
+		synchronized TestToken complete(int index) {
+			TestToken token = tokens.get(index);
+			token.complete = true;
+			return token;
+		}
+
+		synchronized void awaitPublished(int count) throws InterruptedException {
+			long timeout = System.currentTimeMillis() + 5000;
+			while (tokens.size() < count && System.currentTimeMillis() < timeout) {
+				wait(Math.max(1, timeout - System.currentTimeMillis()));
+			}
+			assertTrue("messages not published", tokens.size() >= count);
+		}
+	}
+
+	private static class TestToken implements IMqttDeliveryToken {
+
+		private final int messageId;
+
+		private volatile boolean complete;
+
+		private volatile MqttException exception;
+
+		TestToken(int messageId) {
+			this.messageId = messageId;
+		}
+
+		public void waitForCompletion() {
+		}
+
+		public void waitForCompletion(long timeout) {
+		}
+
+		public boolean isComplete() {
+			return complete;
+		}
+
+		public MqttException getException() {
+			return exception;
+		}
+
+		public void setActionCallback(IMqttActionListener listener) {
+		}
+
+		public IMqttActionListener getActionCallback() {
+			return null;
+		}
+
+		public IMqttAsyncClient getClient() {
+			return null;
+		}
+
+		public String[] getTopics() {
+			return null;
+		}
+
+		public void setUserContext(Object userContext) {
+		}
+
+		public Object getUserContext() {
+			return null;
+		}
+
+		public int getMessageId() {
+			return messageId;
+		}
+
+		public MqttMessage getMessage() {
+			return null;
+		}
+	}
+
+}
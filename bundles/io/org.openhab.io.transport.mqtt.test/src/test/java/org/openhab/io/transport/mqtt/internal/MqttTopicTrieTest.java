@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class MqttTopicTrieTest {
+
+	private MqttTopicTrie<String> trie;
+
+	@Before
+	public void init() {
+		trie = new MqttTopicTrie<String>();
+	}
+
+	@Test
+	public void testNoFilters() {
+		assertEquals(Collections.emptyList(), trie.match("home"));
+	}
+
+	@Test
+	public void testExactMatch() {
+		trie.add("home/kitchen/temp", "a");
+		trie.add("home/kitchen", "b");
+
+		assertMatches("home/kitchen/temp", "a");
+		assertMatches("home/kitchen", "b");
+		assertMatches("home/kitchen/temp/raw");
+		assertMatches("home");
+	}
+
+	@Test
+	public void testSingleLevelWildcard() {
+		trie.add("home/+/temp", "a");
+		trie.add("+", "b");
+		trie.add("home/+", "c");
+
+		assertMatches("home/kitchen/temp", "a");
+		assertMatches("home/garden/temp", "a");
+		assertMatches("home/kitchen/humidity");
+		assertMatches("home/kitchen/temp/raw");
+		assertMatches("home", "b");
+		assertMatches("home/kitchen", "c");
+		// '+' matches an empty level as well
+		assertMatches("home//temp", "a");
+	}
+
+	@Test
+	public void testMultiLevelWildcard() {
+		trie.add("home/#", "a");
+		trie.add("#", "b");
+
+		assertMatches("home/kitchen/temp", "a", "b");
+		assertMatches("home/kitchen", "a", "b");
+		// '#' also matches its parent level
+		assertMatches("home", "a", "b");
+		assertMatches("garden", "b");
+	}
+
+	@Test
+	public void testCombinedWildcards() {
+		trie.add("+/kitchen/#", "a");
+		trie.add("home/+/temp", "b");
+		trie.add("home/kitchen/temp", "c");
+
+		assertMatches("home/kitchen/temp", "a", "b", "c");
+		assertMatches("garden/kitchen", "a");
+		assertMatches("home/garden/temp", "b");
+		assertMatches("home/garden");
+	}
+
+	@Test
+	public void testSameValueForSeveralFilters() {
+		trie.add("home/#", "a");
+		trie.add("home/kitchen", "a");
+
+		assertEquals(Arrays.asList("a", "a"), trie.match("home/kitchen"));
+	}
+
+	@Test
+	public void testRemove() {
+		trie.add("home/+/temp", "a");
+		trie.add("home/+/temp", "b");
+		trie.add("home/#", "c");
+
+		assertTrue(trie.remove("home/+/temp", "a"));
+		assertMatches("home/kitchen/temp", "b", "c");
+
+		assertFalse(trie.remove("home/+/temp", "a"));
+		assertFalse(trie.remove("home/kitchen/temp", "b"));
+		assertFalse(trie.remove("garden/#", "c"));
+
+		assertTrue(trie.remove("home/+/temp", "b"));
+		assertTrue(trie.remove("home/#", "c"));
+		assertMatches("home/kitchen/temp");
+		assertMatches("home");
+	}
+
+	@Test
+	public void testAddAfterRemove() {
+		trie.add("home/kitchen/temp", "a");
+		assertTrue(trie.remove("home/kitchen/temp", "a"));
+
+		// the levels which have been removed together with the filter must be created again
+		trie.add("home/kitchen/temp", "b");
+		assertMatches("home/kitchen/temp", "b");
+	}
+
+	@Test
+	public void testRemoveKeepsSharedLevels() {
+		trie.add("home/kitchen", "a");
+		trie.add("home/kitchen/temp", "b");
+
+		assertTrue(trie.remove("home/kitchen/temp", "b"));
+		assertMatches("home/kitchen", "a");
+
+		trie.add("home/kitchen/temp", "b");
+		assertTrue(trie.remove("home/kitchen", "a"));
+		assertMatches("home/kitchen/temp", "b");
+	}
+
+	private void assertMatches(String topic, String... values) {
+		List<String> matches = trie.match(topic);
+		assertEquals(topic, values.length, matches.size());
+		assertEquals(topic, new HashSet<String>(Arrays.asList(values)), new HashSet<String>(matches));
+	}
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt;
+
+/**
+ * Callback interface for message producers which want to be notified when a
+ * message they have handed to the {@link MqttSenderChannel} has been
+ * delivered to the broker or could not be delivered.
+ * 
+ * Callbacks are executed by the publishing thread of the broker connection and
+ * should therefore return quickly.
+ * 
+ * @author agent
+ * @since 1.5.0
+ */
+public interface MqttPublishCallback {
+
+	/**
+	 * Called when the broker has confirmed the delivery of a message.
+	 * 
+	 * @param topic
+	 *            Topic the message has been published to.
+	 * @param payload
+	 *            content of the message.
+	 */
+	public void onSuccess(String topic, byte[] payload);
+
+	/**
+	 * Called when a message could not be delivered, either because publishing
+	 * failed or because the message has been dropped from a full queue.
+	 * 
+	 * @param topic
+	 *            Topic the message should have been published to.
+	 * @param payload
+	 *            content of the message.
+	 * @param error
+	 *            the reason why the message has not been delivered.
+	 */
+	public void onFailure(String topic, byte[] payload, Throwable error);
+
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt;
+
+/**
+ * A snapshot of the statistics of the outbound messages of a single broker
+ * connection.
+ * 
+ * @author agent
+ * @since 1.5.0
+ */
+public class MqttPublishStatistics {
+
+	private final int queueDepth;
+
+	private final int inFlight;
+
+	private final long published;
+
+	private final long failed;
+
+	private final long dropped;
+
+	private final long averageLatency;
+
+	private final long maxLatency;
+
+	public MqttPublishStatistics(int queueDepth, int inFlight, long published, long failed, long dropped,
+			long averageLatency, long maxLatency) {
+		this.queueDepth = queueDepth;
+		this.inFlight = inFlight;
+		this.published = published;
+		this.failed = failed;
+		this.dropped = dropped;
+		this.averageLatency = averageLatency;
+		this.maxLatency = maxLatency;
+	}
+
+	/**
+	 * @return number of messages waiting to be published.
+	 */
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	/**
+	 * @return number of published messages which have not been confirmed yet.
+	 */
+	public int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * @return number of messages which have been delivered to the broker.
+	 */
+	public long getPublished() {
+		return published;
+	}
+
+	/**
+	 * @return number of messages which could not be published.
+	 */
+	public long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return number of messages which have been dropped or replaced because
+	 *         the queue was full.
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @return average time in milliseconds from handing a message to the
+	 *         sender channel until its delivery has been confirmed.
+	 */
+	public long getAverageLatency() {
+		return averageLatency;
+	}
+
+	/**
+	 * @return maximum time in milliseconds from handing a message to the
+	 *         sender channel until its delivery has been confirmed.
+	 */
+	public long getMaxLatency() {
+		return maxLatency;
+	}
+
+	@Override
+	public String toString() {
+		return "queueDepth=" + queueDepth + ", inFlight=" + inFlight + ", published=" + published + ", failed="
+				+ failed + ", dropped=" + dropped + ", averageLatency=" + averageLatency + "ms, maxLatency="
+				+ maxLatency + "ms";
+	}
+
+}
@@ -28,4 +28,20 @@ public interface MqttSenderChannel {
 	 */
 	public void publish(String topic, byte[] message) throws Exception;
 
+	/**
+	 * Send a message to the MQTT broker and get notified about the outcome.
+	 * The message is queued, so this method does not wait for the delivery.
+	 * 
+	 * @param topic
+	 *            Topic to publish the message to.
+	 * @param message
+	 *            message payload.
+	 * @param callback
+	 *            callback which is notified when the message has been
+	 *            delivered or could not be delivered, may be null.
+	 * @throws Exception
+	 *             if an error occurs during sending.
+	 */
+	public void publish(String topic, byte[] message, MqttPublishCallback callback) throws Exception;
+
 }
@@ -15,6 +15,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.events.EventPublisher;
 import org.openhab.io.transport.mqtt.internal.MqttBrokerConnection;
+import org.openhab.io.transport.mqtt.internal.MqttPublishQueue.OverflowPolicy;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
 import org.slf4j.Logger;
@@ -95,6 +96,12 @@ public class MqttService implements ManagedService {
 				conn.setAsync(Boolean.parseBoolean(value));
 			} else if (property.equals("clientId")) {
 				conn.setClientId(value);
+			} else if (property.equals("queueSize")) {
+				conn.setQueueSize(Integer.parseInt(value));
+			} else if (property.equals("inflightWindow")) {
+				conn.setInflightWindow(Integer.parseInt(value));
+			} else if (property.equals("overflowPolicy")) {
+				conn.setOverflowPolicy(parseOverflowPolicy(key, value));
 			} else {
 				logger.warn("Unrecognized property: {}", key);
 			}
@@ -110,6 +117,39 @@ public class MqttService implements ManagedService {
 		}
 	}
 
+	/**
+	 * Parse the name of an overflow policy, e.g. 'dropOldest' or 'DROP_OLDEST'.
+	 * 
+	 * @param key
+	 *            of the property.
+	 * @param value
+	 *            of the property.
+	 * @return the overflow policy.
+	 * @throws ConfigurationException
+	 *             if there is no policy with the given name.
+	 */
+	private OverflowPolicy parseOverflowPolicy(String key, String value) throws ConfigurationException {
+		String name = value.trim().replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+		try {
+			return OverflowPolicy.valueOf(name);
+		} catch (IllegalArgumentException e) {
+			throw new ConfigurationException(key, "'" + value
+					+ "' is not a valid overflow policy, use dropOldest, dropNewest or coalesce");
+		}
+	}
+
+	/**
+	 * Get the statistics about the messages sent to a broker.
+	 * 
+	 * @param brokerName
+	 *            Name of the broker.
+	 * @return the statistics or null if there is no broker with this name.
+	 */
+	public MqttPublishStatistics getPublishStatistics(String brokerName) {
+		MqttBrokerConnection conn = brokerConnections.get(brokerName.toLowerCase());
+		return conn != null ? conn.getPublishStatistics() : null;
+	}
+
 	/**
 	 * Start service.
 	 */
@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 import java.util.Timer;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
@@ -24,14 +25,16 @@ import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttCallback;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
-import org.eclipse.paho.client.mqttv3.MqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.eclipse.paho.client.mqttv3.MqttTopic;
 import org.eclipse.paho.client.mqttv3.persist.MqttDefaultFilePersistence;
 import org.openhab.io.transport.mqtt.MqttMessageConsumer;
 import org.openhab.io.transport.mqtt.MqttMessageProducer;
+import org.openhab.io.transport.mqtt.MqttPublishCallback;
+import org.openhab.io.transport.mqtt.MqttPublishStatistics;
 import org.openhab.io.transport.mqtt.MqttSenderChannel;
+import org.openhab.io.transport.mqtt.internal.MqttPublishQueue.OverflowPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +46,9 @@ import org.slf4j.LoggerFactory;
  * When a connection to an MQTT broker is lost, it will try to reconnect every
  * 60 seconds.
  * 
+ * Outbound messages are queued and published by a thread of the connection,
+ * so that producers never wait for the broker.
+ * 
  * @author Davy Vanherbergen
  * @since 1.3.0
  */
@@ -70,14 +76,22 @@ public class MqttBrokerConnection implements MqttCallback {
 
 	private MqttClient client;
 
-	private boolean started;
+	private volatile boolean started;
+
+	private List<MqttMessageConsumer> consumers = new CopyOnWriteArrayList<MqttMessageConsumer>();
 
-	private List<MqttMessageConsumer> consumers = new ArrayList<MqttMessageConsumer>();
+	/** the consumers by their topics, to find the consumers for a received message */
+	private MqttTopicTrie<MqttMessageConsumer> consumerTopics = new MqttTopicTrie<MqttMessageConsumer>();
 
 	private List<MqttMessageProducer> producers = new ArrayList<MqttMessageProducer>();
 
 	private Timer reconnectTimer;
 
+	/** the maximum number of unconfirmed messages, -1 to derive it from the async setting */
+	private int inflightWindow = -1;
+
+	private final MqttPublishQueue publishQueue;
+
 	/**
 	 * Create a new connection with the given name.
 	 * 
@@ -86,6 +100,24 @@ public class MqttBrokerConnection implements MqttCallback {
 	 */
 	public MqttBrokerConnection(String name) {
 		this.name = name;
+		this.publishQueue = new MqttPublishQueue(name, new MqttPublishQueue.Sender() {
+			@Override
+			public boolean isConnected() {
+				return started && client != null && client.isConnected();
+			}
+
+			@Override
+			public IMqttDeliveryToken publish(String topic, byte[] payload) throws Exception {
+				// Create and configure a message
+				MqttMessage message = new MqttMessage(payload);
+				message.setQos(qos);
+				message.setRetained(retain);
+
+				// publish message asynchronously
+				MqttTopic mqttTopic = client.getTopic(topic);
+				return mqttTopic.publish(message);
+			}
+		});
 	}
 
 	/**
@@ -122,6 +154,9 @@ public class MqttBrokerConnection implements MqttCallback {
 		}
 
 		started = true;
+
+		publishQueue.setInflightWindow(getInflightWindow());
+		publishQueue.start();
 	}
 
 	/**
@@ -242,6 +277,55 @@ public class MqttBrokerConnection implements MqttCallback {
 		this.async = async;
 	}
 
+	/**
+	 * Set the maximum number of published messages for which the confirmation
+	 * of the broker has not been received yet. If not set, the window is 1 for
+	 * synchronous and 10 for asynchronous connections.
+	 * 
+	 * @param inflightWindow
+	 *            maximum number of unconfirmed messages (1-10).
+	 */
+	public void setInflightWindow(int inflightWindow) {
+		this.inflightWindow = Math.min(Math.max(1, inflightWindow), 10);
+	}
+
+	/**
+	 * @return maximum number of unconfirmed messages.
+	 */
+	public int getInflightWindow() {
+		if (inflightWindow > 0) {
+			return inflightWindow;
+		}
+		return async ? 10 : 1;
+	}
+
+	/**
+	 * Set the maximum number of messages which can wait to be published.
+	 * 
+	 * @param queueSize
+	 *            maximum number of queued messages.
+	 */
+	public void setQueueSize(int queueSize) {
+		publishQueue.setCapacity(queueSize);
+	}
+
+	/**
+	 * Set what happens with new messages if the outbound queue is full.
+	 * 
+	 * @param overflowPolicy
+	 *            the policy to use.
+	 */
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		publishQueue.setOverflowPolicy(overflowPolicy);
+	}
+
+	/**
+	 * @return statistics about the messages sent to the broker.
+	 */
+	public MqttPublishStatistics getPublishStatistics() {
+		return publishQueue.getStatistics();
+	}
+
 	/**
 	 * Set client id to use when connecting to the broker. If none is specified,
 	 * a default is generated.
@@ -386,30 +470,19 @@ public class MqttBrokerConnection implements MqttCallback {
 
 			@Override
 			public void publish(String topic, byte[] payload) throws Exception {
+				publish(topic, payload, null);
+			}
+
+			@Override
+			public void publish(String topic, byte[] payload, MqttPublishCallback callback) throws Exception {
 
 				if (!started) {
 					logger.warn("Broker connection not started. Cannot publish message to topic '{}'", topic);
 					return;
 				}
 
-				// Create and configure a message
-				MqttMessage message = new MqttMessage(payload);
-				message.setQos(qos);
-				message.setRetained(retain);
-
-				// publish message asynchronously
-				MqttTopic mqttTopic = client.getTopic(topic);
-				MqttDeliveryToken deliveryToken = mqttTopic.publish(message);
-
-				logger.debug("Publishing message {} to topic '{}'", deliveryToken.getMessageId(), topic);
-				if (!async) {
-					// wait for publish confirmation
-					deliveryToken.waitForCompletion(10000);
-					if (!deliveryToken.isComplete()) {
-						logger.error("Did not receive completion message within timeout limit whilst publishing to topic '{}'", topic);
-					}
-				}
-
+				logger.trace("Queueing message for topic '{}'", topic);
+				publishQueue.add(topic, payload, callback);
 			}
 		});
 
@@ -423,6 +496,7 @@ public class MqttBrokerConnection implements MqttCallback {
 	 */
 	public void addConsumer(MqttMessageConsumer subscriber) {
 		consumers.add(subscriber);
+		consumerTopics.add(subscriber.getTopic(), subscriber);
 		if (started) {
 			startConsumer(subscriber);
 		}
@@ -474,6 +548,7 @@ public class MqttBrokerConnection implements MqttCallback {
 			logger.error("Error unsubscribing topic from broker", e);
 		}
 		consumers.remove(subscriber);
+		consumerTopics.remove(subscriber.getTopic(), subscriber);
 
 	}
 
@@ -490,6 +565,8 @@ public class MqttBrokerConnection implements MqttCallback {
 			logger.error("Error closing connection to broker", e);
 		}
 		started = false;
+		publishQueue.stop();
+		logger.debug("Publish statistics for broker '{}': {}", name, publishQueue.getStatistics());
 	}
 
 	@Override
@@ -497,6 +574,7 @@ public class MqttBrokerConnection implements MqttCallback {
 		logger.error("MQTT connection to broker was lost", t);
 		
 		started = false;
+		publishQueue.connectionLost(t);
 		logger.info("Starting connection helper to periodically try restore connection to broker '{}'", name);
 
 		MqttBrokerConnectionHelper helper = new MqttBrokerConnectionHelper(this);
@@ -509,50 +587,16 @@ public class MqttBrokerConnection implements MqttCallback {
 	@Override
 	public void deliveryComplete(IMqttDeliveryToken token) {
 		logger.trace("Message with id {} delivered.", token.getMessageId());
+		publishQueue.deliveryComplete(token);
 	}
 
 	@Override
 	public void messageArrived(String topic, MqttMessage message) throws Exception {
 
 		logger.trace("Received message on topic '{}' : {}", topic, new String(message.getPayload()));
-		for (MqttMessageConsumer consumer : consumers) {
-			if (isTopicMatch(topic, consumer.getTopic())) {
-				consumer.processMessage(topic, message.getPayload());
-			}
-		}
-	}
-
-	/**
-	 * Check if the topic on which a message was received matches provided
-	 * target topic. The matching will take into account the + and # wildcards.
-	 * 
-	 * @param source
-	 *            topic from received message
-	 * @param target
-	 *            topic as defined with possible wildcards.
-	 * @return true if both topics match.
-	 */
-	private boolean isTopicMatch(String source, String target) {
-		if (source.equals(target)) {
-			return true;
+		for (MqttMessageConsumer consumer : consumerTopics.match(topic)) {
+			consumer.processMessage(topic, message.getPayload());
 		}
-		if (target.indexOf('+') == -1 && target.indexOf('#') == -1) {
-			return false;
-		} else {
-
-			String regex = target;
-			regex = StringUtils.replace(regex, "+", "[^/]*");
-			regex = StringUtils.replace(regex, "#", ".*");
-			boolean result = source.matches(regex);
-			if (result) {
-				logger.trace("Topic match for '{}' and '{}' using regex {}", source, target, regex);
-				return true;
-			} else {
-				logger.trace("No topic match for '{}' and '{}' using regex {}", source, target, regex);
-				return false;
-			}
-		}
-
 	}
 
 }
@@ -0,0 +1,445 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.openhab.io.transport.mqtt.MqttPublishCallback;
+import org.openhab.io.transport.mqtt.MqttPublishStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded queue for the outbound messages of a broker connection. Producers
+ * only put their messages into the queue, a single publishing thread sends
+ * them to the broker, so that producers never wait for the broker.
+ *
+ * The number of messages which have been published but not yet confirmed by
+ * the broker is limited by the in-flight window. A window of 1 delivers the
+ * messages one after the other.
+ *
+ * If the queue is full, the {@link OverflowPolicy} decides which message is
+ * given up.
+ *
+ * The callbacks of the messages are never called while holding the lock of
+ * the queue.
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+public class MqttPublishQueue {
+
+	private static Logger logger = LoggerFactory.getLogger(MqttPublishQueue.class);
+
+	/** the time in milliseconds to wait for the confirmation of a published message */
+	private static final long COMPLETION_TIMEOUT = 10000;
+
+	/**
+	 * Defines what happens with a new message if the queue is full.
+	 */
+	public enum OverflowPolicy {
+		/** the oldest queued message is dropped */
+		DROP_OLDEST,
+		/** the new message is dropped */
+		DROP_NEWEST,
+		/**
+		 * the new message replaces a queued message for the same topic, if
+		 * there is one, otherwise the oldest message is dropped
+		 */
+		COALESCE
+	}
+
+	/**
+	 * The connection to the broker used by the queue.
+	 */
+	public interface Sender {
+
+		/**
+		 * @return true if messages can be published.
+		 */
+		public boolean isConnected();
+
+		/**
+		 * Publish a message without waiting for its delivery.
+		 *
+		 * @return token to track the delivery of the message.
+		 */
+		public IMqttDeliveryToken publish(String topic, byte[] payload) throws Exception;
+	}
+
+	private final String name;
+
+	private final Sender sender;
+
+	private final Object lock = new Object();
+
+	private final LinkedList<PendingMessage> queue = new LinkedList<PendingMessage>();
+
+	/** the most recently queued message per topic, used for coalescing */
+	private final Map<String, PendingMessage> queuedByTopic = new HashMap<String, PendingMessage>();
+
+	private final Map<IMqttDeliveryToken, PendingMessage> inFlight = new IdentityHashMap<IMqttDeliveryToken, PendingMessage>();
+
+	private int capacity = 1000;
+
+	private int inflightWindow = 10;
+
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+	private Thread publishingThread;
+
+	private long published;
+
+	private long failed;
+
+	private long dropped;
+
+	private long totalLatency;
+
+	private long maxLatency;
+
+	/**
+	 * Create a new queue.
+	 *
+	 * @param name
+	 *            of the broker connection.
+	 * @param sender
+	 *            to publish the messages with.
+	 */
+	public MqttPublishQueue(String name, Sender sender) {
+		this.name = name;
+		this.sender = sender;
+	}
+
+	/**
+	 * Set the maximum number of queued messages.
+	 */
+	public void setCapacity(int capacity) {
+		synchronized (lock) {
+			this.capacity = Math.max(1, capacity);
+		}
+	}
+
+	/**
+	 * Set the maximum number of published messages which have not been
+	 * confirmed yet.
+	 */
+	public void setInflightWindow(int inflightWindow) {
+		synchronized (lock) {
+			this.inflightWindow = Math.max(1, inflightWindow);
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Set what happens with new messages if the queue is full.
+	 */
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		synchronized (lock) {
+			this.overflowPolicy = overflowPolicy;
+		}
+	}
+
+	/**
+	 * Start the publishing thread, if it is not running yet.
+	 */
+	public void start() {
+		synchronized (lock) {
+			if (publishingThread != null) {
+				return;
+			}
+			publishingThread = new Thread("MQTT publisher '" + name + "'") {
+				@Override
+				public void run() {
+					publishMessages(this);
+				}
+			};
+			publishingThread.setDaemon(true);
+			publishingThread.start();
+		}
+	}
+
+	/**
+	 * Stop the publishing thread. Queued messages are kept until the queue is
+	 * started again.
+	 */
+	public void stop() {
+		synchronized (lock) {
+			publishingThread = null;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Add a message to the queue.
+	 *
+	 * @param topic
+	 *            Topic to publish the message to.
+	 * @param payload
+	 *            message payload.
+	 * @param callback
+	 *            to notify about the outcome, may be null.
+	 */
+	public void add(String topic, byte[] payload, MqttPublishCallback callback) {
+		PendingMessage message = new PendingMessage(topic, payload, callback);
+		PendingMessage droppedMessage = null;
+		synchronized (lock) {
+			if (queue.size() >= capacity) {
+				dropped++;
+				if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+					droppedMessage = message;
+					message = null;
+				} else if (overflowPolicy == OverflowPolicy.COALESCE && queuedByTopic.containsKey(topic)) {
+					PendingMessage queued = queuedByTopic.get(topic);
+					droppedMessage = new PendingMessage(queued.topic, queued.payload, queued.callback);
+					queued.replace(message);
+					message = null;
+				} else {
+					droppedMessage = queue.removeFirst();
+					unregisterTopic(droppedMessage);
+				}
+			}
+			if (message != null) {
+				queue.addLast(message);
+				queuedByTopic.put(topic, message);
+				lock.notifyAll();
+			}
+		}
+		if (droppedMessage != null) {
+			logger.warn("Outbound queue of broker '{}' is full, dropping message for topic '{}'", name,
+					droppedMessage.topic);
+			droppedMessage.fail(new IllegalStateException("Message dropped, the outbound queue is full"));
+		}
+	}
+
+	/**
+	 * Notify the queue that the broker has confirmed the delivery of a
+	 * message.
+	 *
+	 * @param token
+	 *            of the delivered message.
+	 */
+	public void deliveryComplete(IMqttDeliveryToken token) {
+		PendingMessage message;
+		synchronized (lock) {
+			message = inFlight.remove(token);
+			lock.notifyAll();
+		}
+		if (message != null) {
+			complete(message, token);
+		}
+	}
+
+	/**
+	 * Notify the queue that the connection has been lost. The messages in
+	 * flight are kept, as the client delivers them again once it has
+	 * reconnected. The timeout for their confirmation starts again when the
+	 * connection is back.
+	 *
+	 * @param cause
+	 *            why the connection has been lost.
+	 */
+	public void connectionLost(Throwable cause) {
+		synchronized (lock) {
+			if (!inFlight.isEmpty()) {
+				logger.debug("Connection of broker '{}' lost with {} messages in flight, waiting for their redelivery",
+						name, inFlight.size());
+			}
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * @return a snapshot of the statistics of this queue.
+	 */
+	public MqttPublishStatistics getStatistics() {
+		synchronized (lock) {
+			return new MqttPublishStatistics(queue.size(), inFlight.size(), published, failed, dropped,
+					published > 0 ? totalLatency / published : 0, maxLatency);
+		}
+	}
+
+	private void publishMessages(Thread thread) {
+		logger.debug("Publishing thread for broker '{}' started", name);
+		while (true) {
+			PendingMessage message = null;
+			List<PendingMessage> expired;
+			synchronized (lock) {
+				if (publishingThread != thread) {
+					logger.debug("Publishing thread for broker '{}' stopped", name);
+					return;
+				}
+				// the callbacks of expired messages are called before waiting, without holding the lock
+				expired = expireInFlightMessages();
+				if (expired.isEmpty()) {
+					if (queue.isEmpty() || inFlight.size() >= inflightWindow || !sender.isConnected()) {
+						try {
+							lock.wait(1000);
+						} catch (InterruptedException e) {
+							return;
+						}
+					} else {
+						message = queue.removeFirst();
+						unregisterTopic(message);
+					}
+				}
+			}
+			for (PendingMessage expiredMessage : expired) {
+				expiredMessage.fail(new IllegalStateException("No completion message received within timeout"));
+			}
+			if (message != null) {
+				publish(message);
+			}
+		}
+	}
+
+	private void publish(PendingMessage message) {
+		try {
+			IMqttDeliveryToken token = sender.publish(message.topic, message.payload);
+			logger.debug("Publishing message {} to topic '{}'", token.getMessageId(), message.topic);
+			message.publishTime = System.currentTimeMillis();
+			boolean complete;
+			synchronized (lock) {
+				// the confirmation might have arrived already
+				complete = token.isComplete();
+				if (!complete) {
+					inFlight.put(token, message);
+				}
+			}
+			if (complete) {
+				complete(message, token);
+			}
+		} catch (Exception e) {
+			logger.error("Error publishing message to topic '" + message.topic + "'", e);
+			synchronized (lock) {
+				failed++;
+			}
+			message.fail(e);
+		}
+	}
+
+	private void complete(PendingMessage message, IMqttDeliveryToken token) {
+		if (token.getException() != null) {
+			synchronized (lock) {
+				failed++;
+			}
+			message.fail(token.getException());
+		} else {
+			long latency = System.currentTimeMillis() - message.queueTime;
+			synchronized (lock) {
+				published++;
+				totalLatency += latency;
+				maxLatency = Math.max(maxLatency, latency);
+			}
+			message.succeed();
+		}
+	}
+
+	/**
+	 * @return the time in milliseconds to wait for the confirmation of a
+	 *         published message.
+	 */
+	long getCompletionTimeout() {
+		return COMPLETION_TIMEOUT;
+	}
+
+	/**
+	 * Give up messages which have not been confirmed within the timeout, so
+	 * that they do not block the in-flight window forever. While there is no
+	 * connection, the timeout is started again, as the messages are delivered
+	 * again after reconnecting. Must be called while holding the lock.
+	 *
+	 * @return the messages which have been given up, whose callbacks still
+	 *         have to be called.
+	 */
+	private List<PendingMessage> expireInFlightMessages() {
+		List<PendingMessage> expired = new ArrayList<PendingMessage>();
+		long now = System.currentTimeMillis();
+		boolean connected = sender.isConnected();
+		Iterator<PendingMessage> iterator = inFlight.values().iterator();
+		while (iterator.hasNext()) {
+			PendingMessage message = iterator.next();
+			if (!connected) {
+				message.publishTime = now;
+			} else if (now - message.publishTime > getCompletionTimeout()) {
+				logger.error("Did not receive completion message within timeout limit whilst publishing to topic '{}'",
+						message.topic);
+				iterator.remove();
+				failed++;
+				expired.add(message);
+			}
+		}
+		return expired;
+	}
+
+	private void unregisterTopic(PendingMessage message) {
+		if (queuedByTopic.get(message.topic) == message) {
+			queuedByTopic.remove(message.topic);
+		}
+	}
+
+	/**
+	 * A message which waits to be published or to be confirmed.
+	 */
+	private static class PendingMessage {
+
+		private final String topic;
+
+		private byte[] payload;
+
+		private MqttPublishCallback callback;
+
+		private long queueTime = System.currentTimeMillis();
+
+		private long publishTime;
+
+		public PendingMessage(String topic, byte[] payload, MqttPublishCallback callback) {
+			this.topic = topic;
+			this.payload = payload;
+			this.callback = callback;
+		}
+
+		/**
+		 * Take over the content of a newer message for the same topic.
+		 */
+		private void replace(PendingMessage message) {
+			payload = message.payload;
+			callback = message.callback;
+			queueTime = message.queueTime;
+		}
+
+		private void succeed() {
+			if (callback != null) {
+				try {
+					callback.onSuccess(topic, payload);
+				} catch (Exception e) {
+					logger.warn("Publish callback for topic '{}' failed: {}", topic, e.getMessage());
+				}
+			}
+		}
+
+		private void fail(Throwable error) {
+			if (callback != null) {
+				try {
+					callback.onFailure(topic, payload, error);
+				} catch (Exception e) {
+					logger.warn("Publish callback for topic '{}' failed: {}", topic, e.getMessage());
+				}
+			}
+		}
+	}
+
+}
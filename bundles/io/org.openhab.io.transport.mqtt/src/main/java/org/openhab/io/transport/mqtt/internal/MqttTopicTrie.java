@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.transport.mqtt.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A trie of topic filters, which finds all values registered for filters
+ * matching a topic by walking down the levels of the topic once, instead of
+ * checking every filter on its own.
+ *
+ * Filters may contain the MQTT wildcards '+', which matches exactly one level,
+ * and '#', which must be the last level and matches its parent level and any
+ * number of sub levels.
+ *
+ * The trie can be safely used by several threads.
+ *
+ * @param <T>
+ *            the type of values registered for the topic filters
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+public class MqttTopicTrie<T> {
+
+	private static final String LEVEL_SEPARATOR = "/";
+
+	private static final String SINGLE_LEVEL_WILDCARD = "+";
+
+	private static final String MULTI_LEVEL_WILDCARD = "#";
+
+	private final Node<T> root = new Node<T>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Register a value for a topic filter.
+	 *
+	 * @param filter
+	 *            topic filter, which may contain + or # wildcards.
+	 * @param value
+	 *            to register.
+	 */
+	public void add(String filter, T value) {
+		lock.writeLock().lock();
+		try {
+			Node<T> node = root;
+			for (String level : split(filter)) {
+				Node<T> child = node.children.get(level);
+				if (child == null) {
+					child = new Node<T>();
+					node.children.put(level, child);
+				}
+				node = child;
+			}
+			node.values.add(value);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove a value which has been registered for a topic filter. Levels which
+	 * are not used by any other filter anymore are removed as well.
+	 *
+	 * @param filter
+	 *            topic filter the value has been registered for.
+	 * @param value
+	 *            to remove.
+	 * @return true if the value has been registered for the filter.
+	 */
+	public boolean remove(String filter, T value) {
+		lock.writeLock().lock();
+		try {
+			return remove(root, split(filter), 0, value);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Find all values registered for filters which match the given topic.
+	 *
+	 * @param topic
+	 *            topic of a received message, without any wildcards.
+	 * @return the matching values, an empty list if there are none.
+	 */
+	public List<T> match(String topic) {
+		List<T> matches = new ArrayList<T>();
+		lock.readLock().lock();
+		try {
+			match(root, split(topic), 0, matches);
+		} finally {
+			lock.readLock().unlock();
+		}
+		return matches;
+	}
+
+	private boolean remove(Node<T> node, String[] levels, int depth, T value) {
+		if (depth == levels.length) {
+			return node.values.remove(value);
+		}
+		Node<T> child = node.children.get(levels[depth]);
+		if (child == null) {
+			return false;
+		}
+		boolean removed = remove(child, levels, depth + 1, value);
+		if (child.isEmpty()) {
+			node.children.remove(levels[depth]);
+		}
+		return removed;
+	}
+
+	private void match(Node<T> node, String[] levels, int depth, List<T> matches) {
+		// a multi level wildcard also matches its parent level
+		Node<T> multiLevel = node.children.get(MULTI_LEVEL_WILDCARD);
+		if (multiLevel != null) {
+			matches.addAll(multiLevel.values);
+		}
+		if (depth == levels.length) {
+			matches.addAll(node.values);
+			return;
+		}
+		Node<T> exact = node.children.get(levels[depth]);
+		if (exact != null) {
+			match(exact, levels, depth + 1, matches);
+		}
+		Node<T> singleLevel = node.children.get(SINGLE_LEVEL_WILDCARD);
+		if (singleLevel != null && singleLevel != exact) {
+			match(singleLevel, levels, depth + 1, matches);
+		}
+	}
+
+	private static String[] split(String topic) {
+		// keep empty levels, as 'a//b' and 'a/b' are different topics
+		return topic.split(LEVEL_SEPARATOR, -1);
+	}
+
+	/**
+	 * A single topic level with the values registered for filters ending at
+	 * this level.
+	 */
+	private static class Node<T> {
+
+		private final Map<String, Node<T>> children = new HashMap<String, Node<T>>();
+
+		private final List<T> values = new ArrayList<T>();
+
+		private boolean isEmpty() {
+			return children.isEmpty() && values.isEmpty();
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.core.internal.folder;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.emf.ecore.EObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.config.core.ConfigConstants;
+import org.openhab.model.core.ModelRepository;
+import org.openhab.model.core.ModelRepositoryChangeListener;
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class FolderObserverTest {
+
+	private File configFolder;
+
+	private FolderObserver observer;
+
+	@Before
+	public void init() throws Exception {
+		configFolder = File.createTempFile("openhab", "config");
+		configFolder.delete();
+		new File(configFolder, "items").mkdirs();
+		System.setProperty(ConfigConstants.CONFIG_DIR_PROG_ARGUMENT, configFolder.getAbsolutePath());
+	}
+
+	@After
+	public void cleanUp() throws Exception {
+		if(observer!=null) {
+			observer.interrupt();
+			observer.join(5000);
+		}
+		System.clearProperty(ConfigConstants.CONFIG_DIR_PROG_ARGUMENT);
+		FileUtils.deleteDirectory(configFolder);
+	}
+
+	@Test
+	public void testExistingFilesAreLoadedOnStartupInWatchMode() throws Exception {
+		assumeTrue(FolderObserver.isWatchServiceAvailable() && !Boolean.getBoolean("openhab.folderobserver.polling"));
+		FileUtils.writeStringToFile(new File(configFolder, "items/demo.items"), "Switch Light");
+
+		TestModelRepository modelRepository = new TestModelRepository(1);
+		observer = new FolderObserver();
+		observer.setModelRepository(modelRepository);
+		Hashtable<String, String> config = new Hashtable<String, String>();
+		config.put("items", "10,items");
+		observer.updated(config);
+
+		assertTrue(modelRepository.added.await(5, TimeUnit.SECONDS));
+		assertTrue(modelRepository.modelNames.contains("demo.items"));
+	}
+
+	@Test
+	public void testFoldersWhichCannotBeWatchedArePolled() throws Exception {
+		assumeTrue(FolderObserver.isWatchServiceAvailable() && !Boolean.getBoolean("openhab.folderobserver.polling"));
+		FileUtils.writeStringToFile(new File(configFolder, "items/demo.items"), "Switch Light");
+
+		TestModelRepository modelRepository = new TestModelRepository(2);
+		observer = new FolderObserver() {
+			@Override
+			void watchFolder(String foldername, File folder) throws IOException {
+				throw new IOException("not supported");
+			}
+		};
+		observer.setModelRepository(modelRepository);
+		Hashtable<String, String> config = new Hashtable<String, String>();
+		config.put("items", "1,items");
+		observer.updated(config);
+
+		// the new file is only found by polling the folder
+		FileUtils.writeStringToFile(new File(configFolder, "items/other.items"), "Switch Fan");
+		assertTrue(modelRepository.added.await(5, TimeUnit.SECONDS));
+		assertTrue(modelRepository.modelNames.contains("other.items"));
+	}
+
+	private static class TestModelRepository implements ModelRepository {
+
+		final CountDownLatch added;
+		final Set<String> modelNames = Collections.synchronizedSet(new HashSet<String>());
+
+		TestModelRepository(int count) {
+			added = new CountDownLatch(count);
+		}
+
+		public EObject getModel(String name) {
+			return null;
+		}
+
+		public boolean addOrRefreshModel(String name, InputStream inputStream) {
+			modelNames.add(name);
+			added.countDown();
+			return true;
+		}
+
+		public boolean removeModel(String name) {
+			return modelNames.remove(name);
+		}
+
+		public Iterable<String> getAllModelNamesOfType(String modelType) {
+			return modelNames;
+		}
+
+		public void addModelRepositoryChangeListener(ModelRepositoryChangeListener listener) {
+		}
+
+		public void removeModelRepositoryChangeListener(ModelRepositoryChangeListener listener) {
+		}
+	}
+
+}
@@ -8,8 +8,12 @@
  */
 package org.openhab.model.core.internal.folder;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Dictionary;
 import java.util.Enumeration;
@@ -34,6 +38,15 @@ import org.slf4j.LoggerFactory;
  * last modified date in a configurable frequency and notifies the model repository
  * about every change, so that it can update itself.
  * 
+ * If the JVM supports it, the folders are not polled, but watched through a
+ * {@link FolderWatcher}, which reports changes as soon as they happen. Folders
+ * which cannot be watched are still polled. Polling can be enforced by setting the
+ * system property "openhab.folderobserver.polling" to true, e.g. for folders on
+ * network shares.
+ * 
+ * Files are only passed to the model repository if their content has actually
+ * changed, so that saving an unchanged file does not cause the model to be reparsed.
+ * 
  * This logic is run as a separate thread, so that it can always detect changes.
  * 
  * @author Kai Kreuzer
@@ -57,6 +70,18 @@ public class FolderObserver extends Thread implements ManagedService {
 	/* map that remembers all filenames of the last check, so that it can detect file deletions */
 	private Map<String, Set<String>> lastFileNames = new ConcurrentHashMap<String, Set<String>>();
 
+	/* map that stores the hash of the content of a filename, which has been passed to the model repository */
+	private Map<String, byte[]> fileHashes = new ConcurrentHashMap<String, byte[]>();
+
+	/* the time in milliseconds to wait for changes in watch mode, before checking whether to stop */
+	private static final long WATCH_TIMEOUT = 10000L;
+
+	/* the watcher of the folders or null, if the folders are polled */
+	private FolderWatcher watcher = null;
+
+	/* map that stores the time of the next refresh in milliseconds for each folder, which is polled although there is a watcher */
+	private final Map<String, Long> polledFolders = new ConcurrentHashMap<String, Long>();
+
 	/* the greatest common divisor of all folder refresh rates */
 	private int gcdRefresh = 1;
 	
@@ -72,8 +97,30 @@ public class FolderObserver extends Thread implements ManagedService {
 	
 	public FolderObserver() {
 		super("FolderObserver");
+		if(!Boolean.getBoolean("openhab.folderobserver.polling") && isWatchServiceAvailable()) {
+			try {
+				watcher = new FolderWatcher();
+			} catch (IOException e) {
+				logger.warn("Cannot watch folders for changes, falling back to polling: {}", e.getMessage());
+			}
+		}
 	}
 	
+	/**
+	 * Checks whether the JVM provides the WatchService, without which the
+	 * {@link FolderWatcher} cannot be loaded.
+	 *
+	 * @return true, if folders can be watched
+	 */
+	static boolean isWatchServiceAvailable() {
+		try {
+			Class.forName("java.nio.file.WatchService");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
 	public void setModelRepository(ModelRepository modelRepo) {
 		this.modelRepo = modelRepo;
 	}
@@ -84,6 +131,67 @@ public class FolderObserver extends Thread implements ManagedService {
 
 	@Override
 	public void run() {
+		if(watcher!=null) {
+			watchFolders();
+		} else {
+			pollFolders();
+		}
+	}
+
+	private void watchFolders() {
+		// the watcher only reports changes, so the files which are already there have to be loaded first
+		for(String foldername : folderRefreshMap.keySet()) {
+			try {
+				logger.debug("Refreshing folder '{}'", foldername);
+				checkFolder(foldername);
+			} catch(Throwable e) {
+				logger.error("An unexpected exception has occured", e);
+			}
+		}
+		while(!folderRefreshMap.isEmpty()) { // keep the thread running as long as there are folders to observe
+			try {
+				long timeout = pollUnwatchedFolders();
+				for(String foldername : watcher.awaitChanges(timeout)) {
+					if(folderRefreshMap.containsKey(foldername)) {
+						logger.debug("Refreshing folder '{}'", foldername);
+						checkFolder(foldername);
+					}
+				}
+			} catch (InterruptedException e) {
+				break;
+			} catch(Throwable e) {
+				logger.error("An unexpected exception has occured", e);
+			}
+		}
+	}
+
+	/**
+	 * Refreshes the folders which could not be watched, if their refresh is due.
+	 * 
+	 * @return the time in milliseconds until the next refresh is due
+	 */
+	private long pollUnwatchedFolders() {
+		long timeout = WATCH_TIMEOUT;
+		for(Map.Entry<String, Long> entry : polledFolders.entrySet()) {
+			String foldername = entry.getKey();
+			Integer refreshValue = folderRefreshMap.get(foldername);
+			if(refreshValue==null) {
+				continue;
+			}
+			long now = System.currentTimeMillis();
+			long nextRefresh = entry.getValue();
+			if(nextRefresh <= now) {
+				logger.debug("Refreshing folder '{}'", foldername);
+				checkFolder(foldername);
+				nextRefresh = now + refreshValue * 1000L;
+				polledFolders.put(foldername, nextRefresh);
+			}
+			timeout = Math.min(timeout, nextRefresh - now);
+		}
+		return Math.max(1, timeout);
+	}
+
+	private void pollFolders() {
 		while(!folderRefreshMap.isEmpty()) { // keep the thread running as long as there are folders to observe
 			try {
 				for(String foldername : folderRefreshMap.keySet()) {
@@ -115,7 +223,7 @@ public class FolderObserver extends Thread implements ManagedService {
 		}
 	}
 	
-	private void checkFolder(String foldername) {
+	private synchronized void checkFolder(String foldername) {
 		File folder = getFolder(foldername);
 		if(!folder.exists()) {
 			return;
@@ -139,8 +247,17 @@ public class FolderObserver extends Thread implements ManagedService {
 			if(FileUtils.isFileNewer(file, timeLastCheck)) {
 				if(modelRepo!=null) {
 					try {
-						if(modelRepo.addOrRefreshModel(file.getName(), FileUtils.openInputStream(file))) {
-							lastCheckedMap.put(file.getName(), new Date().getTime());							
+						long checkTime = new Date().getTime();
+						byte[] content = FileUtils.readFileToByteArray(file);
+						byte[] hash = hash(content);
+						if(hash!=null && Arrays.equals(hash, fileHashes.get(file.getName()))) {
+							logger.debug("File '{}' has not changed its content", file.getName());
+							lastCheckedMap.put(file.getName(), checkTime);
+						} else if(modelRepo.addOrRefreshModel(file.getName(), new ByteArrayInputStream(content))) {
+							lastCheckedMap.put(file.getName(), checkTime);
+							if(hash!=null) {
+								fileHashes.put(file.getName(), hash);
+							}
 						}
 					} catch (IOException e) {
 						logger.warn("Cannot open file '"+ file.getAbsolutePath() + "' for reading.", e);
@@ -154,6 +271,7 @@ public class FolderObserver extends Thread implements ManagedService {
 			for(String fileName : lastFileNames.get(foldername)) {
 				if(!currentFileNames.contains(fileName)) {
 					logger.info("File '{}' has been deleted", fileName);
+					fileHashes.remove(fileName);
 					if(modelRepo!=null) {
 						modelRepo.removeModel(fileName);
 					}
@@ -163,6 +281,15 @@ public class FolderObserver extends Thread implements ManagedService {
 		lastFileNames.put(foldername, currentFileNames);
 	}
 
+	private byte[] hash(byte[] content) {
+		try {
+			return MessageDigest.getInstance("MD5").digest(content);
+		} catch (NoSuchAlgorithmException e) {
+			// without a hash, every change of the file is passed to the model repository
+			return null;
+		}
+	}
+
 	private String getExtension(String filename) {
 		String fileExt = filename.substring(filename.lastIndexOf(".") + 1);
 		return fileExt;
@@ -174,8 +301,13 @@ public class FolderObserver extends Thread implements ManagedService {
 			// make sure to clear the caches first
 			lastFileNames.clear();
 			lastCheckedMap.clear();
+			fileHashes.clear();
 			folderFileExtMap.clear();
 			folderRefreshMap.clear();
+			polledFolders.clear();
+			if(watcher!=null) {
+				watcher.cancelAll();
+			}
 			
 			Enumeration keys = config.keys();
 			while (keys.hasMoreElements()) {
@@ -190,6 +322,14 @@ public class FolderObserver extends Thread implements ManagedService {
 						folderFileExtMap.put(foldername, fileExts);
 						if (refreshValue > 0) {
 							folderRefreshMap.put(foldername, refreshValue);
+							if(watcher!=null) {
+								try {
+									watchFolder(foldername, folder);
+								} catch (IOException e) {
+									logger.warn("Cannot watch folder '{}' for changes, falling back to polling: {}", foldername, e.getMessage());
+									polledFolders.put(foldername, System.currentTimeMillis() + refreshValue * 1000L);
+								}
+							}
 							if(!this.isAlive()) {
 								// seems we have the first folder to observe, so let's start the thread
 								this.start();
@@ -229,6 +369,17 @@ public class FolderObserver extends Thread implements ManagedService {
 		}
 	}
 
+	/**
+	 * Registers a folder at the watcher.
+	 * 
+	 * @param foldername the name of the folder
+	 * @param folder the folder to watch
+	 * @throws IOException if the folder cannot be watched
+	 */
+	void watchFolder(String foldername, File folder) throws IOException {
+		watcher.watch(foldername, folder);
+	}
+
 	/**
 	 * returns the {@link File} object for a given foldername
 	 * @param foldername the foldername to get the {@link File} for
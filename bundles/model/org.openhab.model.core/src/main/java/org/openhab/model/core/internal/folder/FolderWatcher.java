@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.core.internal.folder;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class uses a {@link WatchService} to get notified about changes in the
+ * observed folders, so that the {@link FolderObserver} does not have to poll them.
+ * <p>Editors often write a file in several steps, so events are debounced:
+ * a change is only reported once no further events have arrived for a short time.</p>
+ * <p>As the {@link WatchService} requires Java 7, this class must only be
+ * loaded if the JVM provides it, which the {@link FolderObserver} checks before
+ * creating a watcher.</p>
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+public class FolderWatcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(FolderWatcher.class);
+
+	/* the time in milliseconds without further events, after which changes are reported */
+	private static final long DEBOUNCE_TIME = 500L;
+
+	/* the maximum time in milliseconds changes are held back, if events keep arriving */
+	private static final long MAX_DEBOUNCE_TIME = 5000L;
+
+	private final WatchService watchService;
+
+	/* map that stores the foldername for each registered watch key */
+	private final Map<WatchKey, String> folderNames = new ConcurrentHashMap<WatchKey, String>();
+
+	public FolderWatcher() throws IOException {
+		this.watchService = FileSystems.getDefault().newWatchService();
+	}
+
+	/**
+	 * Starts watching a folder for created, modified and deleted files.
+	 *
+	 * @param foldername the name of the folder to report changes for
+	 * @param folder the folder to watch
+	 * @throws IOException if the folder cannot be watched
+	 */
+	public void watch(String foldername, File folder) throws IOException {
+		WatchKey key = folder.toPath().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+		folderNames.put(key, foldername);
+		logger.debug("Watching folder '{}' for changes", foldername);
+	}
+
+	/**
+	 * Stops watching all folders.
+	 */
+	public void cancelAll() {
+		for(WatchKey key : folderNames.keySet()) {
+			key.cancel();
+		}
+		folderNames.clear();
+	}
+
+	/**
+	 * Waits for changes in the watched folders.
+	 *
+	 * @param timeout the maximum time in milliseconds to wait for a first event
+	 * @return the names of all folders with changes, an empty set if there have been none
+	 * @throws InterruptedException if the thread has been interrupted while waiting
+	 */
+	public Set<String> awaitChanges(long timeout) throws InterruptedException {
+		Set<String> changedFolders = new HashSet<String>();
+		try {
+			WatchKey key = watchService.poll(timeout, TimeUnit.MILLISECONDS);
+			long firstEvent = System.currentTimeMillis();
+			while(key!=null) {
+				String foldername = folderNames.get(key);
+				if(!key.pollEvents().isEmpty() && foldername!=null) {
+					changedFolders.add(foldername);
+				}
+				if(!key.reset()) {
+					// the folder is not accessible anymore
+					folderNames.remove(key);
+				}
+				if(System.currentTimeMillis() - firstEvent > MAX_DEBOUNCE_TIME) {
+					break;
+				}
+				key = watchService.poll(DEBOUNCE_TIME, TimeUnit.MILLISECONDS);
+			}
+		} catch(ClosedWatchServiceException e) {
+			logger.debug("Watch service has been closed");
+		}
+		return changedFolders;
+	}
+
+}
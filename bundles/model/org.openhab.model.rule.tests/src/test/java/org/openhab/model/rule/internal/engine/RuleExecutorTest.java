@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.xtext.xbase.interpreter.IEvaluationContext;
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.core.scriptengine.Script;
+import org.openhab.model.rule.rules.Rule;
+import org.openhab.model.rule.rules.RulesFactory;
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+@SuppressWarnings("restriction")
+public class RuleExecutorTest {
+
+	private RuleExecutor executor;
+
+	@After
+	public void shutdown() {
+		if(executor!=null) {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testRulesAreExecutedAndMeasured() throws InterruptedException {
+		executor = new RuleExecutor(2, 10, false);
+		Rule rule = createRule("test");
+		TestScript script = new TestScript(3);
+		for(int i = 0; i < 3; i++) {
+			executor.execute(rule, script, null);
+		}
+		assertTrue(script.executed.await(5, TimeUnit.SECONDS));
+		waitForExecutions(executor, "test", 3);
+		assertEquals(3, executor.getStatistics().get("test").getExecutionCount());
+	}
+
+	@Test
+	public void testFullQueueIsExecutedByTheCallingThread() throws InterruptedException {
+		executor = new RuleExecutor(1, 1, false);
+		Rule rule = createRule("test");
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingScript blocking = new BlockingScript(release);
+		TestScript queued = new TestScript(1);
+		TestScript overflowing = new TestScript(1);
+
+		executor.execute(rule, blocking, null);
+		assertTrue(blocking.started.await(5, TimeUnit.SECONDS));
+		// the first one fills the queue, the second one overflows
+		executor.execute(rule, queued, null);
+		executor.execute(rule, overflowing, null);
+		assertEquals(0, overflowing.executed.getCount());
+		assertEquals(Thread.currentThread(), overflowing.threads.get(0));
+		assertEquals(1, executor.getOverflowCount());
+
+		release.countDown();
+		assertTrue(queued.executed.await(5, TimeUnit.SECONDS));
+		assertFalse(queued.threads.contains(Thread.currentThread()));
+	}
+
+	@Test
+	public void testSerializedExecutionsKeepTheirOrder() throws InterruptedException {
+		executor = new RuleExecutor(4, 10, true);
+		Rule rule = createRule("test");
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingScript blocking = new BlockingScript(release);
+		TestScript script = new TestScript(3);
+
+		executor.execute(rule, blocking, null);
+		assertTrue(blocking.started.await(5, TimeUnit.SECONDS));
+		for(int i = 0; i < 3; i++) {
+			executor.execute(rule, script.withId(i), null);
+		}
+		// the pool has idle threads, but the executions have to wait for the first one
+		assertEquals(3, script.executed.getCount());
+
+		release.countDown();
+		assertTrue(script.executed.await(5, TimeUnit.SECONDS));
+		assertEquals(1, script.maxConcurrency.get());
+		assertEquals("[0, 1, 2]", script.order.toString());
+	}
+
+	@Test
+	public void testPendingExecutionsAreHandedOverOnShutdown() throws InterruptedException {
+		executor = new RuleExecutor(2, 10, true);
+		RuleExecutor successor = new RuleExecutor(2, 10, true);
+		Rule rule = createRule("test");
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingScript blocking = new BlockingScript(release);
+		TestScript script = new TestScript(2);
+
+		executor.execute(rule, blocking, null);
+		assertTrue(blocking.started.await(5, TimeUnit.SECONDS));
+		executor.execute(rule, script, null);
+		executor.execute(rule, script, null);
+		executor.shutdown(successor);
+
+		release.countDown();
+		assertTrue(script.executed.await(5, TimeUnit.SECONDS));
+		waitForExecutions(successor, "test", 2);
+		assertEquals(2, successor.getStatistics().get("test").getExecutionCount());
+		successor.shutdown();
+	}
+
+	private static Rule createRule(String name) {
+		Rule rule = RulesFactory.eINSTANCE.createRule();
+		rule.setName(name);
+		return rule;
+	}
+
+	/**
+	 * The statistics are recorded after the script has returned, so we have to wait for them.
+	 */
+	private static void waitForExecutions(RuleExecutor executor, String ruleName, int count) throws InterruptedException {
+		for(int i = 0; i < 250; i++) {
+			RuleExecutor.RuleStatistics statistics = executor.getStatistics().get(ruleName);
+			if(statistics!=null && statistics.getExecutionCount() >= count) {
+				return;
+			}
+			Thread.sleep(20);
+		}
+	}
+
+	/**
+	 * Records the threads, the order and the concurrency of its executions.
+	 */
+	private static class TestScript implements Script {
+
+		final CountDownLatch executed;
+		final List<Thread> threads;
+		final List<Integer> order;
+		final AtomicInteger concurrency;
+		final AtomicInteger maxConcurrency;
+		private final int id;
+
+		TestScript(int count) {
+			this(new CountDownLatch(count), new CopyOnWriteArrayList<Thread>(), new CopyOnWriteArrayList<Integer>(),
+					new AtomicInteger(), new AtomicInteger(), 0);
+		}
+
+		private TestScript(CountDownLatch executed, List<Thread> threads, List<Integer> order,
+				AtomicInteger concurrency, AtomicInteger maxConcurrency, int id) {
+			this.executed = executed;
+			this.threads = threads;
+			this.order = order;
+			this.concurrency = concurrency;
+			this.maxConcurrency = maxConcurrency;
+			this.id = id;
+		}
+
+		/**
+		 * @return a script with the given id, which records to the same lists as this one
+		 */
+		TestScript withId(int id) {
+			return new TestScript(executed, threads, order, concurrency, maxConcurrency, id);
+		}
+
+		public Object execute() {
+			return execute(null);
+		}
+
+		public Object execute(IEvaluationContext evaluationContext) {
+			int current = concurrency.incrementAndGet();
+			synchronized(maxConcurrency) {
+				maxConcurrency.set(Math.max(maxConcurrency.get(), current));
+			}
+			threads.add(Thread.currentThread());
+			order.add(id);
+			try {
+				// give concurrent executions the chance to overlap
+				Thread.sleep(10);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			concurrency.decrementAndGet();
+			executed.countDown();
+			return null;
+		}
+	}
+
+	private static class BlockingScript implements Script {
+
+		final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch release;
+
+		BlockingScript(CountDownLatch release) {
+			this.release = release;
+		}
+
+		public Object execute() {
+			return execute(null);
+		}
+
+		public Object execute(IEvaluationContext evaluationContext) {
+			started.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return null;
+		}
+	}
+
+}
@@ -18,10 +18,15 @@ import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerT
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.xtext.naming.QualifiedName;
+import org.openhab.core.events.ItemEvent;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -31,7 +36,6 @@ import org.openhab.core.items.StateChangeListener;
 import org.openhab.core.scriptengine.Script;
 import org.openhab.core.scriptengine.ScriptEngine;
 import org.openhab.core.scriptengine.ScriptExecutionException;
-import org.openhab.core.scriptengine.ScriptExecutionThread;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.EventType;
 import org.openhab.core.types.State;
@@ -39,6 +43,8 @@ import org.openhab.model.core.ModelRepository;
 import org.openhab.model.core.ModelRepositoryChangeListener;
 import org.openhab.model.rule.rules.Rule;
 import org.openhab.model.rule.rules.RuleModel;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -57,18 +63,31 @@ import com.google.common.collect.Lists;
  *
  */
 @SuppressWarnings("restriction")
-public class RuleEngine implements EventHandler, ItemRegistryChangeListener, StateChangeListener, ModelRepositoryChangeListener {
+public class RuleEngine implements EventHandler, ItemRegistryChangeListener, StateChangeListener, ModelRepositoryChangeListener, ManagedService {
 
 		static private final Logger logger = LoggerFactory.getLogger(RuleEngine.class);
 		
+		/** the default number of worker threads for executing rules, 0 to execute each rule in a thread of its own */
+		private static final int DEFAULT_THREAD_POOL_SIZE = 0;
+		
+		/** the default number of rule executions which can wait for a worker thread */
+		private static final int DEFAULT_QUEUE_SIZE = 1000;
+		
 		private ItemRegistry itemRegistry;
 		private ModelRepository modelRepository;
 		private ScriptEngine scriptEngine;
 
 		private RuleTriggerManager triggerManager;
+		
+		private volatile RuleExecutor ruleExecutor;
+		
+		private int threadPoolSize = DEFAULT_THREAD_POOL_SIZE;
+		private int queueSize = DEFAULT_QUEUE_SIZE;
+		private boolean serializeRules = false;
 						
 		public void activate() {
 			triggerManager = new RuleTriggerManager();
+			ruleExecutor = new RuleExecutor(threadPoolSize, queueSize, serializeRules);
 
 			if(!isEnabled()) {
 				logger.info("Rule engine is disabled.");
@@ -100,6 +119,7 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 			executeRules(triggerManager.getRules(SHUTDOWN));
 			triggerManager.clearAll();
 			triggerManager = null;
+			ruleExecutor.shutdown();
 		}
 		
 		public void setItemRegistry(ItemRegistry itemRegistry) {
@@ -166,9 +186,7 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		public void stateChanged(Item item, State oldState, State newState) {			
 			if(triggerManager!=null) {
 				Iterable<Rule> rules = triggerManager.getRules(CHANGE, item, oldState, newState);
-				RuleEvaluationContext context = new RuleEvaluationContext();
-				context.newValue(QualifiedName.create(RuleContextHelper.VAR_PREVIOUS_STATE), oldState);
-				executeRules(rules, context);
+				executeRules(rules, RuleContextHelper.VAR_PREVIOUS_STATE, oldState);
 			}
 		}
 
@@ -187,9 +205,7 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 				try {
 					Item item = itemRegistry.getItem(itemName);
 					Iterable<Rule> rules = triggerManager.getRules(COMMAND, item, command);
-					RuleEvaluationContext context = new RuleEvaluationContext();
-					context.newValue(QualifiedName.create(RuleContextHelper.VAR_RECEIVED_COMMAND), command);
-					executeRules(rules, context);
+					executeRules(rules, RuleContextHelper.VAR_RECEIVED_COMMAND, command);
 				} catch (ItemNotFoundException e) {
 					// ignore commands for non-existent items
 				}
@@ -207,6 +223,14 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		 * {@inheritDoc}
 		 */
 		public void handleEvent(Event event) {  
+			if(event instanceof ItemEvent) {
+				ItemEvent itemEvent = (ItemEvent) event;
+				if(itemEvent.getType()==EventType.COMMAND) {
+					receiveCommand(itemEvent.getItemName(), (Command) itemEvent.getPayload());
+				}
+				return;
+			}
+			
 			String itemName = (String) event.getProperty("item");
 			
 			String topic = event.getTopic();
@@ -286,19 +310,96 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 			
 			context.setGlobalContext(RuleContextHelper.getContext(rule));
 			
-			ScriptExecutionThread thread = new ScriptExecutionThread(rule.getName(), script, context);
-			thread.start();
+			ruleExecutor.execute(rule, script, context);
 		}
 
 		protected synchronized void executeRules(Iterable<Rule> rules) {
-			executeRules(rules, new RuleEvaluationContext());
+			for(Rule rule : rules) {
+				executeRule(rule);
+			}
 		}
 		
-		protected synchronized void executeRules(Iterable<Rule> rules, RuleEvaluationContext context) {
+		/**
+		 * Executes the given rules, each with its own evaluation context that
+		 * contains the given variable. As the rules are executed asynchronously,
+		 * the rules must not share a context.
+		 * 
+		 * @param rules the rules to execute
+		 * @param variableName the name of the variable to set in the context
+		 * @param value the value of the variable
+		 */
+		protected synchronized void executeRules(Iterable<Rule> rules, String variableName, Object value) {
 			for(Rule rule : rules) {
+				RuleEvaluationContext context = new RuleEvaluationContext();
+				context.newValue(QualifiedName.create(variableName), value);
 				executeRule(rule, context);
 			}
 		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("rawtypes")
+		public void updated(Dictionary config) throws ConfigurationException {
+			int newThreadPoolSize = DEFAULT_THREAD_POOL_SIZE;
+			int newQueueSize = DEFAULT_QUEUE_SIZE;
+			boolean newSerializeRules = false;
+			if (config != null) {
+				newThreadPoolSize = parseInt(config, "threadPoolSize", DEFAULT_THREAD_POOL_SIZE);
+				newQueueSize = parseInt(config, "queueSize", DEFAULT_QUEUE_SIZE);
+				String serializeString = (String) config.get("serialize");
+				if (StringUtils.isNotBlank(serializeString)) {
+					newSerializeRules = Boolean.parseBoolean(serializeString.trim());
+				}
+			}
+			if(newThreadPoolSize!=threadPoolSize || newQueueSize!=queueSize || newSerializeRules!=serializeRules) {
+				threadPoolSize = newThreadPoolSize;
+				queueSize = newQueueSize;
+				serializeRules = newSerializeRules;
+				RuleExecutor oldExecutor = ruleExecutor;
+				if(oldExecutor!=null) {
+					ruleExecutor = new RuleExecutor(threadPoolSize, queueSize, serializeRules);
+					oldExecutor.shutdown(ruleExecutor);
+				}
+				logger.debug("Rule execution has been reconfigured (threadPoolSize={}, queueSize={}, serialize={})", 
+						new Object[] { threadPoolSize, queueSize, serializeRules });
+			}
+		}
+		
+		@SuppressWarnings("rawtypes")
+		private static int parseInt(Dictionary config, String key, int defaultValue) throws ConfigurationException {
+			String value = (String) config.get(key);
+			if (StringUtils.isBlank(value)) {
+				return defaultValue;
+			}
+			try {
+				return Integer.parseInt(value.trim());
+			} catch (NumberFormatException e) {
+				throw new ConfigurationException(key, "'" + value + "' is not a valid number");
+			}
+		}
+		
+		/**
+		 * Returns the execution statistics of all rules, i.e. the time their
+		 * executions had to wait for a worker thread and the time they took.
+		 * 
+		 * @return a map from rule names to their statistics
+		 */
+		public Map<String, RuleExecutor.RuleStatistics> getRuleStatistics() {
+			RuleExecutor executor = ruleExecutor;
+			return executor!=null ? executor.getStatistics() : Collections.<String, RuleExecutor.RuleStatistics>emptyMap();
+		}
+
+		/**
+		 * Returns the number of rule executions which did not fit into the queue of the
+		 * worker pool and have thus been executed by the thread which triggered them.
+		 * 
+		 * @return the number of overflowing rule executions
+		 */
+		public long getRuleOverflowCount() {
+			RuleExecutor executor = ruleExecutor;
+			return executor!=null ? executor.getOverflowCount() : 0;
+		}
 				
 		/**
 		 * we need to be able to deactivate the rule execution, otherwise the openHAB designer
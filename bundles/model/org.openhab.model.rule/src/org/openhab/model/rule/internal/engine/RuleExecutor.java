@@ -0,0 +1,339 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.xtext.xbase.interpreter.IEvaluationContext;
+import org.openhab.core.scriptengine.Script;
+import org.openhab.core.scriptengine.ScriptExecutionException;
+import org.openhab.model.rule.rules.Rule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class executes the scripts of triggered rules asynchronously.
+ * <p>Rules are either executed by a bounded pool of worker threads or, if no
+ * pool size is configured, each in a thread of its own. If the queue of the
+ * pool is full, the rule is executed by the thread which triggered it, like the
+ * event dispatcher or a binding. By this, a burst of triggers is slowed down
+ * instead of creating an unbounded number of threads or dropping rule executions.</p>
+ * <p>Optionally, the executions of a single rule can be serialized, so that a
+ * rule never runs concurrently with itself. In this case further executions of
+ * a rule are kept in the order of their triggers until the current execution
+ * has finished. If the executor is replaced by a new one, these pending
+ * executions are passed on to the new executor.</p>
+ * <p>For each rule, the time the executions spent waiting in a queue and the
+ * time of the executions themselves is recorded.</p>
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+@SuppressWarnings("restriction")
+public class RuleExecutor {
+
+	static private final Logger logger = LoggerFactory.getLogger(RuleExecutor.class);
+
+	private final Executor executor;
+
+	private final boolean serialize;
+
+	/** the executor which takes over the pending executions after this one has been shut down */
+	private volatile RuleExecutor successor;
+
+	private volatile boolean shutdown = false;
+
+	/** the pending executions of rules which are currently executed, only used if executions are serialized */
+	private final Map<Rule, LinkedList<RuleExecution>> pendingExecutions = new HashMap<Rule, LinkedList<RuleExecution>>();
+
+	private final ConcurrentMap<String, RuleStatistics> statistics = new ConcurrentHashMap<String, RuleStatistics>();
+
+	/** the number of rule executions which did not fit into the queue of the pool */
+	private final AtomicLong overflowCount = new AtomicLong();
+
+	/**
+	 * Creates a new rule executor.
+	 *
+	 * @param poolSize the number of worker threads, 0 or less to execute each rule in a new thread
+	 * @param queueSize the number of rule executions which can wait for a worker thread
+	 * @param serialize true, if a rule must not be executed concurrently with itself
+	 */
+	public RuleExecutor(int poolSize, int queueSize, boolean serialize) {
+		this.serialize = serialize;
+		if(poolSize > 0) {
+			this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)), new RuleThreadFactory(), new OverflowHandler());
+		} else {
+			this.executor = new ThreadPerExecutionExecutor();
+		}
+	}
+
+	/**
+	 * Schedules the script of a rule for execution.
+	 *
+	 * @param rule the rule to execute
+	 * @param script the script of the rule
+	 * @param context the evaluation context to use for this execution
+	 */
+	public void execute(Rule rule, Script script, IEvaluationContext context) {
+		RuleExecutor successor = this.successor;
+		if(shutdown && successor!=null) {
+			successor.execute(rule, script, context);
+			return;
+		}
+		RuleExecution execution = new RuleExecution(rule, script, context);
+		if(serialize) {
+			synchronized(pendingExecutions) {
+				LinkedList<RuleExecution> pending = pendingExecutions.get(rule);
+				if(pending!=null) {
+					// the rule is currently executed, so we have to wait for it
+					pending.add(execution);
+					return;
+				}
+				pendingExecutions.put(rule, new LinkedList<RuleExecution>());
+			}
+		}
+		submit(execution);
+	}
+
+	/**
+	 * Stops accepting further rule executions. Executions which are already
+	 * queued are still processed, while serialized executions which still wait
+	 * for a previous execution of their rule are dropped.
+	 */
+	public void shutdown() {
+		shutdown(null);
+	}
+
+	/**
+	 * Stops accepting further rule executions and passes the serialized executions,
+	 * which still wait for a previous execution of their rule, on to the given executor
+	 * once that previous execution has finished. Executions which are already queued
+	 * are still processed by this executor.
+	 *
+	 * @param successor the executor which takes over, or <code>null</code> to drop
+	 * the waiting executions
+	 */
+	public void shutdown(RuleExecutor successor) {
+		this.successor = successor;
+		this.shutdown = true;
+		if(executor instanceof ThreadPoolExecutor) {
+			((ThreadPoolExecutor) executor).shutdown();
+		}
+	}
+
+	/**
+	 * Returns the execution statistics of all rules which have been executed so far.
+	 *
+	 * @return a map from rule names to their statistics
+	 */
+	public Map<String, RuleStatistics> getStatistics() {
+		return Collections.unmodifiableMap(statistics);
+	}
+
+	/**
+	 * Returns the number of rule executions which have been executed by the triggering
+	 * thread, as the queue of the pool was full.
+	 *
+	 * @return the number of overflowing rule executions
+	 */
+	public long getOverflowCount() {
+		return overflowCount.get();
+	}
+
+	private void submit(RuleExecution execution) {
+		try {
+			executor.execute(execution);
+		} catch (RejectedExecutionException e) {
+			logger.warn("Rule '{}' cannot be executed as the rule engine is shutting down.", execution.rule.getName());
+			executionFinished(execution.rule);
+		}
+	}
+
+	private void executionFinished(Rule rule) {
+		if(serialize) {
+			RuleExecution next;
+			LinkedList<RuleExecution> handOver = null;
+			synchronized(pendingExecutions) {
+				LinkedList<RuleExecution> pending = pendingExecutions.get(rule);
+				if(shutdown && successor!=null) {
+					pendingExecutions.remove(rule);
+					handOver = pending;
+					next = null;
+				} else {
+					next = pending!=null ? pending.poll() : null;
+					if(next==null) {
+						pendingExecutions.remove(rule);
+					}
+				}
+			}
+			if(handOver!=null) {
+				for(RuleExecution execution : handOver) {
+					successor.execute(execution.rule, execution.script, execution.context);
+				}
+			} else if(next!=null) {
+				submit(next);
+			}
+		}
+	}
+
+	private RuleStatistics getStatistics(String ruleName) {
+		RuleStatistics ruleStatistics = statistics.get(ruleName);
+		if(ruleStatistics==null) {
+			statistics.putIfAbsent(ruleName, new RuleStatistics());
+			ruleStatistics = statistics.get(ruleName);
+		}
+		return ruleStatistics;
+	}
+
+	/**
+	 * A single execution of a rule, which measures the time it waited and took.
+	 */
+	private class RuleExecution implements Runnable {
+
+		private final Rule rule;
+		private final Script script;
+		private final IEvaluationContext context;
+		private final long creationTime = System.nanoTime();
+
+		public RuleExecution(Rule rule, Script script, IEvaluationContext context) {
+			this.rule = rule;
+			this.script = script;
+			this.context = context;
+		}
+
+		public void run() {
+			long startTime = System.nanoTime();
+			Thread thread = Thread.currentThread();
+			String threadName = thread.getName();
+			thread.setName(rule.getName());
+			try {
+				script.execute(context);
+			} catch (ScriptExecutionException e) {
+				String msg = e.getCause().getMessage();
+				if (msg==null) {
+					logger.error("Error during the execution of rule '{}'", rule.getName(), e.getCause());
+				} else {
+					logger.error("Error during the execution of rule '{}': {}", new String[] { rule.getName(), msg });
+				}
+			} catch (RuntimeException e) {
+				logger.error("Error during the execution of rule '" + rule.getName() + "'", e);
+			} finally {
+				thread.setName(threadName);
+				long endTime = System.nanoTime();
+				long waitTime = startTime - creationTime;
+				long executionTime = endTime - startTime;
+				getStatistics(rule.getName()).add(waitTime, executionTime);
+				logger.trace("Rule '{}' has been executed in {}ms after waiting {}ms", new Object[] { rule.getName(),
+						TimeUnit.NANOSECONDS.toMillis(executionTime), TimeUnit.NANOSECONDS.toMillis(waitTime) });
+				executionFinished(rule);
+			}
+		}
+	}
+
+	/**
+	 * Keeps track of the queue wait time and the execution time of a rule.
+	 */
+	public static class RuleStatistics {
+
+		private long executionCount = 0;
+		private long totalWaitTime = 0;
+		private long maxWaitTime = 0;
+		private long totalExecutionTime = 0;
+		private long maxExecutionTime = 0;
+
+		synchronized void add(long waitTime, long executionTime) {
+			executionCount++;
+			totalWaitTime += waitTime;
+			maxWaitTime = Math.max(maxWaitTime, waitTime);
+			totalExecutionTime += executionTime;
+			maxExecutionTime = Math.max(maxExecutionTime, executionTime);
+		}
+
+		public synchronized long getExecutionCount() {
+			return executionCount;
+		}
+
+		/** @return the average time in milliseconds an execution waited in the queue */
+		public synchronized double getAverageWaitTime() {
+			return executionCount==0 ? 0 : totalWaitTime / (executionCount * 1000000.0);
+		}
+
+		/** @return the maximum time in milliseconds an execution waited in the queue */
+		public synchronized long getMaxWaitTime() {
+			return TimeUnit.NANOSECONDS.toMillis(maxWaitTime);
+		}
+
+		/** @return the average execution time in milliseconds */
+		public synchronized double getAverageExecutionTime() {
+			return executionCount==0 ? 0 : totalExecutionTime / (executionCount * 1000000.0);
+		}
+
+		/** @return the maximum execution time in milliseconds */
+		public synchronized long getMaxExecutionTime() {
+			return TimeUnit.NANOSECONDS.toMillis(maxExecutionTime);
+		}
+
+		@Override
+		public synchronized String toString() {
+			return String.format("executions=%d, avgWaitTime=%.1fms, maxWaitTime=%dms, avgExecutionTime=%.1fms, maxExecutionTime=%dms",
+					executionCount, getAverageWaitTime(), getMaxWaitTime(), getAverageExecutionTime(), getMaxExecutionTime());
+		}
+	}
+
+	/**
+	 * Executes every rule in a new thread, as the rule engine did before
+	 * the introduction of the worker pool.
+	 */
+	private static class ThreadPerExecutionExecutor implements Executor {
+		public void execute(Runnable command) {
+			new Thread(command).start();
+		}
+	}
+
+	private static class RuleThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "RuleEngine-Worker-" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	/**
+	 * Executes a rule in the triggering thread if the queue of the pool is full.
+	 */
+	private class OverflowHandler implements RejectedExecutionHandler {
+		public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+			if(executor.isShutdown()) {
+				throw new RejectedExecutionException();
+			}
+			long count = overflowCount.incrementAndGet();
+			logger.warn("Rule execution queue is full, executing rule in the triggering thread ({} overflows so far).", count);
+			runnable.run();
+		}
+	}
+
+}
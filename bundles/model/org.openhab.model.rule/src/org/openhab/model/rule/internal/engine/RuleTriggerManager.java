@@ -19,11 +19,15 @@ import static org.quartz.TriggerBuilder.newTrigger;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang.ObjectUtils;
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.openhab.core.items.Item;
 import org.openhab.core.types.Command;
@@ -85,6 +89,10 @@ public class RuleTriggerManager {
 	private List<Rule> systemStartupTriggeredRules = Lists.newArrayList();
 	private List<Rule> systemShutdownTriggeredRules = Lists.newArrayList();
 	private List<Rule> timerEventTriggeredRules = Lists.newArrayList();
+	
+	// the triggers of each item with their states and commands parsed for the accepted types of the item;
+	// they are built on demand and dropped whenever the rules change
+	private Map<String, ItemTriggers> itemTriggers = new ConcurrentHashMap<String, ItemTriggers>();
 
 	// the scheduler used for timer events
 	private Scheduler scheduler;
@@ -154,95 +162,78 @@ public class RuleTriggerManager {
 		return internalGetRules(triggerType, item, null, command);
 	}
 
-	private Iterable<Rule> getAllRules(TriggerTypes type, String itemName) {
-		switch(type) {
-			case STARTUP:  return systemStartupTriggeredRules;
-			case SHUTDOWN: return systemShutdownTriggeredRules;
-			case UPDATE:   return updateEventTriggeredRules.get(itemName);
-			case CHANGE:   return changedEventTriggeredRules.get(itemName);
-			case COMMAND:  return commandEventTriggeredRules.get(itemName);
-			default:       return Sets.newHashSet();
-		}
-	}
-
 	private Iterable<Rule> internalGetRules(TriggerTypes triggerType, Item item, Type oldType, Type newType) {
-		List<Rule> result = Lists.newArrayList();
-		Iterable<Rule> rules = getAllRules(triggerType, item.getName());
-		if(rules==null) {
-			rules = Lists.newArrayList();
-		}
 		switch(triggerType) {
 		case STARTUP:  return systemStartupTriggeredRules;
 		case SHUTDOWN: return systemShutdownTriggeredRules;
 		case TIMER :   return timerEventTriggeredRules;
 		case UPDATE:   
-			if(newType instanceof State) {
-				State state = (State) newType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof UpdateEventTrigger) {
-							UpdateEventTrigger ut = (UpdateEventTrigger) t;
-							if(ut.getItem().equals(item.getName())) {
-								if(ut.getState()!=null) {
-									State triggerState = TypeParser.parseState(item.getAcceptedDataTypes(), ut.getState());
-									if(!state.equals(triggerState)) {
-										continue;
-									}
-								}
-								result.add(rule);
-							}
-						}
-					}
-				}
+			if(newType instanceof State && updateEventTriggeredRules.containsKey(item.getName())) {
+				return getItemTriggers(item).getUpdateRules((State) newType);
 			}
 			break;
 		case CHANGE:
-			if(newType instanceof State && oldType instanceof State) {
-				State newState = (State) newType;
-				State oldState = (State) oldType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof ChangedEventTrigger) {
-							ChangedEventTrigger ct = (ChangedEventTrigger) t;						
-							if(ct.getItem().equals(item.getName())) {
-								if(ct.getOldState()!=null) {
-									State triggerOldState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getOldState());
-									if(!oldState.equals(triggerOldState)) {
-										continue;
-									}								
-								}
-								if(ct.getNewState()!=null) {
-									State triggerNewState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getNewState());
-									if(!newState.equals(triggerNewState)) {
-										continue;
-									}								
-								}
-								result.add(rule);
-							}
-						}
-					}
-				}
+			if(newType instanceof State && oldType instanceof State && changedEventTriggeredRules.containsKey(item.getName())) {
+				return getItemTriggers(item).getChangeRules((State) oldType, (State) newType);
 			}
 			break;
 		case COMMAND:  
-			if(newType instanceof Command) {
-				Command command = (Command) newType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof CommandEventTrigger) {
-							CommandEventTrigger ct = (CommandEventTrigger) t;
-							Command triggerCommand = TypeParser.parseCommand(item.getAcceptedCommandTypes(), ct.getCommand());
-							if(ct.getItem().equals(item.getName()) &&
-									(triggerCommand==null || command.equals(triggerCommand))) {
-								result.add(rule);
-							}
-						}
+			if(newType instanceof Command && commandEventTriggeredRules.containsKey(item.getName())) {
+				return getItemTriggers(item).getCommandRules((Command) newType);
+			}
+			break;
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Returns the triggers of an item with their states and commands parsed
+	 * for the accepted types of the item. They are built when they are needed
+	 * for the first time and rebuilt, if the accepted types of the item change.
+	 * 
+	 * @param item the item to get the triggers for
+	 * @return the triggers of the item
+	 */
+	private ItemTriggers getItemTriggers(Item item) {
+		List<Class<? extends State>> dataTypes = item.getAcceptedDataTypes();
+		List<Class<? extends Command>> commandTypes = item.getAcceptedCommandTypes();
+		ItemTriggers triggers = itemTriggers.get(item.getName());
+		if(triggers==null || !triggers.isValidFor(dataTypes, commandTypes)) {
+			synchronized(this) {
+				triggers = new ItemTriggers(dataTypes, commandTypes);
+				addItemTriggers(triggers, item.getName(), updateEventTriggeredRules.get(item.getName()));
+				addItemTriggers(triggers, item.getName(), changedEventTriggeredRules.get(item.getName()));
+				addItemTriggers(triggers, item.getName(), commandEventTriggeredRules.get(item.getName()));
+				itemTriggers.put(item.getName(), triggers);
+			}
+		}
+		return triggers;
+	}
+
+	private void addItemTriggers(ItemTriggers triggers, String itemName, Set<Rule> rules) {
+		if(rules==null) {
+			return;
+		}
+		for(Rule rule : rules) {
+			for(EventTrigger t : rule.getEventtrigger()) {
+				if (t instanceof UpdateEventTrigger) {
+					UpdateEventTrigger ut = (UpdateEventTrigger) t;
+					if(ut.getItem().equals(itemName)) {
+						triggers.addUpdateTrigger(rule, ut.getState());
+					}
+				} else if (t instanceof ChangedEventTrigger) {
+					ChangedEventTrigger ct = (ChangedEventTrigger) t;
+					if(ct.getItem().equals(itemName)) {
+						triggers.addChangeTrigger(rule, ct.getOldState(), ct.getNewState());
+					}
+				} else if (t instanceof CommandEventTrigger) {
+					CommandEventTrigger ct = (CommandEventTrigger) t;
+					if(ct.getItem().equals(itemName)) {
+						triggers.addCommandTrigger(rule, ct.getCommand());
 					}
 				}
 			}
-			break;
 		}
-		return result;
 	}
 
 	/**
@@ -250,7 +241,8 @@ public class RuleTriggerManager {
 	 * 
 	 * @param type the trigger type 
 	 */
-	public void clear(TriggerTypes type) {
+	public synchronized void clear(TriggerTypes type) {
+		itemTriggers.clear();
 		switch(type) {
 			case STARTUP:  	systemStartupTriggeredRules.clear(); break;
 			case SHUTDOWN: 	systemShutdownTriggeredRules.clear(); break;
@@ -282,6 +274,7 @@ public class RuleTriggerManager {
 	 * @param rule the rule to add
 	 */
 	public synchronized void addRule(Rule rule) {
+		itemTriggers.clear();
 		for(EventTrigger t : rule.getEventtrigger()) {
 			// add the rule to the lookup map for the trigger kind
 			if(t instanceof SystemOnStartupTrigger) {
@@ -329,7 +322,8 @@ public class RuleTriggerManager {
 	 * @param type the trigger type for which the rule should be removed
 	 * @param rule the rule to add
 	 */
-	public void removeRule(TriggerTypes type, Rule rule) {
+	public synchronized void removeRule(TriggerTypes type, Rule rule) {
+		itemTriggers.clear();
 		switch(type) {
 			case STARTUP:  	systemStartupTriggeredRules.remove(rule); break;
 			case SHUTDOWN: 	systemShutdownTriggeredRules.remove(rule); break;
@@ -358,7 +352,8 @@ public class RuleTriggerManager {
 	 * 
 	 * @param ruleModel the rule model
 	 */
-	public void removeRuleModel(RuleModel ruleModel) {
+	public synchronized void removeRuleModel(RuleModel ruleModel) {
+		itemTriggers.clear();
 		removeRules(UPDATE, updateEventTriggeredRules.values(), ruleModel);
 		removeRules(CHANGE, changedEventTriggeredRules.values(), ruleModel);
 		removeRules(COMMAND, commandEventTriggeredRules.values(), ruleModel);
@@ -474,4 +469,109 @@ public class RuleTriggerManager {
 		}
 		return jobIdentity;
 	}
+	
+	/**
+	 * Keeps the event triggers of a single item, indexed by the states and
+	 * commands they expect. The literal values of the triggers are parsed only
+	 * once for the accepted types of the item, so that matching an event is a
+	 * hash lookup. A <code>null</code> key stands for a trigger which does not
+	 * expect a certain value.
+	 */
+	private static class ItemTriggers {
+		
+		private final List<Class<? extends State>> dataTypes;
+		private final List<Class<? extends Command>> commandTypes;
+		
+		private final Map<State, Set<Rule>> updateRules = new HashMap<State, Set<Rule>>();
+		private final Map<State, Map<State, Set<Rule>>> changeRules = new HashMap<State, Map<State, Set<Rule>>>();
+		private final Map<Command, Set<Rule>> commandRules = new HashMap<Command, Set<Rule>>();
+		
+		public ItemTriggers(List<Class<? extends State>> dataTypes, List<Class<? extends Command>> commandTypes) {
+			this.dataTypes = dataTypes;
+			this.commandTypes = commandTypes;
+		}
+		
+		public boolean isValidFor(List<Class<? extends State>> dataTypes, List<Class<? extends Command>> commandTypes) {
+			return ObjectUtils.equals(this.dataTypes, dataTypes) && ObjectUtils.equals(this.commandTypes, commandTypes);
+		}
+		
+		public void addUpdateTrigger(Rule rule, String state) {
+			State triggerState = null;
+			if(state!=null) {
+				triggerState = TypeParser.parseState(dataTypes, state);
+				if(triggerState==null) {
+					// the trigger can never match
+					return;
+				}
+			}
+			add(updateRules, triggerState, rule);
+		}
+
+		public void addChangeTrigger(Rule rule, String oldState, String newState) {
+			State triggerOldState = null;
+			State triggerNewState = null;
+			if(oldState!=null) {
+				triggerOldState = TypeParser.parseState(dataTypes, oldState);
+				if(triggerOldState==null) {
+					return;
+				}
+			}
+			if(newState!=null) {
+				triggerNewState = TypeParser.parseState(dataTypes, newState);
+				if(triggerNewState==null) {
+					return;
+				}
+			}
+			Map<State, Set<Rule>> rulesByNewState = changeRules.get(triggerOldState);
+			if(rulesByNewState==null) {
+				rulesByNewState = new HashMap<State, Set<Rule>>();
+				changeRules.put(triggerOldState, rulesByNewState);
+			}
+			add(rulesByNewState, triggerNewState, rule);
+		}
+
+		public void addCommandTrigger(Rule rule, String command) {
+			// a command which cannot be parsed matches all commands
+			add(commandRules, TypeParser.parseCommand(commandTypes, command), rule);
+		}
+		
+		public Iterable<Rule> getUpdateRules(State state) {
+			return union(updateRules.get(state), updateRules.get(null), null, null);
+		}
+
+		public Iterable<Rule> getChangeRules(State oldState, State newState) {
+			Map<State, Set<Rule>> anyOldState = changeRules.get(null);
+			Map<State, Set<Rule>> matchingOldState = changeRules.get(oldState);
+			return union(
+				matchingOldState!=null ? matchingOldState.get(newState) : null,
+				matchingOldState!=null ? matchingOldState.get(null) : null,
+				anyOldState!=null ? anyOldState.get(newState) : null,
+				anyOldState!=null ? anyOldState.get(null) : null);
+		}
+
+		public Iterable<Rule> getCommandRules(Command command) {
+			return union(commandRules.get(command), commandRules.get(null), null, null);
+		}
+		
+		private static <K> void add(Map<K, Set<Rule>> map, K key, Rule rule) {
+			Set<Rule> rules = map.get(key);
+			if(rules==null) {
+				rules = new LinkedHashSet<Rule>();
+				map.put(key, rules);
+			}
+			rules.add(rule);
+		}
+		
+		private static Iterable<Rule> union(Set<Rule> rules1, Set<Rule> rules2, Set<Rule> rules3, Set<Rule> rules4) {
+			if(rules2==null && rules3==null && rules4==null) {
+				return rules1!=null ? rules1 : Collections.<Rule>emptySet();
+			}
+			Set<Rule> result = new LinkedHashSet<Rule>();
+			if(rules1!=null) result.addAll(rules1);
+			if(rules2!=null) result.addAll(rules2);
+			if(rules3!=null) result.addAll(rules3);
+			if(rules4!=null) result.addAll(rules4);
+			return result;
+		}
+	}
 }
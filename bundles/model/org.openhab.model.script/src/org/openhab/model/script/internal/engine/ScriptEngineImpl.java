@@ -11,7 +11,10 @@ package org.openhab.model.script.internal.engine;
 import static com.google.common.collect.Iterables.filter;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.URI;
@@ -28,28 +31,55 @@ import org.eclipse.xtext.validation.CheckMode;
 import org.eclipse.xtext.validation.IResourceValidator;
 import org.eclipse.xtext.validation.Issue;
 import org.eclipse.xtext.xbase.XExpression;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.items.ItemRegistryChangeListener;
 import org.openhab.core.scriptengine.Script;
 import org.openhab.core.scriptengine.ScriptEngine;
 import org.openhab.core.scriptengine.ScriptExecutionException;
 import org.openhab.core.scriptengine.ScriptParsingException;
 import org.openhab.model.script.ScriptStandaloneSetup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Predicate;
 import com.google.inject.Injector;
 
 /**
  * This is the implementation of a {@link ScriptEngine} which is made available as an OSGi service.
+ * <p>The {@link XExpression}s parsed from script texts are cached, so that scripts which are
+ * executed over and over are parsed and validated only once. The cache evicts its least
+ * recently used entries and is cleared when the items change, as item names are resolved
+ * while parsing. Only the parsed expressions are shared; every {@link Script} gets its own
+ * interpreter, as interpreters must not be used by concurrent executions.</p>
  * 
  * @author Kai Kreuzer
  * @since 0.9.0
  *
  */
 @SuppressWarnings("restriction")
-public class ScriptEngineImpl implements ScriptEngine {
+public class ScriptEngineImpl implements ScriptEngine, ItemRegistryChangeListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(ScriptEngineImpl.class);
+
+	/** the maximum number of parsed scripts which are cached by their text */
+	private static final int MAX_CACHED_SCRIPTS = 100;
 
 	protected Injector guiceInjector;
 	protected XtextResourceSet resourceSet;
 
+	private final Map<String, XExpression> textCache = new LinkedHashMap<String, XExpression>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, XExpression> eldest) {
+			if(size() > MAX_CACHED_SCRIPTS) {
+				releaseResource(eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+	};
+
 	public ScriptEngineImpl() {}
 	
 	public void activate() {
@@ -59,16 +89,45 @@ public class ScriptEngineImpl implements ScriptEngine {
 	}
 	
 	public void deactivate() {
+		clearTextCache();
 		this.guiceInjector = null;
 		this.resourceSet = null;
 	}
+
+	public void setItemRegistry(ItemRegistry itemRegistry) {
+		itemRegistry.addItemRegistryChangeListener(this);
+	}
+
+	public void unsetItemRegistry(ItemRegistry itemRegistry) {
+		itemRegistry.removeItemRegistryChangeListener(this);
+		clearTextCache();
+	}
 		
 	/**
 	 * {@inheritDoc}
 	 */
 	public Script newScriptFromString(String scriptAsString)
 			throws ScriptParsingException {
-		return newScriptFromXExpression(parseScriptIntoXTextEObject(scriptAsString));
+		synchronized(textCache) {
+			XExpression expression = textCache.get(scriptAsString);
+			if(expression!=null) {
+				return newScriptFromXExpression(expression);
+			}
+		}
+		XExpression expression = parseScriptIntoXTextEObject(scriptAsString);
+		if(expression!=null) {
+			synchronized(textCache) {
+				XExpression cachedExpression = textCache.get(scriptAsString);
+				if(cachedExpression!=null) {
+					// another thread has been faster, so we drop our own copy
+					releaseResource(expression);
+					expression = cachedExpression;
+				} else {
+					textCache.put(scriptAsString, expression);
+				}
+			}
+		}
+		return newScriptFromXExpression(expression);
 	}
 
 	/**
@@ -80,6 +139,48 @@ public class ScriptEngineImpl implements ScriptEngine {
 		return script;
 	}
 
+	public void allItemsChanged(Collection<String> oldItemNames) {
+		clearTextCache();
+	}
+
+	public void itemAdded(Item item) {
+		clearTextCache();
+	}
+
+	public void itemRemoved(Item item) {
+		clearTextCache();
+	}
+
+	private void clearTextCache() {
+		synchronized(textCache) {
+			if(!textCache.isEmpty()) {
+				logger.debug("Clearing {} cached scripts.", textCache.size());
+			}
+			for(XExpression expression : textCache.values()) {
+				releaseResource(expression);
+			}
+			textCache.clear();
+		}
+	}
+
+	/**
+	 * Removes the synthetic resource of a parsed script from the resource set. The resource is
+	 * not unloaded, as scripts which have been created from the expression before might still be
+	 * executed by other threads; it is garbage collected once no script refers to it anymore.
+	 */
+	private void releaseResource(XExpression expression) {
+		removeResource(expression.eResource());
+	}
+
+	private void removeResource(Resource resource) {
+		ResourceSet resourceSet = this.resourceSet;
+		if(resource!=null && resourceSet!=null) {
+			synchronized(resourceSet) {
+				resourceSet.getResources().remove(resource);
+			}
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -89,29 +190,42 @@ public class ScriptEngineImpl implements ScriptEngine {
 	}
 
 	private XExpression parseScriptIntoXTextEObject(String scriptAsString) throws ScriptParsingException {
-		Resource resource = resourceSet.createResource(computeUnusedUri(resourceSet)); // IS-A XtextResource
-		try {
-			resource.load(new StringInputStream(scriptAsString), resourceSet.getLoadOptions());
-		} catch (IOException e) {
-			throw new ScriptParsingException("Unexpected IOException; from close() of a String-based ByteArrayInputStream, no real I/O; how is that possible???", scriptAsString, e);
-		}
-		
-		List<Diagnostic> errors = resource.getErrors();
-		if (errors.size() != 0) {
-			throw new ScriptParsingException("Failed to parse expression (due to managed SyntaxError/s)", scriptAsString).addDiagnosticErrors(errors);
+		Resource resource;
+		synchronized(resourceSet) {
+			resource = resourceSet.createResource(computeUnusedUri(resourceSet)); // IS-A XtextResource
 		}
-		
-		EList<EObject> contents = resource.getContents();
-
-		if (!contents.isEmpty()) {
-			Iterable<Issue> validationErrors = getValidationErrors(contents.get(0));
-			if(!validationErrors.iterator().hasNext()) {
-				return (XExpression) contents.get(0);
+		boolean success = false;
+		try {
+			try {
+				resource.load(new StringInputStream(scriptAsString), resourceSet.getLoadOptions());
+			} catch (IOException e) {
+				throw new ScriptParsingException("Unexpected IOException; from close() of a String-based ByteArrayInputStream, no real I/O; how is that possible???", scriptAsString, e);
+			}
+			
+			List<Diagnostic> errors = resource.getErrors();
+			if (errors.size() != 0) {
+				throw new ScriptParsingException("Failed to parse expression (due to managed SyntaxError/s)", scriptAsString).addDiagnosticErrors(errors);
+			}
+			
+			EList<EObject> contents = resource.getContents();
+	
+			if (!contents.isEmpty()) {
+				Iterable<Issue> validationErrors = getValidationErrors(contents.get(0));
+				if(!validationErrors.iterator().hasNext()) {
+					success = true;
+					return (XExpression) contents.get(0);
+				} else {
+					throw new ScriptParsingException("Failed to parse expression (due to managed ValidationError/s)", scriptAsString).addValidationIssues(validationErrors);
+				}
 			} else {
-				throw new ScriptParsingException("Failed to parse expression (due to managed ValidationError/s)", scriptAsString).addValidationIssues(validationErrors);
+				return null;
+			}
+		} finally {
+			if(!success) {
+				// nobody will ever reference this resource again
+				removeResource(resource);
+				resource.unload();
 			}
-		} else {
-			return null;
 		}
 	}
 
@@ -26,11 +26,14 @@ import java.util.Date;
 import java.util.Set;
 
 import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
-import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.types.State;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.CronTrigger;
 import org.quartz.DisallowConcurrentExecution;
@@ -57,11 +60,14 @@ import com.db4o.query.Query;
 
 /**
  * This is a {@link PersistenceService} implementation using the db4o database.
+ * <p>Aggregates are computed from the query result, which only holds the ids of
+ * the matching objects, so that counting and fetching the first or last value
+ * does not activate all objects of the time range.</p>
  * 
  * @author Kai Kreuzer
  * @since 1.0.0
  */
-public class Db4oPersistenceService implements QueryablePersistenceService {
+public class Db4oPersistenceService implements AggregatingPersistenceService {
 
 	private static final Logger logger = LoggerFactory.getLogger(Db4oPersistenceService.class);
 	
@@ -122,23 +128,12 @@ public class Db4oPersistenceService implements QueryablePersistenceService {
 	}
 
 	public Iterable<HistoricItem> query(FilterCriteria filter) {
-		Query query = queryWithReconnect();
+		if (filter==null) {
+			filter = new FilterCriteria();
+		}
+		Query query = createQuery(filter);
 		
 		if (query != null) {
-			query.constrain(Db4oItem.class);
-			
-			if (filter==null) {
-				filter = new FilterCriteria();
-			}
-			if (filter.getBeginDate()!=null) {
-				query.descend("timestamp").constrain(filter.getBeginDate()).greater().equal();
-			}
-			if (filter.getEndDate()!=null) {
-				query.descend("timestamp").constrain(filter.getEndDate()).smaller().equal();
-			}
-			if (filter.getItemName()!=null) {
-				query.descend("name").constrain(filter.getItemName()).equal();
-			}
 			if (filter.getState()!=null && filter.getOperator()!=null) {
 				switch(filter.getOperator()) {
 					case EQ : query.descend("state").constrain(filter.getState()).equal(); break;
@@ -169,6 +164,107 @@ public class Db4oPersistenceService implements QueryablePersistenceService {
 		
 		return Collections.emptyList();
 	}
+
+	/**
+	 * @{inheritDoc}
+	 */
+	public HistoricItem aggregate(FilterCriteria filter, Aggregation aggregation) {
+		Query query = createQuery(filter);
+		if (query == null) {
+			return null;
+		}
+
+		switch(aggregation) {
+			case FIRST :
+			case LAST :
+				if (aggregation==Aggregation.FIRST) {
+					query.descend("timestamp").orderAscending();
+				} else {
+					query.descend("timestamp").orderDescending();
+				}
+				ObjectSet<HistoricItem> items = query.execute();
+				return items.isEmpty() ? null : items.get(0);
+			case CHANGED :
+				State first = null;
+				for (HistoricItem item : query.<HistoricItem>execute()) {
+					if (first==null) {
+						first = item.getState();
+					} else if (!first.equals(item.getState())) {
+						return createItem(filter, OnOffType.ON);
+					}
+				}
+				return first==null ? null : createItem(filter, OnOffType.OFF);
+			default :
+				break;
+		}
+
+		// all other aggregations only consider decimal values
+		query.descend("state").constrain(DecimalType.class);
+		ObjectSet<HistoricItem> items = query.execute();
+		if (items.isEmpty()) {
+			return null;
+		}
+		if (aggregation==Aggregation.COUNT) {
+			return createItem(filter, new DecimalType(items.size()));
+		}
+
+		HistoricItem minimum = null;
+		HistoricItem maximum = null;
+		double sum = 0.0;
+		for (HistoricItem item : items) {
+			DecimalType value = (DecimalType) item.getState();
+			if (minimum==null || value.compareTo((DecimalType) minimum.getState()) < 0) {
+				minimum = item;
+			}
+			if (maximum==null || value.compareTo((DecimalType) maximum.getState()) > 0) {
+				maximum = item;
+			}
+			sum += value.doubleValue();
+		}
+		switch(aggregation) {
+			case MINIMUM : return minimum;
+			case MAXIMUM : return maximum;
+			case SUM : return createItem(filter, new DecimalType(sum));
+			case AVERAGE : return createItem(filter, new DecimalType(sum / items.size()));
+			default : throw new UnsupportedOperationException("Aggregation " + aggregation + " is not supported");
+		}
+	}
+
+	/**
+	 * Creates a query for the items, which are selected by name and time range of
+	 * the given filter.
+	 * 
+	 * @return a Query-Object or <code>null</code> if the Database could not be opened
+	 */
+	private Query createQuery(FilterCriteria filter) {
+		Query query = queryWithReconnect();
+		if (query != null) {
+			query.constrain(Db4oItem.class);
+			
+			if (filter.getBeginDate()!=null) {
+				query.descend("timestamp").constrain(filter.getBeginDate()).greater().equal();
+			}
+			if (filter.getEndDate()!=null) {
+				query.descend("timestamp").constrain(filter.getEndDate()).smaller().equal();
+			}
+			if (filter.getItemName()!=null) {
+				query.descend("name").constrain(filter.getItemName()).equal();
+			}
+		}
+		return query;
+	}
+
+	/**
+	 * Creates a historic item for an aggregate, which is timestamped with the end
+	 * of the time range.
+	 */
+	private static HistoricItem createItem(FilterCriteria filter, State state) {
+		Db4oItem item = new Db4oItem();
+		item.setName(filter.getItemName());
+		item.setState(state);
+		item.setTimestamp(filter.getEndDate()!=null ? filter.getEndDate() : new Date());
+		return item;
+	}
 	
 	/**
 	 * Creates a new Query and returns it. In case the Database is closed for
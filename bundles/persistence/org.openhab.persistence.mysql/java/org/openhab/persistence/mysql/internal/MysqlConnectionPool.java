@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.mysql.internal;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A small pool of connections to the mySQL database. Each connection keeps
+ * its own cache of {@link PreparedStatement}s, so that a statement is only
+ * prepared once per connection and table.
+ * <p>Connections are created on demand up to the maximum size of the pool.
+ * If all connections are in use, callers wait for a connection to be given
+ * back.</p>
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+public class MysqlConnectionPool {
+
+	private static final Logger logger = LoggerFactory.getLogger(MysqlConnectionPool.class);
+
+	/** the time in seconds to wait for a free connection */
+	private static final int BORROW_TIMEOUT = 10;
+
+	private final String url;
+	private final Properties properties;
+	private final int waitTimeout;
+	private final int maxSize;
+
+	private final BlockingQueue<PooledConnection> idleConnections = new LinkedBlockingQueue<PooledConnection>();
+	private int size = 0;
+	private volatile boolean closed = false;
+
+	/**
+	 * @param url the JDBC url of the database
+	 * @param user the database user
+	 * @param password the password of the database user
+	 * @param waitTimeout the session wait_timeout in seconds or -1 to keep the server default
+	 * @param maxSize the maximum number of connections
+	 */
+	public MysqlConnectionPool(String url, String user, String password, int waitTimeout, int maxSize) {
+		this.url = url;
+		this.waitTimeout = waitTimeout;
+		this.maxSize = Math.max(1, maxSize);
+		this.properties = new Properties();
+		properties.setProperty("user", user);
+		if (password != null) {
+			properties.setProperty("password", password);
+		}
+		// let the driver turn batches of inserts into multi-row inserts
+		properties.setProperty("rewriteBatchedStatements", "true");
+	}
+
+	/**
+	 * Takes a connection from the pool, opening a new one if there is no idle
+	 * connection and the pool is not exhausted yet. The connection must be given
+	 * back by {@link #release(PooledConnection, boolean)}.
+	 *
+	 * @return a connection
+	 * @throws SQLException if no connection could be opened or the pool is exhausted
+	 */
+	public PooledConnection borrow() throws SQLException {
+		if (closed) {
+			throw new SQLException("mySQL: the connection pool has been closed");
+		}
+		PooledConnection connection = idleConnections.poll();
+		if (connection != null) {
+			return connection;
+		}
+		synchronized (this) {
+			if (size < maxSize) {
+				connection = open();
+				size++;
+				return connection;
+			}
+		}
+		try {
+			connection = idleConnections.poll(BORROW_TIMEOUT, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (connection == null) {
+			throw new SQLException("mySQL: no database connection available within " + BORROW_TIMEOUT + " seconds");
+		}
+		return connection;
+	}
+
+	/**
+	 * Gives a connection back to the pool.
+	 *
+	 * @param connection the connection which has been borrowed
+	 * @param broken true, if the connection has failed and must not be used anymore
+	 */
+	public void release(PooledConnection connection, boolean broken) {
+		if (broken || closed) {
+			connection.close();
+			synchronized (this) {
+				size--;
+			}
+		} else {
+			idleConnections.offer(connection);
+		}
+	}
+
+	/**
+	 * Closes all idle connections. Connections which are still in use are closed
+	 * as soon as they are given back.
+	 */
+	public void close() {
+		closed = true;
+		PooledConnection connection;
+		while ((connection = idleConnections.poll()) != null) {
+			connection.close();
+			synchronized (this) {
+				size--;
+			}
+		}
+		logger.debug("mySQL: Disconnected from database {}", url);
+	}
+
+	/**
+	 * Checks whether a failure is caused by a broken connection, in which case
+	 * the connection should not be given back to the pool.
+	 *
+	 * @param e the exception which has been thrown
+	 * @return true, if the connection is broken
+	 */
+	public static boolean isConnectionError(SQLException e) {
+		// SQL state class 08 is used for all connection exceptions
+		return e.getSQLState() != null && e.getSQLState().startsWith("08");
+	}
+
+	private PooledConnection open() throws SQLException {
+		Connection connection = DriverManager.getConnection(url, properties);
+		if (waitTimeout != -1) {
+			logger.debug("mySQL: Setting wait_timeout to {} seconds.", waitTimeout);
+			Statement st = connection.createStatement();
+			try {
+				st.executeUpdate("SET SESSION wait_timeout=" + waitTimeout);
+			} finally {
+				st.close();
+			}
+		}
+		logger.debug("mySQL: Opened connection to database {}", url);
+		return new PooledConnection(connection);
+	}
+
+	/**
+	 * A connection of the pool together with its prepared statements.
+	 */
+	public static class PooledConnection {
+
+		private final Connection connection;
+		private final Map<String, PreparedStatement> statements = new HashMap<String, PreparedStatement>();
+
+		private PooledConnection(Connection connection) {
+			this.connection = connection;
+		}
+
+		public Connection getConnection() {
+			return connection;
+		}
+
+		/**
+		 * Returns the prepared statement for the given SQL, preparing it only if
+		 * it has not been used on this connection before.
+		 *
+		 * @param sql the SQL of the statement
+		 * @return the prepared statement
+		 * @throws SQLException if the statement could not be prepared
+		 */
+		public PreparedStatement prepare(String sql) throws SQLException {
+			PreparedStatement statement = statements.get(sql);
+			if (statement == null) {
+				statement = connection.prepareStatement(sql);
+				statements.put(sql, statement);
+			}
+			return statement;
+		}
+
+		private void close() {
+			try {
+				// this also closes all statements of the connection
+				connection.close();
+			} catch (SQLException e) {
+				logger.debug("mySQL: Failed closing database connection: {}", e.getMessage());
+			}
+			statements.clear();
+		}
+	}
+
+}
@@ -8,21 +8,29 @@
  */
 package org.openhab.persistence.mysql.internal;
 
-import java.text.SimpleDateFormat;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.Formatter;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -44,14 +52,18 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.types.UpDownType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.BatchingPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PersistenceRecord;
 import org.openhab.core.persistence.PersistenceService;
-import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.osgi.service.cm.ConfigurationException;
+import org.openhab.persistence.mysql.internal.MysqlConnectionPool.PooledConnection;
 import org.osgi.service.cm.ManagedService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,12 +89,21 @@ import org.slf4j.LoggerFactory;
  * keep the best resolution, we store as a number in SQL and convert to
  * DecimalType before persisting to MySQL.
  * 
+ * The service keeps a small pool of database connections with prepared
+ * statements per table. Optionally, values are buffered and written in
+ * batches, which are flushed when they reach the configured size or after
+ * the configured interval, whatever comes first.
+ * 
+ * Aggregates are computed by the database. The numeric aggregations are only
+ * supported for items which are stored as numbers, i.e. NumberItem, DimmerItem
+ * and RollershutterItem.
+ * 
  * @author Henrik Sjöstrand
  * @author Thomas.Eichstaedt-Engelen
  * @author Chris Jackson
  * @since 1.1.0
  */
-public class MysqlPersistenceService implements QueryablePersistenceService, ManagedService {
+public class MysqlPersistenceService implements AggregatingPersistenceService, BatchingPersistenceService, ManagedService {
 
 	private static final Pattern EXTRACT_CONFIG_PATTERN = Pattern.compile("^(.*?)\\.([0-9.a-zA-Z]+)$");
 
@@ -102,9 +123,22 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 	
 	private int waitTimeout = -1;
 
-	private Connection connection = null;
+	// the maximum number of database connections
+	private int maxConnections = 3;
+
+	// the number of values which are written at once, 0 or 1 to write every value immediately
+	private int batchSize = 0;
+
+	// the maximum time in milliseconds a value is buffered before it is written
+	private int batchInterval = 1000;
 
-	private Map<String, String> sqlTables = new HashMap<String, String>();
+	private volatile MysqlConnectionPool pool = null;
+
+	private final List<Row> pendingRows = new ArrayList<Row>();
+
+	private ScheduledExecutorService flushScheduler = null;
+
+	private Map<String, String> sqlTables = new ConcurrentHashMap<String, String>();
 	private Map<String, String> sqlTypes = new HashMap<String, String>();
 
 	public void activate() {
@@ -122,6 +156,8 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 
 	public void deactivate() {
 		logger.debug("mySQL persistence bundle stopping. Disconnecting from database.");
+		stopFlushScheduler();
+		flush();
 		disconnectFromDatabase();
 	}
 
@@ -141,7 +177,33 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 	}
 
 	private String getTable(Item item) {
-		Statement statement = null;
+		String tableName = sqlTables.get(item.getName());
+
+		// Table already exists - return the name
+		if (tableName != null)
+			return tableName;
+
+		MysqlConnectionPool pool = this.pool;
+		if (pool == null)
+			return null;
+
+		PooledConnection pooledConnection;
+		try {
+			pooledConnection = pool.borrow();
+		} catch (SQLException e) {
+			logger.error("mySQL: Could not create table for item '{}': {}", item.getName(), e.getMessage());
+			return null;
+		}
+		try {
+			return getTable(item, pooledConnection.getConnection());
+		} finally {
+			pool.release(pooledConnection, false);
+		}
+	}
+
+	private synchronized String getTable(Item item, Connection connection) {
+		PreparedStatement statement = null;
+		Statement createStatement = null;
 		String sqlCmd = null;
 		int rowId = 0;
 
@@ -149,17 +211,18 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 
 		String tableName = sqlTables.get(itemName);
 
-		// Table already exists - return the name
+		// Table might have been created by another thread in the meantime
 		if (tableName != null)
 			return tableName;
 
 		// Create a new entry in the Items table. This is the translation of
 		// item name to table
 		try {
-			sqlCmd = new String("INSERT INTO Items (ItemName) VALUES ('" + itemName + "')");
+			sqlCmd = "INSERT INTO Items (ItemName) VALUES (?)";
 
-			statement = connection.createStatement();
-			statement.executeUpdate(sqlCmd, Statement.RETURN_GENERATED_KEYS);
+			statement = connection.prepareStatement(sqlCmd, Statement.RETURN_GENERATED_KEYS);
+			statement.setString(1, itemName);
+			statement.executeUpdate();
 
 			ResultSet resultSet = statement.getGeneratedKeys();
 			if (resultSet != null && resultSet.next()) {
@@ -198,14 +261,15 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			mysqlType = sqlTypes.get(itemType);
 		}
 
-		// We have a rowId, create the table for the data
+		// We have a rowId, create the table for the data; the primary key on
+		// Time also serves as the index for queries by time range
 		sqlCmd = new String("CREATE TABLE " + tableName + " (Time DATETIME, Value " + mysqlType
 				+ ", PRIMARY KEY(Time));");
 		logger.debug("SQL: " + sqlCmd);
 
 		try {
-			statement = connection.createStatement();
-			statement.executeUpdate(sqlCmd);
+			createStatement = connection.createStatement();
+			createStatement.executeUpdate(sqlCmd);
 
 			logger.debug("mySQL: Table created for item '" + itemName + "' with datatype " + mysqlType
 					+ " in SQL database.");
@@ -214,9 +278,9 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			logger.error("mySQL: Could not create table for item '" + itemName + "' with statement '" + sqlCmd + "': "
 					+ e.getMessage());			
 		} finally {
-			if (statement != null) {
+			if (createStatement != null) {
 				try {
-					statement.close();
+					createStatement.close();
 				} catch (Exception hidden) {
 				}
 			}
@@ -227,12 +291,13 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 		// The item needs to be removed from the index table to avoid duplicates
 		if(sqlTables.get(itemName) == null) {
 			logger.error("mySQL: Item '{}' was not added to the table - removing index", itemName);
-			sqlCmd = new String("DELETE FROM Items WHERE ItemName='" + itemName+"'");
+			sqlCmd = "DELETE FROM Items WHERE ItemName=?";
 			logger.debug("SQL: {}", sqlCmd);
 	
 			try {
-				statement = connection.createStatement();
-				statement.executeUpdate(sqlCmd);	
+				statement = connection.prepareStatement(sqlCmd);
+				statement.setString(1, itemName);
+				statement.executeUpdate();	
 			} catch (Exception e) {
 				logger.error("mySQL: Could not remove index for item '" + itemName + "' with statement '" + sqlCmd + "': "
 						+ e.getMessage());			
@@ -280,50 +345,223 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			return;
 		}
 
-		// Do some type conversion to ensure we know the data type.
-		// This is necessary for items that have multiple types and may return their
-		// state in a format that's not preferred or compatible with the MySQL type.
-		// eg. DimmerItem can return OnOffType (ON, OFF), or PercentType (0-100).
-		// We need to make sure we cover the best type for serialisation.
-		String value;
-		if (item instanceof DimmerItem || item instanceof RollershutterItem) {
-			value = item.getStateAs(PercentType.class).toString();
-		} else if (item instanceof ColorItem) {
-			value = item.getStateAs(HSBType.class).toString();
+		String value = getValue(item, item.getState());
+		if (value == null) {
+			logger.warn("mySQL: Unable to store state '{}' of item '{}'.", item.getState(), item.getName());
+			return;
+		}
+
+		// the time is taken when the value is received, so that buffered and single values
+		// as well as the times of queries are all based on the clock of the JVM
+		Row row = new Row(item.getName(), tableName, new Date(), value);
+		if (batchSize > 1) {
+			List<Row> rows = null;
+			synchronized (pendingRows) {
+				pendingRows.add(row);
+				if (pendingRows.size() >= batchSize) {
+					rows = new ArrayList<Row>(pendingRows);
+					pendingRows.clear();
+				}
+			}
+			if (rows != null) {
+				writeRows(rows);
+			}
+		} else {
+			writeRows(Collections.singletonList(row));
+		}
+	}
+
+	/**
+	 * Converts a state of an item into the value which is stored in the table of the
+	 * item. This is necessary for items that have multiple types and may return their
+	 * state in a format that's not preferred or compatible with the MySQL type,
+	 * eg. DimmerItem can return OnOffType (ON, OFF), or PercentType (0-100).
+	 * 
+	 * @param item the item of the state
+	 * @param state the state to store, not necessarily the current state of the item
+	 * @return the value to store or <code>null</code>, if the state cannot be converted
+	 */
+	private static String getValue(Item item, State state) {
+		if (item instanceof ColorItem) {
+			if (state instanceof HSBType) {
+				return state.toString();
+			}
+			// a color cannot be derived from a brightness only, so we use the color of the item
+			State hsbState = item.getStateAs(HSBType.class);
+			return hsbState != null ? hsbState.toString() : null;
+		} else if (item instanceof DimmerItem || item instanceof RollershutterItem) {
+			if (state instanceof PercentType) {
+				return state.toString();
+			} else if (state == OnOffType.ON || state == UpDownType.DOWN) {
+				return PercentType.HUNDRED.toString();
+			} else if (state == OnOffType.OFF || state == UpDownType.UP) {
+				return PercentType.ZERO.toString();
+			}
+			return null;
 		} else {
 			// All other items should return the best format by default
-			value = item.getState().toString();
+			return state.toString();
 		}
+	}
 
-		String sqlCmd = null;
-		Statement statement = null;
+	/**
+	 * @{inheritDoc
+	 */
+	public void store(List<PersistenceRecord> records) {
+		if (initialized == false)
+			return;
+
+		if (!isConnected())
+			connectToDatabase();
+
+		if (!isConnected()) {
+			logger.warn("mySQL: No connection to database. Can not persist {} records! Will retry connecting to database next time.",
+					records.size());
+			return;
+		}
+
+		List<Row> rows = new ArrayList<Row>(records.size());
+		for (PersistenceRecord record : records) {
+			// Don't log undefined/uninitialised data
+			if (record.getState() instanceof UnDefType)
+				continue;
+
+			String tableName = getTable(record.getItem());
+			if (tableName == null) {
+				logger.error("Unable to store item '{}'.", record.getItem().getName());
+				continue;
+			}
+			String value = getValue(record.getItem(), record.getState());
+			if (value == null) {
+				logger.warn("mySQL: Unable to store state '{}' of item '{}'.", record.getState(), record.getItem().getName());
+				continue;
+			}
+			rows.add(new Row(record.getItem().getName(), tableName, record.getTimestamp(), value));
+		}
+		writeRows(rows);
+	}
+
+	/**
+	 * Writes all buffered values to the database.
+	 */
+	private void flush() {
+		List<Row> rows;
+		synchronized (pendingRows) {
+			if (pendingRows.isEmpty()) {
+				return;
+			}
+			rows = new ArrayList<Row>(pendingRows);
+			pendingRows.clear();
+		}
+		if (!isConnected()) {
+			logger.warn("mySQL: No connection to database. Dropping {} buffered values.", rows.size());
+			return;
+		}
+		writeRows(rows);
+	}
+
+	/**
+	 * Writes rows to the database using the prepared insert statement of each
+	 * table. Several rows are sent as a single batch, which the driver turns into
+	 * a multi-row insert. If a batch fails, e.g. because a table already has a
+	 * value for the same second, its rows are retried one by one, so that only
+	 * the failing rows are lost.
+	 */
+	private void writeRows(List<Row> rows) {
+		if (rows.isEmpty())
+			return;
+
+		MysqlConnectionPool pool = this.pool;
+		if (pool == null)
+			return;
+
+		PooledConnection pooledConnection = null;
+		boolean broken = false;
 		try {
-			statement = connection.createStatement();
-			sqlCmd = new String("INSERT INTO " + tableName + " (TIME, VALUE) VALUES(NOW(),'"
-					+ item.getState().toString() + "');");
-			statement.executeUpdate(sqlCmd);
+			pooledConnection = pool.borrow();
+
+			// group the rows by statement, keeping their order
+			Map<String, List<Row>> batches = new LinkedHashMap<String, List<Row>>();
+			for (Row row : rows) {
+				String sql = getInsertStatement(row);
+				List<Row> batch = batches.get(sql);
+				if (batch == null) {
+					batch = new ArrayList<Row>();
+					batches.put(sql, batch);
+				}
+				batch.add(row);
+			}
+			for (Map.Entry<String, List<Row>> batch : batches.entrySet()) {
+				PreparedStatement statement = pooledConnection.prepare(batch.getKey());
+				if (batch.getValue().size() == 1) {
+					setParameters(statement, batch.getValue().get(0));
+					statement.executeUpdate();
+					continue;
+				}
+				for (Row row : batch.getValue()) {
+					setParameters(statement, row);
+					statement.addBatch();
+				}
+				try {
+					statement.executeBatch();
+				} catch (BatchUpdateException e) {
+					logger.debug("mySQL: Batch of {} values failed, storing them one by one: {}", batch.getValue().size(), e.getMessage());
+					statement.clearBatch();
+					writeRowsOneByOne(statement, batch.getValue());
+				}
+			}
 
-			logger.debug("mySQL: Stored item '{}' as '{}'[{}] in SQL database at {}.", item.getName(), item.getState()
-					.toString(), value, (new java.util.Date()).toString());
-			logger.debug("mySQL: {}", sqlCmd);
+			if (logger.isDebugEnabled()) {
+				for (Row row : rows) {
+					logger.debug("mySQL: Stored item '{}' as '{}' in SQL database at {}.", new Object[] { row.itemName,
+							row.value, row.timestamp });
+				}
+			}
 
 			// Success
 			errCnt = 0;
-		} catch (Exception e) {
+		} catch (SQLException e) {
 			errCnt++;
+			broken = MysqlConnectionPool.isConnectionError(e);
 
-			logger.error("mySQL: Could not store item '{}' in database with statement '{}': {}", item.getName(),
-					sqlCmd, e.getMessage());
+			logger.error("mySQL: Could not store {} values in database: {}", rows.size(), e.getMessage());
 		} finally {
-			if (statement != null) {
-				try {
-					statement.close();
-				} catch (Exception hidden) {
+			if (pooledConnection != null) {
+				pool.release(pooledConnection, broken);
+			}
+		}
+	}
+
+	/**
+	 * Writes rows with the given statement one after the other. Rows which fail,
+	 * e.g. because a value for the same second has already been stored, are logged
+	 * and skipped, as it has been the case before batches were written.
+	 */
+	private void writeRowsOneByOne(PreparedStatement statement, List<Row> rows) throws SQLException {
+		for (Row row : rows) {
+			try {
+				setParameters(statement, row);
+				statement.executeUpdate();
+			} catch (SQLException e) {
+				if (MysqlConnectionPool.isConnectionError(e)) {
+					throw e;
 				}
+				logger.error("mySQL: Could not store item '{}' in database: {}", row.itemName, e.getMessage());
 			}
 		}
 	}
 
+	private static String getInsertStatement(Row row) {
+		return "INSERT INTO " + row.tableName + " (TIME, VALUE) VALUES(?,?)";
+	}
+
+	private static void setParameters(PreparedStatement statement, Row row) throws SQLException {
+		// the Time column has a resolution of seconds
+		long time = row.timestamp.getTime();
+		statement.setTimestamp(1, new Timestamp(time - time % 1000));
+		statement.setString(2, row.value);
+	}
+
 	/**
 	 * @{inheritDoc
 	 */
@@ -343,32 +581,33 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			logger.error("mySQL: Error count exceeded {}. Disconnecting database.", errReconnectThreshold);
 			disconnectFromDatabase();
 		}
-		return connection != null;
+		return pool != null;
 	}
 
 	/**
 	 * Connects to the database
 	 */
-	private void connectToDatabase() {
+	private synchronized void connectToDatabase() {
+		if (pool != null)
+			return;
+
+		MysqlConnectionPool newPool = null;
+		PooledConnection pooledConnection = null;
 		try {
 			// Reset the error counter
 			errCnt = 0;
 
 			logger.debug("mySQL: Attempting to connect to database {}", url);
 			Class.forName(driverClass).newInstance();
-			connection = DriverManager.getConnection(url, user, password);
+			newPool = new MysqlConnectionPool(url, user, password, waitTimeout, maxConnections);
+			pooledConnection = newPool.borrow();
+			Connection connection = pooledConnection.getConnection();
 			logger.debug("mySQL: Connected to database {}", url);
 
 			Statement st = connection.createStatement();
 			int result = st.executeUpdate("SHOW TABLES LIKE 'Items'");
 			st.close();
 			
-			if(waitTimeout != -1) {
-				logger.debug("mySQL: Setting wait_timeout to {} seconds.", waitTimeout);
-				st = connection.createStatement();
-				st.executeUpdate("SET SESSION wait_timeout="+waitTimeout);
-				st.close();
-			}
 			if (result == 0) {
 				st = connection.createStatement();
 				st.executeUpdate(
@@ -388,24 +627,53 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			}
 			rs.close();
 			st.close();
+
+			newPool.release(pooledConnection, false);
+			pool = newPool;
 		} catch (Exception e) {
 			logger.error("mySQL: Failed connecting to the SQL database using: driverClass=" + driverClass + ", url="
 					+ url + ", user=" + user + ", password=" + password, e);
+			if (newPool != null) {
+				if (pooledConnection != null) {
+					newPool.release(pooledConnection, true);
+				}
+				newPool.close();
+			}
 		}
 	}
 
 	/**
 	 * Disconnects from the database
 	 */
-	private void disconnectFromDatabase() {
-		if (connection != null) {
-			try {
-				connection.close();
-				logger.debug("mySQL: Disconnected from database {}", url);
-			} catch (Exception e) {
-				logger.error("mySQL: Failed disconnecting from the SQL database {}", e);
-			}
-			connection = null;
+	private synchronized void disconnectFromDatabase() {
+		if (pool != null) {
+			pool.close();
+			pool = null;
+		}
+	}
+
+	private synchronized void startFlushScheduler() {
+		stopFlushScheduler();
+		if (batchSize > 1) {
+			flushScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "mySQL persistence flusher");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			flushScheduler.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					flush();
+				}
+			}, batchInterval, batchInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private synchronized void stopFlushScheduler() {
+		if (flushScheduler != null) {
+			flushScheduler.shutdown();
+			flushScheduler = null;
 		}
 	}
 
@@ -482,8 +750,28 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 				waitTimeout = Integer.parseInt(tmpString);
 			}
 
+			tmpString = (String) config.get("maxConnections");
+			if (StringUtils.isNotBlank(tmpString)) {
+				maxConnections = Integer.parseInt(tmpString);
+			}
+
+			tmpString = (String) config.get("batchSize");
+			if (StringUtils.isNotBlank(tmpString)) {
+				batchSize = Integer.parseInt(tmpString);
+			}
+
+			tmpString = (String) config.get("batchInterval");
+			if (StringUtils.isNotBlank(tmpString)) {
+				batchInterval = Integer.parseInt(tmpString);
+			}
+
+			// write what has been buffered with the old configuration
+			stopFlushScheduler();
+			flush();
+
 			disconnectFromDatabase();
 			connectToDatabase();
+			startFlushScheduler();
 
 			// connection has been established ... initialization completed!
 			initialized = true;
@@ -502,8 +790,6 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 		if (!isConnected())
 			return Collections.emptyList();
 
-		SimpleDateFormat mysqlDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-
 		// Get the item name from the filter
 		// Also get the Item object so we can determine the type
 		Item item = null;
@@ -526,22 +812,8 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			return Collections.emptyList();
 		}
 
-		String filterString = new String();
-
-		if (filter.getBeginDate() != null) {
-			if (filterString.isEmpty())
-				filterString += " WHERE";
-			else
-				filterString += " AND";
-			filterString += " TIME>'" + mysqlDateFormat.format(filter.getBeginDate()) + "'";
-		}
-		if (filter.getEndDate() != null) {
-			if (filterString.isEmpty())
-				filterString += " WHERE";
-			else
-				filterString += " AND";
-			filterString += " TIME<'" + mysqlDateFormat.format(filter.getEndDate().getTime()) + "'";
-		}
+		List<Timestamp> parameters = new ArrayList<Timestamp>();
+		String filterString = getWhereClause(filter, parameters);
 
 		if (filter.getOrdering() == Ordering.ASCENDING) {
 			filterString += " ORDER BY Time ASC";
@@ -549,58 +821,50 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			filterString += " ORDER BY Time DESC";
 		}
 
-		if (filter.getPageSize() != 0x7fffffff)
-			filterString += " LIMIT " + filter.getPageNumber() * filter.getPageSize() + "," + filter.getPageSize();
+		boolean paged = filter.getPageSize() != 0x7fffffff;
+		if (paged)
+			filterString += " LIMIT ?,?";
 
+		MysqlConnectionPool pool = this.pool;
+		if (pool == null)
+			return Collections.emptyList();
+
+		PooledConnection pooledConnection = null;
+		boolean broken = false;
 		try {
 			long timerStart = System.currentTimeMillis();
 
-			// Retrieve the table array
-			Statement st = connection.createStatement();
-
-			String queryString = new String();
-			queryString = "SELECT Time, Value FROM " + table;
-			if (!filterString.isEmpty())
-				queryString += filterString;
+			String queryString = "SELECT Time, Value FROM " + table + filterString;
 
 			logger.debug("mySQL: " + queryString);
 
+			pooledConnection = pool.borrow();
+			PreparedStatement st = pooledConnection.prepare(queryString);
+
 			// Turn use of the cursor on.
 			st.setFetchSize(50);
 
-			ResultSet rs = st.executeQuery(queryString);
+			int index = 1;
+			for (Timestamp parameter : parameters) {
+				st.setTimestamp(index++, parameter);
+			}
+			if (paged) {
+				st.setInt(index++, filter.getPageNumber() * filter.getPageSize());
+				st.setInt(index++, filter.getPageSize());
+			}
+
+			ResultSet rs = st.executeQuery();
 
 			long count = 0;
 			List<HistoricItem> items = new ArrayList<HistoricItem>();
-			State state;
 			while (rs.next()) {
 				count++;
 
-				if (item instanceof NumberItem)
-					state = new DecimalType(rs.getDouble(2));
-				else if (item instanceof DimmerItem)
-					state = new PercentType(rs.getInt(2));
-				else if (item instanceof SwitchItem)
-					state = OnOffType.valueOf(rs.getString(2));
-				else if (item instanceof ContactItem)
-					state = OpenClosedType.valueOf(rs.getString(2));
-				else if (item instanceof RollershutterItem)
-					state = new PercentType(rs.getInt(2));
-				else if (item instanceof ColorItem)
-					state = new HSBType(rs.getString(2));
-				else if (item instanceof DateTimeItem) {
-					Calendar calendar = Calendar.getInstance();
-					calendar.setTimeInMillis(rs.getTimestamp(2).getTime());
-					state = new DateTimeType(calendar);
-				} else
-					state = new StringType(rs.getString(2));
-
-				MysqlItem mysqlItem = new MysqlItem(itemName, state, rs.getTimestamp(1));
+				MysqlItem mysqlItem = new MysqlItem(itemName, getState(item, rs), rs.getTimestamp(1));
 				items.add(mysqlItem);
 			}
 
 			rs.close();
-			st.close();
 
 			long timerStop = System.currentTimeMillis();
 			logger.debug("mySQL: query returned {} rows in {}ms", count, timerStop - timerStart);
@@ -611,8 +875,227 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			return items;
 		} catch (SQLException e) {
 			errCnt++;
+			broken = MysqlConnectionPool.isConnectionError(e);
 			logger.error("mySQL: Error running querying : " + e.getMessage());
+		} finally {
+			if (pooledConnection != null) {
+				pool.release(pooledConnection, broken);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @{inheritDoc
+	 */
+	public HistoricItem aggregate(FilterCriteria filter, Aggregation aggregation) {
+		if (!initialized)
+			return null;
+
+		if (!isConnected())
+			connectToDatabase();
+
+		if (!isConnected())
+			return null;
+
+		Item item = null;
+		String itemName = filter.getItemName();
+		try {
+			if (itemRegistry != null) {
+				item = itemRegistry.getItem(itemName);
+			}
+		} catch (ItemNotFoundException e1) {
+			logger.error("Unable to get item type for {}", itemName);
+		}
+
+		String table = sqlTables.get(itemName);
+		if (table == null) {
+			logger.error("mySQL: Unable to find table for query '" + itemName + "'.");
+			return null;
+		}
+
+		boolean numeric = item instanceof NumberItem || item instanceof DimmerItem
+				|| item instanceof RollershutterItem;
+
+		List<Timestamp> parameters = new ArrayList<Timestamp>();
+		String filterString = getWhereClause(filter, parameters);
+
+		String queryString;
+		switch (aggregation) {
+		case FIRST:
+			queryString = "SELECT Time, Value FROM " + table + filterString + " ORDER BY Time ASC LIMIT 1";
+			break;
+		case LAST:
+			queryString = "SELECT Time, Value FROM " + table + filterString + " ORDER BY Time DESC LIMIT 1";
+			break;
+		case CHANGED:
+			queryString = "SELECT COUNT(DISTINCT Value) FROM " + table + filterString;
+			break;
+		default:
+			if (!numeric) {
+				// there are no decimal values to aggregate
+				return null;
+			}
+			switch (aggregation) {
+			case MINIMUM:
+				queryString = "SELECT Time, Value FROM " + table + filterString + " ORDER BY Value ASC, Time ASC LIMIT 1";
+				break;
+			case MAXIMUM:
+				queryString = "SELECT Time, Value FROM " + table + filterString + " ORDER BY Value DESC, Time ASC LIMIT 1";
+				break;
+			case AVERAGE:
+				queryString = "SELECT AVG(Value) FROM " + table + filterString;
+				break;
+			case SUM:
+				queryString = "SELECT SUM(Value) FROM " + table + filterString;
+				break;
+			case COUNT:
+				queryString = "SELECT COUNT(Value) FROM " + table + filterString;
+				break;
+			default:
+				throw new UnsupportedOperationException("Aggregation " + aggregation + " is not supported");
+			}
+		}
+
+		MysqlConnectionPool pool = this.pool;
+		if (pool == null)
+			return null;
+
+		PooledConnection pooledConnection = null;
+		boolean broken = false;
+		try {
+			logger.debug("mySQL: " + queryString);
+
+			pooledConnection = pool.borrow();
+			PreparedStatement st = pooledConnection.prepare(queryString);
+
+			int index = 1;
+			for (Timestamp parameter : parameters) {
+				st.setTimestamp(index++, parameter);
+			}
+
+			ResultSet rs = st.executeQuery();
+			HistoricItem result = null;
+			if (rs.next()) {
+				Date timestamp = filter.getEndDate() != null ? filter.getEndDate() : new Date();
+				switch (aggregation) {
+				case FIRST:
+				case LAST:
+				case MINIMUM:
+				case MAXIMUM:
+					result = new MysqlItem(itemName, getState(item, rs), rs.getTimestamp(1));
+					break;
+				case CHANGED:
+					long distinctValues = rs.getLong(1);
+					if (distinctValues > 0) {
+						result = new MysqlItem(itemName, distinctValues > 1 ? OnOffType.ON : OnOffType.OFF, timestamp);
+					}
+					break;
+				case COUNT:
+					long count = rs.getLong(1);
+					if (count > 0) {
+						result = new MysqlItem(itemName, new DecimalType(count), timestamp);
+					}
+					break;
+				default:
+					double value = rs.getDouble(1);
+					if (!rs.wasNull()) {
+						result = new MysqlItem(itemName, new DecimalType(value), timestamp);
+					}
+				}
+			}
+			rs.close();
+
+			// Success
+			errCnt = 0;
+
+			return result;
+		} catch (SQLException e) {
+			errCnt++;
+			broken = MysqlConnectionPool.isConnectionError(e);
+			logger.error("mySQL: Error running aggregation : " + e.getMessage());
+		} finally {
+			if (pooledConnection != null) {
+				pool.release(pooledConnection, broken);
+			}
 		}
 		return null;
 	}
+
+	/**
+	 * Builds the WHERE clause for the time range of the filter. The dates are
+	 * passed as parameters, so that the statement can be prepared once per
+	 * table and combination of filters.
+	 * 
+	 * @param parameters the list the dates are added to
+	 * @return the WHERE clause, or an empty string if there is no time range
+	 */
+	private String getWhereClause(FilterCriteria filter, List<Timestamp> parameters) {
+		String filterString = new String();
+
+		if (filter.getBeginDate() != null) {
+			if (filterString.isEmpty())
+				filterString += " WHERE";
+			else
+				filterString += " AND";
+			filterString += " TIME>?";
+			parameters.add(new Timestamp(filter.getBeginDate().getTime()));
+		}
+		if (filter.getEndDate() != null) {
+			if (filterString.isEmpty())
+				filterString += " WHERE";
+			else
+				filterString += " AND";
+			filterString += " TIME<?";
+			parameters.add(new Timestamp(filter.getEndDate().getTime()));
+		}
+		return filterString;
+	}
+
+	/**
+	 * Converts the value in the second column of the current row into a state
+	 * of the type of the item.
+	 * 
+	 * @param item the item, or <code>null</code> if it is unknown
+	 */
+	private State getState(Item item, ResultSet rs) throws SQLException {
+		if (item instanceof NumberItem)
+			return new DecimalType(rs.getDouble(2));
+		else if (item instanceof DimmerItem)
+			return new PercentType(rs.getInt(2));
+		else if (item instanceof SwitchItem)
+			return OnOffType.valueOf(rs.getString(2));
+		else if (item instanceof ContactItem)
+			return OpenClosedType.valueOf(rs.getString(2));
+		else if (item instanceof RollershutterItem)
+			return new PercentType(rs.getInt(2));
+		else if (item instanceof ColorItem)
+			return new HSBType(rs.getString(2));
+		else if (item instanceof DateTimeItem) {
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTimeInMillis(rs.getTimestamp(2).getTime());
+			return new DateTimeType(calendar);
+		} else
+			return new StringType(rs.getString(2));
+	}
+
+	/**
+	 * A single value which is written to the table of an item.
+	 */
+	private static class Row {
+
+		private final String itemName;
+		private final String tableName;
+		/** the time of the value, as taken from the clock of the JVM */
+		private final Date timestamp;
+		private final String value;
+
+		public Row(String itemName, String tableName, Date timestamp, String value) {
+			this.itemName = itemName;
+			this.tableName = tableName;
+			this.timestamp = timestamp;
+			this.value = value;
+		}
+	}
+
 }
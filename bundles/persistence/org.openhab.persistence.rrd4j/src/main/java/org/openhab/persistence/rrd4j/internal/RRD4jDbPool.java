@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.rrd4j.core.RrdDb;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of open {@link RrdDb} instances, keyed by the alias of the
+ * database. Keeping the databases open avoids opening the file and parsing its
+ * header for every single sample.
+ * <p>Each database which is handed out by {@link #request(String)} or
+ * {@link #put(String, RrdDb)} must be given back by {@link #release(RrdDb)}.
+ * Databases are only closed when they are not in use: if the pool exceeds its
+ * capacity, the least recently used databases are closed, and databases
+ * which have not been used for a while are closed by {@link #closeIdle()}.</p>
+ *
+ * @author agent
+ * @since 1.5.0
+ */
+public class RRD4jDbPool {
+
+	private static final Logger logger = LoggerFactory.getLogger(RRD4jDbPool.class);
+
+	private int capacity;
+	private long idleTimeout;
+
+	/** the pooled databases in the order of their last use */
+	private final LinkedHashMap<String, PooledDb> databases = new LinkedHashMap<String, PooledDb>(16, 0.75f, true);
+
+	/** the pooled databases which are currently in use */
+	private final Map<RrdDb, PooledDb> usedDatabases = new IdentityHashMap<RrdDb, PooledDb>();
+
+	/**
+	 * @param capacity the maximum number of databases which are kept open while not in use
+	 * @param idleTimeout the time in milliseconds after which an unused database is closed
+	 */
+	public RRD4jDbPool(int capacity, long idleTimeout) {
+		this.capacity = Math.max(1, capacity);
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Changes the capacity of the pool, closing databases which exceed it.
+	 *
+	 * @param capacity the maximum number of databases which are kept open while not in use
+	 */
+	public synchronized void setCapacity(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		evictExceedingDatabases();
+	}
+
+	/**
+	 * @param idleTimeout the time in milliseconds after which an unused database is closed
+	 */
+	public synchronized void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Returns the open database for the given alias, if there is one in the pool.
+	 *
+	 * @param alias the alias of the database
+	 * @return the database or <code>null</code>, if the database has not been opened yet
+	 */
+	public synchronized RrdDb request(String alias) {
+		PooledDb pooledDb = databases.get(alias);
+		if(pooledDb==null) {
+			return null;
+		}
+		return use(pooledDb);
+	}
+
+	/**
+	 * Adds a database which has just been opened to the pool and hands it out.
+	 * If the pool already contains a database for this alias, the given database
+	 * is closed and the pooled one is returned instead.
+	 *
+	 * @param alias the alias of the database
+	 * @param db the database which has been opened
+	 * @return the database to use
+	 */
+	public synchronized RrdDb put(String alias, RrdDb db) {
+		PooledDb pooledDb = databases.get(alias);
+		if(pooledDb!=null) {
+			close(alias, db);
+			return use(pooledDb);
+		}
+		pooledDb = new PooledDb(alias, db);
+		databases.put(alias, pooledDb);
+		use(pooledDb);
+		evictExceedingDatabases();
+		return db;
+	}
+
+	/**
+	 * Gives back a database which has been handed out by this pool.
+	 *
+	 * @param db the database to give back
+	 */
+	public synchronized void release(RrdDb db) {
+		PooledDb pooledDb = usedDatabases.get(db);
+		if(pooledDb==null) {
+			logger.debug("Released rrd4j database '{}' does not belong to the pool.", db.getPath());
+			return;
+		}
+		pooledDb.lastUsed = System.currentTimeMillis();
+		if(--pooledDb.usageCount==0) {
+			usedDatabases.remove(db);
+			if(databases.get(pooledDb.alias)!=pooledDb) {
+				// the pool has been closed while the database was in use
+				close(pooledDb.alias, db);
+			} else {
+				evictExceedingDatabases();
+			}
+		}
+	}
+
+	/**
+	 * Closes all databases which are not in use and have not been used within
+	 * the idle timeout.
+	 */
+	public synchronized void closeIdle() {
+		long idleSince = System.currentTimeMillis() - idleTimeout;
+		List<PooledDb> idleDatabases = new ArrayList<PooledDb>();
+		for(PooledDb pooledDb : databases.values()) {
+			if(pooledDb.usageCount==0 && pooledDb.lastUsed < idleSince) {
+				idleDatabases.add(pooledDb);
+			}
+		}
+		for(PooledDb pooledDb : idleDatabases) {
+			databases.remove(pooledDb.alias);
+			close(pooledDb.alias, pooledDb.db);
+		}
+		if(!idleDatabases.isEmpty()) {
+			logger.debug("Closed {} idle rrd4j databases, {} remain open.", idleDatabases.size(), databases.size());
+		}
+	}
+
+	/**
+	 * Closes all databases of the pool. Databases which are still in use are
+	 * closed as soon as they are released.
+	 */
+	public synchronized void closeAll() {
+		for(PooledDb pooledDb : databases.values()) {
+			if(pooledDb.usageCount==0) {
+				close(pooledDb.alias, pooledDb.db);
+			}
+		}
+		databases.clear();
+	}
+
+	/**
+	 * @return the number of databases which are currently open in the pool
+	 */
+	public synchronized int size() {
+		return databases.size();
+	}
+
+	private RrdDb use(PooledDb pooledDb) {
+		if(pooledDb.usageCount++==0) {
+			usedDatabases.put(pooledDb.db, pooledDb);
+		}
+		pooledDb.lastUsed = System.currentTimeMillis();
+		return pooledDb.db;
+	}
+
+	private void evictExceedingDatabases() {
+		Iterator<PooledDb> iterator = databases.values().iterator();
+		while(databases.size() > capacity && iterator.hasNext()) {
+			PooledDb pooledDb = iterator.next();
+			if(pooledDb.usageCount==0) {
+				iterator.remove();
+				close(pooledDb.alias, pooledDb.db);
+			}
+		}
+	}
+
+	private void close(String alias, RrdDb db) {
+		try {
+			db.close();
+		} catch (IOException e) {
+			logger.debug("Error closing rrd4j database '{}': {}", alias, e.getMessage());
+		}
+	}
+
+	private static class PooledDb {
+
+		private final String alias;
+		private final RrdDb db;
+		private int usageCount = 0;
+		private long lastUsed;
+
+		public PooledDb(String alias, RrdDb db) {
+			this.alias = alias;
+			this.db = db;
+		}
+	}
+
+}
@@ -13,12 +13,18 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
 
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -30,12 +36,14 @@ import org.openhab.core.library.items.SwitchItem;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
-import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.State;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.rrd4j.ConsolFun;
 import org.rrd4j.DsType;
 import org.rrd4j.core.FetchData;
@@ -50,11 +58,15 @@ import org.slf4j.LoggerFactory;
 /**
  * This is the implementation of the RRD4j {@link PersistenceService}. To learn
  * more about RRD4j please visit their <a href="http://code.google.com/p/rrd4j/">website</a>.
+ * <p>The databases are kept open in a {@link RRD4jDbPool}, so that storing a sample does
+ * not require to open and close the database file every time.</p>
+ * <p>Aggregates are computed in a single pass over the values of the consolidated
+ * archive, without creating a historic item for every value.</p>
  * 
  * @author Kai Kreuzer
  * @since 1.0.0
  */
-public class RRD4jService implements QueryablePersistenceService {
+public class RRD4jService implements AggregatingPersistenceService, ManagedService {
 
 	private static final String DATASOURCE_STATE = "state";
 
@@ -62,10 +74,48 @@ public class RRD4jService implements QueryablePersistenceService {
 	
 	private static final Logger logger = LoggerFactory.getLogger(RRD4jService.class);
 
-	private Map<String,Timer> timers = new HashMap<String,Timer>();
+	/** the default maximum number of databases which are kept open */
+	private static final int DEFAULT_MAX_OPEN_FILES = 200;
+
+	/** the default time in seconds after which an unused database is closed */
+	private static final int DEFAULT_IDLE_TIMEOUT = 300;
+
+	/** the pending retries of storing a value, by alias */
+	private final Map<String, ScheduledFuture<?>> retries = new HashMap<String, ScheduledFuture<?>>();
 	
+	private ScheduledExecutorService scheduler;
+
+	private ScheduledFuture<?> idleJob;
+
+	private final RRD4jDbPool pool = new RRD4jDbPool(DEFAULT_MAX_OPEN_FILES, DEFAULT_IDLE_TIMEOUT * 1000L);
+
+	private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+
+	private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
 	protected ItemRegistry itemRegistry;
 	
+	public void activate() {
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "RRD4j scheduler");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduleIdleJob();
+	}
+
+	public synchronized void deactivate() {
+		if(scheduler!=null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		idleJob = null;
+		retries.clear();
+		pool.closeAll();
+	}
+
 	public void setItemRegistry(ItemRegistry itemRegistry) {
 		this.itemRegistry = itemRegistry;
 	}
@@ -124,30 +174,37 @@ public class RRD4jService implements QueryablePersistenceService {
 				if(e.getMessage().contains("at least one second step is required")) {
 
 					// we try to store the value one second later
-					TimerTask task = new TimerTask() {
-						public void run() {
-							store(item, name);
-						}
-					};
-					Timer timer = timers.get(name);
-					if(timer!=null) {
-						timer.cancel();
-						timers.remove(name);
-					}
-					timer = new Timer();
-					timers.put(name, timer);
-					timer.schedule(task, 1000);
+					scheduleRetry(item, name);
 				} else {
 					logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
 				}
 			} catch (Exception e) {
 				logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
 			}
-            try {
-				db.close();
-			} catch (IOException e) {
-				logger.debug("Error closing rrd4j database: {}", e.getMessage());
-			}
+			pool.release(db);
+		}
+	}
+
+	private void scheduleRetry(final Item item, final String name) {
+		if(scheduler==null) {
+			return;
+		}
+		ScheduledFuture<?> retry = retries.remove(name);
+		if(retry!=null) {
+			retry.cancel(false);
+		}
+		try {
+			retries.put(name, scheduler.schedule(new Runnable() {
+				public void run() {
+					synchronized(RRD4jService.this) {
+						retries.remove(name);
+					}
+					store(item, name);
+				}
+			}, 1, TimeUnit.SECONDS));
+		} catch(RejectedExecutionException e) {
+			// this happens if the system is shut down
+			logger.debug("Could not schedule storing '{}' in rrd4j database: {}", name, e.getMessage());
 		}
 	}
 
@@ -208,25 +265,111 @@ public class RRD4jService implements QueryablePersistenceService {
 				return items;
 			} catch (IOException e) {
 				logger.warn("Could not query rrd4j database for item '{}': {}", new String[] { itemName, e.getMessage() });
-			}	
+			} finally {
+				pool.release(db);
+			}
 		}
 		return Collections.emptyList();
 	}
 
+	/**
+	 * @{inheritDoc}
+	 */
+	public HistoricItem aggregate(FilterCriteria filter, Aggregation aggregation) {
+		if(filter.getBeginDate()==null) {
+			throw new UnsupportedOperationException("rrd4j does not allow aggregations without a begin date");
+		}
+		String itemName = filter.getItemName();
+		ConsolFun consolidationFunction = getConsolidationFunction(itemName);
+		RrdDb db = getDB(itemName, consolidationFunction);
+		if(db==null) {
+			return null;
+		}
+		try {
+			long start = filter.getBeginDate().getTime()/1000;
+			long end = filter.getEndDate()==null ? System.currentTimeMillis()/1000 - 1 : filter.getEndDate().getTime()/1000;
+			FetchData result = db.createFetchRequest(consolidationFunction, start, end, 1).fetchData();
+			double[] values = result.getValues(DATASOURCE_STATE);
+			long ts = result.getFirstTimestamp();
+			long step = result.getRowCount() > 1 ? result.getStep() : 0;
+
+			// switches and contacts are not mapped to decimal states
+			boolean decimal = mapToState(0.0d, itemName) instanceof DecimalType;
+
+			int first = -1, last = -1, minimum = -1, maximum = -1, count = 0;
+			double sum = 0.0d;
+			boolean changed = false;
+			for(int i = 0; i < values.length; i++) {
+				double value = values[i];
+				if(Double.isNaN(value)) {
+					continue;
+				}
+				if(first < 0) {
+					first = i;
+				} else if(!changed) {
+					changed = decimal ? value!=values[first] : (value==0.0d)!=(values[first]==0.0d);
+				}
+				last = i;
+				if(minimum < 0 || value < values[minimum]) {
+					minimum = i;
+				}
+				if(maximum < 0 || value > values[maximum]) {
+					maximum = i;
+				}
+				sum += value;
+				count++;
+			}
+			if(first < 0) {
+				return null;
+			}
+
+			Date endDate = new Date(end * 1000);
+			switch(aggregation) {
+				case FIRST : return new RRD4jItem(itemName, mapToState(values[first], itemName), new Date((ts + first * step) * 1000));
+				case LAST : return new RRD4jItem(itemName, mapToState(values[last], itemName), new Date((ts + last * step) * 1000));
+				case CHANGED : return new RRD4jItem(itemName, changed ? OnOffType.ON : OnOffType.OFF, endDate);
+				default : break;
+			}
+			if(!decimal) {
+				return null;
+			}
+			switch(aggregation) {
+				case MINIMUM : return new RRD4jItem(itemName, new DecimalType(values[minimum]), new Date((ts + minimum * step) * 1000));
+				case MAXIMUM : return new RRD4jItem(itemName, new DecimalType(values[maximum]), new Date((ts + maximum * step) * 1000));
+				case AVERAGE : return new RRD4jItem(itemName, new DecimalType(sum / count), endDate);
+				case SUM : return new RRD4jItem(itemName, new DecimalType(sum), endDate);
+				case COUNT : return new RRD4jItem(itemName, new DecimalType(count), endDate);
+				default : throw new UnsupportedOperationException("Aggregation " + aggregation + " is not supported");
+			}
+		} catch (IOException e) {
+			logger.warn("Could not query rrd4j database for item '{}': {}", new String[] { itemName, e.getMessage() });
+			return null;
+		} finally {
+			pool.release(db);
+		}
+	}
+
+	/**
+	 * Returns the database for the given alias from the pool, opening or creating
+	 * it if necessary. The database must be given back to the pool after use.
+	 */
 	protected synchronized RrdDb getDB(String alias, ConsolFun function) {
-		RrdDb db = null;
+		RrdDb db = pool.request(alias);
+		if(db!=null) {
+			return db;
+		}
         File file = new File(DB_FOLDER + File.separator + alias + ".rrd");
     	try {
             if (file.exists()) {
             	// recreate the RrdDb instance from the file
-            	db = new RrdDb(file.getAbsolutePath());
+            	db = pool.put(alias, new RrdDb(file.getAbsolutePath()));
             } else {
             	File folder = new File(DB_FOLDER);
             	if(!folder.exists()) {
             		folder.mkdir();
             	}
             	// create a new database file
-                db = new RrdDb(getRrdDef(function, file));
+                db = pool.put(alias, new RrdDb(getRrdDef(function, file)));
             }
 		} catch (IOException e) {
 			logger.error("Could not create rrd4j database file '{}': {}", new String[] { file.getAbsolutePath(), e.getMessage() });
@@ -303,5 +446,51 @@ public class RRD4jService implements QueryablePersistenceService {
 		// just return a DecimalType as a fallback
 		return new DecimalType(value);
 	}
-	
+
+	@SuppressWarnings("rawtypes")
+	public synchronized void updated(Dictionary config) throws ConfigurationException {
+		int newMaxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+		int newIdleTimeout = DEFAULT_IDLE_TIMEOUT;
+		if (config!=null) {
+			newMaxOpenFiles = parseInt(config, "maxOpenFiles", DEFAULT_MAX_OPEN_FILES);
+			newIdleTimeout = parseInt(config, "idleTimeout", DEFAULT_IDLE_TIMEOUT);
+		}
+		if(newMaxOpenFiles!=maxOpenFiles || newIdleTimeout!=idleTimeout) {
+			maxOpenFiles = newMaxOpenFiles;
+			idleTimeout = newIdleTimeout;
+			pool.setCapacity(maxOpenFiles);
+			pool.setIdleTimeout(idleTimeout * 1000L);
+			scheduleIdleJob();
+			logger.debug("rrd4j database pool has been reconfigured (maxOpenFiles={}, idleTimeout={}s).", maxOpenFiles, idleTimeout);
+		}
+	}
+
+	private synchronized void scheduleIdleJob() {
+		if(scheduler==null) {
+			return;
+		}
+		if(idleJob!=null) {
+			idleJob.cancel(false);
+		}
+		long period = Math.max(1, idleTimeout / 2);
+		idleJob = scheduler.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				pool.closeIdle();
+			}
+		}, period, period, TimeUnit.SECONDS);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static int parseInt(Dictionary config, String key, int defaultValue) throws ConfigurationException {
+		String value = (String) config.get(key);
+		if(StringUtils.isBlank(value)) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new ConfigurationException(key, "'" + value + "' is not a valid number");
+		}
+	}
+
 }
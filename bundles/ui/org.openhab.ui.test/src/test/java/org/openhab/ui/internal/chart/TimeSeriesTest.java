@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.internal.chart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author agent
+ * @since 1.5.0
+ */
+public class TimeSeriesTest {
+
+	@Test
+	public void testSmallSeriesIsNotDownsampled() {
+		TimeSeries series = createSeries(40);
+		assertSame(series, series.downsample(0, 40, 10));
+		assertSame(series, series.downsample(0, 40, 0));
+		assertSame(series, series.downsample(40, 0, 10));
+	}
+
+	@Test
+	public void testDownsample() {
+		// 10 columns of 100 values each, the minimum and the maximum are in the middle of a column
+		TimeSeries series = new TimeSeries();
+		for (int i = 0; i < 1000; i++) {
+			double value = i % 100 == 30 ? -1 : i % 100 == 60 ? 1000 + i : i % 7;
+			series.add(i, value);
+		}
+
+		TimeSeries result = series.downsample(0, 1000, 10);
+		assertEquals(40, result.size());
+		for (int column = 0; column < 10; column++) {
+			int offset = column * 4;
+			// first, minimum, maximum and last value of the column
+			assertPoint(result, offset, column * 100, series.getValue(column * 100));
+			assertPoint(result, offset + 1, column * 100 + 30, -1);
+			assertPoint(result, offset + 2, column * 100 + 60, 1000 + column * 100 + 60);
+			assertPoint(result, offset + 3, column * 100 + 99, series.getValue(column * 100 + 99));
+		}
+	}
+
+	@Test
+	public void testPointsAreKeptOnce() {
+		// ascending values, so that the first point is the minimum and the last one the maximum
+		TimeSeries series = createSeries(100);
+		TimeSeries result = series.downsample(0, 100, 10);
+		assertEquals(20, result.size());
+		for (int i = 1; i < result.size(); i++) {
+			assertTrue(result.getTime(i) > result.getTime(i - 1));
+		}
+		assertPoint(result, 0, 0, 0);
+		assertPoint(result, 19, 99, 99);
+	}
+
+	@Test
+	public void testPointsOutsideOfTheChartAreKept() {
+		TimeSeries series = createSeries(100);
+		// the points before and after the period belong to the first and the last column
+		TimeSeries result = series.downsample(40, 60, 5);
+		assertEquals(10, result.size());
+		assertPoint(result, 0, 0, 0);
+		assertPoint(result, 1, 43, 43);
+		assertPoint(result, 8, 56, 56);
+		assertPoint(result, 9, 99, 99);
+	}
+
+	private static TimeSeries createSeries(int size) {
+		TimeSeries series = new TimeSeries();
+		for (int i = 0; i < size; i++) {
+			series.add(i, i);
+		}
+		return series;
+	}
+
+	private static void assertPoint(TimeSeries series, int index, long time, double value) {
+		assertEquals("time of point " + index, time, series.getTime(index));
+		assertEquals("value of point " + index, value, series.getValue(index), 0);
+	}
+
+}
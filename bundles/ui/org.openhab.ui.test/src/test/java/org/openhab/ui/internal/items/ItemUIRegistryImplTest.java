@@ -9,12 +9,16 @@
 package org.openhab.ui.internal.items;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import junit.framework.Assert;
 
+import org.eclipse.emf.common.util.BasicEList;
+import org.eclipse.emf.common.util.EList;
 import org.junit.Before;
 import org.junit.Test;
 import org.openhab.core.items.Item;
@@ -25,8 +29,10 @@ import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.StringType;
 import org.openhab.core.types.UnDefType;
+import org.openhab.model.sitemap.ColorArray;
 import org.openhab.model.sitemap.Sitemap;
 import org.openhab.model.sitemap.SitemapFactory;
+import org.openhab.model.sitemap.VisibilityRule;
 import org.openhab.model.sitemap.Widget;
 import org.openhab.ui.items.ItemUIProvider;
 
@@ -264,6 +270,83 @@ public class ItemUIRegistryImplTest {
 		assertEquals("Label [5]", label);
 	}
 	
+	@Test
+	public void getLabel_labelAfterStateChange() throws ItemNotFoundException {
+		String testLabel = "Label [%s]";
+		Widget w = mock(Widget.class);
+		Item item = mock(Item.class);
+		when(w.getLabel()).thenReturn(testLabel);
+		when(w.getItem()).thenReturn("Item");
+		when(registry.getItem("Item")).thenReturn(item);
+		when(item.getState()).thenReturn(new StringType("State"));
+		assertEquals("Label [State]", uiRegistry.getLabel(w));
+		when(item.getState()).thenReturn(new StringType("NewState"));
+		assertEquals("Label [NewState]", uiRegistry.getLabel(w));
+		when(w.getLabel()).thenReturn("Other label [%s]");
+		assertEquals("Other label [NewState]", uiRegistry.getLabel(w));
+	}
+	
+	@Test
+	public void getLabel_labelAfterScaleChange() throws ItemNotFoundException {
+		String testLabel = "Label [%s]";
+		Widget w = mock(Widget.class);
+		Item item = mock(Item.class);
+		when(w.getLabel()).thenReturn(testLabel);
+		when(w.getItem()).thenReturn("Item");
+		when(registry.getItem("Item")).thenReturn(item);
+		when(item.getState()).thenReturn(new DecimalType("1.0"));
+		assertEquals("Label [1.0]", uiRegistry.getLabel(w));
+		// equal decimals with another scale are formatted differently
+		when(item.getState()).thenReturn(new DecimalType("1.00"));
+		assertEquals("Label [1.00]", uiRegistry.getLabel(w));
+	}
+	
+	@Test
+	public void getVisibility_afterStateChange() throws ItemNotFoundException {
+		Widget w = mock(Widget.class);
+		Item item = mock(Item.class);
+		VisibilityRule rule = mock(VisibilityRule.class);
+		when(rule.getItem()).thenReturn("Item");
+		when(rule.getState()).thenReturn("10");
+		when(rule.getCondition()).thenReturn(">");
+		EList<VisibilityRule> rules = new BasicEList<VisibilityRule>();
+		rules.add(rule);
+		when(w.getVisibility()).thenReturn(rules);
+		when(registry.getItem("Item")).thenReturn(item);
+		when(item.getState()).thenReturn(new DecimalType(5));
+		assertFalse(uiRegistry.getVisiblity(w));
+		assertFalse(uiRegistry.getVisiblity(w));
+		when(item.getState()).thenReturn(new DecimalType(15));
+		assertTrue(uiRegistry.getVisiblity(w));
+		when(item.getState()).thenReturn(OnOffType.ON);
+		assertFalse(uiRegistry.getVisiblity(w));
+	}
+	
+	@Test
+	public void getValueColor_afterStateChange() throws ItemNotFoundException {
+		Widget w = mock(Widget.class);
+		Item item = mock(Item.class);
+		ColorArray red = mock(ColorArray.class);
+		when(red.getState()).thenReturn("ON");
+		when(red.getArg()).thenReturn("\"red\"");
+		ColorArray green = mock(ColorArray.class);
+		when(green.getState()).thenReturn("ON");
+		when(green.getCondition()).thenReturn("!=");
+		when(green.getArg()).thenReturn("#00ff00");
+		EList<ColorArray> colors = new BasicEList<ColorArray>();
+		colors.add(red);
+		colors.add(green);
+		when(w.getValueColor()).thenReturn(colors);
+		when(w.getItem()).thenReturn("Item");
+		when(registry.getItem("Item")).thenReturn(item);
+		when(item.getState()).thenReturn(OnOffType.ON);
+		assertEquals("#ff0000", uiRegistry.getValueColor(w));
+		assertEquals("#ff0000", uiRegistry.getValueColor(w));
+		when(item.getState()).thenReturn(OnOffType.OFF);
+		assertEquals("#00ff00", uiRegistry.getValueColor(w));
+		assertNull(uiRegistry.getLabelColor(w));
+	}
+	
 	@Test
 	public void getWidget_UnknownPageId() throws ItemNotFoundException {
 		Sitemap sitemap = SitemapFactory.eINSTANCE.createSitemap();
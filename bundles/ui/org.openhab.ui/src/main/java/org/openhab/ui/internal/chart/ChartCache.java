@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.internal.chart;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemRegistryChangeListener;
+import org.openhab.core.items.StateChangeListener;
+import org.openhab.core.types.State;
+
+/**
+ * Caches rendered chart images, so that charts which are requested again, e.g.
+ * by several clients showing the same page, do not have to be queried and
+ * rendered again. An image is dropped as soon as the state of an item shown in
+ * it changes, or when it gets older than the time span of a single pixel of
+ * the chart, as it would then differ from a newly rendered chart.
+ * <p>The cache listens to the items of the cached charts until it is cleared,
+ * which has to be done when it is not used anymore.</p>
+ *
+ * @author agent
+ * @since 1.5.0
+ *
+ */
+class ChartCache implements StateChangeListener, ItemRegistryChangeListener {
+
+	/** the maximum number of cached images */
+	private static final int MAX_ENTRIES = 50;
+
+	private final Map<String, CachedChart> charts = new LinkedHashMap<String, CachedChart>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedChart> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	/**
+	 * the items this cache has been registered with as a listener; identity is used,
+	 * as the hash code of an item depends on its state
+	 */
+	private final Map<GenericItem, Boolean> observedItems = new IdentityHashMap<GenericItem, Boolean>();
+
+	/**
+	 * @param key identifies the chart by all parameters it has been rendered with
+	 * @return the image or <code>null</code>, if there is no valid image for the key
+	 */
+	synchronized byte[] get(String key) {
+		CachedChart chart = charts.get(key);
+		if (chart == null) {
+			return null;
+		}
+		if (System.currentTimeMillis() > chart.expiryTime) {
+			charts.remove(key);
+			return null;
+		}
+		return chart.image;
+	}
+
+	/**
+	 * @param key identifies the chart by all parameters it has been rendered with
+	 * @param image the rendered image
+	 * @param maxAge the time in milliseconds the image may be used
+	 * @param items the items whose data is shown in the chart
+	 */
+	synchronized void put(String key, byte[] image, long maxAge, Collection<Item> items) {
+		Set<String> itemNames = new HashSet<String>();
+		for (Item item : items) {
+			itemNames.add(item.getName());
+			if (item instanceof GenericItem && !observedItems.containsKey(item)) {
+				((GenericItem) item).addStateChangeListener(this);
+				observedItems.put((GenericItem) item, Boolean.TRUE);
+			}
+		}
+		charts.put(key, new CachedChart(image, System.currentTimeMillis() + maxAge, itemNames));
+	}
+
+	/**
+	 * Drops all images and unregisters the cache from the items, which keep strong
+	 * references to their listeners.
+	 */
+	synchronized void clear() {
+		charts.clear();
+		for (GenericItem item : observedItems.keySet()) {
+			item.removeStateChangeListener(this);
+		}
+		observedItems.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void stateChanged(Item item, State oldState, State newState) {
+		synchronized (this) {
+			Iterator<CachedChart> iterator = charts.values().iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().itemNames.contains(item.getName())) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void stateUpdated(Item item, State state) {
+		// an update without a change does not change the chart
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void allItemsChanged(Collection<String> oldItemNames) {
+		clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void itemAdded(Item item) {
+		// group members might have changed
+		clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void itemRemoved(Item item) {
+		clear();
+	}
+
+	private static class CachedChart {
+
+		private final byte[] image;
+
+		private final long expiryTime;
+
+		private final Set<String> itemNames;
+
+		public CachedChart(byte[] image, long expiryTime, Set<String> itemNames) {
+			this.image = image;
+			this.expiryTime = expiryTime;
+			this.itemNames = itemNames;
+		}
+	}
+
+}
@@ -10,10 +10,13 @@ package org.openhab.ui.internal.chart;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Dictionary;
 import java.util.HashMap;
@@ -27,6 +30,8 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.io.net.http.SecureHttpContext;
 import org.openhab.ui.chart.ChartProvider;
@@ -105,6 +110,7 @@ public class ChartServlet extends HttpServlet implements ManagedService {
 	protected HttpService httpService;
 	protected ItemUIRegistry itemUIRegistry;
 	static protected Map<String, ChartProvider> chartProviders = new HashMap<String, ChartProvider>();
+	protected ChartCache chartCache = new ChartCache();
 
 	public void setHttpService(HttpService httpService) {
 		this.httpService = httpService;
@@ -116,10 +122,13 @@ public class ChartServlet extends HttpServlet implements ManagedService {
 
 	public void setItemUIRegistry(ItemUIRegistry itemUIRegistry) {
 		this.itemUIRegistry = itemUIRegistry;
+		itemUIRegistry.addItemRegistryChangeListener(chartCache);
 	}
 
 	public void unsetItemUIRegistry(ItemUIRegistry itemUIRegistry) {
+		itemUIRegistry.removeItemRegistryChangeListener(chartCache);
 		this.itemUIRegistry = null;
+		chartCache.clear();
 	}
 
 	public void addChartProvider(ChartProvider provider) {
@@ -150,6 +159,7 @@ public class ChartServlet extends HttpServlet implements ManagedService {
 
 	protected void deactivate() {
 		httpService.unregister(SERVLET_NAME);
+		chartCache.clear();
 	}
 
 	@Override
@@ -242,9 +252,23 @@ public class ChartServlet extends HttpServlet implements ManagedService {
 		// Set the content type to that provided by the chart provider
 		res.setContentType("image/" + provider.getChartType());
 		try {
-			BufferedImage chart = provider.createChart(serviceName, null, timeBegin, timeEnd, height, width,
-					req.getParameter("items"), req.getParameter("groups"));
-			ImageIO.write(chart, provider.getChartType().toString(), res.getOutputStream());
+			// relative periods are part of the key instead of the times, so that the image
+			// can be reused until the chart has moved by a pixel
+			String cacheKey = providerName + "|" + serviceName + "|" + req.getParameter("period") + "|"
+					+ req.getParameter("begin") + "|" + req.getParameter("end") + "|" + width + "x" + height + "|"
+					+ req.getParameter("items") + "|" + req.getParameter("groups");
+			byte[] image = chartCache.get(cacheKey);
+			if (image == null) {
+				BufferedImage chart = provider.createChart(serviceName, null, timeBegin, timeEnd, height, width,
+						req.getParameter("items"), req.getParameter("groups"));
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				ImageIO.write(chart, provider.getChartType().toString(), out);
+				image = out.toByteArray();
+				long pixelDuration = (timeEnd.getTime() - timeBegin.getTime()) / Math.max(1, width);
+				chartCache.put(cacheKey, image, pixelDuration,
+						getChartItems(req.getParameter("items"), req.getParameter("groups")));
+			}
+			res.getOutputStream().write(image);
 		} catch (ItemNotFoundException e) {
 			logger.debug("Item not found error while generating chart.");
 		} catch (IllegalArgumentException e) {
@@ -252,6 +276,34 @@ public class ChartServlet extends HttpServlet implements ManagedService {
 		}
 	}
 
+	/**
+	 * Returns all items whose data is shown in a chart, i.e. the given items
+	 * as well as the groups and their members.
+	 * 
+	 * @param items comma separated list of item names, may be null
+	 * @param groups comma separated list of group names, may be null
+	 * @return the items of the chart
+	 * @throws ItemNotFoundException if an item or group is not found
+	 */
+	protected Collection<Item> getChartItems(String items, String groups) throws ItemNotFoundException {
+		Collection<Item> chartItems = new ArrayList<Item>();
+		if (items != null) {
+			for (String itemName : items.split(",")) {
+				chartItems.add(itemUIRegistry.getItem(itemName));
+			}
+		}
+		if (groups != null) {
+			for (String groupName : groups.split(",")) {
+				Item item = itemUIRegistry.getItem(groupName);
+				chartItems.add(item);
+				if (item instanceof GroupItem) {
+					chartItems.addAll(((GroupItem) item).getMembers());
+				}
+			}
+		}
+		return chartItems;
+	}
+
 	/**
 	 * Creates a {@link SecureHttpContext} which handles the security for this
 	 * servlet
@@ -178,7 +178,7 @@ public class DefaultChartProvider implements ChartProvider {
 			String[] itemNames = items.split(",");
 			for (String itemName : itemNames) {
 				Item item = itemUIRegistry.getItem(itemName);
-				if(addItem(chart, persistenceService, startTime, endTime, item, seriesCounter))
+				if(addItem(chart, persistenceService, startTime, endTime, item, seriesCounter, width))
 					seriesCounter++;
 			}
 		}
@@ -191,7 +191,7 @@ public class DefaultChartProvider implements ChartProvider {
 				if (item instanceof GroupItem) {
 					GroupItem groupItem = (GroupItem) item;
 					for (Item member : groupItem.getMembers()) {
-						if(addItem(chart, persistenceService, startTime, endTime, member, seriesCounter))
+						if(addItem(chart, persistenceService, startTime, endTime, member, seriesCounter, width))
 							seriesCounter++;
 					}
 				} else {
@@ -235,7 +235,7 @@ public class DefaultChartProvider implements ChartProvider {
 	}
 
 	boolean addItem(Chart chart, QueryablePersistenceService service, Date timeBegin, Date timeEnd, Item item,
-			int seriesCounter) {
+			int seriesCounter, int width) {
 		Color color = LINECOLORS[seriesCounter % LINECOLORS.length];
 
 		// Get the item label
@@ -255,8 +255,7 @@ public class DefaultChartProvider implements ChartProvider {
 		FilterCriteria filter;
 
 		// Generate data collections
-		Collection<Date> xData = new ArrayList<Date>();
-		Collection<Number> yData = new ArrayList<Number>();
+		TimeSeries data = new TimeSeries();
 		
 		// Declare state here so it will hold the last value at the end of the process
 		org.openhab.core.types.State state = null;
@@ -275,8 +274,7 @@ public class DefaultChartProvider implements ChartProvider {
 
 			state = historicItem.getState();
 			if (state instanceof DecimalType) {
-				xData.add(timeBegin);
-				yData.add((DecimalType) state);
+				data.add(timeBegin.getTime(), ((DecimalType) state).doubleValue());
 			}
 		}
 
@@ -295,31 +293,30 @@ public class DefaultChartProvider implements ChartProvider {
 			HistoricItem historicItem = it.next();
 			state = historicItem.getState();
 			if (state instanceof DecimalType) {
-				xData.add(historicItem.getTimestamp());
-				yData.add((DecimalType) state);
+				data.add(historicItem.getTimestamp().getTime(), ((DecimalType) state).doubleValue());
 			}
 		}
 
 		// Lastly, add the final state at the endtime
 		if (state != null && state instanceof DecimalType) {
-			xData.add(timeEnd);
-			yData.add((DecimalType) state);
+			data.add(timeEnd.getTime(), ((DecimalType) state).doubleValue());
 		}
 
 		// Add the new series to the chart - only if there's data elements to display
 		// The chart engine will throw an exception if there's no data
-		if(xData.size() == 0) {
+		if(data.size() == 0) {
 			return false;
 		}
 
 		// If there's only 1 data point, plot it again!
-		if(xData.size() == 1) {
-
-			xData.add(xData.iterator().next());
-			yData.add(yData.iterator().next());
+		if(data.size() == 1) {
+			data.add(data.getTime(0), data.getValue(0));
 		}
 
-		Series series = chart.addDateSeries(label, xData, yData);
+		// More points than pixels cannot be seen, but make rendering expensive
+		data = data.downsample(timeBegin.getTime(), timeEnd.getTime(), width);
+
+		Series series = chart.addDateSeries(label, data.getDates(), data.getNumbers());
 		series.setLineStyle(new BasicStroke(1.5f));
 		series.setMarker(SeriesMarker.NONE);
 		series.setLineColor(color);
@@ -327,7 +324,7 @@ public class DefaultChartProvider implements ChartProvider {
 		// If the start value is below the median, then count legend position down
 		// Otherwise count up.
 		// We use this to decide whether to put the legend in the top or bottom corner.
-		if(yData.iterator().next().floatValue() > ((series.getyMax().floatValue() - series.getyMin().floatValue()) / 2 + series.getyMin().floatValue())) {
+		if((float) data.getValue(0) > ((series.getyMax().floatValue() - series.getyMin().floatValue()) / 2 + series.getyMin().floatValue())) {
 			legendPosition++;
 		}
 		else {
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.internal.chart;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * The values of an item over time, stored in primitive arrays so that long
+ * periods of frequently persisted values do not create an object per value.
+ * The data points have to be added in ascending order of time.
+ *
+ * @author agent
+ * @since 1.5.0
+ *
+ */
+class TimeSeries {
+
+	private long[] times;
+
+	private double[] values;
+
+	private int size;
+
+	TimeSeries() {
+		this(64);
+	}
+
+	private TimeSeries(int capacity) {
+		times = new long[capacity];
+		values = new double[capacity];
+	}
+
+	void add(long time, double value) {
+		if (size == times.length) {
+			long[] newTimes = new long[size * 2];
+			double[] newValues = new double[size * 2];
+			System.arraycopy(times, 0, newTimes, 0, size);
+			System.arraycopy(values, 0, newValues, 0, size);
+			times = newTimes;
+			values = newValues;
+		}
+		times[size] = time;
+		values[size] = value;
+		size++;
+	}
+
+	int size() {
+		return size;
+	}
+
+	long getTime(int index) {
+		return times[index];
+	}
+
+	double getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * Reduces the data points to at most four per pixel column, the first, the
+	 * last, the minimum and the maximum value within the time span of the
+	 * column. A line chart drawn from the reduced points looks the same as one
+	 * drawn from all points.
+	 *
+	 * @param begin
+	 *            the time of the left border of the chart
+	 * @param end
+	 *            the time of the right border of the chart
+	 * @param columns
+	 *            the number of pixel columns of the chart
+	 * @return the reduced time series, or this series if it does not have
+	 *         more data points than needed
+	 */
+	TimeSeries downsample(long begin, long end, int columns) {
+		if (columns <= 0 || end <= begin || size <= columns * 4) {
+			return this;
+		}
+		TimeSeries result = new TimeSeries(columns * 4);
+		int column = -1;
+		int first = 0, last = 0, min = 0, max = 0;
+		for (int i = 0; i < size; i++) {
+			int currentColumn = (int) Math.max(0, Math.min(columns - 1, (times[i] - begin) * columns / (end - begin)));
+			if (currentColumn != column) {
+				if (column >= 0) {
+					result.addColumn(this, first, min, max, last);
+				}
+				column = currentColumn;
+				first = last = min = max = i;
+			} else {
+				last = i;
+				if (values[i] < values[min]) {
+					min = i;
+				}
+				if (values[i] > values[max]) {
+					max = i;
+				}
+			}
+		}
+		if (column >= 0) {
+			result.addColumn(this, first, min, max, last);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the points of a pixel column in their order of time, each point only once.
+	 */
+	private void addColumn(TimeSeries source, int first, int min, int max, int last) {
+		int lower = Math.min(min, max);
+		int upper = Math.max(min, max);
+		int previous = -1;
+		for (int index : new int[] { first, lower, upper, last }) {
+			if (index != previous) {
+				add(source.times[index], source.values[index]);
+				previous = index;
+			}
+		}
+	}
+
+	/**
+	 * @return the times of the data points as needed by the chart library
+	 */
+	Collection<Date> getDates() {
+		Collection<Date> dates = new ArrayList<Date>(size);
+		for (int i = 0; i < size; i++) {
+			dates.add(new Date(times[i]));
+		}
+		return dates;
+	}
+
+	/**
+	 * @return the values of the data points as needed by the chart library
+	 */
+	Collection<Number> getNumbers() {
+		Collection<Number> numbers = new ArrayList<Number>(size);
+		for (int i = 0; i < size; i++) {
+			numbers.add(values[i]);
+		}
+		return numbers;
+	}
+
+}
@@ -9,12 +9,14 @@
 package org.openhab.ui.internal.items;
 
 import java.io.File;
-import java.util.Calendar;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,7 +35,6 @@ import org.openhab.core.library.items.NumberItem;
 import org.openhab.core.library.items.RollershutterItem;
 import org.openhab.core.library.items.StringItem;
 import org.openhab.core.library.items.SwitchItem;
-import org.openhab.core.library.types.DateTimeType;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.transform.TransformationException;
@@ -51,6 +52,7 @@ import org.openhab.model.sitemap.Slider;
 import org.openhab.model.sitemap.VisibilityRule;
 import org.openhab.model.sitemap.Widget;
 import org.openhab.ui.internal.UIActivator;
+import org.openhab.ui.internal.items.WidgetCache.CompiledRules;
 import org.openhab.ui.items.ItemUIProvider;
 import org.openhab.ui.items.ItemUIRegistry;
 import org.slf4j.Logger;
@@ -88,6 +90,9 @@ public class ItemUIRegistryImpl implements ItemUIRegistry {
 
 	protected ItemRegistry itemRegistry;
 
+	/* the compiled labels and rules of the widgets and their last rendered values */
+	private final Map<Widget, WidgetCache> widgetCaches = new WeakHashMap<Widget, WidgetCache>();
+
 	public ItemUIRegistryImpl() {}
 
 	public void setItemRegistry(ItemRegistry itemRegistry) {
@@ -212,59 +217,86 @@ public class ItemUIRegistryImpl implements ItemUIRegistry {
 	 */
 	public String getLabel(Widget w) {
 		String label = getLabelFromWidget(w);
+		WidgetCache cache = getWidgetCache(w);
+		LabelFormat format = cache.getLabelFormat(label);
+		if(format==null) {
+			format = new LabelFormat(label);
+			cache.setLabelFormat(format);
+		}
 		
 		// now insert the value, if the state is a string or decimal value and there is some formatting pattern defined in the label 
 		// (i.e. it contains at least a %)
 		String itemName = w.getItem();
-		if(itemName!=null && label.contains("[")) {
-			
-			int indexOpenBracket = label.indexOf("[");
-			int indexCloseBracket = label.indexOf("]");
+		if(itemName!=null && format.hasValue()) {
 			
 			State state = null;
-			String formatPattern = label.substring(indexOpenBracket + 1, indexCloseBracket);
 			try {
 				Item item = getItem(itemName);
-				// TODO: TEE: we should find a more generic solution here! When
-				// using indexes in formatString this 'contains' will fail again
-				// and will cause an 'java.util.IllegalFormatConversionException:
-				// d != java.lang.String' later on when trying to format a String
-				// as %d (number).
-				if (label.contains("%d")) {
+				state = item.getState();
+				if (format.isNumberRequested() && !(state instanceof DecimalType)) {
 					// a number is requested
-					state = item.getState();
-					if(!(state instanceof DecimalType)) {
-						state = item.getStateAs(DecimalType.class);
-					}
-				} else {
-					state = item.getState();
+					state = item.getStateAs(DecimalType.class);
 				}
 			} catch (ItemNotFoundException e) {
 				logger.error("Cannot retrieve item for widget {}", w.eClass().getInstanceTypeName());
 			}
 
-			if (state==null || state instanceof UnDefType) {
-				formatPattern = formatUndefined(formatPattern);
-			} else if (state instanceof Type) {
-				// The following exception handling has been added to work around a Java bug with formatting
-				// numbers. See http://bugs.sun.com/view_bug.do?bug_id=6476425
-				// Without this catch, the whole sitemap, or page can not be displayed!
-				try {
-				formatPattern = ((Type) state).format(formatPattern);
+			String formattedLabel = cache.getFormattedLabel(format, state);
+			if(formattedLabel==null) {
+				formattedLabel = format.insertValue(formatValue(format, state));
+				cache.setFormattedLabel(format, state, formattedLabel);
 			}
-				catch(IllegalArgumentException e) {
-					formatPattern = new String("Err"); 
-				}
-			}
-
-			label = label.substring(0, indexOpenBracket + 1) + formatPattern + label.substring(indexCloseBracket);
+			label = formattedLabel;
 		}
 		
-		label = transform(label);
+		if(format.hasTransformation()) {
+			label = transform(label);
+		}
 		
 		return label;
 	}
 
+	/**
+	 * Formats the state with the format pattern of the label.
+	 */
+	private String formatValue(LabelFormat format, State state) {
+		String formatPattern = format.getFormatPattern();
+		if (state==null || state instanceof UnDefType) {
+			String undefinedFormatPattern = format.getUndefinedFormatPattern();
+			if(undefinedFormatPattern==null) {
+				undefinedFormatPattern = formatUndefined(formatPattern);
+				format.setUndefinedFormatPattern(undefinedFormatPattern);
+			}
+			formatPattern = undefinedFormatPattern;
+		} else if (state instanceof Type) {
+			// The following exception handling has been added to work around a Java bug with formatting
+			// numbers. See http://bugs.sun.com/view_bug.do?bug_id=6476425
+			// Without this catch, the whole sitemap, or page can not be displayed!
+			try {
+				formatPattern = ((Type) state).format(formatPattern);
+			}
+			catch(IllegalArgumentException e) {
+				formatPattern = new String("Err"); 
+			}
+		}
+		return formatPattern;
+	}
+
+	/**
+	 * Returns the cache of the compiled definitions and the last rendered values of a widget.
+	 * The cache is dropped together with the widget, i.e. when the sitemap model changes.
+	 */
+	private WidgetCache getWidgetCache(Widget w) {
+		synchronized (widgetCaches) {
+			WidgetCache cache = widgetCaches.get(w);
+			if(cache==null) {
+				cache = new WidgetCache();
+				widgetCaches.put(w, cache);
+			}
+			return cache;
+		}
+	}
+
 	private String getLabelFromWidget(Widget w) {
 		String label = null;
 		if (w.getLabel() != null) {
@@ -613,169 +645,93 @@ public class ItemUIRegistryImpl implements ItemUIRegistry {
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Determines the color of a widget by the first color rule matching the state.
+	 * 
+	 * @param w the widget
+	 * @param colorList the label or value color rules of the widget
+	 * @param labelColor true for the label color rules
+	 * @return the color or <code>null</code> if no rule matches
 	 */
-	private boolean matchStateToValue(State state, String value, String matchCondition) {
-		// Check if the value is equal to the supplied value
-		boolean matched = false;
+	private String processColorDefinition(Widget w, List<ColorArray> colorList, boolean labelColor) {
+		// Sanity check
+		if(colorList == null) {
+			return null;
+		}
+		if(colorList.size() == 0) {
+			return null;
+		}
 
-		// Remove quotes - this occurs in some instances where multiple types
-		// are defined in the xtext definitions
-		if (value.startsWith("\"") && value.endsWith("\""))
-			value = value.substring(1, value.length() - 1);
+		WidgetCache cache = getWidgetCache(w);
+		CompiledRules rules = cache.getColorRules(colorList, labelColor);
+		if(rules == null) {
+			rules = compileColorDefinition(colorList);
+			cache.setColorRules(rules, labelColor);
+		}
+		if(rules.getStaticResult() != null) {
+			return (String) rules.getStaticResult();
+		}
 
-		// Convert the condition string into enum
-		Condition condition = Condition.EQUAL;
-		if (matchCondition != null)
-			condition = Condition.fromString(matchCondition);
+		// Use the state of the widget, unless there's an item defined in the rule
+		State widgetState = getState(w);
+		List<StateRule> ruleList = rules.getRules();
+		State[] states = new State[ruleList.size()];
+		for (int i = 0; i < states.length; i++) {
+			StateRule rule = ruleList.get(i);
+			states[i] = widgetState;
+			if(rule.getItemName() != null) {
+				// Try and find the item to test.
+				try {
+					Item item = itemRegistry.getItem(rule.getItemName());
 
-		if (DecimalType.class.isInstance(state)) {
-			try {
-				switch (condition) {
-				case EQUAL:
-					if (Double.parseDouble(state.toString()) == Double.parseDouble(value))
-						matched = true;
-					break;
-				case LTE:
-					if (Double.parseDouble(state.toString()) <= Double.parseDouble(value))
-						matched = true;
-					break;
-				case GTE:
-					if (Double.parseDouble(state.toString()) >= Double.parseDouble(value))
-						matched = true;
-					break;
-				case GREATER:
-					if (Double.parseDouble(state.toString()) > Double.parseDouble(value))
-						matched = true;
-					break;
-				case LESS:
-					if (Double.parseDouble(state.toString()) < Double.parseDouble(value))
-						matched = true;
-					break;
-				case NOT:
-				case NOTEQUAL:
-					if (Double.parseDouble(state.toString()) != Double.parseDouble(value))
-						matched = true;
-					break;
+					// Get the item state
+					states[i] = item.getState();
+				} catch (ItemNotFoundException e) {
+					logger.warn("Cannot retrieve color item {} for widget", rule.getItemName());
 				}
-			} catch (NumberFormatException e) {
-				logger.debug("matchStateToValue: Decimal format exception: " + e);
 			}
-		} else if (state instanceof DateTimeType) {
-			Calendar val = ((DateTimeType) state).getCalendar();
-			Calendar now = Calendar.getInstance();
-			long secsDif = (now.getTimeInMillis() - val.getTimeInMillis()) / 1000;
+		}
 
-			try {
-				switch (condition) {
-				case EQUAL:
-					if (secsDif == Integer.parseInt(value))
-						matched = true;
-					break;
-				case LTE:
-					if (secsDif <= Integer.parseInt(value))
-						matched = true;
-					break;
-				case GTE:
-					if (secsDif >= Integer.parseInt(value))
-						matched = true;
-					break;
-				case GREATER:
-					if (secsDif > Integer.parseInt(value))
-						matched = true;
-					break;
-				case LESS:
-					if (secsDif < Integer.parseInt(value))
-						matched = true;
-					break;
-				case NOT:
-				case NOTEQUAL:
-					if (secsDif != Integer.parseInt(value))
-						matched = true;
+		Object colorString = rules.getResult(states);
+		if(colorString == CompiledRules.NO_RESULT) {
+			colorString = null;
+			// Loop through all elements looking for the definition associated
+			// with the supplied value
+			for (int i = 0; i < states.length; i++) {
+				if(ruleList.get(i).matches(states[i])) {
+					// We have the color for this value - break!
+					colorString = ruleList.get(i).getArg();
 					break;
 				}
-			} catch (NumberFormatException e) {
-				logger.debug("matchStateToValue: Decimal format exception: " + e);
-			}
-		} else {
-			// Strings only allow = and !=
-			switch (condition) {
-			case NOT:
-			case NOTEQUAL:
-				if (!value.equals(state.toString()))
-					matched = true;
-				break;
-			default:
-				if (value.equals(state.toString()))
-					matched = true;
-				break;
 			}
+			rules.setResult(states, colorString);
 		}
-
-		return matched;
+		return (String) colorString;
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Parses the color rules of a widget, so that they can be checked without any string processing.
 	 */
-	private String processColorDefinition(State state, List<ColorArray> colorList) {
-		// Sanity check
-		if(colorList == null) {
-			return null;
-		}
-		if(colorList.size() == 0) {
-			return null;
-		}
-
-		String colorString = null;
-
+	private CompiledRules compileColorDefinition(List<ColorArray> colorList) {
 		// Check for the "arg". If it doesn't exist, assume there's just an
 		// static colour
 		if(colorList.size() == 1 && colorList.get(0).getState() == null) {
-			colorString = colorList.get(0).getArg();
+			String colorString = convertColor(colorList.get(0).getArg());
+			return new CompiledRules(colorList, Collections.<StateRule>emptyList(), colorString);
 		}
-		else {
-			// Loop through all elements looking for the definition associated
-			// with the supplied value
-			for (ColorArray color : colorList) {
-				// Use a local state variable in case it gets overridden below
-				State cmpState = state;
-
-				if(color.getState() == null) {
-					logger.error("Error parsing color");
-					continue;
-				}
-
-				// If there's an item defined here, get it's state
-				if(color.getItem() != null) {
-					// Try and find the item to test.
-					// If it's not found, return visible
-					Item item;
-					try {
-						item = itemRegistry.getItem(color.getItem());
-
-						// Get the item state
-						cmpState = item.getState();
-					} catch (ItemNotFoundException e) {
-						logger.warn("Cannot retrieve color item {} for widget", color.getItem());
-					}
-				}
-
-				// Handle the sign
-				String value;
-				if(color.getSign() != null)
-					value = color.getSign() + color.getState();
-				else
-					value = color.getState();
-
-				if (matchStateToValue(cmpState, value, color.getCondition()) == true) {
-					// We have the color for this value - break!
-					colorString = color.getArg();
-					break;
-				}
+		
+		List<StateRule> rules = new ArrayList<StateRule>(colorList.size());
+		for (ColorArray color : colorList) {
+			if(color.getState() == null) {
+				logger.error("Error parsing color");
+				continue;
 			}
+			rules.add(new StateRule(color.getItem(), color.getSign(), color.getState(), color.getCondition(), 
+					convertColor(color.getArg())));
 		}
+		return new CompiledRules(colorList, rules, null);
+	}
 
+	private String convertColor(String colorString) {
 		// Remove quotes off the colour - if they exist
 		if(colorString == null)
 			return null;
@@ -795,14 +751,14 @@ public class ItemUIRegistryImpl implements ItemUIRegistry {
 	 * {@inheritDoc}
 	 */
 	public String getLabelColor(Widget w) {
-		return processColorDefinition(getState(w), w.getLabelColor());
+		return processColorDefinition(w, w.getLabelColor(), true);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public String getValueColor(Widget w) {
-		return processColorDefinition(getState(w), w.getValueColor());
+		return processColorDefinition(w, w.getValueColor(), false);
 	}
 
 	/**
@@ -818,44 +774,60 @@ public class ItemUIRegistryImpl implements ItemUIRegistry {
 
 		logger.debug("Checking visiblity for widget '{}'.", w.getLabel());
 
-		for (VisibilityRule rule : w.getVisibility()) {
-			if(rule.getItem() == null)
-				continue;
-			if(rule.getState() == null)
-				continue;
+		WidgetCache cache = getWidgetCache(w);
+		CompiledRules rules = cache.getVisibilityRules(ruleList);
+		if(rules == null) {
+			List<StateRule> compiledRules = new ArrayList<StateRule>(ruleList.size());
+			for (VisibilityRule rule : ruleList) {
+				if(rule.getItem() == null)
+					continue;
+				if(rule.getState() == null)
+					continue;
+				compiledRules.add(new StateRule(rule.getItem(), rule.getSign(), rule.getState(), rule.getCondition(), null));
+			}
+			rules = new CompiledRules(ruleList, compiledRules, null);
+			cache.setVisibilityRules(rules);
+		}
+
+		List<StateRule> compiledRules = rules.getRules();
+		State[] states = new State[compiledRules.size()];
+		for (int i = 0; i < states.length; i++) {
+			StateRule rule = compiledRules.get(i);
 			
 			// Try and find the item to test.
 			// If it's not found, return visible
-			Item item;
 			try {
-				item = itemRegistry.getItem(rule.getItem());
+				Item item = itemRegistry.getItem(rule.getItemName());
+
+				// Get the item state
+				states[i] = item.getState();
 			} catch (ItemNotFoundException e) {
-				logger.error("Cannot retrieve visibility item {} for widget {}", rule.getItem(), w.eClass().getInstanceTypeName());
+				logger.error("Cannot retrieve visibility item {} for widget {}", rule.getItemName(), w.eClass().getInstanceTypeName());
 
 				// Default to visible!
 				return true;
 			}
+		}
 
-			// Get the item state
-			State state = item.getState();
-
-			// Handle the sign
-			String value;
-			if(rule.getSign() != null)
-				value = rule.getSign() + rule.getState();
-			else
-				value = rule.getState();
-
-			if (matchStateToValue(state, value, rule.getCondition()) == true) {
-				// We have the name for this value!
-				return true;
+		Object visible = rules.getResult(states);
+		if(visible == CompiledRules.NO_RESULT) {
+			visible = Boolean.FALSE;
+			for (int i = 0; i < states.length; i++) {
+				if (compiledRules.get(i).matches(states[i])) {
+					// We have the name for this value!
+					visible = Boolean.TRUE;
+					break;
+				}
 			}
+			rules.setResult(states, visible);
 		}
 
-		logger.debug("Widget {} is not visible.", w.getLabel());
+		if(!(Boolean) visible) {
+			// The state wasn't in the list, so we don't display it
+			logger.debug("Widget {} is not visible.", w.getLabel());
+		}
 		
-		// The state wasn't in the list, so we don't display it
-		return false;
+		return (Boolean) visible;
 	}
 	
 	enum Condition {
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.internal.items;
+
+/**
+ * A widget label which has been split up into its static parts and the format
+ * pattern of the state value, so that it does not need to be parsed again for
+ * every rendering of the widget.
+ *
+ * @author agent
+ * @since 1.5.0
+ *
+ */
+class LabelFormat {
+
+	private final String label;
+
+	private final String prefix;
+
+	private final String formatPattern;
+
+	private final String suffix;
+
+	private final boolean numberRequested;
+
+	private final boolean transformation;
+
+	private String undefinedFormatPattern;
+
+	LabelFormat(String label) {
+		this.label = label;
+		int indexOpenBracket = label.indexOf("[");
+		int indexCloseBracket = label.indexOf("]", indexOpenBracket + 1);
+		if(indexOpenBracket >= 0 && indexCloseBracket >= 0) {
+			prefix = label.substring(0, indexOpenBracket + 1);
+			formatPattern = label.substring(indexOpenBracket + 1, indexCloseBracket);
+			suffix = label.substring(indexCloseBracket);
+		} else {
+			prefix = label;
+			formatPattern = null;
+			suffix = "";
+		}
+		// TODO: TEE: we should find a more generic solution here! When
+		// using indexes in formatString this 'contains' will fail again
+		// and will cause an 'java.util.IllegalFormatConversionException:
+		// d != java.lang.String' later on when trying to format a String
+		// as %d (number).
+		numberRequested = label.contains("%d");
+		transformation = label.contains("[") && label.endsWith("]")
+				&& ItemUIRegistryImpl.EXTRACT_TRANSFORMFUNCTION_PATTERN.matcher(label).find();
+	}
+
+	/**
+	 * @return the label this format has been created for
+	 */
+	String getLabel() {
+		return label;
+	}
+
+	/**
+	 * @return true, if the label contains a state value in square brackets
+	 */
+	boolean hasValue() {
+		return formatPattern != null;
+	}
+
+	/**
+	 * @return true, if the state has to be formatted as a number
+	 */
+	boolean isNumberRequested() {
+		return numberRequested;
+	}
+
+	/**
+	 * @return true, if the value is the call of a transformation service
+	 */
+	boolean hasTransformation() {
+		return transformation;
+	}
+
+	String getFormatPattern() {
+		return formatPattern;
+	}
+
+	String getUndefinedFormatPattern() {
+		return undefinedFormatPattern;
+	}
+
+	void setUndefinedFormatPattern(String undefinedFormatPattern) {
+		this.undefinedFormatPattern = undefinedFormatPattern;
+	}
+
+	/**
+	 * Inserts the formatted value into the label.
+	 *
+	 * @param value the formatted value
+	 * @return the label with the value
+	 */
+	String insertValue(String value) {
+		return prefix + value + suffix;
+	}
+
+}
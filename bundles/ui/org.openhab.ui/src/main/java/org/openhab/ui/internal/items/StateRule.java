@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.internal.items;
+
+import java.util.Calendar;
+
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.types.State;
+import org.openhab.ui.internal.items.ItemUIRegistryImpl.Condition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A color or visibility rule of a widget, whose condition has been parsed once,
+ * so that it can be matched against item states without any string processing.
+ *
+ * @author agent
+ * @since 1.5.0
+ *
+ */
+class StateRule {
+
+	private final static Logger logger = LoggerFactory.getLogger(StateRule.class);
+
+	private final String itemName;
+
+	private final Condition condition;
+
+	private final String value;
+
+	private final Double decimalValue;
+
+	private final Integer secondsValue;
+
+	private final String arg;
+
+	/**
+	 * @param itemName the item whose state is checked, might be <code>null</code>
+	 * @param sign the sign of the value, might be <code>null</code>
+	 * @param state the value to compare the state with
+	 * @param matchCondition the condition, <code>null</code> for equality
+	 * @param arg the result of the rule, e.g. a color
+	 */
+	StateRule(String itemName, String sign, String state, String matchCondition, String arg) {
+		this.itemName = itemName;
+		this.arg = arg;
+
+		String value = sign != null ? sign + state : state;
+		// Remove quotes - this occurs in some instances where multiple types
+		// are defined in the xtext definitions
+		if (value.startsWith("\"") && value.endsWith("\""))
+			value = value.substring(1, value.length() - 1);
+		this.value = value;
+
+		// Convert the condition string into enum
+		Condition condition = Condition.EQUAL;
+		if (matchCondition != null) {
+			condition = Condition.fromString(matchCondition);
+			if (condition == null) {
+				logger.warn("Unknown condition '{}', checking for equality instead.", matchCondition);
+				condition = Condition.EQUAL;
+			}
+		}
+		this.condition = condition;
+
+		Double decimalValue = null;
+		try {
+			decimalValue = Double.parseDouble(value);
+		} catch (NumberFormatException e) {
+			// only strings can be compared with this value
+		}
+		this.decimalValue = decimalValue;
+
+		Integer secondsValue = null;
+		try {
+			secondsValue = Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			// only strings can be compared with this value
+		}
+		this.secondsValue = secondsValue;
+	}
+
+	/**
+	 * @return the item whose state is checked, <code>null</code> for the item of the widget
+	 */
+	String getItemName() {
+		return itemName;
+	}
+
+	/**
+	 * @return the result of the rule, e.g. a color
+	 */
+	String getArg() {
+		return arg;
+	}
+
+	/**
+	 * Checks if a state matches the condition of this rule.
+	 *
+	 * @param state the state to check
+	 * @return true, if the state matches
+	 */
+	boolean matches(State state) {
+		if (state instanceof DecimalType) {
+			if (decimalValue == null) {
+				logger.debug("matchStateToValue: Decimal format exception: {}", value);
+				return false;
+			}
+			return compare(((DecimalType) state).toBigDecimal().doubleValue(), decimalValue);
+		} else if (state instanceof DateTimeType) {
+			if (secondsValue == null) {
+				logger.debug("matchStateToValue: Decimal format exception: {}", value);
+				return false;
+			}
+			Calendar val = ((DateTimeType) state).getCalendar();
+			Calendar now = Calendar.getInstance();
+			long secsDif = (now.getTimeInMillis() - val.getTimeInMillis()) / 1000;
+			return compare(secsDif, secondsValue);
+		} else {
+			// Strings only allow = and !=
+			switch (condition) {
+			case NOT:
+			case NOTEQUAL:
+				return !value.equals(String.valueOf(state));
+			default:
+				return value.equals(String.valueOf(state));
+			}
+		}
+	}
+
+	private boolean compare(double stateValue, double ruleValue) {
+		switch (condition) {
+		case EQUAL:
+			return stateValue == ruleValue;
+		case LTE:
+			return stateValue <= ruleValue;
+		case GTE:
+			return stateValue >= ruleValue;
+		case GREATER:
+			return stateValue > ruleValue;
+		case LESS:
+			return stateValue < ruleValue;
+		case NOT:
+		case NOTEQUAL:
+			return stateValue != ruleValue;
+		default:
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2010-2014, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.internal.items;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.types.State;
+
+/**
+ * Holds the compiled label format and rules of a single widget together with
+ * the results of their last evaluation. A result is reused as long as the
+ * states of the items it depends on did not change. The compiled forms are
+ * replaced, if the definition of the widget changes.
+ *
+ * @author agent
+ * @since 1.5.0
+ *
+ */
+class WidgetCache {
+
+	private LabelFormat labelFormat;
+
+	private State labelState;
+
+	private String formattedLabel;
+
+	private CompiledRules visibilityRules;
+
+	private CompiledRules labelColorRules;
+
+	private CompiledRules valueColorRules;
+
+	/**
+	 * @param label the current label of the widget
+	 * @return the compiled format of the label, or <code>null</code> if it needs to be compiled
+	 */
+	synchronized LabelFormat getLabelFormat(String label) {
+		if(labelFormat != null && labelFormat.getLabel().equals(label)) {
+			return labelFormat;
+		}
+		return null;
+	}
+
+	synchronized void setLabelFormat(LabelFormat labelFormat) {
+		this.labelFormat = labelFormat;
+		this.labelState = null;
+		this.formattedLabel = null;
+	}
+
+	/**
+	 * @return the label formatted with the given state, or <code>null</code> if it has not been cached
+	 */
+	synchronized String getFormattedLabel(LabelFormat format, State state) {
+		if(format == labelFormat && isSameState(state, labelState)) {
+			return formattedLabel;
+		}
+		return null;
+	}
+
+	/**
+	 * States are compared by their string form, as equal states might be formatted differently,
+	 * e.g. decimals with a different scale.
+	 */
+	private static boolean isSameState(State state, State other) {
+		return state != null && other != null && state.getClass() == other.getClass()
+				&& state.toString().equals(other.toString());
+	}
+
+	synchronized void setFormattedLabel(LabelFormat format, State state, String formattedLabel) {
+		if(format == labelFormat) {
+			this.labelState = state;
+			this.formattedLabel = formattedLabel;
+		}
+	}
+
+	/**
+	 * @param source the visibility rules of the widget
+	 * @return the compiled rules, or <code>null</code> if they need to be compiled
+	 */
+	synchronized CompiledRules getVisibilityRules(List<?> source) {
+		return visibilityRules != null && visibilityRules.isCompiledFrom(source) ? visibilityRules : null;
+	}
+
+	synchronized void setVisibilityRules(CompiledRules visibilityRules) {
+		this.visibilityRules = visibilityRules;
+	}
+
+	/**
+	 * @param source the label or value color rules of the widget
+	 * @return the compiled rules, or <code>null</code> if they need to be compiled
+	 */
+	synchronized CompiledRules getColorRules(List<?> source, boolean labelColor) {
+		CompiledRules rules = labelColor ? labelColorRules : valueColorRules;
+		return rules != null && rules.isCompiledFrom(source) ? rules : null;
+	}
+
+	synchronized void setColorRules(CompiledRules colorRules, boolean labelColor) {
+		if(labelColor) {
+			this.labelColorRules = colorRules;
+		} else {
+			this.valueColorRules = colorRules;
+		}
+	}
+
+	/**
+	 * The compiled color or visibility rules of a widget.
+	 */
+	static class CompiledRules {
+
+		/** returned if the result has not been cached */
+		static final Object NO_RESULT = new Object();
+
+		/**
+		 * the rules of the widget model; they are referenced weakly, as the model list
+		 * references its widget, which is the key of this cache
+		 */
+		private final WeakReference<List<?>> source;
+
+		private final int sourceSize;
+
+		private final List<StateRule> rules;
+
+		private final Object staticResult;
+
+		private State[] lastStates;
+
+		private Object lastResult = NO_RESULT;
+
+		/**
+		 * @param source the rules of the widget model
+		 * @param rules the compiled rules, which are checked in their order
+		 * @param staticResult the result which does not depend on any state, <code>null</code> if there is none
+		 */
+		CompiledRules(List<?> source, List<StateRule> rules, Object staticResult) {
+			this.source = new WeakReference<List<?>>(source);
+			this.sourceSize = source.size();
+			this.rules = rules;
+			this.staticResult = staticResult;
+		}
+
+		boolean isCompiledFrom(List<?> source) {
+			return this.source.get() == source && this.sourceSize == source.size();
+		}
+
+		List<StateRule> getRules() {
+			return rules;
+		}
+
+		Object getStaticResult() {
+			return staticResult;
+		}
+
+		/**
+		 * @param states the states the rules are checked with
+		 * @return the result of the last check, if it has been done with the same states,
+		 * otherwise {@link #NO_RESULT}
+		 */
+		synchronized Object getResult(State[] states) {
+			return Arrays.equals(states, lastStates) ? lastResult : NO_RESULT;
+		}
+
+		synchronized void setResult(State[] states, Object result) {
+			if(isCacheable(states)) {
+				this.lastStates = states;
+				this.lastResult = result;
+			}
+		}
+
+		/**
+		 * The age of date and time states is checked, so the result depends on the current time.
+		 */
+		private static boolean isCacheable(State[] states) {
+			for(State state : states) {
+				if(state == null || state instanceof DateTimeType) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+}